@@ -11,22 +11,48 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
+import org.datatransferproject.spi.transfer.idempotentexecutor.InFlightImports;
 import org.datatransferproject.types.transfer.errors.ErrorDetail;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static java.lang.String.format;
 
+/**
+ * {@link IdempotentImportExecutor} backed by Cloud Datastore.
+ *
+ * <p>Results and errors are written behind the import: they are kept in memory at once, and the
+ * ids of the changed items are committed to Datastore in batches of up to {@code batchSize} items,
+ * or sooner once the oldest unwritten change is {@code maxBatchDelayMillis} old. Batches are
+ * committed in order on a single background thread. {@link #flush()} waits for every change made
+ * so far to be committed.
+ */
 public class GoogleCloudIdempotentImportExecutor implements IdempotentImportExecutor {
 
+  // Each item takes up to two mutations, and Datastore allows 500 mutations in a commit.
+  private static final int MAX_BATCH_SIZE = 250;
+  private static final int DEFAULT_BATCH_SIZE = 100;
+  private static final long DEFAULT_MAX_BATCH_DELAY_MILLIS = 5_000;
+
   private static final String IDEMPOTENT_RESULTS_KIND = "IdempotentResults";
   private static final String IDEMPONTENT_ERRORS_KIND = "IdempotentErrors";
 
@@ -38,6 +64,12 @@ public class GoogleCloudIdempotentImportExecutor implements IdempotentImportExec
   private final Datastore datastore;
   private final Monitor monitor;
   private final ObjectMapper objectMapper;
+  private final int batchSize;
+  private final long maxBatchDelayMillis;
+  private final ExecutorService writer;
+  // Lets only one thread at a time import a given item, so that sibling containers imported in
+  // parallel never import an item twice.
+  private final InFlightImports inFlightImports = new InFlightImports();
 
   // These are all variables corresponding to the job state. Only initialized when setJobId() is called
   private Map<String, Serializable> knownValues;
@@ -45,12 +77,45 @@ public class GoogleCloudIdempotentImportExecutor implements IdempotentImportExec
   private UUID jobId;
   private String jobIdPrefix;
 
+  // Ids of the items whose state has not been committed yet, mapped to whether a stored error has
+  // to be deleted. Guarded by pendingLock, as are the fields below.
+  private final Object pendingLock = new Object();
+  private Map<String, Boolean> pendingIds = new LinkedHashMap<>();
+  private long oldestPendingMillis;
+  private final List<Future<?>> inFlightBatches = new ArrayList<>();
+  private Exception lastWriteFailure;
+
   public GoogleCloudIdempotentImportExecutor(Datastore datastore, Monitor monitor) {
+    this(datastore, monitor, DEFAULT_BATCH_SIZE, DEFAULT_MAX_BATCH_DELAY_MILLIS);
+  }
+
+  public GoogleCloudIdempotentImportExecutor(
+      Datastore datastore, Monitor monitor, int batchSize, long maxBatchDelayMillis) {
+    Preconditions.checkArgument(
+        batchSize > 0 && batchSize <= MAX_BATCH_SIZE,
+        "batchSize must be between 1 and %s",
+        MAX_BATCH_SIZE);
     this.datastore = datastore;
     this.monitor = monitor;
+    this.batchSize = batchSize;
+    this.maxBatchDelayMillis = maxBatchDelayMillis;
     this.objectMapper = new ObjectMapper();
     this.objectMapper.registerModule(new JavaTimeModule());
     this.objectMapper.registerSubtypes(ErrorDetail.class);
+    // A single, lazily started thread keeps the batches in order and goes away when idle.
+    ThreadPoolExecutor writer =
+        new ThreadPoolExecutor(
+            1,
+            1,
+            30,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder()
+                .setNameFormat("idempotent-results-writer-%d")
+                .setDaemon(true)
+                .build());
+    writer.allowCoreThreadTimeOut(true);
+    this.writer = writer;
   }
 
   @Override
@@ -69,12 +134,15 @@ public class GoogleCloudIdempotentImportExecutor implements IdempotentImportExec
       String idempotentId, String itemName, Callable<T> callable) throws Exception {
     Preconditions.checkNotNull(jobId, "executing a callable before initialization of a job");
 
-    if (knownValues.containsKey(idempotentId)) {
+    Map<String, Serializable> jobKnownValues = knownValues;
+    InFlightImports.Reservation reservation =
+        inFlightImports.reserve(idempotentId, jobKnownValues::containsKey);
+    if (reservation == null) {
       monitor.debug(
           () ->
               jobIdPrefix
                   + format("Using cached key %s from cache for %s", idempotentId, itemName));
-      return (T) knownValues.get(idempotentId);
+      return (T) jobKnownValues.get(idempotentId);
     }
 
     try {
@@ -93,36 +161,123 @@ public class GoogleCloudIdempotentImportExecutor implements IdempotentImportExec
       addError(idempotentId, errorDetail);
       monitor.severe(() -> jobIdPrefix + "Problem with importing item: " + errorDetail);
       throw e;
+    } finally {
+      reservation.close();
     }
   }
 
-  private <T extends Serializable> void addResult(String idempotentId, T result)
-      throws IOException {
+  private <T extends Serializable> void addResult(String idempotentId, T result) {
     knownValues.put(idempotentId, result);
+    // if the errors contain this key, the stored error has to be deleted with the result write
+    boolean hadError = errors.remove(idempotentId) != null;
+    markPending(idempotentId, hadError);
+  }
 
-    try {
-      Transaction transaction = datastore.newTransaction();
+  private void addError(String idempotentId, ErrorDetail errorDetail) {
+    errors.put(idempotentId, errorDetail);
+    markPending(idempotentId, false);
+  }
 
-      transaction.put(createResultEntity(idempotentId, result));
-      if (errors.containsKey(idempotentId)) {
-        // if the errors contain this key, that means the ID
-        transaction.delete(getErrorKey(idempotentId, jobId));
-        errors.remove(idempotentId);
+  private void markPending(String idempotentId, boolean deleteError) {
+    synchronized (pendingLock) {
+      if (pendingIds.isEmpty()) {
+        oldestPendingMillis = System.currentTimeMillis();
+      }
+      pendingIds.merge(idempotentId, deleteError, Boolean::logicalOr);
+      if (pendingIds.size() >= batchSize
+          || System.currentTimeMillis() - oldestPendingMillis >= maxBatchDelayMillis) {
+        submitPendingBatch();
       }
-      transaction.commit();
-    } catch (DatastoreException e) {
-      monitor.severe(() -> jobIdPrefix + "Error writing result to datastore: " + e);
     }
   }
 
-  private void addError(String idempotentId, ErrorDetail errorDetail) throws IOException {
-    errors.put(idempotentId, errorDetail);
+  /** Hands the pending ids to the writer thread. Must be called holding pendingLock. */
+  private void submitPendingBatch() {
+    if (pendingIds.isEmpty()) {
+      return;
+    }
+    Map<String, Boolean> batch = pendingIds;
+    pendingIds = new LinkedHashMap<>();
+    UUID batchJobId = jobId;
+    Map<String, Serializable> batchKnownValues = knownValues;
+    Map<String, ErrorDetail> batchErrors = errors;
+    inFlightBatches.add(
+        writer.submit(() -> writeBatch(batchJobId, batchKnownValues, batchErrors, batch)));
+  }
+
+  /**
+   * Commits the current state of the given items. The state is read at commit time, so a batch
+   * retried after a newer one can never overwrite a newer result.
+   */
+  private void writeBatch(
+      UUID batchJobId,
+      Map<String, Serializable> batchKnownValues,
+      Map<String, ErrorDetail> batchErrors,
+      Map<String, Boolean> batch) {
     try {
       Transaction transaction = datastore.newTransaction();
-      transaction.put(createErrorEntity(idempotentId, errorDetail));
+      for (Map.Entry<String, Boolean> pending : batch.entrySet()) {
+        String idempotentId = pending.getKey();
+        Serializable result = batchKnownValues.get(idempotentId);
+        if (result != null) {
+          transaction.put(createResultEntity(idempotentId, batchJobId, result));
+          if (pending.getValue()) {
+            transaction.delete(getErrorKey(idempotentId, batchJobId));
+          }
+        } else {
+          ErrorDetail error = batchErrors.get(idempotentId);
+          if (error != null) {
+            transaction.put(createErrorEntity(idempotentId, batchJobId, error));
+          }
+        }
+      }
       transaction.commit();
-    } catch (DatastoreException e) {
-      monitor.severe(() -> jobIdPrefix + "Error writing ErrorDetails to datastore: " + e);
+    } catch (IOException | RuntimeException e) {
+      // Any failure, not just Datastore's, has to keep the items and be reported by flush().
+      monitor.severe(
+          () -> "Job " + batchJobId + ": Error writing results to datastore: " + e);
+      synchronized (pendingLock) {
+        // Keep the failed items for the next flush, merged with anything added since.
+        if (batchJobId.equals(jobId)) {
+          batch.forEach((id, deleteError) -> pendingIds.merge(id, deleteError, Boolean::logicalOr));
+          if (!pendingIds.isEmpty()) {
+            oldestPendingMillis = System.currentTimeMillis();
+          }
+        }
+        lastWriteFailure = e;
+      }
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    List<Future<?>> batches;
+    synchronized (pendingLock) {
+      submitPendingBatch();
+      batches = new ArrayList<>(inFlightBatches);
+    }
+    try {
+      for (Future<?> batch : batches) {
+        batch.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while writing results to datastore", e);
+    } catch (ExecutionException e) {
+      throw new IOException("Error writing results to datastore", e.getCause());
+    } finally {
+      synchronized (pendingLock) {
+        // Failed batches too, so that they don't fail every later flush.
+        inFlightBatches.removeIf(Future::isDone);
+      }
+    }
+    Exception failure;
+    synchronized (pendingLock) {
+      failure = lastWriteFailure;
+      lastWriteFailure = null;
+    }
+    if (failure != null) {
+      throw new IOException(jobIdPrefix + "Error writing results to datastore", failure);
     }
   }
 
@@ -153,9 +308,20 @@ public class GoogleCloudIdempotentImportExecutor implements IdempotentImportExec
   @Override
   public void setJobId(UUID jobId) {
     Preconditions.checkNotNull(jobId);
-    this.jobId = jobId;
-    this.knownValues = getKnownValuesForJob(jobId);
-    this.errors = getErrorDetailsForJob(jobId);
+    if (this.jobId != null) {
+      // Results still being written behind would otherwise be missing from the reload.
+      try {
+        flush();
+      } catch (IOException e) {
+        monitor.severe(() -> jobIdPrefix + "Error writing results before reloading job: " + e);
+      }
+    }
+    synchronized (pendingLock) {
+      pendingIds = new LinkedHashMap<>();
+      this.jobId = jobId;
+    }
+    this.knownValues = Collections.synchronizedMap(getKnownValuesForJob(jobId));
+    this.errors = Collections.synchronizedMap(getErrorDetailsForJob(jobId));
     jobIdPrefix = "Job " + jobId + ": ";
   }
 
@@ -202,11 +368,6 @@ public class GoogleCloudIdempotentImportExecutor implements IdempotentImportExec
   }
 
 
-  private <T extends Serializable> Entity createResultEntity(String idempotentId, T result)
-      throws IOException {
-    return createResultEntity(idempotentId, this.jobId, result);
-  }
-
   @VisibleForTesting
   <T extends Serializable> Entity createResultEntity(String idempotentId, UUID jobId, T result)
       throws IOException {
@@ -225,10 +386,6 @@ public class GoogleCloudIdempotentImportExecutor implements IdempotentImportExec
         .newKey(jobId + "_" + idempotentId);
   }
 
-  private Entity createErrorEntity(String idempotentId, ErrorDetail error) throws IOException {
-    return createErrorEntity(idempotentId, this.jobId, error);
-  }
-
   @VisibleForTesting
   Entity createErrorEntity(String idempotentId, UUID jobId, ErrorDetail error)
       throws IOException {
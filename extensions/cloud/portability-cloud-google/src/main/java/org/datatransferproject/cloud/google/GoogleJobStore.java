@@ -29,6 +29,7 @@ import com.google.cloud.datastore.PathElement;
 import com.google.cloud.datastore.Query;
 import com.google.cloud.datastore.QueryResults;
 import com.google.cloud.datastore.StringValue;
+import com.google.cloud.datastore.StructuredQuery.CompositeFilter;
 import com.google.cloud.datastore.StructuredQuery.PropertyFilter;
 import com.google.cloud.datastore.TimestampValue;
 import com.google.cloud.datastore.Transaction;
@@ -40,15 +41,21 @@ import com.google.inject.Singleton;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Stack;
 import java.util.UUID;
+import org.datatransferproject.spi.cloud.storage.JobStackLog;
 import org.datatransferproject.spi.cloud.storage.JobStore;
 import org.datatransferproject.spi.cloud.storage.JobStoreWithValidator;
 import org.datatransferproject.spi.cloud.types.JobAuthorization;
 import org.datatransferproject.spi.cloud.types.PortabilityJob;
+import org.datatransferproject.types.common.ExportInformation;
 import org.datatransferproject.types.common.models.DataModel;
 import org.datatransferproject.types.transfer.errors.ErrorDetail;
 
@@ -59,16 +66,23 @@ public final class GoogleJobStore extends JobStoreWithValidator {
   private static final String JOB_KIND = "persistentKey";
   private static final String ERROR_KIND = "error";
   private static final String COUNTS_KIND = "counts";
+  private static final String JOB_STACK_KIND = "jobStack";
   private static final String CREATED_FIELD = "created";
   private static final String LAST_UPDATE_FIELD = "lastUpdated";
   // Field name for entities to store generic json data.
   private static final String JSON_DATA_FIELD = "jsonData";
   private static final String COUNTS_FIELD = "count";
+  // Property name for filtering queries on the entity keys.
+  private static final String KEY_PROPERTY = "__key__";
+  // Lease expiration of a job claimed by a worker that is waiting for its credentials, only set in
+  // that state so that the expired leases can be queried without a composite index.
+  private static final String CLAIM_LEASE_EXPIRATION_FIELD = "claimLeaseExpiration";
 
   private final Datastore datastore;
   // TODO: refactor googleTempFileStore into separate interface
   private final GoogleTempFileStore googleTempFileStore;
   private final ObjectMapper objectMapper;
+  private final JobStackLog jobStackLog;
 
   @Inject
   public GoogleJobStore(
@@ -76,6 +90,7 @@ public final class GoogleJobStore extends JobStoreWithValidator {
     this.datastore = datastore;
     this.googleTempFileStore = googleTempFileStore;
     this.objectMapper = objectMapper;
+    this.jobStackLog = new JobStackLog(new DatastoreJobStackStorage());
   }
 
   @VisibleForTesting
@@ -179,8 +194,11 @@ public final class GoogleJobStore extends JobStoreWithValidator {
         validator.validate(previousJob, job);
       }
 
-      Entity newEntity = createUpdatedEntity(key, job.toMap());
-      transaction.put(newEntity);
+      Entity.Builder newEntity = createUpdatedEntityBuilder(key, job.toMap());
+      if (isAwaitingCredentials(job)) {
+        newEntity.set(CLAIM_LEASE_EXPIRATION_FIELD, toTimestamp(job.leaseExpiration()));
+      }
+      transaction.put(newEntity.build());
       transaction.commit();
     } catch (Throwable t) {
       transaction.rollback();
@@ -216,6 +234,7 @@ public final class GoogleJobStore extends JobStoreWithValidator {
   @Override
   public void remove(UUID jobId) throws IOException {
     try {
+      jobStackLog.delete(jobId);
       datastore.delete(getJobKey(jobId));
     } catch (DatastoreException e) {
       throw new IOException("Could not remove jobId: " + jobId, e);
@@ -261,6 +280,65 @@ public final class GoogleJobStore extends JobStoreWithValidator {
     return UUID.fromString(key.getName());
   }
 
+  /**
+   * Finds the IDs of up to {@code limit} {@link PortabilityJob}s in state {@code jobState} in
+   * Datastore, starting at a random job key and wrapping around, in random order so that
+   * concurrent workers try to claim different jobs first.
+   */
+  @Override
+  public List<UUID> findClaimCandidates(JobAuthorization.State jobState, int limit) {
+    List<UUID> candidates = new ArrayList<>();
+    Key start = getJobKey(UUID.randomUUID());
+    addJobKeys(candidates, jobState, PropertyFilter.ge(KEY_PROPERTY, start), limit);
+    if (candidates.size() < limit) {
+      addJobKeys(candidates, jobState, PropertyFilter.lt(KEY_PROPERTY, start), limit);
+    }
+    Collections.shuffle(candidates);
+    return candidates;
+  }
+
+  /**
+   * Finds the IDs of up to {@code limit} {@link PortabilityJob}s whose lease expired before {@code
+   * now} in Datastore, in random order.
+   *
+   * <p>Only jobs waiting for their credentials have a {@code CLAIM_LEASE_EXPIRATION_FIELD}, so the
+   * query is served by the built-in index of that field alone, and jobs with live leases are never
+   * read.
+   */
+  @Override
+  public List<UUID> findExpiredLeaseCandidates(Instant now, int limit) {
+    Query<Key> query =
+        Query.newKeyQueryBuilder()
+            .setKind(JOB_KIND)
+            .setFilter(PropertyFilter.lt(CLAIM_LEASE_EXPIRATION_FIELD, toTimestamp(now)))
+            .setLimit(limit)
+            .build();
+    QueryResults<Key> results = datastore.run(query);
+    List<UUID> candidates = new ArrayList<>();
+    while (results.hasNext()) {
+      candidates.add(UUID.fromString(results.next().getName()));
+    }
+    Collections.shuffle(candidates);
+    return candidates;
+  }
+
+  private void addJobKeys(
+      List<UUID> jobIds, JobAuthorization.State jobState, PropertyFilter keyFilter, int limit) {
+    Query<Key> query =
+        Query.newKeyQueryBuilder()
+            .setKind(JOB_KIND)
+            .setFilter(
+                CompositeFilter.and(
+                    PropertyFilter.eq(PortabilityJob.AUTHORIZATION_STATE, jobState.name()),
+                    keyFilter))
+            .setLimit(limit - jobIds.size())
+            .build();
+    QueryResults<Key> results = datastore.run(query);
+    while (results.hasNext()) {
+      jobIds.add(UUID.fromString(results.next().getName()));
+    }
+  }
+
   @Override
   public <T extends DataModel> void create(UUID jobId, String key, T model) throws IOException {
     Preconditions.checkNotNull(jobId);
@@ -382,6 +460,37 @@ public final class GoogleJobStore extends JobStoreWithValidator {
     return googleTempFileStore.getStream(jobId, key);
   }
 
+  @Override
+  public Optional<Stack<ExportInformation>> loadJobStack(UUID jobId) {
+    try {
+      return jobStackLog.load(jobId);
+    } catch (IOException | DatastoreException e) {
+      throw new RuntimeException("Failed to load the job stack of jobId: " + jobId, e);
+    }
+  }
+
+  @Override
+  public void storeJobStack(UUID jobId, Stack<ExportInformation> stack) {
+    try {
+      jobStackLog.store(jobId, stack);
+    } catch (IOException | DatastoreException e) {
+      throw new RuntimeException("Failed to store the job stack of jobId: " + jobId, e);
+    }
+  }
+
+  @Override
+  public void releaseJobStack(UUID jobId, boolean completed) {
+    if (!completed) {
+      jobStackLog.forget(jobId);
+      return;
+    }
+    try {
+      jobStackLog.delete(jobId);
+    } catch (IOException | DatastoreException e) {
+      throw new RuntimeException("Failed to delete the job stack of jobId: " + jobId, e);
+    }
+  }
+
   private Entity createNewEntity(UUID jobId, Map<String, Object> data) throws IOException {
     Timestamp createdTime = Timestamp.now();
 
@@ -391,10 +500,20 @@ public final class GoogleJobStore extends JobStoreWithValidator {
         .build();
   }
 
-  private Entity createUpdatedEntity(Key key, Map<String, Object> data) throws IOException {
-    return GoogleCloudUtils.createEntityBuilder(key, data)
-        .set(LAST_UPDATE_FIELD, Timestamp.now())
-        .build();
+  private Entity.Builder createUpdatedEntityBuilder(Key key, Map<String, Object> data)
+      throws IOException {
+    return GoogleCloudUtils.createEntityBuilder(key, data).set(LAST_UPDATE_FIELD, Timestamp.now());
+  }
+
+  /** Returns whether the worker that claimed {@code job} under a lease waits for its creds. */
+  private static boolean isAwaitingCredentials(PortabilityJob job) {
+    return job.state() == PortabilityJob.State.NEW
+        && job.jobAuthorization().state() == JobAuthorization.State.CREDS_ENCRYPTION_KEY_GENERATED
+        && job.leaseExpiration() != null;
+  }
+
+  private static Timestamp toTimestamp(Instant instant) {
+    return Timestamp.ofTimeSecondsAndNanos(instant.getEpochSecond(), instant.getNano());
   }
 
   private Key getJobKey(UUID jobId) {
@@ -425,6 +544,25 @@ public final class GoogleJobStore extends JobStoreWithValidator {
         .newKey(dataType);
   }
 
+  private Key getJobStackKey(UUID jobId, long sequence) {
+    // Use the main job as the ancestor to all the job stack records, see:
+    // https://cloud.google.com/datastore/docs/concepts/entities#ancestor_paths
+    return datastore
+        .newKeyFactory()
+        .setKind(JOB_STACK_KIND)
+        .addAncestor(PathElement.of(JOB_KIND, jobId.toString()))
+        .newKey(sequence);
+  }
+
+  private Query<Entity> getJobStackQuery(UUID jobId) {
+    Key ancestorKey = datastore.newKeyFactory().setKind(JOB_KIND).newKey(jobId.toString());
+
+    return Query.newEntityQueryBuilder()
+        .setKind(JOB_STACK_KIND)
+        .setFilter(PropertyFilter.hasAncestor(ancestorKey))
+        .build();
+  }
+
   private Query<Entity> getCountsQuery(UUID jobId) {
     // Use the main job as the ancestor to all the errors, see:
     // http://cloud/datastore/docs/concepts/queries#ancestor_queries
@@ -435,4 +573,51 @@ public final class GoogleJobStore extends JobStoreWithValidator {
         .setFilter(PropertyFilter.hasAncestor(ancestorKey))
         .build();
   }
+
+  /** Keeps each job stack record in its own entity, keyed by its sequence number. */
+  private final class DatastoreJobStackStorage implements JobStackLog.Storage {
+    @Override
+    public void append(UUID jobId, JobStackLog.Record record) throws IOException {
+      // Snapshots of deep stacks can be larger than what Datastore allows to index.
+      StringValue serialized =
+          StringValue.newBuilder(objectMapper.writeValueAsString(record))
+              .setExcludeFromIndexes(true)
+              .build();
+      datastore.put(
+          Entity.newBuilder(getJobStackKey(jobId, record.getSequence()))
+              .set(JSON_DATA_FIELD, serialized)
+              .build());
+    }
+
+    @Override
+    public List<JobStackLog.Record> read(UUID jobId) throws IOException {
+      QueryResults<Entity> results = datastore.run(getJobStackQuery(jobId));
+      List<JobStackLog.Record> records = new ArrayList<>();
+      while (results.hasNext()) {
+        records.add(
+            objectMapper.readValue(
+                results.next().getString(JSON_DATA_FIELD), JobStackLog.Record.class));
+      }
+      return records;
+    }
+
+    @Override
+    public void truncate(UUID jobId, long sequence) {
+      Key ancestorKey = datastore.newKeyFactory().setKind(JOB_KIND).newKey(jobId.toString());
+      Query<Key> query =
+          Query.newKeyQueryBuilder()
+              .setKind(JOB_STACK_KIND)
+              .setFilter(PropertyFilter.hasAncestor(ancestorKey))
+              .build();
+      List<Key> keys = new ArrayList<>();
+      QueryResults<Key> results = datastore.run(query);
+      while (results.hasNext()) {
+        Key key = results.next();
+        if (key.getId() < sequence) {
+          keys.add(key);
+        }
+      }
+      datastore.delete(keys.toArray(new Key[keys.size()]));
+    }
+  }
 }
@@ -76,6 +76,23 @@ public class GoogleCloudIdempotentImportExecutorTest {
     assertEquals(googleExecutor.getErrors().size(), 0);
   }
 
+  @Test
+  public void flushWritesBatchedResults() throws Exception {
+    googleExecutor = new GoogleCloudIdempotentImportExecutor(datastore, monitor, 2, 60_000);
+    googleExecutor.setJobId(JOB_ID);
+    googleExecutor.executeAndSwallowIOExceptions("id1", ITEM_NAME, () -> "idempotentId1");
+    googleExecutor.executeAndSwallowIOExceptions("id2", ITEM_NAME, () -> "idempotentId2");
+    googleExecutor.executeAndSwallowIOExceptions("id3", ITEM_NAME, () -> "idempotentId3");
+    googleExecutor.flush();
+
+    GoogleCloudIdempotentImportExecutor restarted =
+        new GoogleCloudIdempotentImportExecutor(datastore, monitor);
+    restarted.setJobId(JOB_ID);
+    assertEquals(restarted.getCachedValue("id1"), "idempotentId1");
+    assertEquals(restarted.getCachedValue("id2"), "idempotentId2");
+    assertEquals(restarted.getCachedValue("id3"), "idempotentId3");
+  }
+
   private void initializeDS() throws IOException {
     Transaction t = datastore.newTransaction();
     t.put(googleExecutor.createResultEntity("id1", JOB_ID, "idempotentId1"));
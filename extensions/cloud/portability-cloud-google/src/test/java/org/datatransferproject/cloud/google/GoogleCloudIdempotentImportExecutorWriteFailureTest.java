@@ -0,0 +1,132 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.cloud.google;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.datastore.Datastore;
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.KeyFactory;
+import com.google.cloud.datastore.Query;
+import com.google.cloud.datastore.QueryResults;
+import com.google.cloud.datastore.Transaction;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.datatransferproject.api.launcher.Monitor;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+/** Tests of {@link GoogleCloudIdempotentImportExecutor} that don't need a Datastore emulator. */
+public class GoogleCloudIdempotentImportExecutorWriteFailureTest {
+  private static final UUID JOB_ID = UUID.randomUUID();
+
+  private final Datastore datastore = mock(Datastore.class);
+  private final Transaction transaction = mock(Transaction.class);
+  private GoogleCloudIdempotentImportExecutor executor;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    QueryResults<Entity> noResults = mock(QueryResults.class);
+    when(datastore.run(any(Query.class))).thenReturn((QueryResults) noResults);
+    when(datastore.newKeyFactory()).thenAnswer(invocation -> new KeyFactory("project"));
+    executor = new GoogleCloudIdempotentImportExecutor(datastore, mock(Monitor.class), 10, 60_000);
+    executor.setJobId(JOB_ID);
+  }
+
+  @Test
+  public void itemsOfABatchFailingWithAnyExceptionAreWrittenByTheNextFlush() throws Exception {
+    when(datastore.newTransaction())
+        .thenThrow(new IllegalStateException("not a DatastoreException"))
+        .thenReturn(transaction);
+    executor.executeOrThrowException("id1", "item", () -> "result1");
+
+    try {
+      executor.flush();
+      fail("Expected the first flush to report the failed batch");
+    } catch (IOException expected) {
+    }
+    executor.flush();
+
+    ArgumentCaptor<Entity> written = ArgumentCaptor.forClass(Entity.class);
+    verify(transaction).put(written.capture());
+    assertThat(written.getValue().getKey().getName()).isEqualTo(JOB_ID + "_id1");
+    verify(transaction).commit();
+  }
+
+  @Test(timeout = 10_000)
+  public void concurrentImportsOfTheSameIdRunOnce() throws Exception {
+    ExecutorService threads = Executors.newCachedThreadPool();
+    try {
+      CountDownLatch firstImportStarted = new CountDownLatch(1);
+      CountDownLatch finishFirstImport = new CountDownLatch(1);
+      AtomicInteger imports = new AtomicInteger();
+
+      Future<String> first =
+          threads.submit(
+              () ->
+                  executor.executeOrThrowException(
+                      "id",
+                      "item",
+                      () -> {
+                        imports.incrementAndGet();
+                        firstImportStarted.countDown();
+                        finishFirstImport.await();
+                        return "first";
+                      }));
+      firstImportStarted.await();
+
+      AtomicReference<Thread> secondThread = new AtomicReference<>();
+      Future<String> second =
+          threads.submit(
+              () -> {
+                secondThread.set(Thread.currentThread());
+                return executor.executeOrThrowException(
+                    "id",
+                    "item",
+                    () -> {
+                      imports.incrementAndGet();
+                      return "second";
+                    });
+              });
+      // Wait until the second import either waits for the first one or, if it weren't excluded,
+      // ran and finished.
+      while (secondThread.get() == null
+          || (secondThread.get().getState() != Thread.State.WAITING && !second.isDone())) {
+        Thread.yield();
+      }
+      finishFirstImport.countDown();
+
+      assertThat(first.get()).isEqualTo("first");
+      assertThat(second.get()).isEqualTo("first");
+      assertThat(imports.get()).isEqualTo(1);
+    } finally {
+      threads.shutdownNow();
+    }
+  }
+}
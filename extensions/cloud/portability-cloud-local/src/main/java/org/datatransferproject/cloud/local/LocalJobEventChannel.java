@@ -0,0 +1,50 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.cloud.local;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+import org.datatransferproject.spi.cloud.storage.JobEventChannel;
+
+/**
+ * An in-process {@link JobEventChannel} for {@link LocalJobStore}, which calls the listeners on the
+ * thread that updated the job.
+ */
+final class LocalJobEventChannel implements JobEventChannel {
+  private final Set<Listener> listeners = new CopyOnWriteArraySet<>();
+
+  @Override
+  public Subscription subscribe(Listener listener) {
+    listeners.add(listener);
+    return () -> listeners.remove(listener);
+  }
+
+  void publishJobAvailable(UUID jobId) {
+    publish(listener -> listener.onJobAvailable(jobId));
+  }
+
+  void publishJobCanceled(UUID jobId) {
+    publish(listener -> listener.onJobCanceled(jobId));
+  }
+
+  private void publish(Consumer<Listener> event) {
+    for (Listener listener : listeners) {
+      event.accept(listener);
+    }
+  }
+}
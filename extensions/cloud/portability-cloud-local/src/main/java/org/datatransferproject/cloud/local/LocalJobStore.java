@@ -22,18 +22,29 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Stack;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
 import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.spi.cloud.storage.JobEventChannel;
+import org.datatransferproject.spi.cloud.storage.JobStackLog;
 import org.datatransferproject.spi.cloud.storage.JobStore;
 import org.datatransferproject.spi.cloud.storage.JobStoreWithValidator;
 import org.datatransferproject.spi.cloud.types.JobAuthorization;
 import org.datatransferproject.spi.cloud.types.JobAuthorization.State;
 import org.datatransferproject.spi.cloud.types.PortabilityJob;
+import org.datatransferproject.types.common.ExportInformation;
 import org.datatransferproject.types.common.models.DataModel;
 import org.datatransferproject.types.transfer.errors.ErrorDetail;
 
@@ -42,12 +53,16 @@ public final class LocalJobStore extends JobStoreWithValidator {
   private static ConcurrentHashMap<UUID, Map<String, Object>> JOB_MAP = new ConcurrentHashMap<>();
   private static ConcurrentHashMap<String, Map<Class<? extends DataModel>, DataModel>> DATA_MAP =
       new ConcurrentHashMap<>();
+  private static ConcurrentHashMap<UUID, List<JobStackLog.Record>> JOB_STACK_MAP =
+      new ConcurrentHashMap<>();
+  private static final LocalJobEventChannel JOB_EVENT_CHANNEL = new LocalJobEventChannel();
   private static LocalTempFileStore localTempFileStore = new LocalTempFileStore();
   private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
   private final Monitor monitor;
   private final ConcurrentHashMap<UUID, ConcurrentHashMap<String, Integer>> counts;
   private final ConcurrentHashMap<UUID, LongAdder> bytesMap = new ConcurrentHashMap<>();
+  private final JobStackLog jobStackLog = new JobStackLog(new LocalJobStackStorage());
 
   /** Ctor for testing with a null monitor. */
   public LocalJobStore() {
@@ -103,19 +118,35 @@ public final class LocalJobStore extends JobStoreWithValidator {
       UUID jobId, PortabilityJob job, JobUpdateValidator validator) throws IOException {
     Preconditions.checkNotNull(jobId);
     try {
-      Map<String, Object> previousEntry = JOB_MAP.replace(jobId, job.toMap());
+      Map<String, Object> previousEntry = JOB_MAP.get(jobId);
       if (previousEntry == null) {
         throw new IOException("jobId: " + jobId + " didn't exist in the map");
       }
+      PortabilityJob previousJob = PortabilityJob.fromMap(previousEntry);
       if (validator != null) {
-        PortabilityJob previousJob = PortabilityJob.fromMap(previousEntry);
+        // Validate before replacing the entry, so that a rejected update leaves the job unchanged.
         validator.validate(previousJob, job);
       }
+      if (!JOB_MAP.replace(jobId, previousEntry, job.toMap())) {
+        throw new IOException("jobId: " + jobId + " was removed from the map");
+      }
+      publishJobEvents(jobId, previousJob, job);
     } catch (NullPointerException | IllegalStateException e) {
       throw new IOException("Couldn't update jobId: " + jobId, e);
     }
   }
 
+  private static void publishJobEvents(UUID jobId, PortabilityJob previous, PortabilityJob job) {
+    if (job.jobAuthorization().state() == State.CREDS_AVAILABLE
+        && previous.jobAuthorization().state() != State.CREDS_AVAILABLE) {
+      JOB_EVENT_CHANNEL.publishJobAvailable(jobId);
+    }
+    if (job.state() == PortabilityJob.State.CANCELED
+        && previous.state() != PortabilityJob.State.CANCELED) {
+      JOB_EVENT_CHANNEL.publishJobCanceled(jobId);
+    }
+  }
+
   @Override
   public void addErrorsToJob(UUID jobId, Collection<ErrorDetail> errors) throws IOException {
     // This is a no-op currently as nothing in DTP reads the errors currently.
@@ -136,6 +167,7 @@ public final class LocalJobStore extends JobStoreWithValidator {
   public void remove(UUID jobId) throws IOException {
     monitor.debug(() -> format("Remove job %s from local storage", jobId));
     Map<String, Object> previous = JOB_MAP.remove(jobId);
+    jobStackLog.delete(jobId);
     if (previous == null) {
       throw new IOException("jobId: " + jobId + " didn't exist in the map");
     }
@@ -177,6 +209,46 @@ public final class LocalJobStore extends JobStoreWithValidator {
     return null;
   }
 
+  /**
+   * Finds up to {@code limit} {@link PortabilityJob}s in state {@code jobState} in the map, picked
+   * at random among all the jobs in that state.
+   */
+  @Override
+  public List<UUID> findClaimCandidates(JobAuthorization.State jobState, int limit) {
+    return findRandomJobs(jobState, limit, properties -> true);
+  }
+
+  /**
+   * Finds up to {@code limit} {@link PortabilityJob}s in the map whose lease expired before {@code
+   * now}, picked at random among all such jobs.
+   */
+  @Override
+  public List<UUID> findExpiredLeaseCandidates(Instant now, int limit) {
+    return findRandomJobs(
+        State.CREDS_ENCRYPTION_KEY_GENERATED,
+        limit,
+        properties -> PortabilityJob.fromMap(properties).isClaimable(now));
+  }
+
+  private List<UUID> findRandomJobs(
+      JobAuthorization.State jobState, int limit, Predicate<Map<String, Object>> filter) {
+    List<UUID> jobIds = new ArrayList<>();
+    for (Entry<UUID, Map<String, Object>> job : JOB_MAP.entrySet()) {
+      Map<String, Object> properties = job.getValue();
+      if (jobState.name().equals(properties.get(PortabilityJob.AUTHORIZATION_STATE))
+          && filter.test(properties)) {
+        jobIds.add(job.getKey());
+      }
+    }
+    Collections.shuffle(jobIds);
+    return jobIds.size() > limit ? new ArrayList<>(jobIds.subList(0, limit)) : jobIds;
+  }
+
+  @Override
+  public Optional<JobEventChannel> getJobEventChannel() {
+    return Optional.of(JOB_EVENT_CHANNEL);
+  }
+
   @Override
   public void addCounts(UUID jobId, Map<String, Integer> newCounts) {
     if (newCounts == null) {
@@ -246,6 +318,37 @@ public final class LocalJobStore extends JobStoreWithValidator {
     return localTempFileStore.getInputStream(makeFileName(jobId, key));
   }
 
+  @Override
+  public Optional<Stack<ExportInformation>> loadJobStack(UUID jobId) {
+    try {
+      return jobStackLog.load(jobId);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void storeJobStack(UUID jobId, Stack<ExportInformation> stack) {
+    try {
+      jobStackLog.store(jobId, stack);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void releaseJobStack(UUID jobId, boolean completed) {
+    if (!completed) {
+      jobStackLog.forget(jobId);
+      return;
+    }
+    try {
+      jobStackLog.delete(jobId);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
   private static String createFullKey(UUID jobId, String key) {
     Preconditions.checkArgument(!Strings.isNullOrEmpty(key));
     return format("%s-%s", jobId.toString(), key);
@@ -255,4 +358,35 @@ public final class LocalJobStore extends JobStoreWithValidator {
     String replace = inputName.replace("/", "_");
     return createFullKey(jobId, replace);
   }
+
+  /** Keeps the job stack logs in memory, alongside the jobs. */
+  private static final class LocalJobStackStorage implements JobStackLog.Storage {
+    @Override
+    public void append(UUID jobId, JobStackLog.Record record) {
+      JOB_STACK_MAP
+          .computeIfAbsent(jobId, k -> Collections.synchronizedList(new ArrayList<>()))
+          .add(record);
+    }
+
+    @Override
+    public List<JobStackLog.Record> read(UUID jobId) {
+      List<JobStackLog.Record> records = JOB_STACK_MAP.get(jobId);
+      if (records == null) {
+        return Collections.emptyList();
+      }
+      synchronized (records) {
+        return new ArrayList<>(records);
+      }
+    }
+
+    @Override
+    public void truncate(UUID jobId, long sequence) {
+      JOB_STACK_MAP.computeIfPresent(
+          jobId,
+          (id, records) -> {
+            records.removeIf(record -> record.getSequence() < sequence);
+            return records.isEmpty() ? null : records;
+          });
+    }
+  }
 }
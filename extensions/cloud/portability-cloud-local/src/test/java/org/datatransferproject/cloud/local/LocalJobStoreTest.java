@@ -20,8 +20,19 @@ import static org.junit.Assert.assertTrue;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.truth.Truth;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Stack;
 import java.util.UUID;
+import org.datatransferproject.spi.cloud.storage.JobEventChannel;
+import org.datatransferproject.spi.cloud.types.JobAuthorization;
+import org.datatransferproject.spi.cloud.types.PortabilityJob;
+import org.datatransferproject.types.common.ExportInformation;
+import org.datatransferproject.types.common.models.IdOnlyContainerResource;
+import org.junit.Assert;
 import org.junit.Test;
 
 public class LocalJobStoreTest {
@@ -54,6 +65,156 @@ public class LocalJobStoreTest {
     Truth.assertThat(counts.get(ITEM_NAME)).isEqualTo(2);
   }
 
+  @Test
+  public void jobEventsAreDeliveredToSubscribersTest() throws Exception {
+    List<String> events = new ArrayList<>();
+    JobEventChannel.Subscription subscription =
+        localJobStore
+            .getJobEventChannel()
+            .get()
+            .subscribe(
+                new JobEventChannel.Listener() {
+                  @Override
+                  public void onJobAvailable(UUID availableJobId) {
+                    events.add("available " + availableJobId);
+                  }
+
+                  @Override
+                  public void onJobCanceled(UUID canceledJobId) {
+                    events.add("canceled " + canceledJobId);
+                  }
+                });
+    try {
+      localJobStore.createJob(
+          jobId,
+          PortabilityJob.builder()
+              .setTransferDataType("photo")
+              .setExportService("exportService")
+              .setImportService("importService")
+              .setAndValidateJobAuthorization(
+                  JobAuthorization.builder()
+                      .setEncryptionScheme("cleartext")
+                      .setState(JobAuthorization.State.INITIAL)
+                      .setSessionSecretKey("fooBar")
+                      .build())
+              .build());
+      localJobStore.updateJobAuthStateToCredsAvailable(jobId);
+      PortabilityJob job = localJobStore.findJob(jobId);
+      localJobStore.updateJob(
+          jobId, job.toBuilder().setState(PortabilityJob.State.CANCELED).build());
+    } finally {
+      subscription.close();
+      localJobStore.remove(jobId);
+    }
+
+    Truth.assertThat(events).containsExactly("available " + jobId, "canceled " + jobId).inOrder();
+  }
+
+  @Test
+  public void expiredLeaseCandidatesSkipJobsWithLiveLeasesTest() throws Exception {
+    List<UUID> liveJobIds = new ArrayList<>();
+    try {
+      for (int i = 0; i < 3; i++) {
+        UUID liveJobId = UUID.randomUUID();
+        liveJobIds.add(liveJobId);
+        createClaimedJob(liveJobId, Instant.now().plusSeconds(60));
+      }
+      createClaimedJob(jobId, Instant.now().minusSeconds(1));
+
+      Truth.assertThat(localJobStore.findExpiredLeaseCandidates(Instant.now(), 1))
+          .containsExactly(jobId);
+    } finally {
+      for (UUID liveJobId : liveJobIds) {
+        localJobStore.remove(liveJobId);
+      }
+      localJobStore.remove(jobId);
+    }
+  }
+
+  @Test
+  public void credentialsForTheWorkerWhoseLeaseExpiredAreRejectedTest() throws Exception {
+    try {
+      createClaimedJob(jobId, Instant.now().minusSeconds(1));
+      PortabilityJob staleJob = localJobStore.findJob(jobId);
+      localJobStore.claimJob(
+          jobId,
+          staleJob.toBuilder()
+              .setAndValidateJobAuthorization(
+                  staleJob.jobAuthorization()
+                      .toBuilder()
+                      .setInstanceId("newWorker")
+                      .setAuthPublicKey("newWorkerKey")
+                      .build())
+              .setLeaseExpiration(Instant.now().plusSeconds(60))
+              .build());
+
+      PortabilityJob staleCredentials =
+          staleJob.toBuilder()
+              .setAndValidateJobAuthorization(
+                  staleJob.jobAuthorization()
+                      .toBuilder()
+                      .setEncryptedAuthData("encryptedForOtherWorker")
+                      .setState(JobAuthorization.State.CREDS_STORED)
+                      .build())
+              .build();
+      try {
+        localJobStore.updateJobWithCredentials(jobId, staleCredentials);
+        Assert.fail("Expected the credentials to be rejected");
+      } catch (IOException expected) {
+      }
+
+      PortabilityJob job = localJobStore.findJob(jobId);
+      Truth.assertThat(job.jobAuthorization().state())
+          .isEqualTo(JobAuthorization.State.CREDS_ENCRYPTION_KEY_GENERATED);
+      Truth.assertThat(job.jobAuthorization().instanceId()).isEqualTo("newWorker");
+    } finally {
+      localJobStore.remove(jobId);
+    }
+  }
+
+  @Test
+  public void jobStackIsOnlyDeletedOnceTheJobCompletedTest() {
+    Stack<ExportInformation> stack = new Stack<>();
+    stack.push(new ExportInformation(null, new IdOnlyContainerResource("album")));
+    localJobStore.storeJobStack(jobId, stack);
+
+    localJobStore.releaseJobStack(jobId, false);
+    Truth.assertThat(localJobStore.loadJobStack(jobId).get()).containsExactlyElementsIn(stack);
+
+    localJobStore.releaseJobStack(jobId, true);
+    Truth.assertThat(localJobStore.loadJobStack(jobId).isPresent()).isFalse();
+  }
+
+  private void createClaimedJob(UUID claimedJobId, Instant leaseExpiration) throws Exception {
+    localJobStore.createJob(
+        claimedJobId,
+        PortabilityJob.builder()
+            .setTransferDataType("photo")
+            .setExportService("exportService")
+            .setImportService("importService")
+            .setAndValidateJobAuthorization(
+                JobAuthorization.builder()
+                    .setEncryptionScheme("cleartext")
+                    .setState(JobAuthorization.State.INITIAL)
+                    .setSessionSecretKey("fooBar")
+                    .build())
+            .build());
+    localJobStore.updateJobAuthStateToCredsAvailable(claimedJobId);
+    PortabilityJob job = localJobStore.findJob(claimedJobId);
+    localJobStore.claimJob(
+        claimedJobId,
+        job.toBuilder()
+            .setAndValidateJobAuthorization(
+                job.jobAuthorization()
+                    .toBuilder()
+                    .setInstanceId("otherWorker")
+                    .setAuthPublicKey("otherWorkerKey")
+                    .setState(JobAuthorization.State.CREDS_ENCRYPTION_KEY_GENERATED)
+                    .build())
+            .setLeaseExpiration(leaseExpiration)
+            .build());
+  }
+
   private void addItemToJobStoreCounts(final String itemName) {
     localJobStore.addCounts(
         jobId, new ImmutableMap.Builder<String, Integer>().put(itemName, 1).build());
@@ -19,12 +19,21 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.security.InvalidKeyException;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Stack;
 import java.util.UUID;
+import java.util.function.Predicate;
+import org.datatransferproject.spi.cloud.storage.JobStackLog;
 import org.datatransferproject.spi.cloud.storage.JobStoreWithValidator;
 import org.datatransferproject.spi.cloud.types.JobAuthorization;
 import org.datatransferproject.spi.cloud.types.PortabilityJob;
+import org.datatransferproject.types.common.ExportInformation;
 import org.datatransferproject.types.common.models.DataModel;
 import org.datatransferproject.types.transfer.errors.ErrorDetail;
 
@@ -38,12 +47,16 @@ public class AzureTableStore extends JobStoreWithValidator {
 
   private static final String JOB_TABLE = "DP_JOBS";
   private static final String JOB_DATA_TABLE = "DP_JOB_DATA";
+  // Job stack records are kept in the data table, with row keys that sort by sequence number.
+  private static final String JOB_STACK_KEY_PREFIX = "job-stack-";
+  private static final String JOB_STACK_KEY_TEMPLATE = JOB_STACK_KEY_PREFIX + "%019d";
 
   private static final String BLOB_CONTAINER =
       "dataportability"; // Azure rules: The container name must be lowercase
   private static final int UNKNOWN_LENGTH = -1;
 
   private final TableStoreConfiguration configuration;
+  private final JobStackLog jobStackLog = new JobStackLog(new TableJobStackStorage());
 
   private CloudTableClient tableClient;
   private CloudBlobClient blobClient;
@@ -168,6 +181,7 @@ public class AzureTableStore extends JobStoreWithValidator {
   @Override
   public void remove(UUID jobId) throws IOException {
     Preconditions.checkNotNull(jobId, "Job id is null");
+    jobStackLog.delete(jobId);
     remove(jobId, JOB_TABLE);
   }
 
@@ -225,23 +239,7 @@ public class AzureTableStore extends JobStoreWithValidator {
   @Override
   public UUID findFirst(JobAuthorization.State jobState) {
     try {
-      String partitionFilter =
-          generateFilterCondition(
-              "PartitionKey", TableQuery.QueryComparisons.EQUAL, configuration.getPartitionKey());
-      String stateFilter =
-          generateFilterCondition(
-              "State",
-              TableQuery.QueryComparisons.EQUAL,
-              jobState.name()); // properties are converted to capitalized by the storage API
-
-      String combinedFilter =
-          TableQuery.combineFilters(partitionFilter, TableQuery.Operators.AND, stateFilter);
-
-      TableQuery<DataWrapper> query =
-          TableQuery.from(DataWrapper.class).where(combinedFilter).take(1);
-
-      CloudTable table = tableClient.getTableReference(JOB_TABLE);
-      Iterator<DataWrapper> iter = table.execute(query).iterator();
+      Iterator<DataWrapper> iter = findJobsInState(jobState, 1).iterator();
       if (!iter.hasNext()) {
         return null;
       }
@@ -251,6 +249,144 @@ public class AzureTableStore extends JobStoreWithValidator {
     }
   }
 
+  @Override
+  public List<UUID> findClaimCandidates(JobAuthorization.State jobState, int limit) {
+    try {
+      List<UUID> candidates = findJobsFromRandomStart(jobState, limit, wrapper -> true);
+      // Shuffle so that concurrent workers try to claim different jobs first.
+      Collections.shuffle(candidates);
+      return candidates;
+    } catch (StorageException | URISyntaxException e) {
+      throw new MicrosoftStorageException("Error finding claim candidates", e);
+    }
+  }
+
+  @Override
+  public List<UUID> findExpiredLeaseCandidates(Instant now, int limit) {
+    try {
+      // The lease expiration is only in the serialized job, so it's filtered on as jobs are read.
+      return findJobsFromRandomStart(
+          JobAuthorization.State.CREDS_ENCRYPTION_KEY_GENERATED,
+          limit,
+          wrapper -> readJob(wrapper).isClaimable(now));
+    } catch (StorageException | URISyntaxException e) {
+      throw new MicrosoftStorageException("Error finding expired lease candidates", e);
+    }
+  }
+
+  /**
+   * Finds up to {@code limit} jobs in state {@code jobState} matching {@code filter}, starting at
+   * a random row key and wrapping around, so that concurrent workers find different jobs.
+   */
+  private List<UUID> findJobsFromRandomStart(
+      JobAuthorization.State jobState, int limit, Predicate<DataWrapper> filter)
+      throws StorageException, URISyntaxException {
+    List<UUID> jobIds = new ArrayList<>();
+    String start = UUID.randomUUID().toString();
+    addJobs(
+        jobIds,
+        findJobsInState(
+            jobState, TableQuery.QueryComparisons.GREATER_THAN_OR_EQUAL, start, limit),
+        filter,
+        limit);
+    if (jobIds.size() < limit) {
+      addJobs(
+          jobIds,
+          findJobsInState(jobState, TableQuery.QueryComparisons.LESS_THAN, start, limit),
+          filter,
+          limit);
+    }
+    return jobIds;
+  }
+
+  private static void addJobs(
+      List<UUID> jobIds, Iterable<DataWrapper> jobs, Predicate<DataWrapper> filter, int limit) {
+    for (DataWrapper wrapper : jobs) {
+      if (jobIds.size() >= limit) {
+        // The query keeps fetching further pages of results as they are iterated.
+        break;
+      }
+      if (filter.test(wrapper)) {
+        jobIds.add(UUID.fromString(wrapper.getRowKey()));
+      }
+    }
+  }
+
+  private PortabilityJob readJob(DataWrapper wrapper) {
+    try {
+      return configuration.getMapper().readValue(wrapper.getSerialized(), PortabilityJob.class);
+    } catch (IOException e) {
+      throw new MicrosoftStorageException("Error reading job: " + wrapper.getRowKey(), e);
+    }
+  }
+
+  private Iterable<DataWrapper> findJobsInState(JobAuthorization.State jobState, int limit)
+      throws StorageException, URISyntaxException {
+    return findJobs(stateFilter(jobState), limit);
+  }
+
+  /** Finds the jobs in state {@code jobState} whose row key compares to {@code rowKey}. */
+  private Iterable<DataWrapper> findJobsInState(
+      JobAuthorization.State jobState, String rowKeyComparison, String rowKey, int limit)
+      throws StorageException, URISyntaxException {
+    String rowKeyFilter = generateFilterCondition("RowKey", rowKeyComparison, rowKey);
+    return findJobs(
+        TableQuery.combineFilters(stateFilter(jobState), TableQuery.Operators.AND, rowKeyFilter),
+        limit);
+  }
+
+  private String stateFilter(JobAuthorization.State jobState) {
+    String partitionFilter =
+        generateFilterCondition(
+            "PartitionKey", TableQuery.QueryComparisons.EQUAL, configuration.getPartitionKey());
+    String stateFilter =
+        generateFilterCondition(
+            "State",
+            TableQuery.QueryComparisons.EQUAL,
+            jobState.name()); // properties are converted to capitalized by the storage API
+
+    return TableQuery.combineFilters(partitionFilter, TableQuery.Operators.AND, stateFilter);
+  }
+
+  private Iterable<DataWrapper> findJobs(String filter, int limit)
+      throws StorageException, URISyntaxException {
+    TableQuery<DataWrapper> query = TableQuery.from(DataWrapper.class).where(filter).take(limit);
+
+    CloudTable table = tableClient.getTableReference(JOB_TABLE);
+    return table.execute(query);
+  }
+
+  @Override
+  public Optional<Stack<ExportInformation>> loadJobStack(UUID jobId) {
+    try {
+      return jobStackLog.load(jobId);
+    } catch (IOException e) {
+      throw new MicrosoftStorageException("Error loading job stack for job: " + jobId, e);
+    }
+  }
+
+  @Override
+  public void storeJobStack(UUID jobId, Stack<ExportInformation> stack) {
+    try {
+      jobStackLog.store(jobId, stack);
+    } catch (IOException e) {
+      throw new MicrosoftStorageException("Error storing job stack for job: " + jobId, e);
+    }
+  }
+
+  @Override
+  public void releaseJobStack(UUID jobId, boolean completed) {
+    if (!completed) {
+      jobStackLog.forget(jobId);
+      return;
+    }
+    try {
+      jobStackLog.delete(jobId);
+    } catch (IOException e) {
+      throw new MicrosoftStorageException("Error deleting job stack for job: " + jobId, e);
+    }
+  }
+
   private void create(String rowKey, String tableName, String state, Object type)
       throws IOException {
     try {
@@ -304,4 +440,69 @@ public class AzureTableStore extends JobStoreWithValidator {
     Preconditions.checkArgument(!Strings.isNullOrEmpty(key));
     return String.format("%s-%s", jobId.toString(), key);
   }
+
+  /** Keeps the job stack records in the data table, one row per record. */
+  private final class TableJobStackStorage implements JobStackLog.Storage {
+    @Override
+    public void append(UUID jobId, JobStackLog.Record record) throws IOException {
+      create(
+          createRowKey(jobId, String.format(JOB_STACK_KEY_TEMPLATE, record.getSequence())),
+          JOB_DATA_TABLE,
+          null,
+          record);
+    }
+
+    @Override
+    public List<JobStackLog.Record> read(UUID jobId) throws IOException {
+      List<JobStackLog.Record> records = new ArrayList<>();
+      for (DataWrapper wrapper : query(jobId)) {
+        records.add(
+            configuration.getMapper().readValue(wrapper.getSerialized(), JobStackLog.Record.class));
+      }
+      return records;
+    }
+
+    @Override
+    public void truncate(UUID jobId, long sequence) throws IOException {
+      String firstKept = createRowKey(jobId, String.format(JOB_STACK_KEY_TEMPLATE, sequence));
+      try {
+        CloudTable table = tableClient.getTableReference(JOB_DATA_TABLE);
+        for (DataWrapper wrapper : query(jobId)) {
+          if (wrapper.getRowKey().compareTo(firstKept) < 0) {
+            table.execute(TableOperation.delete(wrapper));
+          }
+        }
+      } catch (StorageException | URISyntaxException e) {
+        throw new IOException("Error truncating job stack for job: " + jobId, e);
+      }
+    }
+
+    private Iterable<DataWrapper> query(UUID jobId) throws IOException {
+      String partitionFilter =
+          generateFilterCondition(
+              "PartitionKey", TableQuery.QueryComparisons.EQUAL, configuration.getPartitionKey());
+      // The row keys of the records all start with the same prefix, which '.' sorts right after.
+      String rowKeyFilter =
+          TableQuery.combineFilters(
+              generateFilterCondition(
+                  "RowKey",
+                  TableQuery.QueryComparisons.GREATER_THAN_OR_EQUAL,
+                  createRowKey(jobId, JOB_STACK_KEY_PREFIX)),
+              TableQuery.Operators.AND,
+              generateFilterCondition(
+                  "RowKey",
+                  TableQuery.QueryComparisons.LESS_THAN,
+                  createRowKey(jobId, "job-stack.")));
+      try {
+        CloudTable table = tableClient.getTableReference(JOB_DATA_TABLE);
+        return table.execute(
+            TableQuery.from(DataWrapper.class)
+                .where(
+                    TableQuery.combineFilters(
+                        partitionFilter, TableQuery.Operators.AND, rowKeyFilter)));
+      } catch (StorageException | URISyntaxException e) {
+        throw new IOException("Error querying job stack for job: " + jobId, e);
+      }
+    }
+  }
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.copier.pipelined;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import org.datatransferproject.types.common.models.DataModel;
+
+/**
+ * A FIFO queue of exported pages waiting to be imported, bounded both by the number of pages and
+ * by their estimated size in bytes.
+ *
+ * <p>A page larger than the byte bound is still accepted once the queue is empty, so a single
+ * oversized page can never stall the copy.
+ */
+class ImportQueue {
+
+  /** A page of exported data together with the copy iteration that exported it. */
+  static class Page {
+    private final DataModel exportedData;
+    private final int copyIteration;
+    private final long sizeInBytes;
+
+    Page(DataModel exportedData, int copyIteration, long sizeInBytes) {
+      this.exportedData = exportedData;
+      this.copyIteration = copyIteration;
+      this.sizeInBytes = sizeInBytes;
+    }
+
+    DataModel getExportedData() {
+      return exportedData;
+    }
+
+    int getCopyIteration() {
+      return copyIteration;
+    }
+  }
+
+  private final int maxPages;
+  private final long maxBytes;
+  private final Queue<Page> pages = new ArrayDeque<>();
+  private long queuedBytes = 0;
+  private boolean finished = false;
+  private boolean aborted = false;
+
+  ImportQueue(int maxPages, long maxBytes) {
+    this.maxPages = maxPages;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Adds a page, waiting for room in the queue. Returns false without adding the page if the
+   * queue was aborted by the consumer.
+   */
+  synchronized boolean put(Page page) throws InterruptedException {
+    while (!aborted
+        && !pages.isEmpty()
+        && (pages.size() >= maxPages || queuedBytes + page.sizeInBytes > maxBytes)) {
+      wait();
+    }
+    if (aborted) {
+      return false;
+    }
+    pages.add(page);
+    queuedBytes += page.sizeInBytes;
+    notifyAll();
+    return true;
+  }
+
+  /** Returns the next page, waiting for one if needed, or null once all pages have been taken. */
+  synchronized Page take() throws InterruptedException {
+    while (pages.isEmpty() && !finished) {
+      wait();
+    }
+    Page page = pages.poll();
+    if (page != null) {
+      queuedBytes -= page.sizeInBytes;
+      notifyAll();
+    }
+    return page;
+  }
+
+  /** Signals that no more pages will be added. */
+  synchronized void finish() {
+    finished = true;
+    notifyAll();
+  }
+
+  /** Signals that no more pages will be taken, releasing any waiting producer. */
+  synchronized void abort() {
+    aborted = true;
+    pages.clear();
+    queuedBytes = 0;
+    notifyAll();
+  }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.copier.pipelined;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Provider;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Stack;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.inject.Inject;
+import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
+import org.datatransferproject.api.launcher.ExtensionContext;
+import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.spi.cloud.storage.JobStore;
+import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
+import org.datatransferproject.spi.transfer.provider.ExportResult;
+import org.datatransferproject.spi.transfer.provider.Exporter;
+import org.datatransferproject.spi.transfer.provider.Importer;
+import org.datatransferproject.spi.transfer.types.ContinuationData;
+import org.datatransferproject.spi.transfer.types.CopyException;
+import org.datatransferproject.transfer.copier.InMemoryDataCopier;
+import org.datatransferproject.transfer.copier.PortabilityAbstractInMemoryDataCopier;
+import org.datatransferproject.types.common.ExportInformation;
+import org.datatransferproject.types.common.models.ContainerResource;
+import org.datatransferproject.types.common.models.DataModel;
+import org.datatransferproject.types.transfer.auth.AuthData;
+import org.datatransferproject.types.transfer.errors.ErrorDetail;
+import org.datatransferproject.types.transfer.retry.RetryStrategyLibrary;
+
+/**
+ * Implementation of {@link InMemoryDataCopier} that overlaps exports with imports.
+ *
+ * <p>The calling thread keeps exporting pages, in the same order as the other copiers, into a
+ * bounded {@link ImportQueue} while a single import thread drains it. Pages are imported in the
+ * order they were exported, so parents are still imported before their children; only the export
+ * of the following pages runs ahead.
+ */
+public class PortabilityPipelinedInMemoryDataCopier
+    extends PortabilityAbstractInMemoryDataCopier {
+
+  private static final AtomicInteger COPY_ITERATION_COUNTER = new AtomicInteger();
+
+  private final ObjectMapper objectMapper;
+  private final int maxQueuedPages;
+  private final long maxQueuedBytes;
+
+  @Inject
+  public PortabilityPipelinedInMemoryDataCopier(
+      Provider<Exporter> exporterProvider,
+      Provider<Importer> importerProvider,
+      Provider<RetryStrategyLibrary> retryStrategyLibraryProvider,
+      Monitor monitor,
+      IdempotentImportExecutor idempotentImportExecutor,
+      DtpInternalMetricRecorder dtpInternalMetricRecorder,
+      JobStore jobStore,
+      ObjectMapper objectMapper,
+      ExtensionContext context) {
+    super(
+        exporterProvider,
+        importerProvider,
+        retryStrategyLibraryProvider,
+        monitor,
+        idempotentImportExecutor,
+        dtpInternalMetricRecorder,
+        jobStore);
+    this.objectMapper = objectMapper;
+    this.maxQueuedPages = context.getSetting("pipelineMaxQueuedPages", 4);
+    // Default: 64 MiB of exported data waiting to be imported
+    this.maxQueuedBytes = context.getSetting("pipelineMaxQueuedBytes", 64 * 1024 * 1024);
+  }
+
+  @Override
+  public void resetCopyIterationCounter() {
+    COPY_ITERATION_COUNTER.set(0);
+  }
+
+  /**
+   * Transfers data from the given {@code exporter} optionally starting at the point specified in
+   * the provided {@code exportInfo}, while importing already exported pages using the provided
+   * {@code importer}.
+   *
+   * @param exportAuthData The auth data for the export
+   * @param importAuthData The auth data for the import
+   * @param exportInfo Any pagination or resource information to use for subsequent calls.
+   */
+  @Override
+  public Collection<ErrorDetail> copy(
+      AuthData exportAuthData,
+      AuthData importAuthData,
+      UUID jobId,
+      Optional<ExportInformation> exportInfo)
+      throws IOException, CopyException {
+    idempotentImportExecutor.setJobId(jobId);
+    String jobIdPrefix = "Job " + jobId + ": ";
+
+    ImportQueue importQueue = new ImportQueue(maxQueuedPages, maxQueuedBytes);
+    ExecutorService importExecutor =
+        Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("pipelined-importer-%d").build());
+    Future<Void> importFuture =
+        importExecutor.submit(() -> importPages(jobId, importAuthData, jobIdPrefix, importQueue));
+    try {
+      CopyException exportException = null;
+      try {
+        exportPages(jobId, exportAuthData, exportInfo, jobIdPrefix, importQueue);
+      } catch (CopyException e) {
+        exportException = e;
+      }
+      // Pages exported before a failed export are still imported, as in the other copiers.
+      importQueue.finish();
+      importFuture.get();
+      if (exportException != null) {
+        throw exportException;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CopyException(jobIdPrefix + "Interrupted while copying", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof CopyException) {
+        throw (CopyException) e.getCause();
+      }
+      throw new CopyException(jobIdPrefix + "Error happened during import", e.getCause());
+    } finally {
+      importQueue.abort();
+      importExecutor.shutdownNow();
+    }
+    return idempotentImportExecutor.getErrors();
+  }
+
+  private void exportPages(
+      UUID jobId,
+      AuthData exportAuthData,
+      Optional<ExportInformation> exportInfo,
+      String jobIdPrefix,
+      ImportQueue importQueue)
+      throws CopyException, InterruptedException {
+    Stack<ExportInformation> exportInfoStack = new Stack<>();
+    Optional<ExportInformation> currentExportInfo = exportInfo;
+    while (true) {
+      int copyIteration = COPY_ITERATION_COUNTER.incrementAndGet();
+      monitor.debug(() -> jobIdPrefix + "Copy iteration: " + copyIteration);
+      ExportResult<?> exportResult =
+          exportIteration(jobId, exportAuthData, currentExportInfo, jobIdPrefix, copyIteration);
+      DataModel exportedData = exportResult.getExportedData();
+      if (exportedData != null
+          && !importQueue.put(
+              new ImportQueue.Page(exportedData, copyIteration, estimateSize(exportedData)))) {
+        // The import side has failed, its error is reported by the caller.
+        return;
+      }
+      pushContinuation(
+          exportInfoStack,
+          currentExportInfo.map(ExportInformation::getContainerResource).orElse(null),
+          exportResult.getContinuationData());
+      if (exportInfoStack.isEmpty()) {
+        return;
+      }
+      currentExportInfo = Optional.of(exportInfoStack.pop());
+    }
+  }
+
+  private Void importPages(
+      UUID jobId, AuthData importAuthData, String jobIdPrefix, ImportQueue importQueue)
+      throws CopyException, InterruptedException {
+    try {
+      ImportQueue.Page page;
+      while ((page = importQueue.take()) != null) {
+        importIteration(
+            jobId, importAuthData, page.getExportedData(), jobIdPrefix, page.getCopyIteration());
+      }
+      return null;
+    } finally {
+      // Release the exporting thread if the import stopped early.
+      importQueue.abort();
+    }
+  }
+
+  private static void pushContinuation(
+      Stack<ExportInformation> exportInfoStack,
+      ContainerResource exportContainerResource,
+      ContinuationData continuationData) {
+    // NOTE: order is important below: we process next page before sub-resources, so we push them
+    // on the stack in reverse order.
+    if (null == continuationData) {
+      return;
+    }
+    List<ContainerResource> subResources = continuationData.getContainerResources();
+    if (subResources != null) {
+      for (int i = subResources.size() - 1; i >= 0; i--) {
+        exportInfoStack.push(new ExportInformation(null, subResources.get(i)));
+      }
+    }
+    if (null != continuationData.getPaginationData()) {
+      exportInfoStack.push(
+          new ExportInformation(continuationData.getPaginationData(), exportContainerResource));
+    }
+  }
+
+  /** Estimates the in-memory size of a page by the length of its JSON form. */
+  private long estimateSize(DataModel exportedData) {
+    CountingOutputStream countingStream = new CountingOutputStream(ByteStreams.nullOutputStream());
+    try {
+      objectMapper.writeValue(countingStream, exportedData);
+      return countingStream.getCount();
+    } catch (IOException e) {
+      // Only the byte bound is affected, the page is still bounded by the page count.
+      monitor.debug(() -> "Unable to estimate the size of exported data", e);
+      return 0;
+    }
+  }
+}
@@ -173,6 +173,6 @@ public class PortabilityStackInMemoryDataCopier extends PortabilityAbstractInMem
             new ExportInformation(continuationData.getPaginationData(), exportContainerResource));
       }
     }
-    jobStore.storeJobStack(jobId, (Stack<ExportInformation>) exportInfoStack.clone());
+    jobStore.storeJobStack(jobId, exportInfoStack);
   }
 }
@@ -23,6 +23,7 @@ import java.util.UUID;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.datatransfer.backblaze.common.BackblazeDataTransferClient;
 import org.datatransferproject.datatransfer.backblaze.common.BackblazeDataTransferClientFactory;
+import org.datatransferproject.spi.cloud.storage.TemporaryFileSpool.SpooledFile;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
 import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
 import org.datatransferproject.spi.transfer.provider.ImportResult;
@@ -102,9 +103,13 @@ public class BackblazePhotosImporter
       inputStream = conn.getInputStream();
     }
 
-    String response = b2Client.uploadFile(
-        String.format("%s/%s/%s.jpg", PHOTO_TRANSFER_MAIN_FOLDER, albumName, photo.getDataId()),
-        jobStore.getTempFileFromInputStream(inputStream, photo.getDataId(), ".jpg"));
+    String response;
+    try (SpooledFile file =
+        jobStore.getTempFile(jobId, inputStream, photo.getDataId(), ".jpg")) {
+      response = b2Client.uploadFile(
+          String.format("%s/%s/%s.jpg", PHOTO_TRANSFER_MAIN_FOLDER, albumName, photo.getDataId()),
+          file.getFile());
+    }
 
     try {
       if (photo.isInTempStore()) {
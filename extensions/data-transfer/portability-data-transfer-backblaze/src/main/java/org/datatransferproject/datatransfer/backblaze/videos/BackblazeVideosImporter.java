@@ -22,6 +22,7 @@ import java.util.UUID;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.datatransfer.backblaze.common.BackblazeDataTransferClient;
 import org.datatransferproject.datatransfer.backblaze.common.BackblazeDataTransferClientFactory;
+import org.datatransferproject.spi.cloud.storage.TemporaryFileSpool.SpooledFile;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
 import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
 import org.datatransferproject.spi.transfer.provider.ImportResult;
@@ -64,20 +65,23 @@ public class BackblazeVideosImporter
     if (data.getVideos() != null && data.getVideos().size() > 0) {
       for (VideoObject video : data.getVideos()) {
         idempotentExecutor.executeAndSwallowIOExceptions(
-            video.getDataId(), video.getName(), () -> importSingleVideo(b2Client, video));
+            video.getDataId(), video.getName(), () -> importSingleVideo(jobId, b2Client, video));
       }
     }
 
     return ImportResult.OK;
   }
 
-  private String importSingleVideo(BackblazeDataTransferClient b2Client, VideoObject video)
-      throws IOException {
+  private String importSingleVideo(
+      UUID jobId, BackblazeDataTransferClient b2Client, VideoObject video) throws IOException {
     InputStream videoFileStream =
         imageStreamProvider.getConnection(video.getContentUrl().toString()).getInputStream();
 
-    return b2Client.uploadFile(
-        String.format("%s/%s.mp4", VIDEO_TRANSFER_MAIN_FOLDER, video.getDataId()),
-        jobStore.getTempFileFromInputStream(videoFileStream, video.getDataId(), ".mp4"));
+    try (SpooledFile file =
+        jobStore.getTempFile(jobId, videoFileStream, video.getDataId(), ".mp4")) {
+      return b2Client.uploadFile(
+          String.format("%s/%s.mp4", VIDEO_TRANSFER_MAIN_FOLDER, video.getDataId()),
+          file.getFile());
+    }
   }
 }
@@ -87,7 +87,10 @@ public class FacebookTransferExtension implements TransferExtension {
     exporterBuilder.put(
         "PHOTOS",
         new FacebookPhotosExporter(
-            appCredentials, monitor, context.getService(TemporaryPerJobDataStore.class)));
+            appCredentials,
+            monitor,
+            context.getService(TemporaryPerJobDataStore.class),
+            context.getSetting("facebookPhotosFetchParallelism", 4)));
     exporterBuilder.put("VIDEOS", new FacebookVideosExporter(appCredentials, monitor));
     exporterMap = exporterBuilder.build();
 
@@ -19,34 +19,32 @@ package org.datatransferproject.transfer.facebook.photos;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.restfb.Connection;
 import com.restfb.exception.FacebookGraphException;
 import com.restfb.types.Album;
 import com.restfb.types.Photo;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.text.SimpleDateFormat;
+import java.io.PushbackInputStream;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import org.apache.commons.imaging.ImageReadException;
 import org.apache.commons.imaging.ImageWriteException;
-import org.apache.commons.imaging.Imaging;
-import org.apache.commons.imaging.common.ImageMetadata;
-import org.apache.commons.imaging.formats.jpeg.JpegImageMetadata;
-import org.apache.commons.imaging.formats.jpeg.exif.ExifRewriter;
-import org.apache.commons.imaging.formats.tiff.TiffImageMetadata;
-import org.apache.commons.imaging.formats.tiff.constants.ExifTagConstants;
-import org.apache.commons.imaging.formats.tiff.write.TiffOutputDirectory;
-import org.apache.commons.imaging.formats.tiff.write.TiffOutputSet;
-import org.apache.commons.io.IOUtils;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
 import org.datatransferproject.spi.transfer.provider.ExportResult;
 import org.datatransferproject.spi.transfer.provider.Exporter;
+import org.datatransferproject.spi.transfer.provider.PerJobClientCache;
 import org.datatransferproject.spi.transfer.types.ContinuationData;
 import org.datatransferproject.spi.transfer.types.CopyExceptionWithFailureReason;
 import org.datatransferproject.transfer.ImageStreamProvider;
@@ -72,16 +70,29 @@ public class FacebookPhotosExporter
 
   private AppCredentials appCredentials;
   private FacebookPhotosInterface photosInterface;
-  private final SimpleDateFormat exifDateFormat = new SimpleDateFormat("yyyy:MM:dd HH:mm:ss");
+  private final PerJobClientCache<TokensAndUrlAuthData, FacebookPhotosInterface> photosInterfaces =
+      new PerJobClientCache<>(this::makePhotosInterface);
+  private final DateTimeFormatter exifDateFormat =
+      DateTimeFormatter.ofPattern("yyyy:MM:dd HH:mm:ss").withZone(ZoneId.systemDefault());
+  private final int fetchParallelism;
+  private final ExecutorService fetchExecutor;
 
   public FacebookPhotosExporter(
       AppCredentials appCredentials,
       Monitor monitor,
       TemporaryPerJobDataStore store) {
-    this.appCredentials = appCredentials;
-    this.monitor = monitor;
-    this.store = store;
-    imageStreamProvider = new ImageStreamProvider();
+    this(appCredentials, monitor, store, 1);
+  }
+
+  /**
+   * @param fetchParallelism the number of photos of a page fetched and stored at once
+   */
+  public FacebookPhotosExporter(
+      AppCredentials appCredentials,
+      Monitor monitor,
+      TemporaryPerJobDataStore store,
+      int fetchParallelism) {
+    this(appCredentials, null, monitor, store, new ImageStreamProvider(), fetchParallelism);
   }
 
   @VisibleForTesting
@@ -91,11 +102,30 @@ public class FacebookPhotosExporter
       Monitor monitor,
       TemporaryPerJobDataStore store,
       ImageStreamProvider imageStreamProvider) {
+    this(appCredentials, photosInterface, monitor, store, imageStreamProvider, 1);
+  }
+
+  @VisibleForTesting
+  FacebookPhotosExporter(
+      AppCredentials appCredentials,
+      FacebookPhotosInterface photosInterface,
+      Monitor monitor,
+      TemporaryPerJobDataStore store,
+      ImageStreamProvider imageStreamProvider,
+      int fetchParallelism) {
+    Preconditions.checkArgument(fetchParallelism > 0, "fetchParallelism must be positive");
     this.appCredentials = appCredentials;
     this.photosInterface = photosInterface;
     this.monitor = monitor;
     this.store = store;
     this.imageStreamProvider = imageStreamProvider;
+    this.fetchParallelism = fetchParallelism;
+    this.fetchExecutor =
+        Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder()
+                .setNameFormat("facebook-photos-fetch-%d")
+                .setDaemon(true)
+                .build());
   }
 
   @Override
@@ -198,25 +228,13 @@ public class FacebookPhotosExporter
         return new ExportResult<>(ExportResult.ResultType.END, null);
       }
 
+      List<Boolean> photosWereGarbage = storePhotos(jobId, photos);
       ArrayList<PhotoModel> exportPhotos = new ArrayList<>();
-      for (Photo photo : photos) {
-        final String url = photo.getImages().get(0).getSource();
-        final String fbid = photo.getId();
-        if (null == url || url.isEmpty()) {
-          monitor.severe(() -> String.format("Source was missing or empty for photo %s", fbid));
-          continue;
-        }
-        boolean photoWasGarbage;
-        try {
-          photoWasGarbage = modifyExifAndStorePhoto(jobId, photo, url, photo.getId());
-        } catch (IOException e) {
-          monitor.info(
-              () -> String.format("Error while modifying exif or storing photo %s", fbid), e);
-          photoWasGarbage = true;
-        }
-        if (photoWasGarbage) {
+      for (int i = 0; i < photos.size(); i++) {
+        if (photosWereGarbage.get(i)) {
           continue;
         }
+        Photo photo = photos.get(i);
         exportPhotos.add(
             new PhotoModel(
                 String.format("%s.jpg", photo.getId()),
@@ -255,9 +273,68 @@ public class FacebookPhotosExporter
     }
   }
 
+  /**
+   * Fetches and stores the photos of a page, with up to {@code fetchParallelism} photos in flight,
+   * and returns whether each photo was skipped, in the order of {@code photos}.
+   */
+  private List<Boolean> storePhotos(UUID jobId, List<Photo> photos) {
+    List<Future<Boolean>> fetches = new ArrayList<>(photos.size());
+    try {
+      Semaphore fetchSlots = new Semaphore(fetchParallelism);
+      for (Photo photo : photos) {
+        fetchSlots.acquire();
+        fetches.add(
+            fetchExecutor.submit(
+                () -> {
+                  try {
+                    return storePhoto(jobId, photo);
+                  } finally {
+                    fetchSlots.release();
+                  }
+                }));
+      }
+      List<Boolean> photosWereGarbage = new ArrayList<>(photos.size());
+      for (Future<Boolean> fetch : fetches) {
+        try {
+          photosWereGarbage.add(fetch.get());
+        } catch (ExecutionException e) {
+          // storePhoto catches every checked exception, so only unchecked ones end up here.
+          Throwables.throwIfUnchecked(e.getCause());
+          throw new IllegalStateException(e.getCause());
+        }
+      }
+      return photosWereGarbage;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while fetching photos", e);
+    } finally {
+      // Only does something if this thread was interrupted or a fetch threw.
+      for (Future<Boolean> fetch : fetches) {
+        fetch.cancel(true);
+      }
+    }
+  }
+
+  /** Fetches and stores a photo, returning true if it was skipped. */
+  private boolean storePhoto(UUID jobId, Photo photo) {
+    final String url = photo.getImages().get(0).getSource();
+    final String fbid = photo.getId();
+    if (null == url || url.isEmpty()) {
+      monitor.severe(() -> String.format("Source was missing or empty for photo %s", fbid));
+      return true;
+    }
+    try {
+      return modifyExifAndStorePhoto(jobId, photo, url, photo.getId());
+    } catch (IOException e) {
+      monitor.info(() -> String.format("Error while modifying exif or storing photo %s", fbid), e);
+      return true;
+    }
+  }
+
   /**
    * This method fetches the image from the specified URL, modifies the EXIF to include the created
-   * date, and then stores the modified photo via the store on the local filesystem.
+   * date, and then stores the modified photo via the store on the local filesystem. The image is
+   * streamed to the store: only its EXIF segment is rewritten in memory.
    *
    * @param jobId Id for the current transfer
    * @param photo The photo model returned from the API
@@ -268,54 +345,25 @@ public class FacebookPhotosExporter
    */
   private boolean modifyExifAndStorePhoto(
       UUID jobId, Photo photo, String url, String blindedPhotoId) throws IOException {
-    try (InputStream inputStream = imageStreamProvider.getConnection(url).getInputStream()) {
-      final byte[] bytes = IOUtils.toByteArray(inputStream);
-      if (bytes.length == 0) {
+    try (PushbackInputStream inputStream =
+        new PushbackInputStream(imageStreamProvider.getConnection(url).getInputStream())) {
+      int firstByte = inputStream.read();
+      if (firstByte == -1) {
         // We should not upload an empty photo and Google cannot handle it.
         return true;
       }
+      inputStream.unread(firstByte);
 
       if (null == photo.getCreatedTime()) {
-        try (ByteArrayInputStream unmodifiedInputStream = new ByteArrayInputStream(bytes)) {
-          store.create(jobId, blindedPhotoId, unmodifiedInputStream);
-        }
+        store.create(jobId, blindedPhotoId, inputStream);
         return false;
       }
 
-      final ImageMetadata metadata = Imaging.getMetadata(bytes);
-      final JpegImageMetadata jpegMetadata = (JpegImageMetadata) metadata;
-      TiffOutputSet outputSet = null;
-      if (null != jpegMetadata) {
-        // note that exif might be null if no Exif metadata is found.
-        final TiffImageMetadata exif = jpegMetadata.getExif();
-
-        if (null != exif) {
-          // TiffImageMetadata class is immutable (read-only).
-          // TiffOutputSet class represents the Exif data to write.
-          //
-          // Usually, we want to update existing Exif metadata by
-          // changing
-          // the values of a few fields, or adding a field.
-          // In these cases, it is easiest to use getOutputSet() to
-          // start with a "copy" of the fields read from the image.
-          outputSet = exif.getOutputSet();
-        }
-      }
-      if (null == outputSet) {
-        outputSet = new TiffOutputSet();
-      }
-      final TiffOutputDirectory exifDirectory = outputSet.getOrCreateExifDirectory();
-      exifDirectory.removeField(ExifTagConstants.EXIF_TAG_DATE_TIME_ORIGINAL);
-      exifDirectory.add(
-          ExifTagConstants.EXIF_TAG_DATE_TIME_ORIGINAL,
-          exifDateFormat.format(photo.getCreatedTime()));
-      try (final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length)) {
-        new ExifRewriter().updateExifMetadataLossless(bytes, outputStream, outputSet);
-        try (ByteArrayInputStream modifiedInputStream =
-            new ByteArrayInputStream(outputStream.toByteArray())) {
-          store.create(jobId, blindedPhotoId, modifiedInputStream);
-        }
-      }
+      store.create(
+          jobId,
+          blindedPhotoId,
+          JpegExifRewriter.setDateTimeOriginal(
+              inputStream, exifDateFormat.format(photo.getCreatedTime().toInstant())));
     } catch (ImageReadException | ImageWriteException e) {
       monitor.severe(
           () ->
@@ -339,11 +387,10 @@ public class FacebookPhotosExporter
 
   private synchronized FacebookPhotosInterface getOrCreatePhotosInterface(
       TokensAndUrlAuthData authData) {
-    return photosInterface == null ? makePhotosInterface(authData) : photosInterface;
+    return photosInterface == null ? photosInterfaces.get(authData) : photosInterface;
   }
 
-  private synchronized FacebookPhotosInterface makePhotosInterface(TokensAndUrlAuthData authData) {
-    photosInterface = new RestFbFacebookPhotos(authData, appCredentials);
-    return photosInterface;
+  private FacebookPhotosInterface makePhotosInterface(TokensAndUrlAuthData authData) {
+    return new RestFbFacebookPhotos(authData, appCredentials);
   }
 }
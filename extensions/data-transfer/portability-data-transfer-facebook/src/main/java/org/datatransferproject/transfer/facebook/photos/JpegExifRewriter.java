@@ -0,0 +1,203 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.transfer.facebook.photos;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.commons.imaging.FormatCompliance;
+import org.apache.commons.imaging.ImageReadException;
+import org.apache.commons.imaging.ImageWriteException;
+import org.apache.commons.imaging.common.bytesource.ByteSourceArray;
+import org.apache.commons.imaging.formats.tiff.TiffContents;
+import org.apache.commons.imaging.formats.tiff.TiffImageMetadata;
+import org.apache.commons.imaging.formats.tiff.TiffReader;
+import org.apache.commons.imaging.formats.tiff.constants.ExifTagConstants;
+import org.apache.commons.imaging.formats.tiff.write.TiffImageWriterBase;
+import org.apache.commons.imaging.formats.tiff.write.TiffImageWriterLossless;
+import org.apache.commons.imaging.formats.tiff.write.TiffImageWriterLossy;
+import org.apache.commons.imaging.formats.tiff.write.TiffOutputDirectory;
+import org.apache.commons.imaging.formats.tiff.write.TiffOutputSet;
+
+/**
+ * Sets the EXIF date of a JPEG while streaming it.
+ *
+ * <p>Only the application segments at the start of the image are read into memory. The EXIF
+ * segment among them is rewritten, or added if there is none, and the rest of the image is passed
+ * through untouched, so the image never has to be held in memory. The EXIF data is rewritten
+ * losslessly, the same way Commons Imaging's {@code ExifRewriter} does for a whole image.
+ */
+final class JpegExifRewriter {
+  private static final int MARKER_PREFIX = 0xFF;
+  private static final int SOI_MARKER = 0xD8;
+  private static final int APP0_MARKER = 0xE0;
+  private static final int APP1_MARKER = 0xE1;
+  private static final int APP15_MARKER = 0xEF;
+  private static final int COM_MARKER = 0xFE;
+  private static final byte[] EXIF_IDENTIFIER = {'E', 'x', 'i', 'f', 0, 0};
+  private static final int MAX_SEGMENT_LENGTH = 0xFFFF;
+
+  private JpegExifRewriter() {}
+
+  /**
+   * Returns the JPEG read from {@code jpeg} with its original date and time set to {@code
+   * dateTimeOriginal}, formatted as {@code yyyy:MM:dd HH:mm:ss}. The returned stream reads the rest
+   * of {@code jpeg} as it goes, so closing it closes {@code jpeg}.
+   *
+   * @throws ImageReadException if the image isn't a JPEG or its EXIF data can't be read
+   * @throws ImageWriteException if the EXIF data can't be written
+   */
+  static InputStream setDateTimeOriginal(InputStream jpeg, String dateTimeOriginal)
+      throws IOException, ImageReadException, ImageWriteException {
+    DataInputStream input = new DataInputStream(jpeg);
+    if (input.read() != MARKER_PREFIX || input.read() != SOI_MARKER) {
+      throw new ImageReadException("Not a JPEG image");
+    }
+
+    // Read the application and comment segments, up to the first marker of the image itself.
+    List<Segment> segments = new ArrayList<>();
+    int marker;
+    while (true) {
+      marker = readMarker(input);
+      if (!isApplicationOrComment(marker)) {
+        break;
+      }
+      int length = input.readUnsignedShort();
+      if (length < 2) {
+        throw new ImageReadException("Invalid JPEG segment length " + length);
+      }
+      byte[] data = new byte[length - 2];
+      input.readFully(data);
+      segments.add(new Segment(marker, data));
+    }
+
+    byte[] exif = buildExifSegment(segments, dateTimeOriginal);
+
+    ByteArrayOutputStream header = new ByteArrayOutputStream();
+    header.write(MARKER_PREFIX);
+    header.write(SOI_MARKER);
+    if (segments.stream().noneMatch(Segment::isExif)) {
+      // Add the EXIF segment right after the JFIF segment if there is one, like ExifRewriter does.
+      int index = !segments.isEmpty() && segments.get(0).marker == APP0_MARKER ? 1 : 0;
+      segments.add(index, new Segment(APP1_MARKER, exif));
+    }
+    boolean exifWritten = false;
+    for (Segment segment : segments) {
+      if (segment.isExif()) {
+        // Replace the first EXIF segment and drop any other.
+        if (!exifWritten) {
+          writeSegment(header, APP1_MARKER, exif);
+          exifWritten = true;
+        }
+      } else {
+        writeSegment(header, segment.marker, segment.data);
+      }
+    }
+    header.write(MARKER_PREFIX);
+    header.write(marker);
+
+    return new SequenceInputStream(new ByteArrayInputStream(header.toByteArray()), input);
+  }
+
+  private static byte[] buildExifSegment(List<Segment> segments, String dateTimeOriginal)
+      throws IOException, ImageReadException, ImageWriteException {
+    byte[] tiff = null;
+    for (Segment segment : segments) {
+      if (segment.isExif()) {
+        tiff = Arrays.copyOfRange(segment.data, EXIF_IDENTIFIER.length, segment.data.length);
+        break;
+      }
+    }
+
+    TiffOutputSet outputSet;
+    TiffImageWriterBase writer;
+    if (tiff != null) {
+      TiffContents contents =
+          new TiffReader(false)
+              .readDirectories(new ByteSourceArray(tiff), true, FormatCompliance.getDefault());
+      outputSet = new TiffImageMetadata(contents).getOutputSet();
+      writer = new TiffImageWriterLossless(outputSet.byteOrder, tiff);
+    } else {
+      outputSet = new TiffOutputSet();
+      writer = new TiffImageWriterLossy(outputSet.byteOrder);
+    }
+    TiffOutputDirectory exifDirectory = outputSet.getOrCreateExifDirectory();
+    exifDirectory.removeField(ExifTagConstants.EXIF_TAG_DATE_TIME_ORIGINAL);
+    exifDirectory.add(ExifTagConstants.EXIF_TAG_DATE_TIME_ORIGINAL, dateTimeOriginal);
+
+    ByteArrayOutputStream exif = new ByteArrayOutputStream();
+    exif.write(EXIF_IDENTIFIER);
+    writer.write(exif, outputSet);
+    if (exif.size() + 2 > MAX_SEGMENT_LENGTH) {
+      throw new ImageWriteException("EXIF data is too large for a JPEG segment: " + exif.size());
+    }
+    return exif.toByteArray();
+  }
+
+  private static int readMarker(DataInputStream input) throws IOException, ImageReadException {
+    if (input.readUnsignedByte() != MARKER_PREFIX) {
+      throw new ImageReadException("Expected a JPEG marker");
+    }
+    int marker;
+    do {
+      // Markers may be preceded by any number of fill bytes.
+      marker = input.readUnsignedByte();
+    } while (marker == MARKER_PREFIX);
+    return marker;
+  }
+
+  private static boolean isApplicationOrComment(int marker) {
+    return (marker >= APP0_MARKER && marker <= APP15_MARKER) || marker == COM_MARKER;
+  }
+
+  private static void writeSegment(ByteArrayOutputStream output, int marker, byte[] data) {
+    int length = data.length + 2;
+    output.write(MARKER_PREFIX);
+    output.write(marker);
+    output.write(length >> 8);
+    output.write(length & 0xFF);
+    output.write(data, 0, data.length);
+  }
+
+  private static final class Segment {
+    private final int marker;
+    private final byte[] data;
+
+    private Segment(int marker, byte[] data) {
+      this.marker = marker;
+      this.data = data;
+    }
+
+    private boolean isExif() {
+      if (marker != APP1_MARKER || data.length < EXIF_IDENTIFIER.length) {
+        return false;
+      }
+      for (int i = 0; i < EXIF_IDENTIFIER.length; i++) {
+        if (data[i] != EXIF_IDENTIFIER[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
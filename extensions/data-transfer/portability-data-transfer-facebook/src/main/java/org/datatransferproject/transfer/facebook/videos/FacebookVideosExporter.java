@@ -29,6 +29,7 @@ import java.util.UUID;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.spi.transfer.provider.ExportResult;
 import org.datatransferproject.spi.transfer.provider.Exporter;
+import org.datatransferproject.spi.transfer.provider.PerJobClientCache;
 import org.datatransferproject.spi.transfer.types.ContinuationData;
 import org.datatransferproject.spi.transfer.types.CopyExceptionWithFailureReason;
 import org.datatransferproject.types.common.ExportInformation;
@@ -45,6 +46,8 @@ public class FacebookVideosExporter
   private final Monitor monitor;
   private AppCredentials appCredentials;
   private FacebookVideosInterface videosInterface;
+  private final PerJobClientCache<TokensAndUrlAuthData, FacebookVideosInterface> videosInterfaces =
+      new PerJobClientCache<>(this::makeVideosInterface);
 
   public FacebookVideosExporter(AppCredentials appCredentials, Monitor monitor) {
     this.appCredentials = appCredentials;
@@ -129,11 +132,10 @@ public class FacebookVideosExporter
 
   private synchronized FacebookVideosInterface getOrCreateVideosInterface(
       TokensAndUrlAuthData authData) {
-    return videosInterface == null ? makeVideosInterface(authData) : videosInterface;
+    return videosInterface == null ? videosInterfaces.get(authData) : videosInterface;
   }
 
-  private synchronized FacebookVideosInterface makeVideosInterface(TokensAndUrlAuthData authData) {
-    videosInterface = new RestFbFacebookVideos(authData, appCredentials);
-    return videosInterface;
+  private FacebookVideosInterface makeVideosInterface(TokensAndUrlAuthData authData) {
+    return new RestFbFacebookVideos(authData, appCredentials);
   }
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.transfer.facebook.photos;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import org.apache.commons.imaging.ImageReadException;
+import org.apache.commons.imaging.Imaging;
+import org.apache.commons.imaging.formats.jpeg.JpegImageMetadata;
+import org.apache.commons.imaging.formats.tiff.constants.ExifTagConstants;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JpegExifRewriterTest {
+  private static final String DATE_TIME_ORIGINAL = "2009:02:13 23:31:30";
+  // The first marker after the application segments of test.jpeg, a quantization table.
+  private static final byte[] DQT_MARKER = {(byte) 0xFF, (byte) 0xDB};
+
+  private byte[] jpeg;
+
+  @Before
+  public void setUp() throws Exception {
+    try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream("test.jpeg")) {
+      jpeg = IOUtils.toByteArray(inputStream);
+    }
+  }
+
+  @Test
+  public void rewritesExifAndPassesTheImageThrough() throws Exception {
+    byte[] rewritten = rewrite(jpeg);
+
+    assertThat(getDateTimeOriginal(rewritten)).isEqualTo(DATE_TIME_ORIGINAL);
+    assertThat(imageData(rewritten)).isEqualTo(imageData(jpeg));
+  }
+
+  @Test
+  public void addsExifWhenMissing() throws Exception {
+    // test.jpeg is SOI, a 16 byte JFIF segment and then a 22 byte EXIF segment.
+    ByteArrayOutputStream withoutExif = new ByteArrayOutputStream();
+    withoutExif.write(jpeg, 0, 2 + 2 + 16);
+    withoutExif.write(jpeg, 2 + 2 + 16 + 2 + 22, jpeg.length - (2 + 2 + 16 + 2 + 22));
+    byte[] rewritten = rewrite(withoutExif.toByteArray());
+
+    assertThat(Arrays.copyOfRange(rewritten, 0, 20))
+        .isEqualTo(Arrays.copyOfRange(jpeg, 0, 20));
+    assertThat(getDateTimeOriginal(rewritten)).isEqualTo(DATE_TIME_ORIGINAL);
+    assertThat(imageData(rewritten)).isEqualTo(imageData(jpeg));
+  }
+
+  @Test(expected = ImageReadException.class)
+  public void rejectsImagesThatAreNotJpegs() throws Exception {
+    rewrite(new byte[] {(byte) 0x89, 'P', 'N', 'G'});
+  }
+
+  private static byte[] rewrite(byte[] image) throws Exception {
+    try (InputStream rewritten =
+        JpegExifRewriter.setDateTimeOriginal(new ByteArrayInputStream(image), DATE_TIME_ORIGINAL)) {
+      return IOUtils.toByteArray(rewritten);
+    }
+  }
+
+  private static String getDateTimeOriginal(byte[] image) throws Exception {
+    JpegImageMetadata metadata = (JpegImageMetadata) Imaging.getMetadata(image);
+    return metadata.getExif().getFieldValue(ExifTagConstants.EXIF_TAG_DATE_TIME_ORIGINAL)[0];
+  }
+
+  private static byte[] imageData(byte[] image) {
+    for (int i = 0; i < image.length - 1; i++) {
+      if (image[i] == DQT_MARKER[0] && image[i + 1] == DQT_MARKER[1]) {
+        return Arrays.copyOfRange(image, i, image.length);
+      }
+    }
+    throw new AssertionError("No quantization table found");
+  }
+}
@@ -28,14 +28,25 @@ import com.flickr4java.flickr.uploader.Uploader;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore.InputStreamWrapper;
@@ -61,6 +72,8 @@ public class FlickrPhotosImporter implements Importer<AuthData, PhotosContainerR
   private final PhotosetsInterface photosetsInterface;
   private final Monitor monitor;
   private final RateLimiter perUserRateLimiter;
+  private final int uploadParallelism;
+  private final ExecutorService uploadExecutor;
 
   public FlickrPhotosImporter(
       AppCredentials appCredentials,
@@ -74,6 +87,8 @@ public class FlickrPhotosImporter implements Importer<AuthData, PhotosContainerR
     this.photosetsInterface = flickr.getPhotosetsInterface();
     this.monitor = monitor;
     this.perUserRateLimiter = serviceConfig.getPerUserRateLimiter();
+    this.uploadParallelism = serviceConfig.getMaxConcurrentUploads();
+    this.uploadExecutor = newUploadExecutor();
   }
 
   @VisibleForTesting
@@ -90,6 +105,8 @@ public class FlickrPhotosImporter implements Importer<AuthData, PhotosContainerR
     this.photosetsInterface = flickr.getPhotosetsInterface();
     this.monitor = monitor;
     this.perUserRateLimiter = serviceConfig.getPerUserRateLimiter();
+    this.uploadParallelism = serviceConfig.getMaxConcurrentUploads();
+    this.uploadExecutor = newUploadExecutor();
   }
 
   @Override
@@ -115,26 +132,35 @@ public class FlickrPhotosImporter implements Importer<AuthData, PhotosContainerR
     }
 
     if (data.getPhotos() != null) {
-      for (PhotoModel photo : data.getPhotos()) {
-        try {
-          importSinglePhoto(idempotentExecutor, jobId, photo);
-        } catch (FlickrException e) {
-          if (e.getMessage().contains("Upload limit reached")) {
-            throw new DestinationMemoryFullException("Flickr destination memory reached", e);
-          } else if (e.getMessage().contains("Photo already in set")) {
-            // This can happen if we got a server error on our end, but the request went through.
-            // When our retry strategy kicked in the request was complete and the photo already
-            // uploaded
-            continue;
+      if (uploadParallelism == 1 || data.getPhotos().size() == 1) {
+        for (PhotoModel photo : data.getPhotos()) {
+          try {
+            importSinglePhoto(idempotentExecutor, jobId, photo);
+          } catch (FlickrException e) {
+            handleFlickrException(e);
           }
-          throw new IOException(e);
         }
+      } else {
+        importPhotosConcurrently(idempotentExecutor, jobId, auth, data.getPhotos());
       }
     }
 
     return new ImportResult(ImportResult.ResultType.OK);
   }
 
+  private static void handleFlickrException(FlickrException e)
+      throws DestinationMemoryFullException, IOException {
+    if (e.getMessage().contains("Upload limit reached")) {
+      throw new DestinationMemoryFullException("Flickr destination memory reached", e);
+    } else if (e.getMessage().contains("Photo already in set")) {
+      // This can happen if we got a server error on our end, but the request went through.
+      // When our retry strategy kicked in the request was complete and the photo already
+      // uploaded
+      return;
+    }
+    throw new IOException(e);
+  }
+
   // Store any album data in the cache because Flickr only allows you to create an album with a
   // photo in it, so we have to wait for the first photo to create the album
   private void storeAlbums(UUID jobId, Collection<PhotoAlbum> albums) throws IOException {
@@ -150,7 +176,7 @@ public class FlickrPhotosImporter implements Importer<AuthData, PhotosContainerR
       IdempotentImportExecutor idempotentExecutor, UUID id, PhotoModel photo) throws Exception {
     String photoId =
         idempotentExecutor.executeAndSwallowIOExceptions(
-            photo.getAlbumId() + "-" + photo.getDataId(),
+            getPhotoIdempotentId(photo),
             photo.getTitle(),
             () -> uploadPhoto(photo, id));
     if (photoId == null) {
@@ -170,6 +196,113 @@ public class FlickrPhotosImporter implements Importer<AuthData, PhotosContainerR
     createOrAddToAlbum(idempotentExecutor, id, photo.getAlbumId(), photoId);
   }
 
+  /**
+   * Imports the photos with up to {@code uploadParallelism} uploads in flight. Every upload still
+   * waits for the per-user rate limiter. The uploaded photos are recorded, and their albums created,
+   * in the order of {@code photos} on this thread, so an album is only created once, with its first
+   * photo; adding the other photos to an existing album is done in the background.
+   */
+  private void importPhotosConcurrently(
+      IdempotentImportExecutor idempotentExecutor,
+      UUID jobId,
+      Auth auth,
+      Collection<PhotoModel> photos)
+      throws Exception {
+    Semaphore uploadSlots = new Semaphore(uploadParallelism);
+    List<Future<String>> uploads = new ArrayList<>(photos.size());
+    List<Future<String>> albumAdditions = new ArrayList<>();
+    try {
+      for (PhotoModel photo : photos) {
+        if (idempotentExecutor.isKeyCached(getPhotoIdempotentId(photo))) {
+          uploads.add(null);
+          continue;
+        }
+        uploadSlots.acquire();
+        uploads.add(submitWithAuth(auth, uploadSlots, () -> uploadPhoto(photo, jobId)));
+      }
+
+      Iterator<Future<String>> uploadIterator = uploads.iterator();
+      for (PhotoModel photo : photos) {
+        Future<String> upload = uploadIterator.next();
+        try {
+          String photoId =
+              idempotentExecutor.executeAndSwallowIOExceptions(
+                  getPhotoIdempotentId(photo),
+                  photo.getTitle(),
+                  () -> upload == null ? uploadPhoto(photo, jobId) : getResult(upload));
+          String oldAlbumId = photo.getAlbumId();
+          if (photoId == null || Strings.isNullOrEmpty(oldAlbumId)) {
+            continue;
+          }
+          if (idempotentExecutor.isKeyCached(oldAlbumId)) {
+            String newAlbumId = idempotentExecutor.getCachedValue(oldAlbumId);
+            uploadSlots.acquire();
+            albumAdditions.add(
+                submitWithAuth(
+                    auth,
+                    uploadSlots,
+                    () -> {
+                      photosetsInterface.addPhoto(newAlbumId, photoId);
+                      return photoId;
+                    }));
+          } else {
+            createAlbum(idempotentExecutor, jobId, oldAlbumId, photoId);
+          }
+        } catch (FlickrException e) {
+          handleFlickrException(e);
+        }
+      }
+
+      for (Future<String> albumAddition : albumAdditions) {
+        try {
+          getResult(albumAddition);
+        } catch (FlickrException e) {
+          handleFlickrException(e);
+        }
+      }
+    } finally {
+      // Only does something if this thread was interrupted or an import failed.
+      for (Future<String> upload : uploads) {
+        if (upload != null) {
+          upload.cancel(true);
+        }
+      }
+      for (Future<String> albumAddition : albumAdditions) {
+        albumAddition.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * Runs {@code task} on the upload executor with the auth of this import, which flickr4java keeps
+   * per thread, releasing an upload slot once done.
+   */
+  private Future<String> submitWithAuth(Auth auth, Semaphore uploadSlots, Callable<String> task) {
+    return uploadExecutor.submit(
+        () -> {
+          try {
+            RequestContext.getRequestContext().setAuth(auth);
+            return task.call();
+          } finally {
+            uploadSlots.release();
+          }
+        });
+  }
+
+  private static String getResult(Future<String> future)
+      throws InterruptedException, IOException, FlickrException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause(), IOException.class, FlickrException.class);
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private static String getPhotoIdempotentId(PhotoModel photo) {
+    return photo.getAlbumId() + "-" + photo.getDataId();
+  }
+
   private void createOrAddToAlbum(
       IdempotentImportExecutor idempotentExecutor, UUID jobId, String oldAlbumId, String photoId)
       throws Exception {
@@ -241,6 +374,11 @@ public class FlickrPhotosImporter implements Importer<AuthData, PhotosContainerR
     return uploadResult;
   }
 
+  private static ExecutorService newUploadExecutor() {
+    return Executors.newCachedThreadPool(
+        new ThreadFactoryBuilder().setNameFormat("flickr-photos-upload-%d").setDaemon(true).build());
+  }
+
   private static String cleanString(String string) {
     return Strings.isNullOrEmpty(string) ? "" : string;
   }
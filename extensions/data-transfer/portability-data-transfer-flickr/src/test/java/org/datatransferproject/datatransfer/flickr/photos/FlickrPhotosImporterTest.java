@@ -34,8 +34,13 @@ import com.flickr4java.flickr.photosets.PhotosetsInterface;
 import com.flickr4java.flickr.uploader.UploadMetaData;
 import com.flickr4java.flickr.uploader.Uploader;
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.cloud.local.LocalJobStore;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
@@ -135,4 +140,57 @@ public class FlickrPhotosImporterTest {
 
     assertThat((String) EXECUTOR.getCachedValue(ALBUM_ID)).isEqualTo(FLICKR_ALBUM_ID);
   }
+
+  @Test
+  public void importUploadsPhotosConcurrentlyAndCreatesAlbumOnce() throws Exception {
+    UUID jobId = UUID.randomUUID();
+    PhotoModel secondPhoto =
+        new PhotoModel(
+            "Second title", FETCHABLE_URL, PHOTO_DESCRIPTION, MEDIA_TYPE, "MyId2", ALBUM_ID, false);
+    PhotosContainerResource photosContainerResource =
+        new PhotosContainerResource(
+            Collections.singletonList(PHOTO_ALBUM), Arrays.asList(PHOTO_MODEL, secondPhoto));
+
+    when(user.getId()).thenReturn("userId");
+    when(authInterface.checkToken(any(Token.class))).thenReturn(auth);
+    when(flickr.getPhotosetsInterface()).thenReturn(photosetsInterface);
+    when(flickr.getUploader()).thenReturn(uploader);
+    when(flickr.getAuthInterface()).thenReturn(authInterface);
+    when(imageStreamProvider.get(FETCHABLE_URL)).thenReturn(bufferedInputStream);
+
+    // Each upload only completes once both are in flight
+    CountDownLatch bothUploading = new CountDownLatch(2);
+    when(uploader.upload(any(BufferedInputStream.class), any(UploadMetaData.class)))
+        .thenAnswer(
+            invocation -> {
+              bothUploading.countDown();
+              assertThat(bothUploading.await(10, TimeUnit.SECONDS)).isTrue();
+              UploadMetaData metaData = invocation.getArgument(1);
+              return metaData.getTitle().equals(PHOTO_TITLE) ? FLICKR_PHOTO_ID : "secondPhotoId";
+            });
+    Photoset photoset =
+        FlickrTestUtils.initializePhotoset(FLICKR_ALBUM_ID, ALBUM_DESCRIPTION, FLICKR_PHOTO_ID);
+    when(photosetsInterface.create(ALBUM_NAME, ALBUM_DESCRIPTION, FLICKR_PHOTO_ID))
+        .thenReturn(photoset);
+
+    FlickrPhotosImporter importer =
+        new FlickrPhotosImporter(
+            flickr,
+            jobStore,
+            imageStreamProvider,
+            monitor,
+            TransferServiceConfig.create(
+                new ByteArrayInputStream(
+                    "{perUserRateLimit: 100, maxConcurrentUploads: 2}"
+                        .getBytes(StandardCharsets.UTF_8))));
+    IdempotentImportExecutor executor = new FakeIdempotentImportExecutor();
+    ImportResult result =
+        importer.importItem(
+            jobId, executor, new TokenSecretAuthData("token", "secret"), photosContainerResource);
+
+    assertThat(result.getType()).isEqualTo(ImportResult.ResultType.OK);
+    verify(photosetsInterface).create(ALBUM_NAME, ALBUM_DESCRIPTION, FLICKR_PHOTO_ID);
+    verify(photosetsInterface).addPhoto(FLICKR_ALBUM_ID, "secondPhotoId");
+    assertThat((String) executor.getCachedValue(ALBUM_ID)).isEqualTo(FLICKR_ALBUM_ID);
+  }
 }
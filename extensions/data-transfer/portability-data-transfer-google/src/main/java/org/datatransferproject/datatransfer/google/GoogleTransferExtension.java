@@ -7,6 +7,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import java.io.IOException;
 import org.datatransferproject.api.launcher.ExtensionContext;
+import org.datatransferproject.api.launcher.MetricRecorder;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.datatransfer.google.calendar.GoogleCalendarExporter;
 import org.datatransferproject.datatransfer.google.calendar.GoogleCalendarImporter;
@@ -98,8 +99,14 @@ public class GoogleTransferExtension implements TransferExtension {
     ImmutableMap.Builder<String, Importer> importerBuilder = ImmutableMap.builder();
     importerBuilder.put("BLOBS", new DriveImporter(credentialFactory, jobStore, monitor));
     importerBuilder.put("CONTACTS", new GoogleContactsImporter(credentialFactory));
-    importerBuilder.put("CALENDAR", new GoogleCalendarImporter(credentialFactory));
-    importerBuilder.put("MAIL", new GoogleMailImporter(credentialFactory, monitor));
+    importerBuilder.put(
+        "CALENDAR",
+        new GoogleCalendarImporter(
+            credentialFactory, context.getSetting("googleCalendarInsertParallelism", 4)));
+    importerBuilder.put(
+        "MAIL",
+        new GoogleMailImporter(
+            credentialFactory, monitor, context.getSetting("googleMailInsertParallelism", 4)));
     importerBuilder.put("TASKS", new GoogleTasksImporter(credentialFactory));
     importerBuilder.put(
         "PHOTOS",
@@ -108,19 +115,40 @@ public class GoogleTransferExtension implements TransferExtension {
             jobStore,
             jsonFactory,
             monitor,
-            context.getSetting("googleWritesPerSecond", 1.0)));
-    importerBuilder.put("VIDEOS", new GoogleVideosImporter(appCredentials, jobStore, monitor));
+            context.getSetting("googleWritesPerSecond", 1.0),
+            context.getSetting("googlePhotosUploadParallelism", 1)));
+    importerBuilder.put(
+        "VIDEOS",
+        new GoogleVideosImporter(
+            appCredentials,
+            jobStore,
+            monitor,
+            context.getService(MetricRecorder.class),
+            context.getSetting("googleVideosUploadParallelism", 1)));
     importerMap = importerBuilder.build();
 
     ImmutableMap.Builder<String, Exporter> exporterBuilder = ImmutableMap.builder();
     exporterBuilder.put("BLOBS", new DriveExporter(credentialFactory, jobStore, monitor));
     exporterBuilder.put("CONTACTS", new GoogleContactsExporter(credentialFactory));
     exporterBuilder.put("CALENDAR", new GoogleCalendarExporter(credentialFactory));
-    exporterBuilder.put("MAIL", new GoogleMailExporter(credentialFactory));
+    exporterBuilder.put(
+        "MAIL",
+        new GoogleMailExporter(
+            credentialFactory,
+            context.getSetting("googleMailExportParallelism", 4),
+            context.getSetting("googleMailReadsPerSecond", 40.0),
+            // Default: 32 MiB of raw messages per exported page
+            context.getSetting("googleMailMaxPageBytes", 32 * 1024 * 1024)));
     exporterBuilder.put("SOCIAL-POSTS", new GooglePlusExporter(credentialFactory));
     exporterBuilder.put("TASKS", new GoogleTasksExporter(credentialFactory, monitor));
     exporterBuilder.put(
-        "PHOTOS", new GooglePhotosExporter(credentialFactory, jobStore, jsonFactory, monitor));
+        "PHOTOS",
+        new GooglePhotosExporter(
+            credentialFactory,
+            jobStore,
+            jsonFactory,
+            monitor,
+            context.getSetting("googlePhotosAlbumScanParallelism", 4)));
     exporterBuilder.put("VIDEOS", new GoogleVideosExporter(credentialFactory, jsonFactory));
 
     exporterMap = exporterBuilder.build();
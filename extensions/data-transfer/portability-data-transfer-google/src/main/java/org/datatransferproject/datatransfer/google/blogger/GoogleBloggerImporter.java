@@ -42,6 +42,7 @@ import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportE
 import org.datatransferproject.spi.transfer.provider.ImportResult;
 import org.datatransferproject.spi.transfer.provider.ImportResult.ResultType;
 import org.datatransferproject.spi.transfer.provider.Importer;
+import org.datatransferproject.spi.transfer.provider.PerJobClientCache;
 import org.datatransferproject.transfer.ImageStreamProvider;
 import org.datatransferproject.types.common.models.social.SocialActivityActor;
 import org.datatransferproject.types.common.models.social.SocialActivityAttachment;
@@ -57,9 +58,13 @@ public class GoogleBloggerImporter
   private final ImageStreamProvider imageStreamProvider;
   // Don't access this directly, instead access via getOrCreateBloggerService.
   private Blogger blogger;
+  private final PerJobClientCache<TokensAndUrlAuthData, Blogger> bloggerServices =
+      new PerJobClientCache<>(this::makeBloggerService);
   // Don't access this directly, instead access via getOrCreateDriveService.
   // Used for image upload/hosting.
   private Drive driveInterface;
+  private final PerJobClientCache<TokensAndUrlAuthData, Drive> driveServices =
+      new PerJobClientCache<>(this::makeDriveService);
 
   public GoogleBloggerImporter(GoogleCredentialFactory credentialFactory) {
     this.credentialFactory = credentialFactory;
@@ -218,10 +223,10 @@ public class GoogleBloggerImporter
   }
 
   private Blogger getOrCreateBloggerService(TokensAndUrlAuthData authData) {
-    return blogger == null ? makeBloggerService(authData) : blogger;
+    return blogger == null ? bloggerServices.get(authData) : blogger;
   }
 
-  private synchronized Blogger makeBloggerService(TokensAndUrlAuthData authData) {
+  private Blogger makeBloggerService(TokensAndUrlAuthData authData) {
     Credential credential = credentialFactory.createCredential(authData);
     return new Blogger.Builder(
             credentialFactory.getHttpTransport(), credentialFactory.getJsonFactory(), credential)
@@ -229,11 +234,11 @@ public class GoogleBloggerImporter
         .build();
   }
 
-  private synchronized Drive getOrCreateDriveService(TokensAndUrlAuthData authData) {
-    return driveInterface == null ? (driveInterface = makeDriveService(authData)) : driveInterface;
+  private Drive getOrCreateDriveService(TokensAndUrlAuthData authData) {
+    return driveInterface == null ? driveServices.get(authData) : driveInterface;
   }
 
-  private synchronized Drive makeDriveService(TokensAndUrlAuthData authData) {
+  private Drive makeDriveService(TokensAndUrlAuthData authData) {
     Credential credential = credentialFactory.createCredential(authData);
     return new Drive.Builder(
             credentialFactory.getHttpTransport(), credentialFactory.getJsonFactory(), credential)
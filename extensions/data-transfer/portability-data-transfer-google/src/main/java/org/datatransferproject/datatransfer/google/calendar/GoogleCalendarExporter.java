@@ -15,6 +15,7 @@ import org.datatransferproject.datatransfer.google.common.GoogleStaticObjects;
 import org.datatransferproject.spi.transfer.provider.ExportResult;
 import org.datatransferproject.spi.transfer.provider.ExportResult.ResultType;
 import org.datatransferproject.spi.transfer.provider.Exporter;
+import org.datatransferproject.spi.transfer.provider.PerJobClientCache;
 import org.datatransferproject.spi.transfer.types.ContinuationData;
 import org.datatransferproject.types.common.ExportInformation;
 import org.datatransferproject.types.common.PaginationData;
@@ -46,6 +47,8 @@ public class GoogleCalendarExporter implements
 
   private final GoogleCredentialFactory credentialFactory;
   private volatile Calendar calendarInterface;
+  private final PerJobClientCache<TokensAndUrlAuthData, Calendar> calendarInterfaces =
+      new PerJobClientCache<>(this::makeCalendarInterface);
 
   public GoogleCalendarExporter(GoogleCredentialFactory credentialFactory) {
     this(credentialFactory, null); // Lazily initialized later on
@@ -264,10 +267,10 @@ public class GoogleCalendarExporter implements
   }
 
   private Calendar getOrCreateCalendarInterface(TokensAndUrlAuthData authData) {
-    return calendarInterface == null ? makeCalendarInterface(authData) : calendarInterface;
+    return calendarInterface == null ? calendarInterfaces.get(authData) : calendarInterface;
   }
 
-  private synchronized Calendar makeCalendarInterface(TokensAndUrlAuthData authData) {
+  private Calendar makeCalendarInterface(TokensAndUrlAuthData authData) {
     Credential credential = credentialFactory.createCredential(authData);
     return new Calendar.Builder(
         credentialFactory.getHttpTransport(), credentialFactory.getJsonFactory(), credential)
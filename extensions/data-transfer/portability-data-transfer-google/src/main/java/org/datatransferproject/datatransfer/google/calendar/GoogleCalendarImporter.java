@@ -7,11 +7,17 @@ import com.google.api.services.calendar.model.Event;
 import com.google.api.services.calendar.model.EventAttendee;
 import com.google.api.services.calendar.model.EventDateTime;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.datatransferproject.datatransfer.google.common.GoogleCredentialFactory;
 import org.datatransferproject.datatransfer.google.common.GoogleStaticObjects;
 import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
 import org.datatransferproject.spi.transfer.provider.ImportResult;
 import org.datatransferproject.spi.transfer.provider.Importer;
+import org.datatransferproject.spi.transfer.provider.PerJobClientCache;
 import org.datatransferproject.types.common.models.calendar.CalendarAttendeeModel;
 import org.datatransferproject.types.common.models.calendar.CalendarContainerResource;
 import org.datatransferproject.types.common.models.calendar.CalendarEventModel;
@@ -19,25 +25,63 @@ import org.datatransferproject.types.common.models.calendar.CalendarModel;
 import org.datatransferproject.types.transfer.auth.TokensAndUrlAuthData;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.stream.Collectors;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 public class GoogleCalendarImporter implements
     Importer<TokensAndUrlAuthData, CalendarContainerResource> {
 
+  private static final int DEFAULT_INSERT_PARALLELISM = 4;
+
   private final GoogleCredentialFactory credentialFactory;
+  private final int insertParallelism;
+  private final ExecutorService insertExecutor;
   private volatile Calendar calendarInterface;
+  private final PerJobClientCache<TokensAndUrlAuthData, Calendar> calendarInterfaces =
+      new PerJobClientCache<>(this::makeCalendarInterface);
 
   public GoogleCalendarImporter(GoogleCredentialFactory credentialFactory) {
+    this(credentialFactory, DEFAULT_INSERT_PARALLELISM);
+  }
+
+  /** @param insertParallelism the number of events of a page that are inserted at once */
+  public GoogleCalendarImporter(GoogleCredentialFactory credentialFactory, int insertParallelism) {
     // calendarInterface lazily initialized for each request
-    this(credentialFactory, null);
+    this(credentialFactory, null, insertParallelism);
   }
 
   @VisibleForTesting
   GoogleCalendarImporter(GoogleCredentialFactory credentialFactory,
       Calendar calendarInterface) {
+    this(credentialFactory, calendarInterface, DEFAULT_INSERT_PARALLELISM);
+  }
+
+  @VisibleForTesting
+  GoogleCalendarImporter(GoogleCredentialFactory credentialFactory,
+      Calendar calendarInterface, int insertParallelism) {
+    Preconditions.checkArgument(insertParallelism > 0, "insertParallelism must be positive");
     this.credentialFactory = credentialFactory;
     this.calendarInterface = calendarInterface;
+    this.insertParallelism = insertParallelism;
+    this.insertExecutor =
+        Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder()
+                .setNameFormat("google-calendar-import-%d")
+                .setDaemon(true)
+                .build());
   }
 
   private static EventAttendee transformToEventAttendee(CalendarAttendeeModel attendee) {
@@ -102,15 +146,120 @@ public class GoogleCalendarImporter implements
           calendarModel.getName(),
           () -> importSingleCalendar(authData, calendarModel));
     }
-    for (CalendarEventModel eventModel : data.getEvents()) {
-      idempotentExecutor.executeAndSwallowIOExceptions(
-          Integer.toString(eventModel.hashCode()),
-          eventModel.getNotes(),
-          () -> importSingleEvent(idempotentExecutor, authData, eventModel));
-    }
+    importEvents(idempotentExecutor, authData, data.getEvents());
     return ImportResult.OK;
   }
 
+  /**
+   * Inserts the events, with up to {@code insertParallelism} inserts in flight. The outcome of each
+   * insert is then recorded with {@code idempotentExecutor} on the calling thread, in the order of
+   * {@code events}, so failed inserts are reported as errors of this call.
+   */
+  private void importEvents(
+      IdempotentImportExecutor idempotentExecutor,
+      TokensAndUrlAuthData authData,
+      Collection<CalendarEventModel> events) throws Exception {
+    Map<String, Future<String>> inFlightInserts = new HashMap<>();
+    try {
+      Semaphore insertSlots = new Semaphore(insertParallelism);
+      for (CalendarEventModel eventModel : events) {
+        String idempotentId = eventIdempotentId(eventModel);
+        if (idempotentExecutor.isKeyCached(idempotentId)
+            || inFlightInserts.containsKey(idempotentId)) {
+          continue;
+        }
+        insertSlots.acquire();
+        inFlightInserts.put(
+            idempotentId,
+            insertExecutor.submit(
+                () -> {
+                  try {
+                    return importSingleEvent(idempotentExecutor, authData, eventModel);
+                  } finally {
+                    insertSlots.release();
+                  }
+                }));
+      }
+
+      for (CalendarEventModel eventModel : events) {
+        String idempotentId = eventIdempotentId(eventModel);
+        idempotentExecutor.executeAndSwallowIOExceptions(
+            idempotentId,
+            eventModel.getNotes(),
+            () -> getInsertedId(inFlightInserts.get(idempotentId)));
+      }
+    } finally {
+      // Only does something if this thread was interrupted or a result could not be recorded.
+      for (Future<String> inFlightInsert : inFlightInserts.values()) {
+        inFlightInsert.cancel(true);
+      }
+    }
+  }
+
+  /** Waits for an insert started by {@link #importEvents} and rethrows what it threw. */
+  private static String getInsertedId(Future<String> inFlightInsert) throws Exception {
+    try {
+      return inFlightInsert.get();
+    } catch (ExecutionException e) {
+      Throwables.throwIfInstanceOf(e.getCause(), Exception.class);
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Returns an idempotent id derived from the content of {@code eventModel}. Unlike the hash code
+   * of the model, it is the same in every attempt of a job and is long enough not to collide.
+   */
+  @VisibleForTesting
+  static String eventIdempotentId(CalendarEventModel eventModel) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    putField(hasher, eventModel.getCalendarId());
+    putField(hasher, eventModel.getTitle());
+    putField(hasher, eventModel.getNotes());
+    putField(hasher, eventModel.getLocation());
+    putEventTime(hasher, eventModel.getStartTime());
+    putEventTime(hasher, eventModel.getEndTime());
+    List<CalendarAttendeeModel> attendees =
+        eventModel.getAttendees() == null ? Collections.emptyList() : eventModel.getAttendees();
+    hasher.putInt(attendees.size());
+    for (CalendarAttendeeModel attendee : attendees) {
+      putField(hasher, attendee.getDisplayName());
+      putField(hasher, attendee.getEmail());
+      hasher.putBoolean(attendee.getOptional());
+    }
+    // The rule parts come from a HashMap, so they are sorted to be independent of its order
+    List<String> recurrenceParts = new ArrayList<>();
+    if (eventModel.getRecurrenceRule() != null) {
+      for (String rule : eventModel.getRecurrenceRule().getStringList()) {
+        Collections.addAll(recurrenceParts, rule.split(";"));
+      }
+    }
+    Collections.sort(recurrenceParts);
+    hasher.putInt(recurrenceParts.size());
+    recurrenceParts.forEach(part -> putField(hasher, part));
+    return hasher.hash().toString();
+  }
+
+  private static void putEventTime(Hasher hasher, CalendarEventModel.CalendarEventTime time) {
+    if (time == null) {
+      hasher.putBoolean(false);
+      return;
+    }
+    hasher.putBoolean(true);
+    putField(hasher, time.getDateTime() == null ? null : time.getDateTime().toString());
+    hasher.putBoolean(time.isDateOnly());
+  }
+
+  private static void putField(Hasher hasher, String value) {
+    // Length prefixed, so that adjacent fields can't run into each other
+    if (value == null) {
+      hasher.putInt(-1);
+    } else {
+      hasher.putInt(value.length()).putString(value, UTF_8);
+    }
+  }
+
   @VisibleForTesting
   String importSingleCalendar(TokensAndUrlAuthData authData, CalendarModel calendarModel)
       throws IOException {
@@ -136,10 +285,10 @@ public class GoogleCalendarImporter implements
   }
 
   private Calendar getOrCreateCalendarInterface(TokensAndUrlAuthData authData) {
-    return calendarInterface == null ? makeCalendarInterface(authData) : calendarInterface;
+    return calendarInterface == null ? calendarInterfaces.get(authData) : calendarInterface;
   }
 
-  private synchronized Calendar makeCalendarInterface(TokensAndUrlAuthData authData) {
+  private Calendar makeCalendarInterface(TokensAndUrlAuthData authData) {
     Credential credential = credentialFactory.createCredential(authData);
     return new Calendar.Builder(
         credentialFactory.getHttpTransport(), credentialFactory.getJsonFactory(), credential)
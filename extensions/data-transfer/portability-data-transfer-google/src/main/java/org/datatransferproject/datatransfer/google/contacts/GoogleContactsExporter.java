@@ -39,6 +39,7 @@ import org.datatransferproject.datatransfer.google.common.GoogleStaticObjects;
 import org.datatransferproject.spi.transfer.provider.ExportResult;
 import org.datatransferproject.spi.transfer.provider.ExportResult.ResultType;
 import org.datatransferproject.spi.transfer.provider.Exporter;
+import org.datatransferproject.spi.transfer.provider.PerJobClientCache;
 import org.datatransferproject.spi.transfer.types.ContinuationData;
 import org.datatransferproject.types.common.ExportInformation;
 import org.datatransferproject.types.common.PaginationData;
@@ -64,6 +65,8 @@ public class GoogleContactsExporter
 
   private final GoogleCredentialFactory credentialFactory;
   private volatile PeopleService peopleService;
+  private final PerJobClientCache<TokensAndUrlAuthData, PeopleService> peopleServices =
+      new PerJobClientCache<>(this::makePeopleService);
 
   public GoogleContactsExporter(GoogleCredentialFactory credentialFactory) {
     this.credentialFactory = credentialFactory;
@@ -248,7 +251,9 @@ public class GoogleContactsExporter
       }
       ContinuationData continuationData = new ContinuationData(nextPageData);
 
-      ContactsModelWrapper wrapper = new ContactsModelWrapper(makeVCardString(vCards));
+      // Hand the VCards over as they are, they are only serialized for importers that need it
+      ContactsModelWrapper wrapper =
+          ContactsModelWrapper.fromContacts(vCards, GoogleContactsExporter::makeVCardString);
 
       // Get result type
       ResultType resultType = ResultType.CONTINUE;
@@ -263,10 +268,10 @@ public class GoogleContactsExporter
   }
 
   private PeopleService getOrCreatePeopleService(TokensAndUrlAuthData authData) {
-    return peopleService == null ? makePeopleService(authData) : peopleService;
+    return peopleService == null ? peopleServices.get(authData) : peopleService;
   }
 
-  private synchronized PeopleService makePeopleService(TokensAndUrlAuthData authData) {
+  private PeopleService makePeopleService(TokensAndUrlAuthData authData) {
     Credential credential = credentialFactory.createCredential(authData);
     return new PeopleService.Builder(
         credentialFactory.getHttpTransport(), credentialFactory.getJsonFactory(), credential)
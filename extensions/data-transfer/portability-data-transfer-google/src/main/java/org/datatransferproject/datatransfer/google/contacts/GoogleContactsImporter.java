@@ -36,12 +36,14 @@ import org.datatransferproject.datatransfer.google.common.GoogleStaticObjects;
 import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
 import org.datatransferproject.spi.transfer.provider.ImportResult;
 import org.datatransferproject.spi.transfer.provider.Importer;
+import org.datatransferproject.spi.transfer.provider.PerJobClientCache;
 import org.datatransferproject.types.common.models.contacts.ContactsModelWrapper;
 import org.datatransferproject.types.transfer.auth.TokensAndUrlAuthData;
 
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -58,6 +60,8 @@ public class GoogleContactsImporter implements Importer<TokensAndUrlAuthData, Co
 
   private final GoogleCredentialFactory credentialFactory;
   private volatile PeopleService peopleService;
+  private final PerJobClientCache<TokensAndUrlAuthData, PeopleService> peopleServices =
+      new PerJobClientCache<>(this::makePeopleService);
 
   public GoogleContactsImporter(GoogleCredentialFactory credentialFactory) {
     this.credentialFactory = credentialFactory;
@@ -205,10 +209,9 @@ public class GoogleContactsImporter implements Importer<TokensAndUrlAuthData, Co
   public ImportResult importItem(UUID jobId,
       IdempotentImportExecutor idempotentExecutor,
       TokensAndUrlAuthData authData, ContactsModelWrapper data) throws Exception{
-    JCardReader reader = new JCardReader(data.getVCards());
     try {
       // TODO(olsona): address any other problems that might arise in conversion
-      List<VCard> vCardList = reader.readAll();
+      List<VCard> vCardList = readVCards(data);
       PeopleService.People peopleService = getOrCreatePeopleService(authData).people();
       for (VCard vCard : vCardList) {
         Person person = convert(vCard);
@@ -223,11 +226,22 @@ public class GoogleContactsImporter implements Importer<TokensAndUrlAuthData, Co
     }
   }
 
+  /** Returns the VCards of {@code data}, only parsing them if they were handed over serialized. */
+  private static List<VCard> readVCards(ContactsModelWrapper data) throws IOException {
+    Optional<List<VCard>> vCards = data.getContacts(VCard.class);
+    if (vCards.isPresent()) {
+      return vCards.get();
+    }
+    try (JCardReader reader = new JCardReader(data.getVCards())) {
+      return reader.readAll();
+    }
+  }
+
   private PeopleService getOrCreatePeopleService(TokensAndUrlAuthData authData) {
-    return peopleService == null ? makePeopleService(authData) : peopleService;
+    return peopleService == null ? peopleServices.get(authData) : peopleService;
   }
 
-  private synchronized PeopleService makePeopleService(TokensAndUrlAuthData authData) {
+  private PeopleService makePeopleService(TokensAndUrlAuthData authData) {
     Credential credential = credentialFactory.createCredential(authData);
     return new PeopleService.Builder(
             credentialFactory.getHttpTransport(), credentialFactory.getJsonFactory(), credential)
@@ -14,6 +14,7 @@ import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
 import org.datatransferproject.spi.transfer.provider.ExportResult;
 import org.datatransferproject.spi.transfer.provider.ExportResult.ResultType;
 import org.datatransferproject.spi.transfer.provider.Exporter;
+import org.datatransferproject.spi.transfer.provider.PerJobClientCache;
 import org.datatransferproject.spi.transfer.types.ContinuationData;
 import org.datatransferproject.types.common.ExportInformation;
 import org.datatransferproject.types.common.StringPaginationToken;
@@ -68,13 +69,15 @@ public final class DriveExporter
   private final Monitor monitor;
 
   // Don't access this directly, instead access via getDriveInterface.
-  private Drive driveInterface;
+  private final PerJobClientCache<TokensAndUrlAuthData, Drive> driveInterfaces;
 
   public DriveExporter(
       GoogleCredentialFactory credentialFactory,
       TemporaryPerJobDataStore jobStore,
       Monitor monitor) {
     this.credentialFactory = checkNotNull(credentialFactory, "Credential Factory can't be null");
+    this.driveInterfaces =
+        new PerJobClientCache<>(authData -> makeDriveInterface(authData, credentialFactory));
     this.jobStore = checkNotNull(jobStore, "Job store can't be null");
     this.monitor = monitor;
   }
@@ -173,15 +176,11 @@ public final class DriveExporter
     return fileList.getFiles().isEmpty() || Strings.isNullOrEmpty(fileList.getNextPageToken());
   }
 
-  private synchronized Drive getDriveInterface(TokensAndUrlAuthData authData) {
-    if (driveInterface == null) {
-      driveInterface = makeDriveInterface(authData, credentialFactory);
-    }
-
-    return driveInterface;
+  private Drive getDriveInterface(TokensAndUrlAuthData authData) {
+    return driveInterfaces.get(authData);
   }
 
-  static synchronized Drive makeDriveInterface(
+  static Drive makeDriveInterface(
       TokensAndUrlAuthData authData, GoogleCredentialFactory credentialFactory) {
     Credential credential = credentialFactory.createCredential(authData);
     return new Drive.Builder(
@@ -16,6 +16,7 @@ import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
 import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
 import org.datatransferproject.spi.transfer.provider.ImportResult;
 import org.datatransferproject.spi.transfer.provider.Importer;
+import org.datatransferproject.spi.transfer.provider.PerJobClientCache;
 import org.datatransferproject.types.transfer.auth.TokensAndUrlAuthData;
 import org.datatransferproject.types.transfer.models.blob.BlobbyStorageContainerResource;
 import org.datatransferproject.types.transfer.models.blob.DigitalDocumentWrapper;
@@ -31,13 +32,16 @@ public final class DriveImporter
   private final Monitor monitor;
 
   // Don't access this directly, instead access via getDriveInterface.
-  private Drive driveInterface;
+  private final PerJobClientCache<TokensAndUrlAuthData, Drive> driveInterfaces;
 
   public DriveImporter(
       GoogleCredentialFactory credentialFactory,
       TemporaryPerJobDataStore jobStore,
       Monitor monitor) {
     this.credentialFactory = credentialFactory;
+    this.driveInterfaces =
+        new PerJobClientCache<>(
+            authData -> DriveExporter.makeDriveInterface(authData, credentialFactory));
     this.jobStore = checkNotNull(jobStore, "Job store can't be null");
     this.monitor = monitor;
   }
@@ -117,11 +121,7 @@ public final class DriveImporter
     return driveInterface.files().create(driveFile, content).execute().getId();
   }
 
-  private synchronized Drive getDriveInterface(TokensAndUrlAuthData authData) {
-    if (driveInterface == null) {
-      driveInterface = DriveExporter.makeDriveInterface(authData, credentialFactory);
-    }
-
-    return driveInterface;
+  private Drive getDriveInterface(TokensAndUrlAuthData authData) {
+    return driveInterfaces.get(authData);
   }
 }
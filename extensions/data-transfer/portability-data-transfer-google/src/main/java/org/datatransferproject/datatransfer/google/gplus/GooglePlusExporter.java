@@ -30,6 +30,7 @@ import org.datatransferproject.datatransfer.google.common.GoogleStaticObjects;
 import org.datatransferproject.spi.transfer.provider.ExportResult;
 import org.datatransferproject.spi.transfer.provider.ExportResult.ResultType;
 import org.datatransferproject.spi.transfer.provider.Exporter;
+import org.datatransferproject.spi.transfer.provider.PerJobClientCache;
 import org.datatransferproject.spi.transfer.types.ContinuationData;
 import org.datatransferproject.types.common.ExportInformation;
 import org.datatransferproject.types.common.StringPaginationToken;
@@ -54,6 +55,8 @@ public class GooglePlusExporter
 
   private final GoogleCredentialFactory credentialFactory;
   private volatile Plus plusService;
+  private final PerJobClientCache<TokensAndUrlAuthData, Plus> plusServices =
+      new PerJobClientCache<>(this::makePlusService);
 
   public GooglePlusExporter(GoogleCredentialFactory credentialFactory) {
     this.credentialFactory = credentialFactory;
@@ -192,10 +195,10 @@ public class GooglePlusExporter
   }
 
   private Plus getOrCreatePeopleService(TokensAndUrlAuthData authData) {
-    return plusService == null ? makePlusService(authData) : plusService;
+    return plusService == null ? plusServices.get(authData) : plusService;
   }
 
-  private synchronized Plus makePlusService(TokensAndUrlAuthData authData) {
+  private Plus makePlusService(TokensAndUrlAuthData authData) {
     Credential credential = credentialFactory.createCredential(authData);
     return new Plus.Builder(
             credentialFactory.getHttpTransport(), credentialFactory.getJsonFactory(), credential)
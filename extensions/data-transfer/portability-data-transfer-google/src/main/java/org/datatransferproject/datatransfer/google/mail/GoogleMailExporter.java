@@ -22,16 +22,32 @@ import com.google.api.services.gmail.Gmail.Users.Messages;
 import com.google.api.services.gmail.model.ListMessagesResponse;
 import com.google.api.services.gmail.model.Message;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.datatransferproject.datatransfer.google.common.GoogleCredentialFactory;
 import org.datatransferproject.datatransfer.google.common.GoogleStaticObjects;
 import org.datatransferproject.spi.transfer.provider.ExportResult;
 import org.datatransferproject.spi.transfer.provider.ExportResult.ResultType;
 import org.datatransferproject.spi.transfer.provider.Exporter;
+import org.datatransferproject.spi.transfer.provider.PerJobClientCache;
 import org.datatransferproject.spi.transfer.types.ContinuationData;
 import org.datatransferproject.types.common.ExportInformation;
 import org.datatransferproject.types.common.PaginationData;
@@ -47,18 +63,80 @@ public class GoogleMailExporter implements Exporter<TokensAndUrlAuthData, MailCo
   // The special value me can be used to indicate the authenticated user to the gmail api
   static final String USER = "me";
 
+  private static final int DEFAULT_FETCH_PARALLELISM = 4;
+  // A message get costs 5 of the 250 quota units a user may spend per second.
+  private static final double DEFAULT_READS_PER_SECOND = 40.0;
+  private static final long DEFAULT_MAX_PAGE_BYTES = 32 * 1024 * 1024;
+  // Marks a pagination token that resumes part way through a page of listed messages.
+  private static final String RESUME_TOKEN_PREFIX = "dtp-resume:";
+  // A rate limiter idle for this long has no stored permits left worth keeping.
+  private static final long READ_RATE_LIMITER_IDLE_MINUTES = 1;
+
   private final GoogleCredentialFactory credentialFactory;
   private volatile Gmail gmail;
+  private final PerJobClientCache<TokensAndUrlAuthData, Gmail> gmailServices =
+      new PerJobClientCache<>(this::makeGmailService);
+  private final int fetchParallelism;
+  private final long maxPageBytes;
+  private final ExecutorService fetchExecutor;
+  // Shared by all the calls for a job, so that the rate holds across them.
+  private final LoadingCache<UUID, RateLimiter> readRateLimiters;
 
   public GoogleMailExporter(GoogleCredentialFactory credentialFactory) {
-    this.credentialFactory = credentialFactory;
-    this.gmail = null;
+    this(
+        credentialFactory,
+        DEFAULT_FETCH_PARALLELISM,
+        DEFAULT_READS_PER_SECOND,
+        DEFAULT_MAX_PAGE_BYTES);
+  }
+
+  /**
+   * @param fetchParallelism the number of messages of a page fetched at once
+   * @param readsPerSecond the rate at which the messages of a job are fetched, across all its calls
+   * @param maxPageBytes once the raw messages exported in a call add up to this many bytes, the
+   *     rest of the listed page is left for the next call
+   */
+  public GoogleMailExporter(
+      GoogleCredentialFactory credentialFactory,
+      int fetchParallelism,
+      double readsPerSecond,
+      long maxPageBytes) {
+    this(credentialFactory, null, fetchParallelism, readsPerSecond, maxPageBytes);
   }
 
   @VisibleForTesting
   GoogleMailExporter(GoogleCredentialFactory credentialFactory, Gmail gmail) {
+    this(
+        credentialFactory,
+        gmail,
+        DEFAULT_FETCH_PARALLELISM,
+        DEFAULT_READS_PER_SECOND,
+        DEFAULT_MAX_PAGE_BYTES);
+  }
+
+  @VisibleForTesting
+  GoogleMailExporter(
+      GoogleCredentialFactory credentialFactory,
+      Gmail gmail,
+      int fetchParallelism,
+      double readsPerSecond,
+      long maxPageBytes) {
+    Preconditions.checkArgument(fetchParallelism > 0, "fetchParallelism must be positive");
+    Preconditions.checkArgument(maxPageBytes > 0, "maxPageBytes must be positive");
     this.credentialFactory = credentialFactory;
     this.gmail = gmail;
+    this.fetchParallelism = fetchParallelism;
+    this.maxPageBytes = maxPageBytes;
+    this.readRateLimiters =
+        CacheBuilder.newBuilder()
+            .expireAfterAccess(READ_RATE_LIMITER_IDLE_MINUTES, TimeUnit.MINUTES)
+            .build(CacheLoader.from(jobId -> RateLimiter.create(readsPerSecond)));
+    this.fetchExecutor =
+        Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder()
+                .setNameFormat("google-mail-export-%d")
+                .setDaemon(true)
+                .build());
   }
 
   @Override
@@ -74,9 +152,20 @@ public class GoogleMailExporter implements Exporter<TokensAndUrlAuthData, MailCo
       return new ExportResult<>(e);
     }
 
+    String pageToken = null;
+    String lastExportedMessageId = null;
     if (exportInformation.isPresent() && exportInformation.get().getPaginationData() != null) {
-      request.setPageToken(
-          ((StringPaginationToken) exportInformation.get().getPaginationData()).getToken());
+      pageToken = ((StringPaginationToken) exportInformation.get().getPaginationData()).getToken();
+      if (pageToken.startsWith(RESUME_TOKEN_PREFIX)) {
+        // "dtp-resume:<id of the last exported message>:<page token, empty for the first>"
+        String resume = pageToken.substring(RESUME_TOKEN_PREFIX.length());
+        int separator = resume.indexOf(':');
+        lastExportedMessageId = resume.substring(0, separator);
+        pageToken = Strings.emptyToNull(resume.substring(separator + 1));
+      }
+    }
+    if (pageToken != null) {
+      request.setPageToken(pageToken);
     }
 
     ListMessagesResponse response = null;
@@ -86,24 +175,34 @@ public class GoogleMailExporter implements Exporter<TokensAndUrlAuthData, MailCo
       return new ExportResult<>(e);
     }
 
-    List<MailMessageModel> results = new ArrayList<>(response.getMessages().size());
-    // TODO: this is a good indication we need to swap the interface
-    // as we can't store all the mail messages in memory at once.
-    for (Message listMessage : response.getMessages()) {
-      Message getResponse = null;
-      try {
-        getResponse =
-            gmail.users().messages().get(USER, listMessage.getId()).setFormat("raw").execute();
-      } catch (IOException e) {
-        return new ExportResult<>(e);
-      }
-      // TODO: note this doesn't transfer things like labels
-      results.add(new MailMessageModel(getResponse.getRaw(), getResponse.getLabelIds()));
+    List<Message> listedMessages =
+        response.getMessages() == null ? Collections.emptyList() : response.getMessages();
+    int firstMessage =
+        lastExportedMessageId == null ? 0 : indexAfter(listedMessages, lastExportedMessageId);
+    List<MailMessageModel> results = new ArrayList<>();
+    int nextMessage;
+    try {
+      RateLimiter readRateLimiter = readRateLimiters.getUnchecked(id);
+      nextMessage = fetchMessages(gmail, readRateLimiter, listedMessages, firstMessage, results);
+    } catch (IOException e) {
+      return new ExportResult<>(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return new ExportResult<>(e);
     }
 
     PaginationData newPage = null;
     ResultType resultType = ResultType.END;
-    if (response.getNextPageToken() != null) {
+    if (nextMessage < listedMessages.size()) {
+      // The byte cap was reached, the rest of this listed page goes in the next call.
+      newPage =
+          new StringPaginationToken(
+              RESUME_TOKEN_PREFIX
+                  + listedMessages.get(nextMessage - 1).getId()
+                  + ":"
+                  + Strings.nullToEmpty(pageToken));
+      resultType = ResultType.CONTINUE;
+    } else if (response.getNextPageToken() != null) {
       newPage = new StringPaginationToken(response.getNextPageToken());
       resultType = ResultType.CONTINUE;
     }
@@ -112,11 +211,84 @@ public class GoogleMailExporter implements Exporter<TokensAndUrlAuthData, MailCo
     return new ExportResult<>(resultType, mailContainerResource, new ContinuationData(newPage));
   }
 
+  /**
+   * Returns the index of the listed message following the one with {@code messageId}. Messages may
+   * have been added or deleted since the page was last listed, so the position in the page can't be
+   * relied on. If the message itself is gone, the whole page is exported again: messages exported
+   * twice are better than messages never exported.
+   */
+  private static int indexAfter(List<Message> listedMessages, String messageId) {
+    for (int i = 0; i < listedMessages.size(); i++) {
+      if (messageId.equals(listedMessages.get(i).getId())) {
+        return i + 1;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Fetches the raw form of the listed messages, starting at {@code firstMessage}, with up to
+   * {@code fetchParallelism} fetches in flight, and adds them to {@code results} in list order
+   * until they add up to {@code maxPageBytes}. Fetches are throttled by the job's {@code
+   * readRateLimiter}.
+   *
+   * @return the index of the first listed message that was not added
+   */
+  private int fetchMessages(
+      Gmail gmail,
+      RateLimiter readRateLimiter,
+      List<Message> listedMessages,
+      int firstMessage,
+      List<MailMessageModel> results)
+      throws IOException, InterruptedException {
+    Deque<Future<Message>> inFlightFetches = new ArrayDeque<>();
+    int nextToFetch = firstMessage;
+    int nextToAdd = firstMessage;
+    long pageBytes = 0;
+    try {
+      while (nextToAdd < listedMessages.size() && pageBytes < maxPageBytes) {
+        while (inFlightFetches.size() < fetchParallelism && nextToFetch < listedMessages.size()) {
+          Messages.Get get =
+              gmail
+                  .users()
+                  .messages()
+                  .get(USER, listedMessages.get(nextToFetch++).getId())
+                  .setFormat("raw");
+          inFlightFetches.add(
+              fetchExecutor.submit(
+                  () -> {
+                    readRateLimiter.acquire();
+                    return get.execute();
+                  }));
+        }
+        Message getResponse;
+        try {
+          getResponse = inFlightFetches.removeFirst().get();
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof IOException) {
+            throw (IOException) e.getCause();
+          }
+          throw new IOException("Unable to fetch message", e.getCause());
+        }
+        // TODO: note this doesn't transfer things like labels
+        results.add(new MailMessageModel(getResponse.getRaw(), getResponse.getLabelIds()));
+        pageBytes += Strings.nullToEmpty(getResponse.getRaw()).length();
+        nextToAdd++;
+      }
+      return nextToAdd;
+    } finally {
+      // Fetches past the byte cap, or after a failure, are not needed.
+      for (Future<Message> inFlightFetch : inFlightFetches) {
+        inFlightFetch.cancel(true);
+      }
+    }
+  }
+
   private Gmail getOrCreateGmail(TokensAndUrlAuthData authData) {
-    return gmail == null ? makeGmailService(authData) : gmail;
+    return gmail == null ? gmailServices.get(authData) : gmail;
   }
 
-  private synchronized Gmail makeGmailService(TokensAndUrlAuthData authData) {
+  private Gmail makeGmailService(TokensAndUrlAuthData authData) {
     Credential credential = credentialFactory.createCredential(authData);
     return new Gmail.Builder(
         credentialFactory.getHttpTransport(), credentialFactory.getJsonFactory(), credential)
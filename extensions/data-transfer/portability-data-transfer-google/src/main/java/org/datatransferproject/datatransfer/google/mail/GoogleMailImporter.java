@@ -24,14 +24,19 @@ import com.google.api.services.gmail.model.Message;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.datatransfer.google.common.GoogleCredentialFactory;
 import org.datatransferproject.datatransfer.google.common.GoogleStaticObjects;
 import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
 import org.datatransferproject.spi.transfer.provider.ImportResult;
 import org.datatransferproject.spi.transfer.provider.Importer;
+import org.datatransferproject.spi.transfer.provider.PerJobClientCache;
 import org.datatransferproject.types.common.models.mail.MailContainerModel;
 import org.datatransferproject.types.common.models.mail.MailContainerResource;
 import org.datatransferproject.types.common.models.mail.MailMessageModel;
@@ -39,9 +44,14 @@ import org.datatransferproject.types.transfer.auth.TokensAndUrlAuthData;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
-import java.util.function.Supplier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 
 public class GoogleMailImporter implements Importer<TokensAndUrlAuthData, MailContainerResource> {
@@ -51,20 +61,54 @@ public class GoogleMailImporter implements Importer<TokensAndUrlAuthData, MailCo
 
   @VisibleForTesting static final String LABEL = "DTP-migrated";
 
+  private static final int MAX_CACHED_JOBS = 16;
+  private static final int DEFAULT_INSERT_PARALLELISM = 4;
+
   private GoogleCredentialFactory credentialFactory;
   private final Gmail gmail;
+  private final PerJobClientCache<TokensAndUrlAuthData, Gmail> gmailServices =
+      new PerJobClientCache<>(this::makeGmailService);
+  // Labels of the destination account, by job. Listed once per job rather than once per label
+  // lookup, and kept up to date with the labels the job creates.
+  private final Cache<UUID, DestinationLabels> destinationLabelsByJob =
+      CacheBuilder.newBuilder().maximumSize(MAX_CACHED_JOBS).build();
   private final Monitor monitor;
+  private final int insertParallelism;
+  private final ExecutorService insertExecutor;
 
   public GoogleMailImporter(GoogleCredentialFactory credentialFactory, Monitor monitor) {
-    this(credentialFactory, null, monitor);
+    this(credentialFactory, monitor, DEFAULT_INSERT_PARALLELISM);
+  }
+
+  /** @param insertParallelism the number of messages of a page that are inserted at once */
+  public GoogleMailImporter(
+      GoogleCredentialFactory credentialFactory, Monitor monitor, int insertParallelism) {
+    this(credentialFactory, null, monitor, insertParallelism);
   }
 
   @VisibleForTesting
   GoogleMailImporter(
       GoogleCredentialFactory credentialFactory, Gmail gmail, Monitor monitor) {
+    this(credentialFactory, gmail, monitor, DEFAULT_INSERT_PARALLELISM);
+  }
+
+  @VisibleForTesting
+  GoogleMailImporter(
+      GoogleCredentialFactory credentialFactory,
+      Gmail gmail,
+      Monitor monitor,
+      int insertParallelism) {
+    Preconditions.checkArgument(insertParallelism > 0, "insertParallelism must be positive");
     this.credentialFactory = credentialFactory;
     this.gmail = gmail;
     this.monitor = monitor;
+    this.insertParallelism = insertParallelism;
+    this.insertExecutor =
+        Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder()
+                .setNameFormat("google-mail-import-%d")
+                .setDaemon(true)
+                .build());
   }
 
   @Override
@@ -74,20 +118,18 @@ public class GoogleMailImporter implements Importer<TokensAndUrlAuthData, MailCo
       TokensAndUrlAuthData authData,
       MailContainerResource data) throws Exception {
 
-    // Lazy init the request for all labels in the destination account, since it may not be needed
-    // Mapping of labelName -> destination label id
-    Supplier<Map<String, String>> allDestinationLabels = allDestinationLabelsSupplier(authData);
+    // Mapping of labelName -> destination label id, only listed once the job first needs it
+    DestinationLabels destinationLabels = getDestinationLabels(id, authData);
 
     // Import folders/labels
-    importLabels(authData, idempotentExecutor, allDestinationLabels, data.getFolders());
+    importLabels(idempotentExecutor, destinationLabels, data.getFolders());
 
 
     // Import the special DTP label
-    importDTPLabel(authData, idempotentExecutor, allDestinationLabels);
+    importDTPLabel(idempotentExecutor, destinationLabels);
 
     // Import labels from the given set of messages
-    importLabelsForMessages(
-            authData, idempotentExecutor, allDestinationLabels, data.getMessages());
+    importLabelsForMessages(idempotentExecutor, destinationLabels, data.getMessages());
 
     importMessages(authData, idempotentExecutor, data.getMessages());
 
@@ -98,9 +140,8 @@ public class GoogleMailImporter implements Importer<TokensAndUrlAuthData, MailCo
    * Creates a label in the import account, if it doesn't already exist, for all {@code folders} .
    */
   private void importLabels(
-      TokensAndUrlAuthData authData,
       IdempotentImportExecutor idempotentExecutor,
-      Supplier<Map<String, String>> allDestinationLabels,
+      DestinationLabels destinationLabels,
       Collection<MailContainerModel> folders) throws Exception {
     for (MailContainerModel mailContainerModel : folders) {
       Preconditions.checkArgument(!Strings.isNullOrEmpty(mailContainerModel.getName()));
@@ -108,31 +149,16 @@ public class GoogleMailImporter implements Importer<TokensAndUrlAuthData, MailCo
       idempotentExecutor.executeAndSwallowIOExceptions(
           exportedLabelName,
           "Label - " + exportedLabelName,
-          () -> {
-            String importerLabelId = allDestinationLabels.get().get(mailContainerModel.getName());
-            if (importerLabelId == null) {
-              importerLabelId = createImportedLabelId(authData, mailContainerModel.getName());
-            }
-            return importerLabelId;
-          });
+          () -> destinationLabels.getOrCreate(exportedLabelName));
       }
   }
 
   /** Creates a label in the import account to associate with all imported messages. */
   private void importDTPLabel(
-      TokensAndUrlAuthData authData,
       IdempotentImportExecutor idempotentExecutor,
-      Supplier<Map<String, String>> allDestinationLabels) throws Exception {
+      DestinationLabels destinationLabels) throws Exception {
     idempotentExecutor.executeAndSwallowIOExceptions(
-        LABEL,
-        LABEL,
-        () -> {
-          String migratedLabelId = allDestinationLabels.get().get(LABEL);
-          if (migratedLabelId == null) {
-            migratedLabelId = createImportedLabelId(authData, LABEL);
-          }
-          return migratedLabelId;
-        });
+        LABEL, LABEL, () -> destinationLabels.getOrCreate(LABEL));
   }
 
   /**
@@ -140,9 +166,8 @@ public class GoogleMailImporter implements Importer<TokensAndUrlAuthData, MailCo
    * with the give {@code messages} .
    */
   private void importLabelsForMessages(
-      TokensAndUrlAuthData authData,
       IdempotentImportExecutor idempotentExecutor,
-      Supplier<Map<String, String>> allDestinationLabels,
+      DestinationLabels destinationLabels,
       Collection<MailMessageModel> messages) throws Exception {
     for (MailMessageModel mailMessageModel : messages) {
       // Get or create label ids associated with this message
@@ -150,101 +175,164 @@ public class GoogleMailImporter implements Importer<TokensAndUrlAuthData, MailCo
         idempotentExecutor.executeAndSwallowIOExceptions(
             exportedLabelName,
             exportedLabelName,
-            () -> {
-              String importerLabelId = allDestinationLabels.get().get(exportedLabelName);
-              // Found no existing map or label named the same, create a new one
-              if (importerLabelId == null) {
-                  importerLabelId = createImportedLabelId(authData, exportedLabelName);
-              }
-              return importerLabelId;
-            });
+            () -> destinationLabels.getOrCreate(exportedLabelName));
       }
     }
   }
 
   /**
    * Import each message in {@code messages} into the import account with it's associated labels.
+   *
+   * <p>Up to {@code insertParallelism} messages are inserted at once. The outcome of each insert
+   * is then recorded with {@code idempotentExecutor} on the calling thread, in the order of
+   * {@code messages}, so failed inserts are reported as errors of this call.
    */
   private void importMessages(
       TokensAndUrlAuthData authData,
       IdempotentImportExecutor idempotentExecutor,
       Collection<MailMessageModel> messages) throws Exception {
-    for (MailMessageModel mailMessageModel : messages) {
-      idempotentExecutor.executeAndSwallowIOExceptions(
-          mailMessageModel.toString(),
-          // Trim the full mail message to try to give some context to the user but not overwhelm
-          // them.
-          "Mail message: " + mailMessageModel.getRawString()
-              .substring(0, Math.min(50, mailMessageModel.getRawString().length())),
-          () -> {
-            // Gather the label ids that will be associated with this message
-            ImmutableList.Builder<String> importedLabelIds = ImmutableList.builder();
-            for (String exportedLabelIdOrName : mailMessageModel.getContainerIds()) {
-              // By this time all the label ids have been added to tempdata
-              String importedLabelId = idempotentExecutor.getCachedValue(exportedLabelIdOrName);
-              if (importedLabelId != null) {
-                importedLabelIds.add(exportedLabelIdOrName);
-              } else {
-                // TODO remove after testing
-                monitor.debug(
-                    () -> "labels should have been added prior to importing messages");
-              }
-            }
-            // Create the message to import
-            Message newMessage =
-                new Message()
-                    .setRaw(mailMessageModel.getRawString())
-                    .setLabelIds(importedLabelIds.build());
-            return getOrCreateGmail(authData)
-                .users()
-                .messages()
-                .insert(USER, newMessage)
-                .execute()
-                .getId();
-          });
+    Map<String, Future<String>> inFlightInserts = new HashMap<>();
+    try {
+      Semaphore insertSlots = new Semaphore(insertParallelism);
+      for (MailMessageModel mailMessageModel : messages) {
+        String idempotentId = mailMessageModel.toString();
+        if (idempotentExecutor.isKeyCached(idempotentId)
+            || inFlightInserts.containsKey(idempotentId)) {
+          continue;
+        }
+        insertSlots.acquire();
+        inFlightInserts.put(
+            idempotentId,
+            insertExecutor.submit(
+                () -> {
+                  try {
+                    return insertMessage(authData, idempotentExecutor, mailMessageModel);
+                  } finally {
+                    insertSlots.release();
+                  }
+                }));
+      }
+
+      for (MailMessageModel mailMessageModel : messages) {
+        String idempotentId = mailMessageModel.toString();
+        idempotentExecutor.executeAndSwallowIOExceptions(
+            idempotentId,
+            // Trim the full mail message to try to give some context to the user but not overwhelm
+            // them.
+            "Mail message: " + mailMessageModel.getRawString()
+                .substring(0, Math.min(50, mailMessageModel.getRawString().length())),
+            () -> getInsertedId(inFlightInserts.get(idempotentId)));
+      }
+    } finally {
+      // Only does something if this thread was interrupted or a result could not be recorded.
+      for (Future<String> inFlightInsert : inFlightInserts.values()) {
+        inFlightInsert.cancel(true);
+      }
     }
   }
 
-  /** Supplies a mapping of Label Name -> Label Id (in the import account). */
-  private java.util.function.Supplier<Map<String, String>> allDestinationLabelsSupplier(
-      TokensAndUrlAuthData authData) {
-    return () -> {
-      ListLabelsResponse response;
-      try {
-        response = getOrCreateGmail(authData).users().labels().list(USER).execute();
-      } catch (IOException e) {
-        throw new RuntimeException("Unable to list labels for user", e);
+  /** Inserts a single message with the ids of its imported labels and returns its new id. */
+  private String insertMessage(
+      TokensAndUrlAuthData authData,
+      IdempotentImportExecutor idempotentExecutor,
+      MailMessageModel mailMessageModel) throws IOException {
+    // Gather the label ids that will be associated with this message
+    ImmutableList.Builder<String> importedLabelIds = ImmutableList.builder();
+    for (String exportedLabelIdOrName : mailMessageModel.getContainerIds()) {
+      // By this time all the label ids have been added to tempdata
+      String importedLabelId = idempotentExecutor.getCachedValue(exportedLabelIdOrName);
+      if (importedLabelId != null) {
+        importedLabelIds.add(importedLabelId);
+      } else {
+        // TODO remove after testing
+        monitor.debug(
+            () -> "labels should have been added prior to importing messages");
       }
-      ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+    }
+    // Create the message to import
+    Message newMessage =
+        new Message()
+            .setRaw(mailMessageModel.getRawString())
+            .setLabelIds(importedLabelIds.build());
+    return getOrCreateGmail(authData)
+        .users()
+        .messages()
+        .insert(USER, newMessage)
+        .execute()
+        .getId();
+  }
 
-      for (Label label : response.getLabels()) {
-        // TODO: remove system labels
-        builder.put(label.getName(), label.getId());
-      }
-      return builder.build();
-    };
+  /** Waits for an insert started by {@link #importMessages} and rethrows what it threw. */
+  private static String getInsertedId(Future<String> inFlightInsert) throws Exception {
+    try {
+      return inFlightInsert.get();
+    } catch (ExecutionException e) {
+      Throwables.throwIfInstanceOf(e.getCause(), Exception.class);
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new IllegalStateException(e.getCause());
+    }
   }
 
-  /** Creates the given {@code labelName} in the import service provider and returns the id. */
-  private String createImportedLabelId(TokensAndUrlAuthData authData, String labelName)
-      throws IOException {
-    Label newLabel =
-        new Label()
-            .setName(labelName)
-            .setLabelListVisibility("labelShow")
-            .setMessageListVisibility("show");
-    return getOrCreateGmail(authData).users().labels().create(USER, newLabel).execute().getId();
+  private DestinationLabels getDestinationLabels(UUID jobId, TokensAndUrlAuthData authData) {
+    try {
+      return destinationLabelsByJob.get(
+          jobId, () -> new DestinationLabels(getOrCreateGmail(authData)));
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      // Rethrow what creating the client threw rather than the cache's wrapper.
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new IllegalStateException(e.getCause());
+    }
   }
 
   private Gmail getOrCreateGmail(TokensAndUrlAuthData authData) {
-    return gmail == null ? makeGmailService(authData) : gmail;
+    return gmail == null ? gmailServices.get(authData) : gmail;
   }
 
-  private synchronized Gmail makeGmailService(TokensAndUrlAuthData authData) {
+  private Gmail makeGmailService(TokensAndUrlAuthData authData) {
     Credential credential = credentialFactory.createCredential(authData);
     return new Gmail.Builder(
             credentialFactory.getHttpTransport(), credentialFactory.getJsonFactory(), credential)
         .setApplicationName(GoogleStaticObjects.APP_NAME)
         .build();
   }
+
+  /**
+   * The labels of the destination account of a job, by name. Listed from the account on first use
+   * and updated as labels are created, so a label is never looked up or created twice.
+   */
+  private static final class DestinationLabels {
+    private final Gmail gmail;
+    private final Map<String, String> labelIdsByName = new HashMap<>();
+    private boolean listed;
+
+    DestinationLabels(Gmail gmail) {
+      this.gmail = gmail;
+    }
+
+    /** Returns the id of the label named {@code labelName}, creating the label if needed. */
+    synchronized String getOrCreate(String labelName) throws IOException {
+      if (!listed) {
+        ListLabelsResponse response = gmail.users().labels().list(USER).execute();
+        if (response.getLabels() != null) {
+          for (Label label : response.getLabels()) {
+            // TODO: remove system labels
+            labelIdsByName.put(label.getName(), label.getId());
+          }
+        }
+        listed = true;
+      }
+      String labelId = labelIdsByName.get(labelName);
+      if (labelId == null) {
+        // Found no existing label named the same, create a new one
+        Label newLabel =
+            new Label()
+                .setName(labelName)
+                .setLabelListVisibility("labelShow")
+                .setMessageListVisibility("show");
+        labelId = gmail.users().labels().create(USER, newLabel).execute().getId();
+        labelIdsByName.put(labelName, labelId);
+      }
+      return labelId;
+    }
+  }
 }
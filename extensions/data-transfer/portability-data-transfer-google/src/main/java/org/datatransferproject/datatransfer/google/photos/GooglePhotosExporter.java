@@ -15,6 +15,8 @@
  */
 package org.datatransferproject.datatransfer.google.photos;
 
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.client.auth.oauth2.Credential;
@@ -22,15 +24,31 @@ import com.google.api.client.json.JsonFactory;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.datatransfer.google.common.GoogleCredentialFactory;
 import org.datatransferproject.datatransfer.google.mediaModels.AlbumListResponse;
@@ -41,6 +59,7 @@ import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
 import org.datatransferproject.spi.transfer.provider.ExportResult;
 import org.datatransferproject.spi.transfer.provider.ExportResult.ResultType;
 import org.datatransferproject.spi.transfer.provider.Exporter;
+import org.datatransferproject.spi.transfer.provider.PerJobClientCache;
 import org.datatransferproject.spi.transfer.types.ContinuationData;
 import org.datatransferproject.spi.transfer.types.InvalidTokenException;
 import org.datatransferproject.spi.transfer.types.PermissionDeniedException;
@@ -62,11 +81,21 @@ public class GooglePhotosExporter
 
   static final String ALBUM_TOKEN_PREFIX = "album:";
   static final String PHOTO_TOKEN_PREFIX = "media:";
+  // Only jobs running in this worker need their contained photo ids cached
+  private static final int MAX_CACHED_JOBS = 16;
+  private static final int DEFAULT_ALBUM_SCAN_PARALLELISM = 4;
 
   private final GoogleCredentialFactory credentialFactory;
   private final TemporaryPerJobDataStore jobStore;
   private final JsonFactory jsonFactory;
+  private final int albumScanParallelism;
   private volatile GooglePhotosInterface photosInterface;
+  private final PerJobClientCache<TokensAndUrlAuthData, GooglePhotosInterface> photosInterfaces =
+      new PerJobClientCache<>(this::makePhotosInterface);
+  // Ids of the photos contained in albums, by job, or empty if the job has no TempPhotosData.
+  // Loaded once per job rather than re-read from the job store for every page of photos.
+  private final Cache<UUID, Optional<ImmutableSet<String>>> containedPhotoIdsByJob =
+      CacheBuilder.newBuilder().maximumSize(MAX_CACHED_JOBS).build();
 
   private final Monitor monitor;
 
@@ -75,10 +104,25 @@ public class GooglePhotosExporter
       TemporaryPerJobDataStore jobStore,
       JsonFactory jsonFactory,
       Monitor monitor) {
+    this(credentialFactory, jobStore, jsonFactory, monitor, DEFAULT_ALBUM_SCAN_PARALLELISM);
+  }
+
+  /**
+   * @param albumScanParallelism the number of albums whose photos are listed at once when looking
+   *     for the photos contained in albums
+   */
+  public GooglePhotosExporter(
+      GoogleCredentialFactory credentialFactory,
+      TemporaryPerJobDataStore jobStore,
+      JsonFactory jsonFactory,
+      Monitor monitor,
+      int albumScanParallelism) {
+    Preconditions.checkArgument(albumScanParallelism > 0, "albumScanParallelism must be positive");
     this.credentialFactory = credentialFactory;
     this.jobStore = jobStore;
     this.jsonFactory = jsonFactory;
     this.monitor = monitor;
+    this.albumScanParallelism = albumScanParallelism;
   }
 
   @VisibleForTesting
@@ -93,6 +137,7 @@ public class GooglePhotosExporter
     this.jsonFactory = jsonFactory;
     this.photosInterface = photosInterface;
     this.monitor = monitor;
+    this.albumScanParallelism = DEFAULT_ALBUM_SCAN_PARALLELISM;
   }
 
   @Override
@@ -267,45 +312,92 @@ public class GooglePhotosExporter
   }
 
   /**
-   * Method for storing a list of all photos that are already contained in albums
+   * Method for storing a list of all photos that are already contained in albums.
+   *
+   * <p>Albums are scanned concurrently, sharing one interface and so its rate limiter, and the ids
+   * of each album are appended to the stored {@link TempPhotosData} as soon as its scan is done.
    */
   @VisibleForTesting
   void populateContainedPhotosList(UUID jobId, TokensAndUrlAuthData authData)
       throws IOException, InvalidTokenException, PermissionDeniedException {
     // This method is only called once at the beginning of the transfer, so we can start by
-    // initializing a new TempPhotosData to be store in the job store.
-    TempPhotosData tempPhotosData = new TempPhotosData(jobId);
+    // writing a new TempPhotosData to be stored in the job store.
+    GooglePhotosInterface photosInterface = getOrCreatePhotosInterface(authData);
+    ImmutableSet.Builder<String> containedPhotoIds = ImmutableSet.builder();
+    File tempPhotosDataFile = Files.createTempFile("tempPhotosData-" + jobId, ".json").toFile();
+    ExecutorService albumScanExecutor =
+        Executors.newFixedThreadPool(
+            albumScanParallelism,
+            new ThreadFactoryBuilder().setNameFormat("google-photos-album-scan-%d").build());
+    try {
+      try (TempPhotosDataWriter writer =
+          new TempPhotosDataWriter(jobId, new FileOutputStream(tempPhotosDataFile))) {
+        String albumToken = null;
+        do {
+          AlbumListResponse albumListResponse =
+              photosInterface.listAlbums(Optional.ofNullable(albumToken));
+          List<Future<List<String>>> albumScans = new ArrayList<>();
+          if (albumListResponse.getAlbums() != null) {
+            for (GoogleAlbum album : albumListResponse.getAlbums()) {
+              albumScans.add(
+                  albumScanExecutor.submit(
+                      () -> listContainedPhotoIds(photosInterface, album.getId())));
+            }
+          }
+          for (Future<List<String>> albumScan : albumScans) {
+            List<String> albumPhotoIds = getAlbumScan(albumScan);
+            writer.writeContainedPhotoIds(albumPhotoIds);
+            containedPhotoIds.addAll(albumPhotoIds);
+          }
+          albumToken = albumListResponse.getNextPageToken();
+        } while (albumToken != null);
+      }
 
-    String albumToken = null;
-    AlbumListResponse albumListResponse;
-    MediaItemSearchResponse containedMediaSearchResponse;
+      // TODO: if we see complaints about objects being too large for JobStore in other places, we
+      // should consider putting logic in JobStore itself to handle it
+      try (InputStream stream = new FileInputStream(tempPhotosDataFile)) {
+        jobStore.create(jobId, createCacheKey(), stream);
+      }
+    } finally {
+      albumScanExecutor.shutdownNow();
+      tempPhotosDataFile.delete();
+    }
+    containedPhotoIdsByJob.put(jobId, Optional.of(containedPhotoIds.build()));
+  }
+
+  private static List<String> listContainedPhotoIds(
+      GooglePhotosInterface photosInterface, String albumId)
+      throws IOException, InvalidTokenException, PermissionDeniedException {
+    List<String> photoIds = new ArrayList<>();
+    String photoToken = null;
     do {
-      albumListResponse =
-          getOrCreatePhotosInterface(authData).listAlbums(Optional.ofNullable(albumToken));
-      if (albumListResponse.getAlbums() != null) {
-        for (GoogleAlbum album : albumListResponse.getAlbums()) {
-          String albumId = album.getId();
-          String photoToken = null;
-          do {
-            containedMediaSearchResponse =
-                getOrCreatePhotosInterface(authData)
-                    .listMediaItems(Optional.of(albumId), Optional.ofNullable(photoToken));
-            if (containedMediaSearchResponse.getMediaItems() != null) {
-              for (GoogleMediaItem mediaItem : containedMediaSearchResponse.getMediaItems()) {
-                tempPhotosData.addContainedPhotoId(mediaItem.getId());
-              }
-            }
-            photoToken = containedMediaSearchResponse.getNextPageToken();
-          } while (photoToken != null);
+      MediaItemSearchResponse containedMediaSearchResponse =
+          photosInterface.listMediaItems(Optional.of(albumId), Optional.ofNullable(photoToken));
+      if (containedMediaSearchResponse.getMediaItems() != null) {
+        for (GoogleMediaItem mediaItem : containedMediaSearchResponse.getMediaItems()) {
+          photoIds.add(mediaItem.getId());
         }
       }
-      albumToken = albumListResponse.getNextPageToken();
-    } while (albumToken != null);
+      photoToken = containedMediaSearchResponse.getNextPageToken();
+    } while (photoToken != null);
+    return photoIds;
+  }
 
-    // TODO: if we see complaints about objects being too large for JobStore in other places, we
-    // should consider putting logic in JobStore itself to handle it
-    InputStream stream = convertJsonToInputStream(tempPhotosData);
-    jobStore.create(jobId, createCacheKey(), stream);
+  private static List<String> getAlbumScan(Future<List<String>> albumScan)
+      throws IOException, InvalidTokenException, PermissionDeniedException {
+    try {
+      return albumScan.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while listing the photos of albums", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      Throwables.throwIfInstanceOf(cause, IOException.class);
+      Throwables.throwIfInstanceOf(cause, InvalidTokenException.class);
+      Throwables.throwIfInstanceOf(cause, PermissionDeniedException.class);
+      Throwables.throwIfUnchecked(cause);
+      throw new IOException("Unable to list the photos of an album", cause);
+    }
   }
 
   @VisibleForTesting
@@ -331,20 +423,15 @@ public class GooglePhotosExporter
       Optional<String> albumId, GoogleMediaItem[] mediaItems, UUID jobId) throws IOException {
     List<PhotoModel> photos = new ArrayList<>(mediaItems.length);
 
-    TempPhotosData tempPhotosData = null;
-    InputStream stream = jobStore.getStream(jobId, createCacheKey()).getStream();
-    if (stream != null) {
-      tempPhotosData = new ObjectMapper().readValue(stream, TempPhotosData.class);
-      stream.close();
-    }
+    Optional<ImmutableSet<String>> containedPhotoIds = getContainedPhotoIds(jobId);
 
     for (GoogleMediaItem mediaItem : mediaItems) {
       if (mediaItem.getMediaMetadata().getPhoto() != null) {
         // TODO: address videos
         boolean shouldUpload = albumId.isPresent();
 
-        if (tempPhotosData != null) {
-          shouldUpload = shouldUpload || !tempPhotosData.isContainedPhotoId(mediaItem.getId());
+        if (containedPhotoIds.isPresent()) {
+          shouldUpload = shouldUpload || !containedPhotoIds.get().contains(mediaItem.getId());
         }
 
         if (shouldUpload) {
@@ -359,6 +446,32 @@ public class GooglePhotosExporter
     return photos;
   }
 
+  private Optional<ImmutableSet<String>> getContainedPhotoIds(UUID jobId) throws IOException {
+    try {
+      return containedPhotoIdsByJob.get(jobId, () -> loadContainedPhotoIds(jobId));
+    } catch (ExecutionException e) {
+      Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+      throw new IOException("Unable to load contained photos for job " + jobId, e.getCause());
+    }
+  }
+
+  private Optional<ImmutableSet<String>> loadContainedPhotoIds(UUID jobId) throws IOException {
+    InputStream stream = jobStore.getStream(jobId, createCacheKey()).getStream();
+    if (stream == null) {
+      return Optional.empty();
+    }
+    try (InputStream tempPhotosDataStream = stream) {
+      TempPhotosData tempPhotosData =
+          new ObjectMapper().readValue(tempPhotosDataStream, TempPhotosData.class);
+      return Optional.of(toIdSet(tempPhotosData));
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ImmutableSet<String> toIdSet(TempPhotosData tempPhotosData) {
+    return ImmutableSet.copyOf((Collection<String>) tempPhotosData.lookupContainedPhotoIds());
+  }
+
   private PhotoModel convertToPhotoModel(Optional<String> albumId, GoogleMediaItem mediaItem) {
     Preconditions.checkArgument(mediaItem.getMediaMetadata().getPhoto() != null);
 
@@ -374,10 +487,10 @@ public class GooglePhotosExporter
 
   private synchronized GooglePhotosInterface getOrCreatePhotosInterface(
       TokensAndUrlAuthData authData) {
-    return photosInterface == null ? makePhotosInterface(authData) : photosInterface;
+    return photosInterface == null ? photosInterfaces.get(authData) : photosInterface;
   }
 
-  private synchronized GooglePhotosInterface makePhotosInterface(TokensAndUrlAuthData authData) {
+  private GooglePhotosInterface makePhotosInterface(TokensAndUrlAuthData authData) {
     Credential credential = credentialFactory.createCredential(authData);
     return new GooglePhotosInterface(
         credentialFactory, credential, jsonFactory, monitor, /* arbitrary writesPerSecond */ 1.0);
@@ -386,4 +499,42 @@ public class GooglePhotosExporter
   private static String createCacheKey() {
     return "tempPhotosData";
   }
+
+  /**
+   * Writes a {@link TempPhotosData} holding only contained photo ids as JSON, appending the ids as
+   * they are found rather than serializing them all at once.
+   */
+  private static class TempPhotosDataWriter implements Closeable {
+    private final JsonGenerator generator;
+
+    TempPhotosDataWriter(UUID jobId, OutputStream outputStream) throws IOException {
+      generator = new ObjectMapper().getFactory().createGenerator(outputStream);
+      generator.writeStartObject();
+      generator.writeStringField(
+          "ptype", TempPhotosData.class.getAnnotation(JsonTypeName.class).value());
+      generator.writeStringField("jobId", jobId.toString());
+      generator.writeObjectFieldStart("tempPhotoAlbums");
+      generator.writeEndObject();
+      generator.writeObjectFieldStart("newAlbumIds");
+      generator.writeEndObject();
+      generator.writeArrayFieldStart("containedPhotoIds");
+    }
+
+    void writeContainedPhotoIds(List<String> photoIds) throws IOException {
+      for (String photoId : photoIds) {
+        generator.writeString(photoId);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        generator.writeEndArray();
+        generator.writeEndObject();
+      } finally {
+        // Also closes the underlying stream
+        generator.close();
+      }
+    }
+  }
 }
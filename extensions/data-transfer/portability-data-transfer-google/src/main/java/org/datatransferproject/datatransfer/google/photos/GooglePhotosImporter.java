@@ -20,8 +20,10 @@ import com.google.api.client.json.JsonFactory;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.UnmodifiableIterator;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.rpc.Code;
 import java.io.IOException;
 import java.io.InputStream;
@@ -34,6 +36,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.stream.Collectors;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.datatransfer.google.common.GoogleCredentialFactory;
@@ -71,6 +78,8 @@ public class GooglePhotosImporter
   private final ImageStreamProvider imageStreamProvider;
   private final Monitor monitor;
   private final double writesPerSecond;
+  private final int uploadParallelism;
+  private final ExecutorService uploadExecutor;
   private volatile Map<UUID, GooglePhotosInterface> photosInterfacesMap;
   private volatile GooglePhotosInterface photosInterface;
   private volatile HashMap<UUID, BaseMultilingualDictionary> multilingualStrings =
@@ -82,6 +91,20 @@ public class GooglePhotosImporter
       JsonFactory jsonFactory,
       Monitor monitor,
       double writesPerSecond) {
+    this(credentialFactory, jobStore, jsonFactory, monitor, writesPerSecond, 1);
+  }
+
+  /**
+   * @param uploadParallelism the number of photos of a batch whose content is uploaded at once,
+   *     before the batch is created in a single call
+   */
+  public GooglePhotosImporter(
+      GoogleCredentialFactory credentialFactory,
+      JobStore jobStore,
+      JsonFactory jsonFactory,
+      Monitor monitor,
+      double writesPerSecond,
+      int uploadParallelism) {
     this(
         credentialFactory,
         jobStore,
@@ -90,7 +113,8 @@ public class GooglePhotosImporter
         null,
         new ImageStreamProvider(),
         monitor,
-        writesPerSecond);
+        writesPerSecond,
+        uploadParallelism);
   }
 
   @VisibleForTesting
@@ -103,6 +127,30 @@ public class GooglePhotosImporter
       ImageStreamProvider imageStreamProvider,
       Monitor monitor,
       double writesPerSecond) {
+    this(
+        credentialFactory,
+        jobStore,
+        jsonFactory,
+        photosInterfacesMap,
+        photosInterface,
+        imageStreamProvider,
+        monitor,
+        writesPerSecond,
+        1);
+  }
+
+  @VisibleForTesting
+  GooglePhotosImporter(
+      GoogleCredentialFactory credentialFactory,
+      JobStore jobStore,
+      JsonFactory jsonFactory,
+      Map<UUID, GooglePhotosInterface> photosInterfacesMap,
+      GooglePhotosInterface photosInterface,
+      ImageStreamProvider imageStreamProvider,
+      Monitor monitor,
+      double writesPerSecond,
+      int uploadParallelism) {
+    Preconditions.checkArgument(uploadParallelism > 0, "uploadParallelism must be positive");
     this.credentialFactory = credentialFactory;
     this.jobStore = jobStore;
     this.jsonFactory = jsonFactory;
@@ -111,6 +159,13 @@ public class GooglePhotosImporter
     this.imageStreamProvider = imageStreamProvider;
     this.monitor = monitor;
     this.writesPerSecond = writesPerSecond;
+    this.uploadParallelism = uploadParallelism;
+    this.uploadExecutor =
+        Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder()
+                .setNameFormat("google-photos-upload-%d")
+                .setDaemon(true)
+                .build());
   }
 
   @Override
@@ -204,48 +259,27 @@ public class GooglePhotosImporter
 
     /*
     TODO: resumable uploads https://developers.google.com/photos/library/guides/resumable-uploads
-    Resumable uploads would allow the upload of larger media that don't fit in memory.  To do this,
-    however, seems to require knowledge of the total file size.
+    Uploads are streamed, so large media no longer need to fit in memory, but a failed upload still
+    starts over. Resumable uploads would avoid that, however they seem to require knowledge of the
+    total file size.
     */
-    // Upload photos
-    for (PhotoModel photo : photos) {
-      try {
-        InputStream inputStream;
-        long bytes;
-        if (photo.isInTempStore()) {
-          final InputStreamWrapper streamWrapper =
-              jobStore.getStream(jobId, photo.getFetchableUrl());
-          bytes = streamWrapper.getBytes();
-          inputStream = streamWrapper.getStream();
-        } else {
-          HttpURLConnection conn = imageStreamProvider.getConnection(photo.getFetchableUrl());
-          final long contentLengthLong = conn.getContentLengthLong();
-          bytes = contentLengthLong != -1 ? contentLengthLong : 0;
-          inputStream = conn.getInputStream();
-        }
-
-        String uploadToken =
-            getOrCreatePhotosInterface(jobId, authData).uploadPhotoContent(inputStream);
-        mediaItems.add(new NewMediaItem(getPhotoDescription(jobId, photo), uploadToken));
-        uploadTokenToDataId.put(uploadToken, photo);
-        uploadTokenToLength.put(uploadToken, bytes);
-        try {
-          if (photo.isInTempStore()) {
-            jobStore.removeData(jobId, photo.getFetchableUrl());
-          }
-        } catch (Exception e) {
-          // Swallow the exception caused by Remove data so that existing flows continue
-          monitor.info(
-                  () -> format("%s: Exception swallowed in removeData call for localPath %s",
-                          jobId, photo.getFetchableUrl()), e);
-        }
-      } catch (IOException e) {
+    // Upload photos, then record the outcomes here since the executor tracks errors per thread.
+    for (PhotoUpload upload : uploadPhotos(jobId, authData, photos)) {
+      PhotoModel photo = upload.photo;
+      if (upload.exception == null) {
+        mediaItems.add(new NewMediaItem(getPhotoDescription(jobId, photo), upload.uploadToken));
+        uploadTokenToDataId.put(upload.uploadToken, photo);
+        uploadTokenToLength.put(upload.uploadToken, upload.bytes);
+      } else if (upload.exception instanceof IOException) {
+        IOException e = (IOException) upload.exception;
         executor.executeAndSwallowIOExceptions(
             getIdempotentId(photo),
             photo.getTitle(),
             () -> {
               throw e;
             });
+      } else {
+        throw upload.exception;
       }
     }
     if (mediaItems.isEmpty()) {
@@ -311,6 +345,88 @@ public class GooglePhotosImporter
     return totalBytes;
   }
 
+  /**
+   * Uploads the content of each photo, with up to {@code uploadParallelism} uploads in flight, and
+   * returns the outcomes in the order of {@code photos}.
+   */
+  private List<PhotoUpload> uploadPhotos(
+      UUID jobId, TokensAndUrlAuthData authData, List<PhotoModel> photos)
+      throws InterruptedException {
+    List<PhotoUpload> uploads = new ArrayList<>();
+    if (uploadParallelism == 1 || photos.size() == 1) {
+      for (PhotoModel photo : photos) {
+        uploads.add(uploadPhoto(jobId, authData, photo));
+      }
+      return uploads;
+    }
+
+    Semaphore uploadSlots = new Semaphore(uploadParallelism);
+    List<Future<PhotoUpload>> inFlightUploads = new ArrayList<>();
+    try {
+      for (PhotoModel photo : photos) {
+        uploadSlots.acquire();
+        inFlightUploads.add(
+            uploadExecutor.submit(
+                () -> {
+                  try {
+                    return uploadPhoto(jobId, authData, photo);
+                  } finally {
+                    uploadSlots.release();
+                  }
+                }));
+      }
+      for (Future<PhotoUpload> inFlightUpload : inFlightUploads) {
+        try {
+          uploads.add(inFlightUpload.get());
+        } catch (ExecutionException e) {
+          // uploadPhoto catches every exception, so only errors end up here.
+          Throwables.throwIfUnchecked(e.getCause());
+          throw new IllegalStateException(e.getCause());
+        }
+      }
+      return uploads;
+    } finally {
+      // Only does something if this thread was interrupted or an upload threw an error.
+      for (Future<PhotoUpload> inFlightUpload : inFlightUploads) {
+        inFlightUpload.cancel(true);
+      }
+    }
+  }
+
+  private PhotoUpload uploadPhoto(UUID jobId, TokensAndUrlAuthData authData, PhotoModel photo) {
+    try {
+      InputStream inputStream;
+      long bytes;
+      if (photo.isInTempStore()) {
+        final InputStreamWrapper streamWrapper =
+            jobStore.getStream(jobId, photo.getFetchableUrl());
+        bytes = streamWrapper.getBytes();
+        inputStream = streamWrapper.getStream();
+      } else {
+        HttpURLConnection conn = imageStreamProvider.getConnection(photo.getFetchableUrl());
+        final long contentLengthLong = conn.getContentLengthLong();
+        bytes = contentLengthLong != -1 ? contentLengthLong : 0;
+        inputStream = conn.getInputStream();
+      }
+
+      String uploadToken =
+          getOrCreatePhotosInterface(jobId, authData).uploadPhotoContent(inputStream);
+      try {
+        if (photo.isInTempStore()) {
+          jobStore.removeData(jobId, photo.getFetchableUrl());
+        }
+      } catch (Exception e) {
+        // Swallow the exception caused by Remove data so that existing flows continue
+        monitor.info(
+                () -> format("%s: Exception swallowed in removeData call for localPath %s",
+                        jobId, photo.getFetchableUrl()), e);
+      }
+      return new PhotoUpload(photo, uploadToken, bytes, null);
+    } catch (Exception e) {
+      return new PhotoUpload(photo, null, 0L, e);
+    }
+  }
+
   String getIdempotentId(PhotoModel photo) {
     return photo.getAlbumId() + "-" + photo.getDataId();
   }
@@ -362,4 +478,19 @@ public class GooglePhotosImporter
 
     return multilingualStrings.get(jobId);
   }
+
+  /** The outcome of uploading the content of one photo: an upload token or an exception. */
+  private static class PhotoUpload {
+    private final PhotoModel photo;
+    private final String uploadToken;
+    private final long bytes;
+    private final Exception exception;
+
+    PhotoUpload(PhotoModel photo, String uploadToken, long bytes, Exception exception) {
+      this.photo = photo;
+      this.uploadToken = uploadToken;
+      this.bytes = bytes;
+      this.exception = exception;
+    }
+  }
 }
@@ -20,7 +20,6 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.client.auth.oauth2.Credential;
-import com.google.api.client.http.ByteArrayContent;
 import com.google.api.client.http.GenericUrl;
 import com.google.api.client.http.HttpContent;
 import com.google.api.client.http.HttpRequest;
@@ -39,10 +38,10 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.CharStreams;
 import com.google.common.util.concurrent.RateLimiter;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.PushbackInputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -74,6 +73,8 @@ public class GooglePhotosInterface {
   private static final String ACCESS_TOKEN_KEY = "access_token";
   private static final String FILTERS_KEY = "filters";
   private static final String INCLUDE_ARCHIVED_KEY = "includeArchivedMedia";
+  // Refresh tokens about to expire before a streamed upload, as it can't be replayed after a 401.
+  private static final long MIN_UPLOAD_TOKEN_LIFETIME_SECONDS = 60;
   private static final Map<String, String> PHOTO_UPLOAD_PARAMS =
       ImmutableMap.of(
           "Content-type", "application/octet-stream",
@@ -82,7 +83,7 @@ public class GooglePhotosInterface {
   private final ObjectMapper objectMapper =
       new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
   private final HttpTransport httpTransport = new NetHttpTransport();
-  private Credential credential;
+  private volatile Credential credential;
   private final JsonFactory jsonFactory;
   private final Monitor monitor;
   private final GoogleCredentialFactory credentialFactory;
@@ -151,15 +152,21 @@ public class GooglePhotosInterface {
   String uploadPhotoContent(InputStream inputStream)
           throws IOException, InvalidTokenException, PermissionDeniedException {
     // TODO: add filename
-    InputStreamContent content = new InputStreamContent(null, inputStream);
-    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-    content.writeTo(outputStream);
-    byte[] contentBytes = outputStream.toByteArray();
-    if (contentBytes.length == 0) {
+    // Peek at the first byte so empty photos are detected without buffering the content.
+    PushbackInputStream pushbackStream = new PushbackInputStream(inputStream, 1);
+    int firstByte = pushbackStream.read();
+    if (firstByte == -1) {
       // Google Photos cannot add an empty photo so gracefully ignore
       return "EMPTY_PHOTO";
     }
-    HttpContent httpContent = new ByteArrayContent(null, contentBytes);
+    pushbackStream.unread(firstByte);
+
+    Long expiresInSeconds = credential.getExpiresInSeconds();
+    if (expiresInSeconds != null && expiresInSeconds < MIN_UPLOAD_TOKEN_LIFETIME_SECONDS) {
+      credential = credentialFactory.refreshCredential(credential);
+    }
+    // The content is sent as it is read, without a known length, so it isn't held in memory.
+    HttpContent httpContent = new InputStreamContent(null, pushbackStream);
 
     return makePostRequest(
         BASE_URL + "uploads/", Optional.of(PHOTO_UPLOAD_PARAMS), httpContent, String.class);
@@ -220,9 +227,17 @@ public class GooglePhotosInterface {
     } catch (HttpResponseException e) {
       response =
           handleHttpResponseException(
-              () ->
-                  requestFactory.buildPostRequest(
-                      new GenericUrl(url + "?" + generateParamsString(parameters)), httpContent),
+              () -> {
+                if (!httpContent.retrySupported()) {
+                  // A streamed upload has already been consumed, so the caller has to retry it
+                  // with the refreshed token.
+                  throw new IOException(
+                      "Request content can't be resent, retry with the refreshed token: "
+                          + e.getStatusCode());
+                }
+                return requestFactory.buildPostRequest(
+                    new GenericUrl(url + "?" + generateParamsString(parameters)), httpContent);
+              },
               e);
     }
 
@@ -28,6 +28,7 @@ import org.datatransferproject.datatransfer.google.common.GoogleStaticObjects;
 import org.datatransferproject.spi.transfer.provider.ExportResult;
 import org.datatransferproject.spi.transfer.provider.ExportResult.ResultType;
 import org.datatransferproject.spi.transfer.provider.Exporter;
+import org.datatransferproject.spi.transfer.provider.PerJobClientCache;
 import org.datatransferproject.spi.transfer.types.ContinuationData;
 import org.datatransferproject.types.common.ExportInformation;
 import org.datatransferproject.types.common.PaginationData;
@@ -53,6 +54,8 @@ public class GoogleTasksExporter implements Exporter<TokensAndUrlAuthData, TaskC
   private final Monitor monitor;
 
   private volatile Tasks tasksClient;
+  private final PerJobClientCache<TokensAndUrlAuthData, Tasks> tasksClients =
+      new PerJobClientCache<>(this::makeTasksService);
 
   public GoogleTasksExporter(GoogleCredentialFactory credentialFactory, Monitor monitor) {
     this.credentialFactory = credentialFactory;
@@ -166,10 +169,10 @@ public class GoogleTasksExporter implements Exporter<TokensAndUrlAuthData, TaskC
   }
 
   private Tasks getOrCreateTasksService(TokensAndUrlAuthData authData) {
-    return tasksClient == null ? makeTasksService(authData) : tasksClient;
+    return tasksClient == null ? tasksClients.get(authData) : tasksClient;
   }
 
-  private synchronized Tasks makeTasksService(TokensAndUrlAuthData authData) {
+  private Tasks makeTasksService(TokensAndUrlAuthData authData) {
     Credential credential = credentialFactory.createCredential(authData);
     return new Tasks.Builder(
             credentialFactory.getHttpTransport(), credentialFactory.getJsonFactory(), credential)
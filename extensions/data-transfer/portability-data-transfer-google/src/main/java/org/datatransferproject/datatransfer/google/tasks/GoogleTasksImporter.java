@@ -27,6 +27,7 @@ import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportE
 import org.datatransferproject.spi.transfer.provider.ImportResult;
 import org.datatransferproject.spi.transfer.provider.ImportResult.ResultType;
 import org.datatransferproject.spi.transfer.provider.Importer;
+import org.datatransferproject.spi.transfer.provider.PerJobClientCache;
 import org.datatransferproject.types.common.models.tasks.TaskContainerResource;
 import org.datatransferproject.types.common.models.tasks.TaskListModel;
 import org.datatransferproject.types.common.models.tasks.TaskModel;
@@ -40,6 +41,8 @@ public class GoogleTasksImporter implements Importer<TokensAndUrlAuthData, TaskC
 
   private final GoogleCredentialFactory credentialFactory;
   private Tasks tasksClient;
+  private final PerJobClientCache<TokensAndUrlAuthData, Tasks> tasksClients =
+      new PerJobClientCache<>(this::makeTasksService);
 
   public GoogleTasksImporter(GoogleCredentialFactory credentialFactory) {
     this(credentialFactory, null);
@@ -90,10 +93,10 @@ public class GoogleTasksImporter implements Importer<TokensAndUrlAuthData, TaskC
   }
 
   private Tasks getOrCreateTasksService(TokensAndUrlAuthData authData) {
-    return tasksClient == null ? makeTasksService(authData) : tasksClient;
+    return tasksClient == null ? tasksClients.get(authData) : tasksClient;
   }
 
-  private synchronized Tasks makeTasksService(TokensAndUrlAuthData authData) {
+  private Tasks makeTasksService(TokensAndUrlAuthData authData) {
     Credential credential = credentialFactory.createCredential(authData);
     return new Tasks.Builder(
         credentialFactory.getHttpTransport(), credentialFactory.getJsonFactory(), credential)
@@ -27,6 +27,7 @@ import org.datatransferproject.datatransfer.google.mediaModels.MediaItemSearchRe
 import org.datatransferproject.spi.transfer.provider.ExportResult;
 import org.datatransferproject.spi.transfer.provider.ExportResult.ResultType;
 import org.datatransferproject.spi.transfer.provider.Exporter;
+import org.datatransferproject.spi.transfer.provider.PerJobClientCache;
 import org.datatransferproject.spi.transfer.types.ContinuationData;
 import org.datatransferproject.types.common.ExportInformation;
 import org.datatransferproject.types.common.PaginationData;
@@ -47,6 +48,8 @@ public class GoogleVideosExporter
 
   private final GoogleCredentialFactory credentialFactory;
   private volatile GoogleVideosInterface videosInterface;
+  private final PerJobClientCache<TokensAndUrlAuthData, GoogleVideosInterface> videosInterfaces =
+      new PerJobClientCache<>(this::makeVideosInterface);
   private JsonFactory jsonFactory;
 
   public GoogleVideosExporter(GoogleCredentialFactory credentialFactory, JsonFactory jsonFactory) {
@@ -129,10 +132,10 @@ public class GoogleVideosExporter
 
   private synchronized GoogleVideosInterface getOrCreateVideosInterface(
           TokensAndUrlAuthData authData) {
-    return videosInterface == null ? makeVideosInterface(authData) : videosInterface;
+    return videosInterface == null ? videosInterfaces.get(authData) : videosInterface;
   }
 
-  private synchronized GoogleVideosInterface makeVideosInterface(TokensAndUrlAuthData authData) {
+  private GoogleVideosInterface makeVideosInterface(TokensAndUrlAuthData authData) {
     Credential credential = credentialFactory.createCredential(authData);
     return new GoogleVideosInterface(credential, this.jsonFactory);
   }
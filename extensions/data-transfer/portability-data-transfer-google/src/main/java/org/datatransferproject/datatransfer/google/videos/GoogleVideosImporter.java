@@ -38,8 +38,10 @@ import com.google.auth.oauth2.UserCredentials;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.UnmodifiableIterator;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.photos.library.v1.PhotosLibraryClient;
 import com.google.photos.library.v1.PhotosLibrarySettings;
 import com.google.photos.library.v1.proto.BatchCreateMediaItemsResponse;
@@ -63,9 +65,18 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
-import org.apache.commons.lang3.tuple.Pair;
+import javax.annotation.Nullable;
+import org.datatransferproject.api.launcher.MetricRecorder;
 import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.spi.cloud.storage.TemporaryFileSpool.SpooledFile;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
 import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
 import org.datatransferproject.spi.transfer.provider.ImportResult;
@@ -82,29 +93,72 @@ import org.datatransferproject.types.transfer.auth.TokensAndUrlAuthData;
 public class GoogleVideosImporter
     implements Importer<TokensAndUrlAuthData, VideosContainerResource> {
 
+  private static final String DATA_TYPE = "VIDEOS";
+
   private final ImageStreamProvider videoStreamProvider;
   private Monitor monitor;
   private final AppCredentials appCredentials;
   private final TemporaryPerJobDataStore dataStore;
+  @Nullable private final MetricRecorder metricRecorder;
+  private final int uploadParallelism;
+  private final ExecutorService transferExecutor;
   private Map<UUID, PhotosLibraryClient> clientsMap = new HashMap<>();
 
   public GoogleVideosImporter(
       AppCredentials appCredentials, TemporaryPerJobDataStore dataStore, Monitor monitor) {
-    this.monitor = monitor;
-    this.appCredentials = appCredentials;
-    this.dataStore = dataStore;
-    this.videoStreamProvider = new ImageStreamProvider();
+    this(appCredentials, dataStore, monitor, null, 1);
+  }
+
+  /**
+   * @param metricRecorder records the download and upload bytes/sec of each video, if not null
+   * @param uploadParallelism the number of videos of a batch uploaded at once; one more video than
+   *     that is downloaded ahead of the uploads
+   */
+  public GoogleVideosImporter(
+      AppCredentials appCredentials,
+      TemporaryPerJobDataStore dataStore,
+      Monitor monitor,
+      @Nullable MetricRecorder metricRecorder,
+      int uploadParallelism) {
+    this(
+        appCredentials,
+        dataStore,
+        monitor,
+        new ImageStreamProvider(),
+        metricRecorder,
+        uploadParallelism);
   }
 
+  @VisibleForTesting
   GoogleVideosImporter(
       AppCredentials appCredentials,
       TemporaryPerJobDataStore dataStore,
       Monitor monitor,
       ImageStreamProvider videoStreamProvider) {
+    this(appCredentials, dataStore, monitor, videoStreamProvider, null, 1);
+  }
+
+  @VisibleForTesting
+  GoogleVideosImporter(
+      AppCredentials appCredentials,
+      TemporaryPerJobDataStore dataStore,
+      Monitor monitor,
+      ImageStreamProvider videoStreamProvider,
+      @Nullable MetricRecorder metricRecorder,
+      int uploadParallelism) {
+    Preconditions.checkArgument(uploadParallelism > 0, "uploadParallelism must be positive");
     this.videoStreamProvider = videoStreamProvider;
     this.monitor = monitor;
     this.appCredentials = appCredentials;
     this.dataStore = dataStore;
+    this.metricRecorder = metricRecorder;
+    this.uploadParallelism = uploadParallelism;
+    this.transferExecutor =
+        Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder()
+                .setNameFormat("google-videos-import-%d")
+                .setDaemon(true)
+                .build());
   }
 
   @Override
@@ -152,7 +206,7 @@ public class GoogleVideosImporter
       final UnmodifiableIterator<List<VideoObject>> batches =
           Iterators.partition(stream.iterator(), 49);
       while (batches.hasNext()) {
-        long batchBytes = importVideoBatch(batches.next(), client, executor);
+        long batchBytes = importVideoBatch(jobId, batches.next(), client, executor);
         bytes += batchBytes;
       }
     }
@@ -177,6 +231,7 @@ public class GoogleVideosImporter
   }
 
   long importVideoBatch(
+      UUID jobId,
       List<VideoObject> batchedVideos,
       PhotosLibraryClient client,
       IdempotentImportExecutor executor)
@@ -187,28 +242,30 @@ public class GoogleVideosImporter
     // The PhotosLibraryClient can throw InvalidArgumentException and this try block wraps the two
     // calls of the client to handle the InvalidArgumentException when the user's storage is full.
     try {
-      for (VideoObject video : batchedVideos) {
-        try {
-          Pair<String, Long> pair = uploadMediaItem(video, client);
-          final String uploadToken = pair.getLeft();
-          mediaItems.add(buildMediaItem(video, uploadToken));
-          uploadTokenToDataId.put(uploadToken, video);
-          uploadTokenToLength.put(uploadToken, pair.getRight());
-        } catch (IOException e) {
-          if (e instanceof FileNotFoundException) {
-            // If the video file is no longer available then skip the video. We see this in a small
-            // number of videos where the video has been deleted.
-            monitor.info(
-                () -> String.format("Video resource was missing for id: %s", video.getDataId()), e);
-            continue;
-          }
-          executor.executeAndSwallowIOExceptions(
-              video.getDataId(),
-              video.getName(),
-              () -> {
-                throw e;
-              });
+      List<VideoUpload> uploads = uploadVideos(jobId, batchedVideos, client);
+      for (int i = 0; i < batchedVideos.size(); i++) {
+        VideoObject video = batchedVideos.get(i);
+        VideoUpload upload = uploads.get(i);
+        if (upload.error == null) {
+          mediaItems.add(buildMediaItem(video, upload.uploadToken));
+          uploadTokenToDataId.put(upload.uploadToken, video);
+          uploadTokenToLength.put(upload.uploadToken, upload.bytes);
+          continue;
+        }
+        IOException e = upload.error;
+        if (e instanceof FileNotFoundException) {
+          // If the video file is no longer available then skip the video. We see this in a small
+          // number of videos where the video has been deleted.
+          monitor.info(
+              () -> String.format("Video resource was missing for id: %s", video.getDataId()), e);
+          continue;
         }
+        executor.executeAndSwallowIOExceptions(
+            video.getDataId(),
+            video.getName(),
+            () -> {
+              throw e;
+            });
       }
       if (mediaItems.isEmpty()) {
         // Either we were not passed in any videos or we failed upload on all of them.
@@ -265,45 +322,136 @@ public class GoogleVideosImporter
     }
   }
 
-  private Pair<String, Long> uploadMediaItem(
-      MediaObject inputVideo, PhotosLibraryClient photosLibraryClient)
-      throws IOException, UploadErrorException {
+  /**
+   * Uploads each video, returning the outcomes in the order of {@code videos}. Videos are
+   * downloaded up to {@code uploadParallelism + 1} ahead, so the next video is already spooled when
+   * an upload slot frees up, and up to {@code uploadParallelism} are uploaded at once. Uploads start
+   * in the order of {@code videos}.
+   */
+  private List<VideoUpload> uploadVideos(
+      UUID jobId, List<VideoObject> videos, PhotosLibraryClient photosLibraryClient)
+      throws InterruptedException, UploadErrorException {
+    List<VideoDownload> downloads = new ArrayList<>(videos.size());
+    List<Future<VideoUpload>> uploads = new ArrayList<>(videos.size());
+    Semaphore uploadSlots = new Semaphore(uploadParallelism);
+    try {
+      for (int i = 0; i < videos.size(); i++) {
+        while (downloads.size() < videos.size() && downloads.size() <= i + uploadParallelism) {
+          VideoDownload download = new VideoDownload();
+          VideoObject video = videos.get(downloads.size());
+          download.future =
+              transferExecutor.submit(() -> download.handOver(downloadVideo(jobId, video)));
+          downloads.add(download);
+        }
+        SpooledFile spooledFile;
+        try {
+          spooledFile = getResult(downloads.get(i).future);
+        } catch (IOException e) {
+          uploads.add(CompletableFuture.completedFuture(VideoUpload.failed(e)));
+          continue;
+        }
+        VideoObject video = videos.get(i);
+        try {
+          uploadSlots.acquire();
+        } catch (InterruptedException e) {
+          spooledFile.close();
+          throw e;
+        }
+        uploads.add(
+            transferExecutor.submit(
+                () -> {
+                  try (SpooledFile ignored = spooledFile) {
+                    return uploadMediaItem(video, spooledFile.getFile(), photosLibraryClient);
+                  } catch (IOException e) {
+                    return VideoUpload.failed(e);
+                  } finally {
+                    uploadSlots.release();
+                  }
+                }));
+      }
+
+      List<VideoUpload> outcomes = new ArrayList<>(videos.size());
+      for (Future<VideoUpload> upload : uploads) {
+        try {
+          outcomes.add(getResult(upload));
+        } catch (IOException e) {
+          // The upload task turns every IOException into an outcome.
+          throw new IllegalStateException(e);
+        }
+      }
+      return outcomes;
+    } finally {
+      // Only does something if this thread was interrupted or an upload threw.
+      for (Future<VideoUpload> upload : uploads) {
+        upload.cancel(true);
+      }
+      for (int i = uploads.size(); i < downloads.size(); i++) {
+        downloads.get(i).release();
+      }
+    }
+  }
 
-    final File tmp;
+  private SpooledFile downloadVideo(UUID jobId, MediaObject inputVideo) throws IOException {
+    long startNanos = System.nanoTime();
+    SpooledFile spooledFile;
     try (InputStream inputStream =
         this.videoStreamProvider
             .getConnection(inputVideo.getContentUrl().toString())
             .getInputStream()) {
-      tmp = dataStore.getTempFileFromInputStream(inputStream, inputVideo.getName(), ".mp4");
+      spooledFile = dataStore.getTempFile(jobId, inputStream, inputVideo.getName(), ".mp4");
     }
-    try {
+    recordBytesPerSecond(
+        "video_download_bytes_per_second", spooledFile.getFile().length(), startNanos);
+    return spooledFile;
+  }
+
+  private VideoUpload uploadMediaItem(
+      MediaObject inputVideo, File tmp, PhotosLibraryClient photosLibraryClient)
+      throws IOException, UploadErrorException {
+    long startNanos = System.nanoTime();
+    UploadMediaItemResponse uploadResponse;
+    try (RandomAccessFile dataFile = new RandomAccessFile(tmp, "r")) {
       UploadMediaItemRequest uploadRequest =
           UploadMediaItemRequest.newBuilder()
               .setFileName(inputVideo.getName())
-              .setDataFile(new RandomAccessFile(tmp, "r"))
+              .setDataFile(dataFile)
               .build();
-      UploadMediaItemResponse uploadResponse = photosLibraryClient.uploadMediaItem(uploadRequest);
-      String uploadToken;
-      if (uploadResponse.getError().isPresent() || !uploadResponse.getUploadToken().isPresent()) {
-        Error error = uploadResponse.getError().orElse(null);
-        if (error != null
-            && error
-                .getCause()
-                .getMessage()
-                .contains("The upload url is either finalized or rejected by the server")) {
-          throw new UploadErrorException(
-              "Upload was terminated because of error", error.getCause());
-        }
-        throw new IOException(
-            "An error was encountered while uploading the video.",
-            error != null ? error.getCause() : null);
-      } else {
-        uploadToken = uploadResponse.getUploadToken().get();
+      uploadResponse = photosLibraryClient.uploadMediaItem(uploadRequest);
+    }
+    if (uploadResponse.getError().isPresent() || !uploadResponse.getUploadToken().isPresent()) {
+      Error error = uploadResponse.getError().orElse(null);
+      if (error != null
+          && error
+              .getCause()
+              .getMessage()
+              .contains("The upload url is either finalized or rejected by the server")) {
+        throw new UploadErrorException("Upload was terminated because of error", error.getCause());
       }
-      return Pair.of(uploadToken, tmp.length());
-    } finally {
-      //noinspection ResultOfMethodCallIgnored
-      tmp.delete();
+      throw new IOException(
+          "An error was encountered while uploading the video.",
+          error != null ? error.getCause() : null);
+    }
+    long bytes = tmp.length();
+    recordBytesPerSecond("video_upload_bytes_per_second", bytes, startNanos);
+    return new VideoUpload(uploadResponse.getUploadToken().get(), bytes, null);
+  }
+
+  private void recordBytesPerSecond(String tag, long bytes, long startNanos) {
+    if (metricRecorder == null) {
+      return;
+    }
+    long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+    double bytesPerSecond = bytes * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    metricRecorder.recordMetric(DATA_TYPE, tag, (int) Math.min(bytesPerSecond, Integer.MAX_VALUE));
+  }
+
+  private static <T> T getResult(Future<T> future)
+      throws InterruptedException, IOException, UploadErrorException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause(), IOException.class, UploadErrorException.class);
+      throw new IllegalStateException(e.getCause());
     }
   }
 
@@ -321,4 +469,58 @@ public class GoogleVideosImporter
     }
     return newMediaItem;
   }
+
+  /**
+   * A video downloaded ahead of its upload. Whichever of the download and {@link #release} comes
+   * last deletes the spooled file, so a download that is still running when it is released, and
+   * can't be stopped by the interrupt, doesn't leave its file behind.
+   */
+  private static final class VideoDownload {
+    private Future<SpooledFile> future;
+    // Guarded by this.
+    private SpooledFile spooledFile;
+    private boolean released;
+
+    /** Returns the file the download spooled, deleting it if the download was released. */
+    private SpooledFile handOver(SpooledFile file) {
+      synchronized (this) {
+        if (!released) {
+          spooledFile = file;
+          return file;
+        }
+      }
+      file.close();
+      return file;
+    }
+
+    /** Stops a download that was never uploaded, and deletes its file if it was spooled. */
+    private void release() {
+      SpooledFile file;
+      synchronized (this) {
+        released = true;
+        file = spooledFile;
+      }
+      future.cancel(true);
+      if (file != null) {
+        file.close();
+      }
+    }
+  }
+
+  /** The upload token and size of an uploaded video, or why it couldn't be uploaded. */
+  private static final class VideoUpload {
+    private final String uploadToken;
+    private final long bytes;
+    @Nullable private final IOException error;
+
+    private VideoUpload(String uploadToken, long bytes, @Nullable IOException error) {
+      this.uploadToken = uploadToken;
+      this.bytes = bytes;
+      this.error = error;
+    }
+
+    private static VideoUpload failed(IOException error) {
+      return new VideoUpload(null, 0, error);
+    }
+  }
 }
@@ -20,7 +20,6 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.client.auth.oauth2.Credential;
-import com.google.api.client.http.ByteArrayContent;
 import com.google.api.client.http.GenericUrl;
 import com.google.api.client.http.HttpContent;
 import com.google.api.client.http.HttpHeaders;
@@ -38,7 +37,6 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.CharStreams;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -80,11 +78,8 @@ public class GoogleVideosInterface {
   }
 
   String uploadVideoContent(InputStream inputStream, String filename) throws IOException {
-    InputStreamContent content = new InputStreamContent(null, inputStream);
-    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-    content.writeTo(outputStream);
-    byte[] contentBytes = outputStream.toByteArray();
-    HttpContent httpContent = new ByteArrayContent(null, contentBytes);
+    // Stream the video as it is read rather than holding all of it in memory.
+    HttpContent httpContent = new InputStreamContent(null, inputStream);
 
     return makePostRequest(BASE_URL + "uploads/", Optional.empty(), httpContent, String.class);
   }
@@ -18,20 +18,29 @@ package org.datatransferproject.datatransfer.google.calendar;
 
 import com.google.api.services.calendar.Calendar;
 import com.google.api.services.calendar.model.Event;
+import com.google.common.collect.ImmutableList;
 import org.datatransferproject.datatransfer.google.common.GoogleCredentialFactory;
 import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
 import org.datatransferproject.test.types.FakeIdempotentImportExecutor;
+import org.datatransferproject.types.common.models.calendar.CalendarAttendeeModel;
 import org.datatransferproject.types.common.models.calendar.CalendarContainerResource;
 import org.datatransferproject.types.common.models.calendar.CalendarEventModel;
+import org.datatransferproject.types.common.models.calendar.CalendarEventModel.CalendarEventTime;
 import org.datatransferproject.types.common.models.calendar.CalendarModel;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.Collections;
 import java.util.UUID;
 
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
@@ -102,4 +111,58 @@ public class GoogleCalendarImporterTest {
     verify(calendarEvents).insert(googleCalendarId, eventToInsert);
     verify(eventInsertRequest).execute();
   }
+
+  @Test
+  public void importEventsConcurrently() throws Exception {
+    calendarService = new GoogleCalendarImporter(credentialFactory, calendarClient, 2);
+    CalendarModel calendarModel = new CalendarModel("modelCalendarId", null, null);
+    when(calendarCalendars.insert(any())).thenReturn(calendarInsertRequest);
+    when(calendarInsertRequest.execute())
+        .thenReturn(
+            new com.google.api.services.calendar.model.Calendar().setId("googleCalendarId"));
+    when(calendarEvents.insert(eq("googleCalendarId"), any())).thenReturn(eventInsertRequest);
+    when(eventInsertRequest.execute()).thenReturn(new Event().setId("eventId"));
+
+    calendarService.importItem(
+        UUID.randomUUID(),
+        executor,
+        null,
+        new CalendarContainerResource(
+            Collections.singleton(calendarModel),
+            ImmutableList.of(
+                createEvent("modelCalendarId", "first"),
+                createEvent("modelCalendarId", "second"),
+                createEvent("modelCalendarId", "third"))));
+
+    verify(calendarEvents, times(3)).insert(eq("googleCalendarId"), any());
+    assertThat(executor.isKeyCached(
+        GoogleCalendarImporter.eventIdempotentId(createEvent("modelCalendarId", "third"))))
+        .isTrue();
+  }
+
+  @Test
+  public void eventIdempotentIdDependsOnlyOnContent() {
+    String id = GoogleCalendarImporter.eventIdempotentId(createEvent("calendar", "title"));
+
+    assertThat(GoogleCalendarImporter.eventIdempotentId(createEvent("calendar", "title")))
+        .isEqualTo(id);
+    assertThat(GoogleCalendarImporter.eventIdempotentId(createEvent("calendar", "other title")))
+        .isNotEqualTo(id);
+    // Fields don't run into each other
+    assertThat(GoogleCalendarImporter.eventIdempotentId(createEvent("calendart", "itle")))
+        .isNotEqualTo(id);
+  }
+
+  private static CalendarEventModel createEvent(String calendarId, String title) {
+    OffsetDateTime start = OffsetDateTime.of(2021, 3, 1, 9, 0, 0, 0, ZoneOffset.UTC);
+    return new CalendarEventModel(
+        calendarId,
+        title,
+        "notes",
+        ImmutableList.of(new CalendarAttendeeModel("Attendee", "attendee@example.com", false)),
+        "location",
+        new CalendarEventTime(start, false),
+        new CalendarEventTime(start.plusHours(1), false),
+        null);
+  }
 }
@@ -119,6 +119,9 @@ public class GoogleContactsExporterTest {
     JCardReader reader = new JCardReader(result.getExportedData().getVCards());
     List<VCard> vCardList = reader.readAll();
     assertThat(vCardList.size()).isEqualTo(connectionsList.size());
+    // The VCards are also handed over as they are, for importers that don't need to parse them
+    assertThat(result.getExportedData().getContacts(VCard.class).get())
+        .hasSize(connectionsList.size());
   }
 
   @Test
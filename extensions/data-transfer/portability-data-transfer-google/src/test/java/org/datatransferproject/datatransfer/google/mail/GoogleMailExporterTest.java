@@ -163,6 +163,124 @@ public class GoogleMailExporterTest {
     assertThat(paginationToken).isNull();
   }
 
+  @Test
+  public void exportStopsAtPageByteCapAndResumes() throws IOException {
+    // The cap is reached by the first message, so each call exports a single message.
+    googleMailExporter =
+        new GoogleMailExporter(googleCredentialFactory, gmail, 2, 1000.0, MESSAGE_RAW.length());
+    Get secondGet = Mockito.mock(Get.class);
+    when(messages.get(GoogleMailExporter.USER, "messageId2")).thenReturn(secondGet);
+    when(secondGet.setFormat(anyString())).thenReturn(secondGet);
+    when(secondGet.execute())
+        .thenReturn(new Message().setId("messageId2").setRaw("second message"));
+    messageListResponse =
+        new ListMessagesResponse()
+            .setMessages(ImmutableList.of(INITIAL_MESSAGE, new Message().setId("messageId2")))
+            .setNextPageToken(NEXT_TOKEN);
+    when(messageListRequest.execute()).thenReturn(messageListResponse);
+    when(get.execute()).thenReturn(FULL_MESSAGE);
+
+    ExportResult<MailContainerResource> firstResult =
+        googleMailExporter.export(JOB_ID, null, Optional.empty());
+
+    assertThat(firstResult.getType()).isEqualTo(ExportResult.ResultType.CONTINUE);
+    assertThat(
+            firstResult.getExportedData().getMessages().stream()
+                .map(MailMessageModel::getRawString)
+                .collect(Collectors.toList()))
+        .containsExactly(MESSAGE_RAW);
+
+    ExportResult<MailContainerResource> secondResult =
+        googleMailExporter.export(
+            JOB_ID,
+            null,
+            Optional.of(
+                new ExportInformation(
+                    firstResult.getContinuationData().getPaginationData(), null)));
+
+    // The same listed page is read again, without a page token
+    verify(messageListRequest, never()).setPageToken(anyString());
+    assertThat(
+            secondResult.getExportedData().getMessages().stream()
+                .map(MailMessageModel::getRawString)
+                .collect(Collectors.toList()))
+        .containsExactly("second message");
+    StringPaginationToken paginationToken =
+        (StringPaginationToken) secondResult.getContinuationData().getPaginationData();
+    assertThat(paginationToken.getToken()).isEqualTo(NEXT_TOKEN);
+  }
+
+  @Test
+  public void resumeSkipsMessagesAlreadyExportedWhenMessagesWereAdded() throws IOException {
+    googleMailExporter =
+        new GoogleMailExporter(googleCredentialFactory, gmail, 2, 1000.0, MESSAGE_RAW.length());
+    setUpSecondMessage();
+    Message newMessage = new Message().setId("newMessageId");
+    when(messageListRequest.execute())
+        .thenReturn(
+            new ListMessagesResponse()
+                .setMessages(ImmutableList.of(INITIAL_MESSAGE, new Message().setId("messageId2"))))
+        .thenReturn(
+            new ListMessagesResponse()
+                .setMessages(
+                    ImmutableList.of(
+                        newMessage, INITIAL_MESSAGE, new Message().setId("messageId2"))));
+    when(get.execute()).thenReturn(FULL_MESSAGE);
+
+    ExportResult<MailContainerResource> secondResult = exportTwice();
+
+    // The new message ended up before the resume point, it isn't part of what's left to export.
+    assertThat(
+            secondResult.getExportedData().getMessages().stream()
+                .map(MailMessageModel::getRawString)
+                .collect(Collectors.toList()))
+        .containsExactly("second message");
+  }
+
+  @Test
+  public void resumeExportsThePageAgainWhenTheLastExportedMessageIsGone() throws IOException {
+    googleMailExporter =
+        new GoogleMailExporter(googleCredentialFactory, gmail, 2, 1000.0, MESSAGE_RAW.length());
+    setUpSecondMessage();
+    when(messageListRequest.execute())
+        .thenReturn(
+            new ListMessagesResponse()
+                .setMessages(ImmutableList.of(INITIAL_MESSAGE, new Message().setId("messageId2"))))
+        .thenReturn(
+            new ListMessagesResponse()
+                .setMessages(ImmutableList.of(new Message().setId("messageId2"))));
+    when(get.execute()).thenReturn(FULL_MESSAGE);
+
+    ExportResult<MailContainerResource> secondResult = exportTwice();
+
+    assertThat(
+            secondResult.getExportedData().getMessages().stream()
+                .map(MailMessageModel::getRawString)
+                .collect(Collectors.toList()))
+        .containsExactly("second message");
+    assertThat(secondResult.getType()).isEqualTo(ExportResult.ResultType.END);
+  }
+
+  private void setUpSecondMessage() throws IOException {
+    Get secondGet = Mockito.mock(Get.class);
+    when(messages.get(GoogleMailExporter.USER, "messageId2")).thenReturn(secondGet);
+    when(secondGet.setFormat(anyString())).thenReturn(secondGet);
+    when(secondGet.execute())
+        .thenReturn(new Message().setId("messageId2").setRaw("second message"));
+  }
+
+  /** Exports a first part of a page, then resumes where it stopped. */
+  private ExportResult<MailContainerResource> exportTwice() {
+    ExportResult<MailContainerResource> firstResult =
+        googleMailExporter.export(JOB_ID, null, Optional.empty());
+    assertThat(firstResult.getType()).isEqualTo(ExportResult.ResultType.CONTINUE);
+    return googleMailExporter.export(
+        JOB_ID,
+        null,
+        Optional.of(
+            new ExportInformation(firstResult.getContinuationData().getPaginationData(), null)));
+  }
+
   /**
    * Sets up a response with a single message
    */
@@ -49,6 +49,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
@@ -117,4 +118,28 @@ public class GoogleMailImporterTest {
     assertThat(messageArgumentCaptor.getValue().getRaw()).isEqualTo(MESSAGE_RAW);
     // TODO(olsona): test labels
   }
+
+  @Test
+  public void importPagesListsLabelsOncePerJob() throws Exception {
+    googleMailImporter =
+        new GoogleMailImporter(googleCredentialFactory, gmail, new Monitor() {}, 2);
+    MailContainerResource firstPage =
+        new MailContainerResource(
+            null,
+            ImmutableList.of(
+                MESSAGE_MODEL, new MailMessageModel("second message", MESSAGE_LABELS)));
+    MailContainerResource secondPage =
+        new MailContainerResource(
+            null,
+            ImmutableList.of(
+                new MailMessageModel("third message", ImmutableList.of(LABEL1, "label3"))));
+
+    googleMailImporter.importItem(JOB_ID, executor, null, firstPage);
+    googleMailImporter.importItem(JOB_ID, executor, null, secondPage);
+
+    // Labels are listed for the first page only, then kept up to date as they are created
+    verify(labelsList, times(1)).execute();
+    verify(labelsCreate, times(3)).execute();
+    verify(messages, times(3)).insert(eq(GoogleMailImporter.USER), any(Message.class));
+  }
 }
@@ -22,7 +22,9 @@ import static org.junit.Assert.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
@@ -31,6 +33,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.client.json.jackson2.JacksonFactory;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -60,7 +63,6 @@ import org.datatransferproject.types.common.models.photos.PhotoModel;
 import org.datatransferproject.types.common.models.photos.PhotosContainerResource;
 import org.junit.Before;
 import org.junit.Test;
-import org.mockito.ArgumentCaptor;
 
 public class GooglePhotosExporterTest {
 
@@ -250,16 +252,64 @@ public class GooglePhotosExporterTest {
         .thenReturn(new GoogleMediaItem[] {firstPhoto, secondPhoto});
     when(albumMediaResponse.getNextPageToken()).thenReturn(null);
 
+    // The stored stream is only readable while it is being stored
+    List<TempPhotosData> storedData = new ArrayList<>();
+    doAnswer(
+            invocation -> {
+              storedData.add(
+                  new ObjectMapper()
+                      .readValue((InputStream) invocation.getArgument(2), TempPhotosData.class));
+              return null;
+            })
+        .when(jobStore)
+        .create(eq(uuid), eq("tempPhotosData"), any(InputStream.class));
+
     // Run test
     googlePhotosExporter.populateContainedPhotosList(uuid, null);
 
     // Check contents of job store
-    ArgumentCaptor<InputStream> inputStreamArgumentCaptor =
-        ArgumentCaptor.forClass(InputStream.class);
-    verify(jobStore).create(eq(uuid), eq("tempPhotosData"), inputStreamArgumentCaptor.capture());
-    TempPhotosData tempPhotosData =
-        new ObjectMapper().readValue(inputStreamArgumentCaptor.getValue(), TempPhotosData.class);
-    assertThat(tempPhotosData.lookupContainedPhotoIds()).containsExactly(PHOTO_ID, secondId);
+    verify(jobStore).create(eq(uuid), eq("tempPhotosData"), any(InputStream.class));
+    assertThat(storedData).hasSize(1);
+    assertThat(storedData.get(0).lookupContainedPhotoIds()).containsExactly(PHOTO_ID, secondId);
+  }
+
+  @Test
+  public void populateContainedPhotosListMergesAllAlbums()
+      throws IOException, InvalidTokenException, PermissionDeniedException {
+    // Set up two albums with one photo each
+    GoogleAlbum firstAlbum = new GoogleAlbum();
+    firstAlbum.setId("first album");
+    GoogleAlbum secondAlbum = new GoogleAlbum();
+    secondAlbum.setId("second album");
+    when(albumListResponse.getAlbums()).thenReturn(new GoogleAlbum[] {firstAlbum, secondAlbum});
+    when(albumListResponse.getNextPageToken()).thenReturn(null);
+    for (GoogleAlbum album : new GoogleAlbum[] {firstAlbum, secondAlbum}) {
+      MediaItemSearchResponse albumMediaResponse = mock(MediaItemSearchResponse.class);
+      when(albumMediaResponse.getMediaItems())
+          .thenReturn(
+              new GoogleMediaItem[] {setUpSinglePhoto(IMG_URI, album.getId() + " photo")});
+      when(photosInterface.listMediaItems(eq(Optional.of(album.getId())), any(Optional.class)))
+          .thenReturn(albumMediaResponse);
+    }
+
+    // Run test
+    googlePhotosExporter.populateContainedPhotosList(uuid, null);
+    // The albumless photos page is filtered with the ids found above, without reading them back
+    when(mediaItemSearchResponse.getMediaItems())
+        .thenReturn(
+            new GoogleMediaItem[] {
+              setUpSinglePhoto(IMG_URI, "second album photo"), setUpSinglePhoto(IMG_URI, PHOTO_ID)
+            });
+    ExportResult<PhotosContainerResource> result =
+        googlePhotosExporter.exportPhotos(null, Optional.empty(), Optional.empty(), uuid);
+
+    // Check results
+    verify(jobStore, times(0)).getStream(any(), anyString());
+    assertThat(
+            result.getExportedData().getPhotos().stream()
+                .map(PhotoModel::getDataId)
+                .collect(Collectors.toList()))
+        .containsExactly(PHOTO_ID);
   }
 
   @Test
@@ -300,6 +350,38 @@ public class GooglePhotosExporterTest {
         .containsExactly(albumlessPhotoUri + "=d"); // download
   }
 
+  @Test
+  public void containedPhotosAreReadOncePerJob()
+      throws IOException, InvalidTokenException, PermissionDeniedException {
+    GoogleMediaItem containedPhoto = setUpSinglePhoto("contained photo uri", "contained photo id");
+    GoogleMediaItem albumlessPhoto = setUpSinglePhoto("albumless photo uri", "albumless photo id");
+    MediaItemSearchResponse mediaItemSearchResponse = mock(MediaItemSearchResponse.class);
+    when(photosInterface.listMediaItems(eq(Optional.empty()), any(Optional.class)))
+        .thenReturn(mediaItemSearchResponse);
+    when(mediaItemSearchResponse.getMediaItems())
+        .thenReturn(new GoogleMediaItem[] {containedPhoto, albumlessPhoto});
+
+    TempPhotosData tempPhotosData = new TempPhotosData(uuid);
+    tempPhotosData.addContainedPhotoId("contained photo id");
+    when(jobStore.getStream(uuid, "tempPhotosData"))
+        .thenReturn(
+            new InputStreamWrapper(GooglePhotosExporter.convertJsonToInputStream(tempPhotosData)));
+
+    // Run test - export two pages of photos
+    googlePhotosExporter.exportPhotos(null, Optional.empty(), Optional.empty(), uuid);
+    ExportResult<PhotosContainerResource> result =
+        googlePhotosExporter.exportPhotos(
+            null, Optional.empty(), Optional.of(new StringPaginationToken(PHOTO_TOKEN_PREFIX)), uuid);
+
+    // Check results
+    verify(jobStore, times(1)).getStream(uuid, "tempPhotosData");
+    assertThat(
+            result.getExportedData().getPhotos().stream()
+                .map(PhotoModel::getDataId)
+                .collect(Collectors.toList()))
+        .containsExactly("albumless photo id");
+  }
+
   /** Sets up a response with a single album, containing a single photo */
   private void setUpSingleAlbum() {
     GoogleAlbum albumEntry = new GoogleAlbum();
@@ -31,7 +31,11 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.cloud.local.LocalJobStore;
 import org.datatransferproject.datatransfer.google.mediaModels.BatchMediaItemResponse;
@@ -164,6 +168,72 @@ public class GooglePhotosImporterTest {
     assertTrue(executor.isKeyCached(googlePhotosImporter.getIdempotentId(photoModel2)));
   }
 
+  @Test
+  public void importPhotosWithConcurrentUploads() throws Exception {
+    int photoCount = 3;
+    List<PhotoModel> photoModels = Lists.newArrayList();
+    for (int i = 0; i < photoCount; i++) {
+      photoModels.add(
+          new PhotoModel(
+              PHOTO_TITLE,
+              IMG_URI,
+              PHOTO_DESCRIPTION,
+              JPEG_MEDIA_TYPE,
+              "oldPhotoID" + i,
+              OLD_ALBUM_ID,
+              false));
+    }
+
+    // Each upload only returns early once all of them are in flight at the same time.
+    CountDownLatch allUploadsStarted = new CountDownLatch(photoCount);
+    AtomicInteger uploadCount = new AtomicInteger();
+    Mockito.when(googlePhotosInterface.uploadPhotoContent(any()))
+        .thenAnswer(
+            invocation -> {
+              allUploadsStarted.countDown();
+              assertTrue(allUploadsStarted.await(5, TimeUnit.SECONDS));
+              return "token" + uploadCount.incrementAndGet();
+            });
+    Mockito.when(googlePhotosInterface.createPhotos(any(NewMediaItemUpload.class)))
+        .thenAnswer(
+            invocation -> {
+              NewMediaItemUpload upload = invocation.getArgument(0);
+              return new BatchMediaItemResponse(
+                  upload.getNewMediaItems().stream()
+                      .map(
+                          item ->
+                              buildMediaItemResult(
+                                  item.getSimpleMediaItem().getUploadToken(), Code.OK_VALUE))
+                      .toArray(NewMediaItemResult[]::new));
+            });
+
+    GooglePhotosImporter sut =
+        new GooglePhotosImporter(
+            null,
+            new LocalJobStore(),
+            null,
+            null,
+            googlePhotosInterface,
+            imageStreamProvider,
+            monitor,
+            1.0,
+            photoCount);
+
+    long length =
+        sut.importPhotoBatch(
+            UUID.randomUUID(),
+            Mockito.mock(TokensAndUrlAuthData.class),
+            photoModels,
+            executor,
+            NEW_ALBUM_ID);
+
+    assertEquals(32L * photoCount, length);
+    Mockito.verify(googlePhotosInterface).createPhotos(any(NewMediaItemUpload.class));
+    for (PhotoModel photoModel : photoModels) {
+      assertTrue(executor.isKeyCached(sut.getIdempotentId(photoModel)));
+    }
+  }
+
   private NewMediaItemResult buildMediaItemResult(String uploadToken, int code) {
     // We do a lot of mocking as building the actual objects would require changing the constructors
     // which messed up deserialization so best to leave them unchanged.
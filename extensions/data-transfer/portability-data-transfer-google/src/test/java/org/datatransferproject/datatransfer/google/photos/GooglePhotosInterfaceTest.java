@@ -0,0 +1,36 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.datatransfer.google.photos;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import org.datatransferproject.api.launcher.Monitor;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class GooglePhotosInterfaceTest {
+
+  @Test
+  public void uploadEmptyPhotoIsIgnored() throws Exception {
+    GooglePhotosInterface photosInterface =
+        new GooglePhotosInterface(null, null, null, Mockito.mock(Monitor.class), 1.0);
+
+    String uploadToken = photosInterface.uploadPhotoContent(new ByteArrayInputStream(new byte[0]));
+
+    assertEquals("EMPTY_PHOTO", uploadToken);
+  }
+}
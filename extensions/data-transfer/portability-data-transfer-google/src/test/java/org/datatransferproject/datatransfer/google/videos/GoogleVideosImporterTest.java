@@ -21,11 +21,16 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.common.collect.Lists;
-import com.google.common.io.Files;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.photos.library.v1.PhotosLibraryClient;
 import com.google.photos.library.v1.proto.BatchCreateMediaItemsResponse;
 import com.google.photos.library.v1.proto.NewMediaItem;
@@ -34,10 +39,19 @@ import com.google.photos.library.v1.upload.UploadMediaItemResponse;
 import com.google.photos.types.proto.MediaItem;
 import com.google.rpc.Code;
 import com.google.rpc.Status;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.net.HttpURLConnection;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.datatransferproject.api.launcher.MetricRecorder;
 import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.spi.cloud.storage.TemporaryFileSpool;
+import org.datatransferproject.spi.cloud.storage.TemporaryFileSpool.SpooledFile;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
 import org.datatransferproject.spi.transfer.idempotentexecutor.InMemoryIdempotentImportExecutor;
 import org.datatransferproject.transfer.ImageStreamProvider;
@@ -59,18 +73,20 @@ public class GoogleVideosImporterTest {
 
   private GoogleVideosImporter googleVideosImporter;
   private ImageStreamProvider streamProvider;
+  private TemporaryPerJobDataStore dataStore;
 
   @Before
   public void setUp() throws Exception {
-    // Create files so we can accurately check the length of file counting
-    TemporaryPerJobDataStore dataStore = mock(TemporaryPerJobDataStore.class);
+    // Spool files so we can accurately check the length of file counting
+    dataStore = mock(TemporaryPerJobDataStore.class);
     TemporaryFolder folder = new TemporaryFolder();
     folder.create();
-    File file1 = folder.newFile();
-    Files.write(new byte[32], file1);
-    File file2 = folder.newFile();
-    Files.write(new byte[32], file2);
-    when(dataStore.getTempFileFromInputStream(any(), any(), any())).thenReturn(file1, file2);
+    TemporaryFileSpool spool = new TemporaryFileSpool(folder.getRoot().toPath(), 0);
+    when(dataStore.getTempFile(any(), any(), any(), any()))
+        .thenAnswer(
+            invocation ->
+                spool.spool(
+                    invocation.getArgument(0), new ByteArrayInputStream(new byte[32]), "tmp", ""));
 
     streamProvider = mock(ImageStreamProvider.class);
     when(streamProvider.getConnection(any())).thenReturn(mock(HttpURLConnection.class));
@@ -113,6 +129,7 @@ public class GoogleVideosImporterTest {
         new InMemoryIdempotentImportExecutor(mock(Monitor.class));
     long length =
         googleVideosImporter.importVideoBatch(
+            UUID.randomUUID(),
             Lists.newArrayList(
                 new VideoObject(
                     VIDEO_TITLE,
@@ -136,6 +153,66 @@ public class GoogleVideosImporterTest {
     assertEquals("Expected executor to have no errors.", 0, executor.getErrors().size());
   }
 
+  @Test
+  public void uploadVideosConcurrently() throws Exception {
+    MetricRecorder metricRecorder = mock(MetricRecorder.class);
+    GoogleVideosImporter concurrentImporter =
+        new GoogleVideosImporter(
+            null, dataStore, mock(Monitor.class), streamProvider, metricRecorder, 2);
+    PhotosLibraryClient photosLibraryClient = mock(PhotosLibraryClient.class);
+
+    // Each upload only completes once both are in flight
+    CountDownLatch bothUploading = new CountDownLatch(2);
+    AtomicInteger uploadCount = new AtomicInteger();
+    when(photosLibraryClient.uploadMediaItem(any()))
+        .thenAnswer(
+            invocation -> {
+              String uploadToken = "token" + uploadCount.incrementAndGet();
+              bothUploading.countDown();
+              assertTrue(bothUploading.await(10, TimeUnit.SECONDS));
+              return UploadMediaItemResponse.newBuilder().setUploadToken(uploadToken).build();
+            });
+    BatchCreateMediaItemsResponse response =
+        BatchCreateMediaItemsResponse.newBuilder()
+            .addNewMediaItemResults(
+                NewMediaItemResult.newBuilder()
+                    .setStatus(Status.newBuilder().setCode(Code.OK_VALUE).build())
+                    .setMediaItem(MediaItem.newBuilder().setId("RESULT_ID_1").build())
+                    .setUploadToken("token1")
+                    .build())
+            .addNewMediaItemResults(
+                NewMediaItemResult.newBuilder()
+                    .setStatus(Status.newBuilder().setCode(Code.OK_VALUE).build())
+                    .setMediaItem(MediaItem.newBuilder().setId("RESULT_ID_2").build())
+                    .setUploadToken("token2")
+                    .build())
+            .build();
+    when(photosLibraryClient.batchCreateMediaItems(ArgumentMatchers.anyList()))
+        .thenReturn(response);
+
+    InMemoryIdempotentImportExecutor executor =
+        new InMemoryIdempotentImportExecutor(mock(Monitor.class));
+    long length =
+        concurrentImporter.importVideoBatch(
+            UUID.randomUUID(),
+            Lists.newArrayList(
+                new VideoObject(
+                    VIDEO_TITLE, VIDEO_URI, VIDEO_DESCRIPTION, MP4_MEDIA_TYPE, VIDEO_ID, null,
+                    false),
+                new VideoObject(
+                    VIDEO_TITLE, VIDEO_URI, VIDEO_DESCRIPTION, MP4_MEDIA_TYPE, "myId2", null,
+                    false)),
+            photosLibraryClient,
+            executor);
+
+    assertEquals("Expected the number of bytes to be the two files of 32L.", 64L, length);
+    assertEquals("Expected executor to have no errors.", 0, executor.getErrors().size());
+    verify(metricRecorder, times(2))
+        .recordMetric(eq("VIDEOS"), eq("video_download_bytes_per_second"), anyInt());
+    verify(metricRecorder, times(2))
+        .recordMetric(eq("VIDEOS"), eq("video_upload_bytes_per_second"), anyInt());
+  }
+
   @Test
   public void failOneVideo() throws Exception {
     PhotosLibraryClient photosLibraryClient = mock(PhotosLibraryClient.class);
@@ -170,6 +247,7 @@ public class GoogleVideosImporterTest {
         new InMemoryIdempotentImportExecutor(mock(Monitor.class));
     long length =
         googleVideosImporter.importVideoBatch(
+            UUID.randomUUID(),
             Lists.newArrayList(
                 new VideoObject(
                     VIDEO_TITLE,
@@ -210,6 +288,7 @@ public class GoogleVideosImporterTest {
         new InMemoryIdempotentImportExecutor(mock(Monitor.class));
     long length =
         googleVideosImporter.importVideoBatch(
+            UUID.randomUUID(),
             Lists.newArrayList(
                 new VideoObject(
                     VIDEO_TITLE,
@@ -225,6 +304,69 @@ public class GoogleVideosImporterTest {
     assertEquals("Expected executor to have no errors.", 0, executor.getErrors().size());
   }
 
+  @Test(timeout = 10_000)
+  public void downloadReleasedWhileRunningDeletesItsFile() throws Exception {
+    TemporaryFolder folder = new TemporaryFolder();
+    folder.create();
+    TemporaryFileSpool spool = new TemporaryFileSpool(folder.getRoot().toPath(), 0);
+    CountDownLatch secondDownloadStarted = new CountDownLatch(1);
+    CountDownLatch finishSecondDownload = new CountDownLatch(1);
+    AtomicInteger downloads = new AtomicInteger();
+    AtomicReference<File> secondFile = new AtomicReference<>();
+    doAnswer(
+            invocation -> {
+              int download = downloads.incrementAndGet();
+              if (download == 2) {
+                secondDownloadStarted.countDown();
+                // A download that doesn't stop when interrupted, and swallows the interrupt.
+                Uninterruptibles.awaitUninterruptibly(finishSecondDownload);
+                Thread.interrupted();
+              }
+              SpooledFile file =
+                  spool.spool(
+                      invocation.getArgument(0), new ByteArrayInputStream(new byte[32]), "tmp", "");
+              if (download == 2) {
+                secondFile.set(file.getFile());
+              }
+              return file;
+            })
+        .when(dataStore)
+        .getTempFile(any(), any(), any(), any());
+    PhotosLibraryClient photosLibraryClient = mock(PhotosLibraryClient.class);
+    when(photosLibraryClient.uploadMediaItem(any()))
+        .thenReturn(UploadMediaItemResponse.newBuilder().setUploadToken("token1").build());
+
+    Thread importThread =
+        new Thread(
+            () -> {
+              try {
+                googleVideosImporter.importVideoBatch(
+                    UUID.randomUUID(),
+                    Lists.newArrayList(
+                        new VideoObject(
+                            VIDEO_TITLE, VIDEO_URI, VIDEO_DESCRIPTION, MP4_MEDIA_TYPE, VIDEO_ID,
+                            null, false),
+                        new VideoObject(
+                            VIDEO_TITLE, VIDEO_URI, VIDEO_DESCRIPTION, MP4_MEDIA_TYPE, "myId2",
+                            null, false)),
+                    photosLibraryClient,
+                    new InMemoryIdempotentImportExecutor(mock(Monitor.class)));
+              } catch (Exception expected) {
+                // Interrupted while waiting for the second download.
+              }
+            });
+    importThread.start();
+    secondDownloadStarted.await();
+    importThread.interrupt();
+    importThread.join();
+
+    finishSecondDownload.countDown();
+    while (secondFile.get() == null || secondFile.get().exists()) {
+      Thread.sleep(10);
+    }
+    assertEquals("Expected the released download to give its quota back.", 0, spool.getUsedBytes());
+  }
+
   @Test
   public void descriptionOver1kCharactersShouldNotFail() {
     // Mock creation response
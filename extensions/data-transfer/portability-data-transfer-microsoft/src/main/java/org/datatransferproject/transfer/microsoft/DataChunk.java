@@ -1,5 +1,7 @@
 package org.datatransferproject.transfer.microsoft;
 
+import com.google.common.io.ByteStreams;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -8,6 +10,9 @@ import java.util.List;
 /**
   This utility class allows us to break up an InputStream into multiple chunks
   for part-by-part upload to a service, for example to be consumed in an upload session.
+
+  Chunks can either be split all at once with {@link #splitData}, or read one at a time into a
+  reusable buffer with {@link #readChunk} so that only one chunk is held in memory.
 */
 public class DataChunk {
   private static final int CHUNK_SIZE = 32000 * 1024; // 32000KiB
@@ -37,6 +42,30 @@ public class DataChunk {
     return rangeStart + size - 1;
   }
 
+  /** Allocates a buffer large enough to hold any chunk, to be passed to {@link #readChunk}. */
+  public static byte[] newChunkBuffer() {
+    return new byte[CHUNK_SIZE];
+  }
+
+  /**
+   * Reads the chunk starting at {@code rangeStart} of a stream of {@code totalSize} bytes, of which
+   * the first {@code rangeStart} bytes have already been read. The chunk shares {@code buffer}, so
+   * it is only valid until the buffer is reused.
+   *
+   * @return the chunk, or null if the stream has been read up to {@code totalSize}
+   * @throws EOFException if the stream ends before {@code totalSize} bytes
+   */
+  public static DataChunk readChunk(
+      InputStream inputStream, byte[] buffer, int rangeStart, int totalSize) throws IOException {
+    int size = Math.min(buffer.length, totalSize - rangeStart);
+    if (size <= 0) {
+      return null;
+    }
+    ByteStreams.readFully(inputStream, buffer, 0, size);
+    return new DataChunk(buffer, size, rangeStart);
+  }
+
+  /** Splits the whole stream into chunks up front, holding all of its data in memory. */
   public static List<DataChunk> splitData(InputStream inputStream) throws IOException {
     ArrayList<DataChunk> chunksToSend = new ArrayList();
     byte[] data = new byte[CHUNK_SIZE];
@@ -20,6 +20,7 @@ import ezvcard.VCard;
 import ezvcard.io.json.JCardWriter;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -106,22 +107,27 @@ public class MicrosoftContactsExporter implements Exporter<TokensAndUrlAuthData,
   }
 
   private ContactsModelWrapper transform(List<Map<String, Object>> rawContacts) {
+    List<VCard> cards = new ArrayList<>();
+    for (Map<String, Object> rawContact : rawContacts) {
+      TransformResult<VCard> result = transformerService.transform(VCard.class, rawContact);
+      if (result.hasProblems()) {
+        // discard
+        // FIXME log problem
+        continue;
+      }
+      cards.add(result.getTransformed());
+    }
+    // The cards are only written as jCards for importers that can't take them as they are
+    return ContactsModelWrapper.fromContacts(cards, MicrosoftContactsExporter::writeJCards);
+  }
+
+  private static String writeJCards(List<VCard> cards) throws IOException {
     StringWriter stringWriter = new StringWriter();
     try (JCardWriter writer = new JCardWriter(stringWriter)) {
-      for (Map<String, Object> rawContact : rawContacts) {
-        TransformResult<VCard> result = transformerService.transform(VCard.class, rawContact);
-        if (result.hasProblems()) {
-          // discard
-          // FIXME log problem
-          continue;
-        }
-        writer.write(result.getTransformed());
+      for (VCard card : cards) {
+        writer.write(card);
       }
-    } catch (IOException e) {
-      // TODO log
-      e.printStackTrace();
-      return new ContactsModelWrapper("");
     }
-    return new ContactsModelWrapper(stringWriter.toString());
+    return stringWriter.toString();
   }
 }
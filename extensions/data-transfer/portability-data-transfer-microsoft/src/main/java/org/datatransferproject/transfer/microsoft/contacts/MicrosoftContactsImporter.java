@@ -32,6 +32,7 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 import static java.util.stream.Collectors.toList;
@@ -67,9 +68,8 @@ public class MicrosoftContactsImporter implements Importer<TokenAuthData, Contac
       IdempotentImportExecutor idempotentImportExecutor,
       TokenAuthData authData,
       ContactsModelWrapper wrapper) {
-    JCardReader reader = new JCardReader(wrapper.getVCards());
     try {
-      List<VCard> cards = reader.readAll();
+      List<VCard> cards = readVCards(wrapper);
 
       List<String> problems = new ArrayList<>();
 
@@ -100,4 +100,15 @@ public class MicrosoftContactsImporter implements Importer<TokenAuthData, Contac
       return new ImportResult(e);
     }
   }
+
+  /** Returns the cards of {@code wrapper}, only parsing them if they were handed over serialized. */
+  private static List<VCard> readVCards(ContactsModelWrapper wrapper) throws IOException {
+    Optional<List<VCard>> cards = wrapper.getContacts(VCard.class);
+    if (cards.isPresent()) {
+      return cards.get();
+    }
+    try (JCardReader reader = new JCardReader(wrapper.getVCards())) {
+      return reader.readAll();
+    }
+  }
 }
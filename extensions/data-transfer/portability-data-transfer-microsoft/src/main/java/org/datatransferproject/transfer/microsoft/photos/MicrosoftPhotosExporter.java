@@ -23,6 +23,7 @@ import com.google.common.base.Strings;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.spi.transfer.provider.ExportResult;
 import org.datatransferproject.spi.transfer.provider.Exporter;
+import org.datatransferproject.spi.transfer.provider.PerJobClientCache;
 import org.datatransferproject.spi.transfer.types.ContinuationData;
 import org.datatransferproject.transfer.microsoft.common.MicrosoftCredentialFactory;
 import org.datatransferproject.transfer.microsoft.driveModels.MicrosoftDriveItem;
@@ -57,6 +58,8 @@ public class MicrosoftPhotosExporter
   private final JsonFactory jsonFactory;
   private final Monitor monitor;
   private volatile MicrosoftPhotosInterface photosInterface;
+  private final PerJobClientCache<TokensAndUrlAuthData, MicrosoftPhotosInterface> photosInterfaces =
+      new PerJobClientCache<>(this::makePhotosInterface);
 
   public MicrosoftPhotosExporter(
       MicrosoftCredentialFactory credentialFactory, JsonFactory jsonFactory, Monitor monitor) {
@@ -213,10 +216,10 @@ public class MicrosoftPhotosExporter
 
   private synchronized MicrosoftPhotosInterface getOrCreatePhotosInterface(
       TokensAndUrlAuthData authData) {
-    return photosInterface == null ? makePhotosInterface(authData) : photosInterface;
+    return photosInterface == null ? photosInterfaces.get(authData) : photosInterface;
   }
 
-  private synchronized MicrosoftPhotosInterface makePhotosInterface(TokensAndUrlAuthData authData) {
+  private MicrosoftPhotosInterface makePhotosInterface(TokensAndUrlAuthData authData) {
     Credential credential = credentialFactory.createCredential(authData);
     return new MicrosoftPhotosInterface(credential, jsonFactory);
   }
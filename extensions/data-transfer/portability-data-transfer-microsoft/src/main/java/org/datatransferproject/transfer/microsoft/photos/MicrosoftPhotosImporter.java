@@ -21,12 +21,19 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
 import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -35,9 +42,11 @@ import okhttp3.Response;
 import okhttp3.ResponseBody;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
+import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore.InputStreamWrapper;
 import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
 import org.datatransferproject.spi.transfer.provider.ImportResult;
 import org.datatransferproject.spi.transfer.provider.Importer;
+import org.datatransferproject.spi.transfer.provider.PerJobClientCache;
 import org.datatransferproject.spi.transfer.types.CopyExceptionWithFailureReason;
 import org.datatransferproject.spi.transfer.types.DestinationMemoryFullException;
 import org.datatransferproject.spi.transfer.types.PermissionDeniedException;
@@ -62,13 +71,17 @@ public class MicrosoftPhotosImporter
   private final MicrosoftCredentialFactory credentialFactory;
   private final MicrosoftTransmogrificationConfig transmogrificationConfig =
       new MicrosoftTransmogrificationConfig();
-  private Credential credential;
+  // Chunk buffers are reused across chunks and photos. Uploads beyond the pooled buffers allocate
+  // their own, which are dropped rather than pooled once the upload is done.
+  private final BlockingQueue<byte[]> chunkBuffers = new ArrayBlockingQueue<>(MAX_POOLED_BUFFERS);
+  private final PerJobClientCache<TokensAndUrlAuthData, Credential> credentials;
 
   private final String createFolderUrl;
   private final String uploadPhotoUrlTemplate;
   private final String albumlessPhotoUrlTemplate;
 
   private static final String UPLOAD_PARAMS = "?@microsoft.graph.conflictBehavior=rename";
+  private static final int MAX_POOLED_BUFFERS = 2;
 
   public MicrosoftPhotosImporter(
     String baseUrl,
@@ -89,7 +102,7 @@ public class MicrosoftPhotosImporter
     this.jobStore = jobStore;
     this.monitor = monitor;
     this.credentialFactory = credentialFactory;
-    this.credential = null;
+    this.credentials = new PerJobClientCache<>(credentialFactory::createCredential);
   }
 
   @Override
@@ -99,8 +112,7 @@ public class MicrosoftPhotosImporter
     TokensAndUrlAuthData authData,
     PhotosContainerResource resource)
   throws Exception {
-    // Ensure credential is populated
-    getOrCreateCredential(authData);
+    Credential credential = credentials.get(authData);
 
     monitor.debug(
       () -> String
@@ -118,20 +130,21 @@ public class MicrosoftPhotosImporter
     for (PhotoAlbum album : resource.getAlbums()) {
       // Create a OneDrive folder and then save the id with the mapping data
       idempotentImportExecutor.executeAndSwallowIOExceptions(
-        album.getId(), album.getName(), () -> createOneDriveFolder(album));
+        album.getId(), album.getName(), () -> createOneDriveFolder(album, credential));
     }
 
     for (PhotoModel photoModel : resource.getPhotos()) {
       idempotentImportExecutor.executeAndSwallowIOExceptions(
         photoModel.getAlbumId() + "-" + photoModel.getDataId(),
         photoModel.getTitle(),
-        () -> importSinglePhoto(photoModel, jobId, idempotentImportExecutor));
+        () -> importSinglePhoto(photoModel, jobId, idempotentImportExecutor, credential));
     }
     return ImportResult.OK;
   }
 
   @SuppressWarnings("unchecked")
-  private String createOneDriveFolder(PhotoAlbum album) throws IOException, CopyExceptionWithFailureReason {
+  private String createOneDriveFolder(PhotoAlbum album, Credential credential)
+      throws IOException, CopyExceptionWithFailureReason {
 
     Map<String, Object> rawFolder = new LinkedHashMap<>();
     // clean up album name for microsoft specifically
@@ -191,51 +204,120 @@ public class MicrosoftPhotosImporter
   private String importSinglePhoto(
     PhotoModel photo,
     UUID jobId,
-    IdempotentImportExecutor idempotentImportExecutor) throws Exception {
-    BufferedInputStream inputStream = null;
+    IdempotentImportExecutor idempotentImportExecutor,
+    Credential credential) throws Exception {
+    try (PhotoSource source = openPhotoSource(photo, jobId)) {
+      Preconditions.checkState(
+          source.size != 0, "Data was split into zero chunks %s.", photo.getTitle());
+      Preconditions.checkState(
+          source.size <= Integer.MAX_VALUE, "%s is too large to upload", photo.getTitle());
+      final int totalFileSize = (int) source.size;
+
+      String photoUploadUrl = createUploadSession(photo, idempotentImportExecutor, credential);
+
+      // Upload the data in chunks as it is read, holding a single chunk in memory
+      byte[] buffer = borrowChunkBuffer();
+      Response chunkResponse = null;
+      try {
+        int rangeStart = 0;
+        DataChunk chunk;
+        while ((chunk = DataChunk.readChunk(source.stream, buffer, rangeStart, totalFileSize))
+            != null) {
+          if (chunkResponse != null) {
+            chunkResponse.close();
+          }
+          chunkResponse = uploadChunk(
+              chunk, photoUploadUrl, totalFileSize, photo.getMediaType(), credential);
+          rangeStart += chunk.getSize();
+        }
+      } finally {
+        chunkBuffers.offer(buffer);
+      }
+      final int completionCode = chunkResponse.code();
+      if (completionCode != 200 && completionCode != 201) {
+        // Once we upload the last chunk, we should have either 200 or 201.
+        // This should change to a precondition check after we debug some more.
+        monitor.debug(
+            () -> "Received a bad code on completion of uploading chunks", completionCode);
+      }
+      // get complete file response
+      try (ResponseBody chunkResponseBody = chunkResponse.body()) {
+        Map<String, Object> chunkResponseData =
+            objectMapper.readValue(chunkResponseBody.bytes(), Map.class);
+        return (String) chunkResponseData.get("id");
+      }
+    }
+  }
+
+  private byte[] borrowChunkBuffer() {
+    byte[] buffer = chunkBuffers.poll();
+    return buffer != null ? buffer : DataChunk.newChunkBuffer();
+  }
+
+  /**
+   * Opens the data of a photo together with its size, which the upload session needs before the
+   * first chunk is sent. The size comes from the temp store or the Content-Length of the download;
+   * when neither knows it, the data is first spooled to a temporary file.
+   */
+  private PhotoSource openPhotoSource(PhotoModel photo, UUID jobId) throws IOException {
+    InputStream inputStream;
+    long size;
     if (photo.isInTempStore()) {
-      inputStream = new BufferedInputStream(jobStore.getStream(jobId, photo.getFetchableUrl()).getStream());
+      InputStreamWrapper streamWrapper = jobStore.getStream(jobId, photo.getFetchableUrl());
+      inputStream = streamWrapper.getStream();
+      size = streamWrapper.getBytes() != null ? streamWrapper.getBytes() : -1;
     } else if (photo.getFetchableUrl() != null) {
-      inputStream = new BufferedInputStream(new URL(photo.getFetchableUrl()).openStream());
+      URLConnection connection = new URL(photo.getFetchableUrl()).openConnection();
+      inputStream = connection.getInputStream();
+      size = connection.getContentLengthLong();
     } else {
       throw new IllegalStateException("Don't know how to get the inputStream for " + photo);
     }
+    // Some stores report 0 rather than an unknown size, so an empty photo is spooled as well.
+    if (size > 0) {
+      return new PhotoSource(new BufferedInputStream(inputStream), size, null);
+    }
 
-    String photoUploadUrl = createUploadSession(photo, idempotentImportExecutor);
+    File spoolFile = Files.createTempFile("onedrive-upload", ".tmp").toFile();
+    try (InputStream toSpool = inputStream) {
+      Files.copy(toSpool, spoolFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      return new PhotoSource(
+          new BufferedInputStream(new FileInputStream(spoolFile)), spoolFile.length(), spoolFile);
+    } catch (IOException | RuntimeException e) {
+      spoolFile.delete();
+      throw e;
+    }
+  }
 
-    // Arrange the data to be uploaded in chunks
-    List<DataChunk> chunksToSend = DataChunk.splitData(inputStream);
-    inputStream.close();
-    final int totalFileSize = chunksToSend.stream().map(DataChunk::getSize).reduce(0, Integer::sum);
-    Preconditions.checkState(
-        chunksToSend.size() != 0, "Data was split into zero chunks %s.", photo.getTitle());
+  /** The data of a photo to upload, and the temporary file it was spooled to if any. */
+  private static class PhotoSource implements AutoCloseable {
+    private final InputStream stream;
+    private final long size;
+    private final File spoolFile;
 
-    Response chunkResponse = null;
-    for (DataChunk chunk : chunksToSend) {
-      chunkResponse = uploadChunk(chunk, photoUploadUrl, totalFileSize, photo.getMediaType());
-    }
-    if (chunkResponse.code() != 200 && chunkResponse.code() != 201) {
-      // Once we upload the last chunk, we should have either 200 or 201.
-      // This should change to a precondition check after we debug some more.
-      monitor.debug(
-          () -> "Received a bad code on completion of uploading chunks", chunkResponse.code());
+    PhotoSource(InputStream stream, long size, File spoolFile) {
+      this.stream = stream;
+      this.size = size;
+      this.spoolFile = spoolFile;
     }
-    // get complete file response
-    ResponseBody chunkResponseBody = chunkResponse.body();
-    Map<String, Object> chunkResponseData = objectMapper.readValue(chunkResponseBody.bytes(), Map.class);
-    return (String) chunkResponseData.get("id");
-  }
 
-  private Credential getOrCreateCredential(TokensAndUrlAuthData authData) {
-    if (this.credential == null) {
-      this.credential = this.credentialFactory.createCredential(authData);
+    @Override
+    public void close() throws IOException {
+      try {
+        stream.close();
+      } finally {
+        if (spoolFile != null) {
+          spoolFile.delete();
+        }
+      }
     }
-    return this.credential;
   }
 
   // Request an upload session to the OneDrive api so that we can upload chunks
   // to the returned URL
-  private String createUploadSession(PhotoModel photo, IdempotentImportExecutor idempotentImportExecutor) throws
+  private String createUploadSession(
+      PhotoModel photo, IdempotentImportExecutor idempotentImportExecutor, Credential credential)
+      throws
           IOException, CopyExceptionWithFailureReason {
 
     // Forming the URL to create an upload session
@@ -324,7 +406,12 @@ public class MicrosoftPhotosImporter
   // Content-Length: {chunk size in bytes}
   // Content-Range: bytes {begin}-{end}/{total size}
   // body={bytes}
-  private Response uploadChunk(DataChunk chunk, String photoUploadUrl, int totalFileSize, String mediaType)
+  private Response uploadChunk(
+      DataChunk chunk,
+      String photoUploadUrl,
+      int totalFileSize,
+      String mediaType,
+      Credential credential)
           throws IOException, DestinationMemoryFullException {
 
     Request.Builder uploadRequestBuilder = new Request.Builder().url(photoUploadUrl);
@@ -16,6 +16,7 @@
 
 package org.datatransferproject.transfer.microsoft.photos;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ByteArrayInputStream;
@@ -120,4 +121,29 @@ public class DataChunkTest {
     assertThat(l.get(1).getEnd()).isEqualTo(2*CHUNK_SIZE - 11);
   }
 
+  @Test
+  public void testReadChunksReusesBuffer() throws IOException {
+    int totalSize = CHUNK_SIZE + 10;
+    inputStream = new ByteArrayInputStream(new byte[totalSize]);
+    byte[] buffer = DataChunk.newChunkBuffer();
+
+    DataChunk first = DataChunk.readChunk(inputStream, buffer, 0, totalSize);
+    assertThat(first.getData()).isSameAs(buffer);
+    assertThat(first.getSize()).isEqualTo(CHUNK_SIZE);
+    assertThat(first.getStart()).isEqualTo(0);
+
+    DataChunk second = DataChunk.readChunk(inputStream, buffer, CHUNK_SIZE, totalSize);
+    assertThat(second.getData()).isSameAs(buffer);
+    assertThat(second.getSize()).isEqualTo(10);
+    assertThat(second.getStart()).isEqualTo(CHUNK_SIZE);
+    assertThat(second.getEnd()).isEqualTo(CHUNK_SIZE + 9);
+
+    assertThat(DataChunk.readChunk(inputStream, buffer, totalSize, totalSize)).isNull();
+  }
+
+  @Test(expected = EOFException.class)
+  public void testReadChunkShorterThanExpected() throws IOException {
+    inputStream = new ByteArrayInputStream(new byte[10]);
+    DataChunk.readChunk(inputStream, DataChunk.newChunkBuffer(), 0, 20);
+  }
 }
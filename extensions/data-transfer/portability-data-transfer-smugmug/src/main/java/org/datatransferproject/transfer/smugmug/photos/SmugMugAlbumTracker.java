@@ -0,0 +1,140 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.transfer.smugmug.photos;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
+
+/**
+ * Tracks the albums of a job and how many photos were imported to each, so that the album a photo
+ * goes to is found without walking the overflow chain in the job store for every photo.
+ *
+ * <p>The {@link SmugMugPhotoTempData} of each album is read from the job store once, and the
+ * album photos currently go to is remembered for every base album. Photo counts are written back
+ * every {@code flushInterval} photos and whenever {@link #flush} is called; links to new overflow
+ * albums are written back right away.
+ */
+final class SmugMugAlbumTracker {
+  /**
+   * Creates an overflow album of a base album, storing its temp data with {@link #createAlbum},
+   * and returns its id.
+   */
+  @FunctionalInterface
+  interface OverflowAlbumCreator {
+    String create(SmugMugPhotoTempData baseAlbum, int copyNumber) throws Exception;
+  }
+
+  private final UUID jobId;
+  private final TemporaryPerJobDataStore jobStore;
+  private final int flushInterval;
+  // Guarded by this.
+  private final Map<String, SmugMugPhotoTempData> albumsById = new HashMap<>();
+  private final Map<String, Destination> destinationsByBaseAlbumId = new HashMap<>();
+  private final Set<String> dirtyAlbumIds = new LinkedHashSet<>();
+  private int unflushedPhotos;
+
+  SmugMugAlbumTracker(UUID jobId, TemporaryPerJobDataStore jobStore, int flushInterval) {
+    checkState(flushInterval > 0, "flushInterval should be > 0");
+    this.jobId = jobId;
+    this.jobStore = jobStore;
+    this.flushInterval = flushInterval;
+  }
+
+  static String getTempDataId(String albumId) {
+    return String.format("smugmug-album-temp-data-%s", albumId);
+  }
+
+  /** Stores the temp data of a newly created album. */
+  synchronized void createAlbum(SmugMugPhotoTempData album) throws IOException {
+    jobStore.create(jobId, getTempDataId(album.getAlbumExportId()), album);
+    albumsById.put(album.getAlbumExportId(), album);
+  }
+
+  /**
+   * Returns the album that photos of {@code baseAlbumId} go to: the base album, or the first of its
+   * overflow albums that isn't full, creating it with {@code overflowAlbumCreator} if needed.
+   */
+  synchronized SmugMugPhotoTempData getDestinationAlbum(
+      String baseAlbumId, int albumMaxSize, OverflowAlbumCreator overflowAlbumCreator)
+      throws Exception {
+    Destination destination = destinationsByBaseAlbumId.get(baseAlbumId);
+    if (destination == null) {
+      destination = new Destination(getAlbum(baseAlbumId), 0);
+      destinationsByBaseAlbumId.put(baseAlbumId, destination);
+    }
+    while (destination.album.getPhotoCount() >= albumMaxSize) {
+      SmugMugPhotoTempData album = destination.album;
+      if (album.getOverflowAlbumExportId() == null) {
+        // since the album is full and has no overflow, we need to create a new one
+        album.setOverflowAlbumExportId(
+            overflowAlbumCreator.create(getAlbum(baseAlbumId), destination.depth + 1));
+        dirtyAlbumIds.add(album.getAlbumExportId());
+        flush();
+      }
+      destination =
+          new Destination(getAlbum(album.getOverflowAlbumExportId()), destination.depth + 1);
+      destinationsByBaseAlbumId.put(baseAlbumId, destination);
+    }
+    return destination.album;
+  }
+
+  /** Counts a photo imported to {@code album}, writing the counts back every few photos. */
+  synchronized void addPhoto(SmugMugPhotoTempData album) throws IOException {
+    album.incrementPhotoCount();
+    dirtyAlbumIds.add(album.getAlbumExportId());
+    if (++unflushedPhotos >= flushInterval) {
+      flush();
+    }
+  }
+
+  /** Writes the albums changed since the last flush back to the job store. */
+  synchronized void flush() throws IOException {
+    for (String albumId : dirtyAlbumIds) {
+      jobStore.update(jobId, getTempDataId(albumId), albumsById.get(albumId));
+    }
+    dirtyAlbumIds.clear();
+    unflushedPhotos = 0;
+  }
+
+  private SmugMugPhotoTempData getAlbum(String albumId) throws IOException {
+    SmugMugPhotoTempData album = albumsById.get(albumId);
+    if (album == null) {
+      album = jobStore.findData(jobId, getTempDataId(albumId), SmugMugPhotoTempData.class);
+      checkState(album != null, "No temp data for album %s", albumId);
+      albumsById.put(albumId, album);
+    }
+    return album;
+  }
+
+  private static final class Destination {
+    private final SmugMugPhotoTempData album;
+    // The copy number of the album, or zero for the base album.
+    private final int depth;
+
+    private Destination(SmugMugPhotoTempData album, int depth) {
+      this.album = album;
+      this.depth = depth;
+    }
+  }
+}
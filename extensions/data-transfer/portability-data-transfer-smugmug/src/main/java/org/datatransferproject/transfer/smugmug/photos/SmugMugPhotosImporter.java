@@ -23,7 +23,9 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
 import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
@@ -42,12 +44,18 @@ public class SmugMugPhotosImporter
     implements Importer<TokenSecretAuthData, PhotosContainerResource> {
 
   private static final String DEFAULT_ALBUM_NAME = "Untitled Album";
+  // Photo counts are written back to the job store after this many photos, and after every page.
+  private static final int PHOTO_COUNT_FLUSH_INTERVAL = 25;
   private final TemporaryPerJobDataStore jobStore;
   private final AppCredentials appCredentials;
   private final ObjectMapper mapper;
   private final Monitor monitor;
   private final SmugMugTransmogrificationConfig transmogrificationConfig;
   private final SmugMugInterface smugMugInterface;
+  // Never evicted: a dropped tracker would lose its unflushed counts and diverge from the one
+  // replacing it. The worker creates importers for each job, so this only holds the trackers of
+  // the jobs this importer is used for, for as long as it's used.
+  private final Map<UUID, SmugMugAlbumTracker> albumTrackersByJob = new ConcurrentHashMap<>();
 
   public SmugMugPhotosImporter(
       TemporaryPerJobDataStore jobStore,
@@ -84,6 +92,7 @@ public class SmugMugPhotosImporter
     // Make the data smugmug compatible
     data.transmogrify(transmogrificationConfig);
 
+    SmugMugAlbumTracker albumTracker = getAlbumTracker(jobId);
     try {
       SmugMugInterface smugMugInterface = getOrCreateSmugMugInterface(authData);
       for (PhotoAlbum album : data.getAlbums()) {
@@ -98,6 +107,8 @@ public class SmugMugPhotosImporter
             photo.getTitle(),
             () -> importSinglePhoto(jobId, idempotentExecutor, photo, smugMugInterface));
       }
+      // Write the photo counts back at the end of every page.
+      albumTracker.flush();
     } catch (IOException e) {
       monitor.severe(() -> "Error importing", e);
       return new ImportResult(e);
@@ -117,7 +128,7 @@ public class SmugMugPhotosImporter
     SmugMugPhotoTempData tempData =
         new SmugMugPhotoTempData(
             inputAlbum.getId(), albumName, inputAlbum.getDescription(), albumResponse.getUri());
-    jobStore.create(jobId, getTempDataId(inputAlbum.getId()), tempData);
+    getAlbumTracker(jobId).createAlbum(tempData);
     return albumResponse.getUri();
   }
 
@@ -141,8 +152,7 @@ public class SmugMugPhotosImporter
 
     SmugMugImageUploadResponse response =
         smugMugInterface.uploadImage(inputPhoto, albumTempData.getAlbumUri(), inputStream);
-    albumTempData.incrementPhotoCount();
-    jobStore.update(jobId, getTempDataId(albumTempData.getAlbumExportId()), albumTempData);
+    getAlbumTracker(jobId).addPhoto(albumTempData);
 
     return response.toString();
   }
@@ -166,45 +176,28 @@ public class SmugMugPhotosImporter
       String baseAlbumId,
       SmugMugInterface smugMugInterface)
       throws Exception {
-    SmugMugPhotoTempData baseAlbumTempData =
-        jobStore.findData(jobId, getTempDataId(baseAlbumId), SmugMugPhotoTempData.class);
-    SmugMugPhotoTempData albumTempData = baseAlbumTempData;
-    int depth = 0;
-    while (albumTempData.getPhotoCount() >= transmogrificationConfig.getAlbumMaxSize()) {
-      if (albumTempData.getOverflowAlbumExportId() == null) {
-        PhotoAlbum newAlbum =
-            createOverflowAlbum(
-                baseAlbumTempData.getAlbumExportId(),
-                baseAlbumTempData.getAlbumName(),
-                baseAlbumTempData.getAlbumDescription(),
-                depth + 1);
-        // since the album is full and has no overflow, we need to create a new one
-        String newUri =
-            idempotentExecutor.executeOrThrowException(
-                newAlbum.getId(),
-                newAlbum.getName(),
-                () -> importSingleAlbum(jobId, newAlbum, smugMugInterface));
-        albumTempData.setOverflowAlbumExportId(newAlbum.getId());
-        jobStore.update(jobId, getTempDataId(albumTempData.getAlbumExportId()), albumTempData);
-        albumTempData =
-            jobStore.findData(
-                jobId,
-                getTempDataId(albumTempData.getOverflowAlbumExportId()),
-                SmugMugPhotoTempData.class);
-      } else {
-        albumTempData =
-            jobStore.findData(
-                jobId,
-                getTempDataId(albumTempData.getOverflowAlbumExportId()),
-                SmugMugPhotoTempData.class);
-      }
-      depth += 1;
-    }
-    return albumTempData;
+    return getAlbumTracker(jobId)
+        .getDestinationAlbum(
+            baseAlbumId,
+            transmogrificationConfig.getAlbumMaxSize(),
+            (baseAlbumTempData, copyNumber) -> {
+              PhotoAlbum newAlbum =
+                  createOverflowAlbum(
+                      baseAlbumTempData.getAlbumExportId(),
+                      baseAlbumTempData.getAlbumName(),
+                      baseAlbumTempData.getAlbumDescription(),
+                      copyNumber);
+              idempotentExecutor.executeOrThrowException(
+                  newAlbum.getId(),
+                  newAlbum.getName(),
+                  () -> importSingleAlbum(jobId, newAlbum, smugMugInterface));
+              return newAlbum.getId();
+            });
   }
 
-  private static String getTempDataId(String albumId) {
-    return String.format("smugmug-album-temp-data-%s", albumId);
+  private SmugMugAlbumTracker getAlbumTracker(UUID jobId) {
+    return albumTrackersByJob.computeIfAbsent(
+        jobId, id -> new SmugMugAlbumTracker(id, jobStore, PHOTO_COUNT_FLUSH_INTERVAL));
   }
 
   /**
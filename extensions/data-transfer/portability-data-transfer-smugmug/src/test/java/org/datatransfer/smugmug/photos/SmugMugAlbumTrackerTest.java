@@ -0,0 +1,104 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.transfer.smugmug.photos;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SmugMugAlbumTrackerTest {
+  private static final String BASE_ALBUM_ID = "albumId";
+  private static final String OVERFLOW_ALBUM_ID = "albumId-overflow-1";
+
+  private final UUID jobId = UUID.randomUUID();
+  private final TemporaryPerJobDataStore jobStore = mock(TemporaryPerJobDataStore.class);
+  // The photo count and overflow album of each album, as last written to the job store.
+  private final Map<String, Integer> storedPhotoCounts = new HashMap<>();
+  private final Map<String, String> storedOverflowAlbumIds = new HashMap<>();
+
+  @Before
+  public void setUp() throws Exception {
+    doAnswer(
+            invocation -> {
+              SmugMugPhotoTempData album = invocation.getArgument(2);
+              storedPhotoCounts.put(album.getAlbumExportId(), album.getPhotoCount());
+              storedOverflowAlbumIds.put(
+                  album.getAlbumExportId(), album.getOverflowAlbumExportId());
+              return null;
+            })
+        .when(jobStore)
+        .update(eq(jobId), anyString(), any(SmugMugPhotoTempData.class));
+  }
+
+  @Test
+  public void photoCountsAreWrittenBackInBatches() throws Exception {
+    SmugMugAlbumTracker tracker = new SmugMugAlbumTracker(jobId, jobStore, 3);
+    tracker.createAlbum(new SmugMugPhotoTempData(BASE_ALBUM_ID, "name", "description", "uri"));
+
+    for (int i = 0; i < 4; i++) {
+      tracker.addPhoto(tracker.getDestinationAlbum(BASE_ALBUM_ID, 10, this::failToCreate));
+    }
+
+    verify(jobStore, never()).findData(any(), any(), any());
+    verify(jobStore, times(1)).update(eq(jobId), any(), any());
+    assertThat(storedPhotoCounts).containsExactly(BASE_ALBUM_ID, 3);
+    tracker.flush();
+    assertThat(storedPhotoCounts).containsExactly(BASE_ALBUM_ID, 4);
+  }
+
+  @Test
+  public void fullAlbumOverflowsOnce() throws Exception {
+    SmugMugAlbumTracker tracker = new SmugMugAlbumTracker(jobId, jobStore, 100);
+    tracker.createAlbum(new SmugMugPhotoTempData(BASE_ALBUM_ID, "name", "description", "uri"));
+    AtomicInteger overflowAlbumsCreated = new AtomicInteger();
+    SmugMugAlbumTracker.OverflowAlbumCreator overflowAlbumCreator =
+        (baseAlbum, copyNumber) -> {
+          overflowAlbumsCreated.incrementAndGet();
+          String albumId = baseAlbum.getAlbumExportId() + "-overflow-" + copyNumber;
+          tracker.createAlbum(new SmugMugPhotoTempData(albumId, "name (1)", "description", "uri"));
+          return albumId;
+        };
+
+    for (int i = 0; i < 3; i++) {
+      tracker.addPhoto(tracker.getDestinationAlbum(BASE_ALBUM_ID, 2, overflowAlbumCreator));
+    }
+    // The link to the overflow album is written back as soon as it is created.
+    assertThat(storedOverflowAlbumIds).containsExactly(BASE_ALBUM_ID, OVERFLOW_ALBUM_ID);
+    tracker.flush();
+
+    assertThat(overflowAlbumsCreated.get()).isEqualTo(1);
+    assertThat(storedPhotoCounts).containsExactly(BASE_ALBUM_ID, 2, OVERFLOW_ALBUM_ID, 1);
+  }
+
+  private String failToCreate(SmugMugPhotoTempData baseAlbum, int copyNumber) {
+    throw new AssertionError("No overflow album expected");
+  }
+}
@@ -83,7 +83,7 @@ public class SolidContactsExport implements Exporter<CookiesAndUrlAuthData, Cont
     vCards.forEach(allCards::addAll);
 
     return new ExportResult<>(ResultType.END,
-        new ContactsModelWrapper(Ezvcard.write(allCards).go()));
+        ContactsModelWrapper.fromContacts(allCards, cards -> Ezvcard.write(cards).go()));
   }
 
   private List<List<VCard>> explore(String url, SolidUtilities utilities) throws IOException {
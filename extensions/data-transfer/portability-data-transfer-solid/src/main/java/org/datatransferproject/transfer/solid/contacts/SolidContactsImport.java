@@ -125,7 +125,8 @@ public class SolidContactsImport implements Importer<CookiesAndUrlAuthData, Cont
 
     String url = authData.getUrl();
 
-    List<VCard> vcards = Ezvcard.parse(data.getVCards()).all();
+    List<VCard> vcards =
+        data.getContacts(VCard.class).orElseGet(() -> Ezvcard.parse(data.getVCards()).all());
     createContent(idempotentExecutor, url, vcards, solidUtilities);
     return ImportResult.OK;
   }
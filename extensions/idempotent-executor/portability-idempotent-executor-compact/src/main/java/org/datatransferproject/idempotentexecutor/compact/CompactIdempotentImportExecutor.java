@@ -0,0 +1,147 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.idempotentexecutor.compact;
+
+import static java.lang.String.format;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
+import org.datatransferproject.spi.transfer.idempotentexecutor.InFlightImports;
+import org.datatransferproject.spi.transfer.idempotentexecutor.InMemoryIdempotentImportExecutor;
+import org.datatransferproject.types.transfer.errors.ErrorDetail;
+
+/**
+ * A {@link IdempotentImportExecutor} that, like {@link InMemoryIdempotentImportExecutor}, keeps
+ * known values for the life of the job, but in a {@link CompactKnownValuesStore} rather than a
+ * {@code HashMap}, so that jobs with millions of items do not fill the heap with ids.
+ *
+ * <p>The store serializes its own reads and writes, and {@link InFlightImports} lets only one
+ * thread at a time run the import of a given idempotent id while the others wait for its value, so
+ * an executor can be shared by the threads importing sibling containers of a job. Recent errors are
+ * kept per thread, since each of those threads resets and reads only the errors of its own items.
+ */
+public class CompactIdempotentImportExecutor implements IdempotentImportExecutor {
+  private final CompactKnownValuesStore knownValues;
+  private final InFlightImports inFlightImports = new InFlightImports();
+  private final Map<String, ErrorDetail> errors = Collections.synchronizedMap(new HashMap<>());
+  private final ThreadLocal<Map<String, ErrorDetail>> recentErrors =
+      ThreadLocal.withInitial(HashMap::new);
+  private final Monitor monitor;
+  private UUID jobId;
+
+  public CompactIdempotentImportExecutor(Monitor monitor) {
+    this(monitor, true);
+  }
+
+  /** @param offHeap whether known values are kept outside of the Java heap */
+  public CompactIdempotentImportExecutor(Monitor monitor, boolean offHeap) {
+    this.monitor = monitor;
+    this.knownValues = new CompactKnownValuesStore(offHeap);
+  }
+
+  @Override
+  public <T extends Serializable> T executeAndSwallowIOExceptions(
+      String idempotentId, String itemName, Callable<T> callable) throws Exception {
+    try {
+      return executeOrThrowException(idempotentId, itemName, callable);
+    } catch (IOException e) {
+      // Note all errors are logged in executeOrThrowException so no need to re-log them here.
+      return null;
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T extends Serializable> T executeOrThrowException(
+      String idempotentId, String itemName, Callable<T> callable) throws Exception {
+    String jobIdPrefix = "Job " + jobId + ": ";
+
+    InFlightImports.Reservation reservation =
+        inFlightImports.reserve(idempotentId, knownValues::containsKey);
+    if (reservation == null) {
+      monitor.debug(
+          () ->
+              jobIdPrefix
+                  + format("Using cached key %s from cache for %s", idempotentId, itemName));
+      return (T) knownValues.get(idempotentId);
+    }
+    try {
+      T result = callable.call();
+      knownValues.put(idempotentId, result);
+      monitor.debug(
+          () -> jobIdPrefix + format("Storing key %s in cache for %s", idempotentId, itemName));
+      errors.remove(idempotentId);
+      return result;
+    } catch (Exception e) {
+      ErrorDetail errorDetail =
+          ErrorDetail.builder()
+              .setId(idempotentId)
+              .setTitle(itemName)
+              .setException(Throwables.getStackTraceAsString(e))
+              .build();
+      errors.put(idempotentId, errorDetail);
+      recentErrors.get().put(idempotentId, errorDetail);
+      monitor.severe(() -> jobIdPrefix + "Problem with importing item: " + errorDetail);
+      throw e;
+    } finally {
+      reservation.close();
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T extends Serializable> T getCachedValue(String idempotentId) {
+    return (T) knownValues.get(idempotentId);
+  }
+
+  @Override
+  public boolean isKeyCached(String idempotentId) {
+    return knownValues.containsKey(idempotentId);
+  }
+
+  @Override
+  public Collection<ErrorDetail> getErrors() {
+    synchronized (errors) {
+      return ImmutableList.copyOf(errors.values());
+    }
+  }
+
+  @Override
+  public void setJobId(UUID jobId) {
+    this.jobId = jobId;
+  }
+
+  @Override
+  public Collection<ErrorDetail> getRecentErrors() {
+    return ImmutableList.copyOf(recentErrors.get().values());
+  }
+
+  @Override
+  public void resetRecentErrors() {
+    recentErrors.get().clear();
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.idempotentexecutor.compact;
+
+import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
+import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutorExtension;
+
+/**
+ * Provides a {@link CompactIdempotentImportExecutor} to workers that have this module, and no
+ * other {@link IdempotentImportExecutorExtension}, on their class path.
+ */
+public class CompactIdempotentImportExecutorExtension
+    implements IdempotentImportExecutorExtension {
+
+  @Override
+  public IdempotentImportExecutor getIdempotentImportExecutor(Monitor monitor) {
+    return new CompactIdempotentImportExecutor(monitor);
+  }
+
+  @Override
+  public void initialize() {}
+}
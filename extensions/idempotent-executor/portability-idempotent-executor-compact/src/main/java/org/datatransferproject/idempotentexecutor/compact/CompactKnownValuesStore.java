@@ -0,0 +1,224 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.idempotentexecutor.compact;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A map from idempotent ids to their results that avoids a Java object per entry.
+ *
+ * <p>Entries are appended as bytes to large pages, which are direct (off-heap) buffers unless
+ * requested otherwise. Ids and {@link String} results are stored as UTF-8, any other result in its
+ * serialized form. An open-addressing table of page locations and hash codes indexes the pages, so
+ * an entry costs its encoded bytes plus 12 bytes of index instead of a {@code HashMap} node, two
+ * {@code String}s and their character arrays.
+ *
+ * <p>Entries are never removed. Storing a key again appends a new entry, leaving the old bytes
+ * unused; the executor only does this when a result is recomputed.
+ */
+final class CompactKnownValuesStore {
+  private static final int PAGE_SIZE = 1 << 20;
+  private static final int INITIAL_CAPACITY = 1 << 10;
+
+  private static final byte NULL_VALUE = 0;
+  private static final byte STRING_VALUE = 1;
+  private static final byte SERIALIZED_VALUE = 2;
+
+  private final boolean direct;
+  private final List<ByteBuffer> pages = new ArrayList<>();
+  private ByteBuffer currentPage;
+
+  // Location of each entry, as (page index << 32 | offset) + 1, zero for an empty slot.
+  private long[] locations = new long[INITIAL_CAPACITY];
+  private int[] hashes = new int[INITIAL_CAPACITY];
+  private int size;
+
+  /** @param direct whether pages are allocated outside of the Java heap */
+  CompactKnownValuesStore(boolean direct) {
+    this.direct = direct;
+  }
+
+  synchronized int size() {
+    return size;
+  }
+
+  synchronized boolean containsKey(String key) {
+    return findSlot(key.getBytes(UTF_8), hash(key)) >= 0;
+  }
+
+  /**
+   * Returns the value stored for the key, which may be null, or throws {@link
+   * IllegalArgumentException} if the key is unknown.
+   */
+  synchronized Serializable get(String key) {
+    int slot = findSlot(key.getBytes(UTF_8), hash(key));
+    if (slot < 0) {
+      throw new IllegalArgumentException(key + " is not a known key, " + size + " known keys");
+    }
+    return readValue(locations[slot]);
+  }
+
+  synchronized void put(String key, Serializable value) throws IOException {
+    byte[] keyBytes = key.getBytes(UTF_8);
+    int hash = hash(key);
+    byte valueType;
+    byte[] valueBytes;
+    if (value == null) {
+      valueType = NULL_VALUE;
+      valueBytes = new byte[0];
+    } else if (value instanceof String) {
+      valueType = STRING_VALUE;
+      valueBytes = ((String) value).getBytes(UTF_8);
+    } else {
+      valueType = SERIALIZED_VALUE;
+      valueBytes = serialize(value);
+    }
+    long location = append(keyBytes, valueType, valueBytes);
+
+    int slot = findSlot(keyBytes, hash);
+    if (slot >= 0) {
+      locations[slot] = location + 1;
+      return;
+    }
+    if ((size + 1) * 4L > locations.length * 3L) {
+      resize();
+    }
+    insert(hash, location + 1);
+    size++;
+  }
+
+  private long append(byte[] keyBytes, byte valueType, byte[] valueBytes) {
+    int entrySize = 4 + keyBytes.length + 1 + 4 + valueBytes.length;
+    if (currentPage == null || currentPage.remaining() < entrySize) {
+      // An entry never spans pages, an oversized one gets a page of its own.
+      currentPage = allocate(Math.max(PAGE_SIZE, entrySize));
+      pages.add(currentPage);
+    }
+    int offset = currentPage.position();
+    currentPage.putInt(keyBytes.length);
+    currentPage.put(keyBytes);
+    currentPage.put(valueType);
+    currentPage.putInt(valueBytes.length);
+    currentPage.put(valueBytes);
+    return ((long) (pages.size() - 1) << 32) | offset;
+  }
+
+  private ByteBuffer allocate(int capacity) {
+    return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+  }
+
+  /** Returns the slot holding the key, or -1 if it is not stored. */
+  private int findSlot(byte[] keyBytes, int hash) {
+    int mask = locations.length - 1;
+    for (int slot = hash & mask; locations[slot] != 0; slot = (slot + 1) & mask) {
+      if (hashes[slot] == hash && keyEquals(locations[slot] - 1, keyBytes)) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+  private void insert(int hash, long storedLocation) {
+    int mask = locations.length - 1;
+    int slot = hash & mask;
+    while (locations[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    locations[slot] = storedLocation;
+    hashes[slot] = hash;
+  }
+
+  private void resize() {
+    long[] oldLocations = locations;
+    int[] oldHashes = hashes;
+    locations = new long[oldLocations.length * 2];
+    hashes = new int[oldHashes.length * 2];
+    for (int i = 0; i < oldLocations.length; i++) {
+      if (oldLocations[i] != 0) {
+        insert(oldHashes[i], oldLocations[i]);
+      }
+    }
+  }
+
+  private boolean keyEquals(long location, byte[] keyBytes) {
+    ByteBuffer page = pages.get((int) (location >>> 32));
+    int offset = (int) location;
+    if (page.getInt(offset) != keyBytes.length) {
+      return false;
+    }
+    offset += 4;
+    for (int i = 0; i < keyBytes.length; i++) {
+      if (page.get(offset + i) != keyBytes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private Serializable readValue(long storedLocation) {
+    long location = storedLocation - 1;
+    ByteBuffer page = pages.get((int) (location >>> 32));
+    int offset = (int) location;
+    offset += 4 + page.getInt(offset);
+    byte valueType = page.get(offset);
+    int valueLength = page.getInt(offset + 1);
+    if (valueType == NULL_VALUE) {
+      return null;
+    }
+    byte[] valueBytes = new byte[valueLength];
+    ByteBuffer source = page.duplicate();
+    source.position(offset + 5);
+    source.get(valueBytes);
+    if (valueType == STRING_VALUE) {
+      return new String(valueBytes, UTF_8);
+    }
+    return deserialize(valueBytes);
+  }
+
+  private static int hash(String key) {
+    int h = key.hashCode();
+    // Spread the high bits, as the table is indexed by the low ones.
+    return h ^ (h >>> 16);
+  }
+
+  private static byte[] serialize(Serializable value) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(value);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static Serializable deserialize(byte[] valueBytes) {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(valueBytes))) {
+      return (Serializable) in.readObject();
+    } catch (IOException | ClassNotFoundException e) {
+      // The bytes were written by serialize(), so this can only be a broken class path.
+      throw new IllegalStateException("Unable to read a stored result", e);
+    }
+  }
+}
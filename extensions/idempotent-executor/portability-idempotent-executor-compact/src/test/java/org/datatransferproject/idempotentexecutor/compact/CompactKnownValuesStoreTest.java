@@ -0,0 +1,74 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.idempotentexecutor.compact;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Strings;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class CompactKnownValuesStoreTest {
+
+  @Test
+  public void storesStringsAndOtherValues() throws Exception {
+    CompactKnownValuesStore store = new CompactKnownValuesStore(true);
+    store.put("photo1", "newId1");
+    store.put("albumé", new ArrayList<>(Arrays.asList("a", "b")));
+    store.put("nothing", null);
+
+    assertThat(store.size()).isEqualTo(3);
+    assertThat(store.get("photo1")).isEqualTo("newId1");
+    assertThat(store.get("albumé")).isEqualTo(Arrays.asList("a", "b"));
+    assertThat(store.containsKey("nothing")).isTrue();
+    assertThat(store.get("nothing")).isNull();
+    assertThat(store.containsKey("photo2")).isFalse();
+  }
+
+  @Test
+  public void growsPastTableAndPageSizes() throws Exception {
+    CompactKnownValuesStore store = new CompactKnownValuesStore(false);
+    String padding = Strings.repeat("x", 200);
+    for (int i = 0; i < 10_000; i++) {
+      store.put("id" + i, padding + i);
+    }
+    // Larger than a page on its own
+    store.put("large", Strings.repeat("y", 2 << 20));
+
+    assertThat(store.size()).isEqualTo(10_001);
+    for (int i = 0; i < 10_000; i++) {
+      assertThat(store.get("id" + i)).isEqualTo(padding + i);
+    }
+    assertThat(((String) store.get("large")).length()).isEqualTo(2 << 20);
+  }
+
+  @Test
+  public void putReplacesValue() throws Exception {
+    CompactKnownValuesStore store = new CompactKnownValuesStore(true);
+    store.put("photo1", "first");
+    store.put("photo1", "second");
+
+    assertThat(store.size()).isEqualTo(1);
+    assertThat(store.get("photo1")).isEqualTo("second");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void getUnknownKeyThrows() {
+    new CompactKnownValuesStore(true).get("unknown");
+  }
+}
@@ -15,36 +15,66 @@
  */
 package org.datatransferproject.security.jwe;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.spi.transfer.security.TransferKeyGenerator;
 
-/** RSA-based implementation for {@link KeyPair} creation. */
+/**
+ * RSA-based implementation for {@link KeyPair} creation.
+ *
+ * <p>When given a pool size, key pairs are generated ahead of time on a background thread, so that
+ * claiming a job doesn't wait for one to be generated, whatever the key size. If the pool runs dry
+ * a key pair is generated on the calling thread instead.
+ */
 public class JWEKeyGenerator implements TransferKeyGenerator {
 
   static final String ALGORITHM = "RSA";
+  static final int DEFAULT_KEY_SIZE = 1024;
+
+  private static final ThreadFactory POOL_THREAD_FACTORY =
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("jwe-key-pool-%d").build();
+
   private final Monitor monitor;
+  private final int keySize;
+  private final BlockingQueue<KeyPair> pool;
 
   public JWEKeyGenerator(Monitor monitor) {
+    this(monitor, DEFAULT_KEY_SIZE, 0);
+  }
+
+  /**
+   * @param keySize the size of the generated RSA keys, in bits
+   * @param poolSize how many key pairs to keep generated ahead of time, or 0 to generate them when
+   *     asked
+   */
+  public JWEKeyGenerator(Monitor monitor, int keySize, int poolSize) {
     this.monitor = monitor;
+    this.keySize = keySize;
+    if (poolSize > 0) {
+      pool = new ArrayBlockingQueue<>(poolSize);
+      POOL_THREAD_FACTORY.newThread(this::fillPool).start();
+    } else {
+      pool = null;
+    }
   }
 
   @Override
   public WorkerKeyPair generate() {
     monitor.debug(() -> "JWEKeyGenerator generate");
-    KeyPairGenerator kpg = null;
-    try {
-      kpg = KeyPairGenerator.getInstance(ALGORITHM);
-    } catch (NoSuchAlgorithmException e) {
-      monitor.severe(() -> "NoSuchAlgorithmException for: " + ALGORITHM, e);
-      throw new RuntimeException("NoSuchAlgorithmException generating key", e);
-    }
-    kpg.initialize(1024);
-    KeyPair keyPair = kpg.genKeyPair();
-    monitor.debug(() -> "JWEKeyGenerator generated WorkerKeyPair");
+    KeyPair pooled = pool == null ? null : pool.poll();
+    KeyPair keyPair = pooled != null ? pooled : generateKeyPair();
+    monitor.debug(
+        () ->
+            pooled != null
+                ? "JWEKeyGenerator took WorkerKeyPair from the pool"
+                : "JWEKeyGenerator generated WorkerKeyPair");
     return new WorkerKeyPair() {
       @Override
       public String getInstanceId() {
@@ -62,4 +92,30 @@ public class JWEKeyGenerator implements TransferKeyGenerator {
       }
     };
   }
+
+  private void fillPool() {
+    try {
+      while (true) {
+        // Blocks while the pool is full, the next key pair is generated once one is taken.
+        pool.put(generateKeyPair());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      // generate() still works without the pool, and reports the error if it persists.
+      monitor.severe(() -> "JWEKeyGenerator stopped filling its key pool", e);
+    }
+  }
+
+  private KeyPair generateKeyPair() {
+    KeyPairGenerator kpg = null;
+    try {
+      kpg = KeyPairGenerator.getInstance(ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      monitor.severe(() -> "NoSuchAlgorithmException for: " + ALGORITHM, e);
+      throw new RuntimeException("NoSuchAlgorithmException generating key", e);
+    }
+    kpg.initialize(keySize);
+    return kpg.genKeyPair();
+  }
 }
@@ -28,11 +28,15 @@ import org.datatransferproject.spi.transfer.security.TransferKeyGenerator;
 public class JWESecurityExtension implements SecurityExtension {
   private TypeManager typeManager;
   private Monitor monitor;
+  private int transferKeySize;
+  private int transferKeyPoolSize;
 
   @Override
   public void initialize(ExtensionContext context) {
     typeManager = context.getTypeManager();
     monitor = context.getMonitor();
+    transferKeySize = context.getSetting("transferKeySize", JWEKeyGenerator.DEFAULT_KEY_SIZE);
+    transferKeyPoolSize = context.getSetting("transferKeyPoolSize", 2);
   }
 
   @Override
@@ -48,6 +52,6 @@ public class JWESecurityExtension implements SecurityExtension {
 
   @Override
   public TransferKeyGenerator getTransferKeyGenerator() {
-    return new JWEKeyGenerator(monitor);
+    return new JWEKeyGenerator(monitor, transferKeySize, transferKeyPoolSize);
   }
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.security.jwe;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.security.KeyFactory;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.spi.transfer.security.TransferKeyGenerator.WorkerKeyPair;
+import org.junit.Test;
+
+public class JWEKeyGeneratorTest {
+  private final Monitor monitor = new Monitor() {};
+
+  @Test
+  public void generatesKeysOfTheConfiguredSize() throws Exception {
+    JWEKeyGenerator generator = new JWEKeyGenerator(monitor, 2048, 0);
+
+    assertThat(keySize(generator.generate())).isEqualTo(2048);
+  }
+
+  @Test
+  public void pooledKeyPairsAreDistinct() throws Exception {
+    JWEKeyGenerator generator = new JWEKeyGenerator(monitor, 1024, 2);
+
+    // Draws more key pairs than the pool holds, so some come from the pool and some don't.
+    WorkerKeyPair first = generator.generate();
+    WorkerKeyPair second = generator.generate();
+    WorkerKeyPair third = generator.generate();
+
+    assertThat(keySize(first)).isEqualTo(1024);
+    assertThat(first.getEncodedPublicKey()).isNotEqualTo(second.getEncodedPublicKey());
+    assertThat(second.getEncodedPublicKey()).isNotEqualTo(third.getEncodedPublicKey());
+    assertThat(first.getEncodedPublicKey()).isNotEqualTo(third.getEncodedPublicKey());
+  }
+
+  private static int keySize(WorkerKeyPair keyPair) throws Exception {
+    RSAPublicKey publicKey =
+        (RSAPublicKey)
+            KeyFactory.getInstance(JWEKeyGenerator.ALGORITHM)
+                .generatePublic(new X509EncodedKeySpec(keyPair.getEncodedPublicKey()));
+    return publicKey.getModulus().bitLength();
+  }
+}
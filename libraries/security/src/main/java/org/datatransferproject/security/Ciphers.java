@@ -0,0 +1,75 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.security;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.EnumMap;
+import java.util.Map;
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+
+/**
+ * Thread-confined {@link Cipher} and {@link SecureRandom} instances for {@link EncrypterImpl} and
+ * {@link DecrypterImpl}, so that they aren't looked up again from the security providers on every
+ * call. A cached cipher must be initialized before each use, which resets whatever state it had.
+ */
+final class Ciphers {
+  private static final Map<CryptoTransformation, ThreadLocal<Cipher>> CIPHERS =
+      new EnumMap<>(CryptoTransformation.class);
+  private static final ThreadLocal<SecureRandom> RANDOM = new ThreadLocal<>();
+
+  static {
+    for (CryptoTransformation transformation : CryptoTransformation.values()) {
+      CIPHERS.put(transformation, new ThreadLocal<>());
+    }
+  }
+
+  private Ciphers() {}
+
+  /** Returns the cipher of the current thread for {@code transformation}. */
+  static Cipher get(CryptoTransformation transformation)
+      throws NoSuchAlgorithmException, NoSuchPaddingException {
+    ThreadLocal<Cipher> cached = CIPHERS.get(transformation);
+    Cipher cipher = cached.get();
+    if (cipher == null) {
+      cipher = Cipher.getInstance(algorithm(transformation));
+      cached.set(cipher);
+    }
+    return cipher;
+  }
+
+  /** Returns the {@link SecureRandom} of the current thread. */
+  static SecureRandom random() throws NoSuchAlgorithmException {
+    SecureRandom random = RANDOM.get();
+    if (random == null) {
+      random = SecureRandom.getInstance("SHA1PRNG");
+      RANDOM.set(random);
+    }
+    return random;
+  }
+
+  private static String algorithm(CryptoTransformation transformation) {
+    switch (transformation) {
+      case AES_CBC_NOPADDING:
+        return "AES/CBC/NoPadding";
+      case RSA_ECB_PKCS1:
+        return "RSA/ECB/PKCS1Padding";
+      default:
+        throw new AssertionError("How could this happen...");
+    }
+  }
+}
@@ -23,7 +23,6 @@ import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.Key;
 import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
@@ -50,14 +49,12 @@ final class DecrypterImpl implements Decrypter {
   public String decrypt(String encrypted) {
     try {
       byte[] decoded = BaseEncoding.base64Url().decode(encrypted);
-      Cipher cipher;
+      Cipher cipher = Ciphers.get(transformation);
       switch (transformation) {
         case AES_CBC_NOPADDING:
-          cipher = Cipher.getInstance("AES/CBC/NoPadding");
           cipher.init(Cipher.DECRYPT_MODE, key, generateIv(cipher));
           break;
         case RSA_ECB_PKCS1:
-          cipher = Cipher.getInstance("RSA/ECB/PKCS1Padding");
           cipher.init(Cipher.DECRYPT_MODE, key);
           break;
         default:
@@ -82,9 +79,8 @@ final class DecrypterImpl implements Decrypter {
   }
 
   private static final IvParameterSpec generateIv(Cipher cipher) throws NoSuchAlgorithmException {
-    SecureRandom randomSecureRandom = SecureRandom.getInstance("SHA1PRNG");
     byte[] iv = new byte[cipher.getBlockSize()];
-    randomSecureRandom.nextBytes(iv);
+    Ciphers.random().nextBytes(iv);
     return new IvParameterSpec(iv);
   }
 }
\ No newline at end of file
@@ -23,7 +23,6 @@ import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.Key;
 import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
@@ -51,14 +50,12 @@ final class EncrypterImpl implements Encrypter {
   @Override
   public String encrypt(String data) {
     try {
-      Cipher cipher;
+      Cipher cipher = Ciphers.get(transformation);
       switch (transformation) {
         case AES_CBC_NOPADDING:
-          cipher = Cipher.getInstance("AES/CBC/NoPadding");
           cipher.init(Cipher.ENCRYPT_MODE, key, generateIv(cipher));
           break;
         case RSA_ECB_PKCS1:
-          cipher = Cipher.getInstance("RSA/ECB/PKCS1Padding");
           cipher.init(Cipher.ENCRYPT_MODE, key);
           break;
         default:
@@ -67,8 +64,7 @@ final class EncrypterImpl implements Encrypter {
       // we use a salt the size of the first block
       // so that we don't need to know IV for AES/CBC
       byte[] salt = new byte[cipher.getBlockSize()];
-      SecureRandom random = SecureRandom.getInstance("SHA1PRNG");
-      random.nextBytes(salt);
+      Ciphers.random().nextBytes(salt);
       byte[] encryptedSalt = cipher.update(salt);
       byte[] encryptedData = cipher.doFinal(data.getBytes(UTF_8));
       byte[] encrypted = new byte[encryptedSalt.length + encryptedData.length];
@@ -87,9 +83,8 @@ final class EncrypterImpl implements Encrypter {
   }
 
   private static final IvParameterSpec generateIv(Cipher cipher) throws NoSuchAlgorithmException {
-    SecureRandom randomSecureRandom = SecureRandom.getInstance("SHA1PRNG");
     byte[] iv = new byte[cipher.getBlockSize()];
-    randomSecureRandom.nextBytes(iv);
+    Ciphers.random().nextBytes(iv);
     return new IvParameterSpec(iv);
   }
 }
\ No newline at end of file
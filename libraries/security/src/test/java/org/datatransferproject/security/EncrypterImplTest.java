@@ -0,0 +1,55 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.security;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import javax.crypto.SecretKey;
+import org.datatransferproject.api.launcher.Monitor;
+import org.junit.Test;
+
+public class EncrypterImplTest {
+  private final Monitor monitor = new Monitor() {};
+
+  @Test
+  public void aesRoundTripsWithReusedCiphers() {
+    SecretKey key = new AesSymmetricKeyGenerator(monitor).generate();
+    Encrypter encrypter = new EncrypterFactory(monitor).create(key);
+    Decrypter decrypter = new DecrypterFactory(monitor).create(key);
+
+    String first = encrypter.encrypt("sixteen byte str");
+    String second = encrypter.encrypt("sixteen byte str");
+
+    assertThat(first).isNotEqualTo(second);
+    assertThat(decrypter.decrypt(first)).isEqualTo("sixteen byte str");
+    assertThat(decrypter.decrypt(second)).isEqualTo("sixteen byte str");
+  }
+
+  @Test
+  public void reusedCipherIsReinitializedForEachKey() {
+    AesSymmetricKeyGenerator generator = new AesSymmetricKeyGenerator(monitor);
+    SecretKey firstKey = generator.generate();
+    SecretKey secondKey = generator.generate();
+
+    String first = new EncrypterFactory(monitor).create(firstKey).encrypt("sixteen byte str");
+    String second = new EncrypterFactory(monitor).create(secondKey).encrypt("sixteen byte str");
+
+    assertThat(new DecrypterFactory(monitor).create(firstKey).decrypt(first))
+        .isEqualTo("sixteen byte str");
+    assertThat(new DecrypterFactory(monitor).create(secondKey).decrypt(second))
+        .isEqualTo("sixteen byte str");
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.spi.cloud.storage;
+
+import java.util.UUID;
+
+/**
+ * Notifies transfer workers of changes to jobs in a {@link JobStore} as they happen, so that they
+ * don't have to poll the store to notice them.
+ *
+ * <p>Delivery is best effort: events may be lost, so workers keep polling the store as a fallback,
+ * just less often. An event only tells a worker to look at the job in the store, it's never acted
+ * on without reading the job.
+ */
+public interface JobEventChannel {
+
+  /** Receives the events of a {@link JobEventChannel}. */
+  interface Listener {
+
+    /**
+     * Called when the job matching {@code jobId} is available for transfer workers to claim, i.e.
+     * its credentials are available.
+     */
+    default void onJobAvailable(UUID jobId) {}
+
+    /** Called when the job matching {@code jobId} was canceled. */
+    default void onJobCanceled(UUID jobId) {}
+  }
+
+  /** A registration of a {@link Listener}, which stops receiving events once closed. */
+  interface Subscription extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  /**
+   * Delivers the events of this channel to {@code listener} until the returned subscription is
+   * closed. Listeners may be called on any thread and should return quickly.
+   */
+  Subscription subscribe(Listener listener);
+}
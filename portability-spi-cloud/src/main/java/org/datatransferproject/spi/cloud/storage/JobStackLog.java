@@ -0,0 +1,209 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.spi.cloud.storage;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Stack;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.datatransferproject.types.common.ExportInformation;
+
+/**
+ * Checkpoints the export stack of jobs for {@link JobStore#storeJobStack} and {@link
+ * JobStore#loadJobStack} as an append-only log.
+ *
+ * <p>Each checkpoint appends a single {@link Record} holding how many entries were popped off the
+ * last checkpointed stack and which were pushed onto it, so what is written doesn't depend on how
+ * deep the stack is. Once the entries logged since the last snapshot outnumber the entries on the
+ * stack, a snapshot of the whole stack is written instead and the records before it are removed,
+ * which keeps both the log and the cost of replaying it bounded.
+ *
+ * <p>The stack last checkpointed for each job is kept in memory to compute the changes until the
+ * job finishes, and is recovered by replaying the log when a job is resumed.
+ */
+public final class JobStackLog {
+  // Don't snapshot stacks smaller than this more often than every this many logged entries.
+  private static final int MIN_ENTRIES_BETWEEN_SNAPSHOTS = 64;
+
+  /** Where a job store keeps the records of the log of each job. */
+  public interface Storage {
+    /** Appends {@code record} to the log of {@code jobId}. */
+    void append(UUID jobId, Record record) throws IOException;
+
+    /** Returns the records in the log of {@code jobId}, in any order. */
+    List<Record> read(UUID jobId) throws IOException;
+
+    /**
+     * Removes the records in the log of {@code jobId} with a sequence number below {@code
+     * sequence}.
+     */
+    void truncate(UUID jobId, long sequence) throws IOException;
+  }
+
+  private final Storage storage;
+  private final ConcurrentHashMap<UUID, JobState> jobStates = new ConcurrentHashMap<>();
+
+  public JobStackLog(Storage storage) {
+    this.storage = storage;
+  }
+
+  /** Returns the stack last checkpointed for {@code jobId}, or empty if there is none. */
+  public Optional<Stack<ExportInformation>> load(UUID jobId) throws IOException {
+    JobState state = recover(jobId);
+    jobStates.put(jobId, state);
+    if (state.nextSequence == 1) {
+      return Optional.empty();
+    }
+    Stack<ExportInformation> stack = new Stack<>();
+    stack.addAll(state.stack);
+    return Optional.of(stack);
+  }
+
+  /** Checkpoints {@code stack} as the export stack of {@code jobId}. */
+  public void store(UUID jobId, Stack<ExportInformation> stack) throws IOException {
+    JobState state = jobStates.get(jobId);
+    if (state == null) {
+      state = recover(jobId);
+      jobStates.put(jobId, state);
+    }
+    synchronized (state) {
+      // Entries below the top are the same instances as last time, as the stack only changes at
+      // the top. Nothing is kept from the stack itself, which the caller goes on modifying.
+      int common = 0;
+      int maxCommon = Math.min(state.stack.size(), stack.size());
+      while (common < maxCommon && state.stack.get(common) == stack.get(common)) {
+        common++;
+      }
+      int popped = state.stack.size() - common;
+      List<ExportInformation> pushed = new ArrayList<>(stack.subList(common, stack.size()));
+
+      if (popped > 0 || !pushed.isEmpty() || state.nextSequence == 1) {
+        long sequence = state.nextSequence;
+        int loggedEntries = state.entriesSinceSnapshot + popped + pushed.size();
+        if (loggedEntries > Math.max(MIN_ENTRIES_BETWEEN_SNAPSHOTS, stack.size())) {
+          storage.append(jobId, new Record(sequence, true, 0, new ArrayList<>(stack)));
+          state.apply(sequence, popped, pushed);
+          state.entriesSinceSnapshot = 0;
+          storage.truncate(jobId, sequence);
+        } else {
+          storage.append(jobId, new Record(sequence, false, popped, pushed));
+          state.apply(sequence, popped, pushed);
+          state.entriesSinceSnapshot = loggedEntries;
+        }
+      }
+    }
+    if (stack.isEmpty()) {
+      // The job is done, it doesn't need to be tracked anymore.
+      jobStates.remove(jobId);
+    }
+  }
+
+  /**
+   * Stops tracking the stack of {@code jobId} in memory, called when the job finishes. Its log is
+   * kept, so the job can still be resumed.
+   */
+  public void forget(UUID jobId) {
+    jobStates.remove(jobId);
+  }
+
+  /** Stops tracking the stack of {@code jobId} and deletes its log. */
+  public void delete(UUID jobId) throws IOException {
+    jobStates.remove(jobId);
+    storage.truncate(jobId, Long.MAX_VALUE);
+  }
+
+  private JobState recover(UUID jobId) throws IOException {
+    List<Record> records = new ArrayList<>(storage.read(jobId));
+    records.sort(Comparator.comparingLong(Record::getSequence));
+    int start = 0;
+    for (int i = 0; i < records.size(); i++) {
+      if (records.get(i).isSnapshot()) {
+        start = i;
+      }
+    }
+    JobState state = new JobState();
+    for (Record record : records.subList(start, records.size())) {
+      if (record.isSnapshot()) {
+        state.stack.clear();
+        state.entriesSinceSnapshot = 0;
+      } else {
+        state.entriesSinceSnapshot += record.getPopped() + record.getPushed().size();
+      }
+      state.apply(record.getSequence(), record.getPopped(), record.getPushed());
+    }
+    return state;
+  }
+
+  /** A change to the export stack of a job, or a snapshot of the whole stack. */
+  public static final class Record {
+    private final long sequence;
+    private final boolean snapshot;
+    private final int popped;
+    private final List<ExportInformation> pushed;
+
+    @JsonCreator
+    public Record(
+        @JsonProperty("sequence") long sequence,
+        @JsonProperty("snapshot") boolean snapshot,
+        @JsonProperty("popped") int popped,
+        @JsonProperty("pushed") List<ExportInformation> pushed) {
+      this.sequence = sequence;
+      this.snapshot = snapshot;
+      this.popped = popped;
+      this.pushed = pushed == null ? Collections.emptyList() : pushed;
+    }
+
+    /** The position of the record in the log of its job, starting at 1. */
+    public long getSequence() {
+      return sequence;
+    }
+
+    /** Whether the record holds the whole stack rather than a change to the previous one. */
+    public boolean isSnapshot() {
+      return snapshot;
+    }
+
+    /** How many entries were popped off the top of the previous stack. */
+    public int getPopped() {
+      return popped;
+    }
+
+    /** The entries pushed onto the stack after popping, from bottom to top. */
+    public List<ExportInformation> getPushed() {
+      return pushed;
+    }
+  }
+
+  private static final class JobState {
+    // The stack as last checkpointed, from bottom to top.
+    private final List<ExportInformation> stack = new ArrayList<>();
+    private long nextSequence = 1;
+    private int entriesSinceSnapshot;
+
+    private void apply(long sequence, int popped, List<ExportInformation> pushed) {
+      stack.subList(stack.size() - popped, stack.size()).clear();
+      stack.addAll(pushed);
+      nextSequence = sequence + 1;
+    }
+  }
+}
@@ -1,7 +1,11 @@
 package org.datatransferproject.spi.cloud.storage;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Stack;
@@ -32,7 +36,8 @@ public interface JobStore extends TemporaryPerJobDataStore {
   /**
    * Called by a transfer worker to claim the job matching {@code jobId}, and updates the entry to
    * {@code job} to set the new state and auth public key. This should be atomic and not allow
-   * multiple workers to claim the same job.
+   * multiple workers to claim the same job. A job that was claimed before may be claimed again if
+   * its lease expired before its credentials were stored.
    *
    * @throws IOException if a job didn't already exist for {@code jobId} or there was a problem
    *     updating it
@@ -40,6 +45,17 @@ public interface JobStore extends TemporaryPerJobDataStore {
    */
   void claimJob(UUID jobId, PortabilityJob job) throws IOException;
 
+  /**
+   * Extends the lease the transfer worker {@code instanceId} holds on the job matching {@code
+   * jobId} to {@code leaseExpiration}.
+   *
+   * @throws IOException if a job didn't already exist for {@code jobId} or there was a problem
+   *     updating it
+   * @throws IllegalStateException if the job changed since it was read or isn't claimed by {@code
+   *     instanceId} anymore
+   */
+  void renewJobLease(UUID jobId, String instanceId, Instant leaseExpiration) throws IOException;
+
   /**
    * Update the jobs auth state to {@code JobAuthorization.State.CREDS_AVAILABLE} in the store. This
    * indicates to the pool of workers that this job is available for processing.
@@ -112,6 +128,44 @@ public interface JobStore extends TemporaryPerJobDataStore {
    */
   UUID findFirst(JobAuthorization.State jobState);
 
+  /**
+   * Gets the IDs of up to {@code limit} {@link PortabilityJob}s in state {@code jobState} in the
+   * store, for a transfer worker to try to claim in the order given. Implementations should pick
+   * the candidates from a random position in the store, wrapping around to its start, and return
+   * them in a different order for every call, so that workers polling at the same time try to
+   * claim different jobs rather than all racing for the first ones.
+   */
+  default List<UUID> findClaimCandidates(JobAuthorization.State jobState, int limit) {
+    UUID jobId = findFirst(jobState);
+    return jobId == null ? Collections.emptyList() : Collections.singletonList(jobId);
+  }
+
+  /**
+   * Gets the IDs of up to {@code limit} {@link PortabilityJob}s in state {@code
+   * CREDS_ENCRYPTION_KEY_GENERATED} whose lease expired before {@code now}, for a transfer worker
+   * to claim in place of the worker that let the lease expire. Implementations should filter on
+   * the lease expiration in the store, so that jobs with live leases don't hide expired ones.
+   */
+  default List<UUID> findExpiredLeaseCandidates(Instant now, int limit) {
+    List<UUID> candidates = new ArrayList<>();
+    for (UUID jobId :
+        findClaimCandidates(JobAuthorization.State.CREDS_ENCRYPTION_KEY_GENERATED, limit)) {
+      PortabilityJob job = findJob(jobId);
+      if (job != null && job.isClaimable(now)) {
+        candidates.add(jobId);
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * Returns the channel that notifies transfer workers of changes to jobs in this store as they
+   * happen, or empty if the store doesn't support notifications and workers should only poll it.
+   */
+  default Optional<JobEventChannel> getJobEventChannel() {
+    return Optional.empty();
+  }
+
   /**
    * Updates the counter data.
    *
@@ -150,7 +204,14 @@ public interface JobStore extends TemporaryPerJobDataStore {
 
   /**
    * Stores a stack of export information associated with the remaining copy iterations left in a job
-   * transfer.
+   * transfer. The caller keeps modifying the stack after the call, so whatever has to be kept is
+   * copied.
    */
   default void storeJobStack(UUID jobId, Stack<ExportInformation> stack) {}
+
+  /**
+   * Releases the stack of export information of a job, called when the job is finished. The stack
+   * stored for a completed job is deleted, since there is nothing left to resume.
+   */
+  default void releaseJobStack(UUID jobId, boolean completed) {}
 }
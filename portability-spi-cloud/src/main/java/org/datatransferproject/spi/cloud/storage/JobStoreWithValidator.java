@@ -7,6 +7,8 @@ import static org.datatransferproject.spi.cloud.types.JobAuthorization.State.CRE
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import java.io.IOException;
+import java.time.Instant;
+import java.util.Objects;
 import java.util.UUID;
 import org.datatransferproject.spi.cloud.types.JobAuthorization;
 import org.datatransferproject.spi.cloud.types.PortabilityJob;
@@ -16,9 +18,33 @@ public abstract class JobStoreWithValidator implements JobStore {
 
   @Override
   public void claimJob(UUID jobId, PortabilityJob job) throws IOException {
-    updateJob(jobId, job, (previous, updated) ->
-        Preconditions.checkState(
-            previous.jobAuthorization().state() == JobAuthorization.State.CREDS_AVAILABLE));
+    updateJob(jobId, job, (previous, updated) -> {
+      Preconditions.checkState(previous.isClaimable(Instant.now()));
+      // A public key is only published again once the lease of the worker that published it
+      // expired.
+      Preconditions.checkState(
+          previous.jobAuthorization().state() != CREDS_AVAILABLE
+              || previous.jobAuthorization().authPublicKey() == null);
+    });
+  }
+
+  @Override
+  public void renewJobLease(UUID jobId, String instanceId, Instant leaseExpiration)
+      throws IOException {
+    PortabilityJob existingJob = findJob(jobId);
+    if (existingJob == null) {
+      throw new IOException("Could not find record for jobId: " + jobId);
+    }
+    updateJob(
+        jobId,
+        existingJob.toBuilder().setLeaseExpiration(leaseExpiration).build(),
+        ((previous, updated) -> {
+          Preconditions.checkState(instanceId.equals(previous.jobAuthorization().instanceId()));
+          // Don't overwrite changes made since the job was read, e.g. the stored credentials.
+          Preconditions.checkState(previous.state() == existingJob.state());
+          Preconditions.checkState(
+              previous.jobAuthorization().equals(existingJob.jobAuthorization()));
+        }));
   }
 
   @Override
@@ -58,6 +84,20 @@ public abstract class JobStoreWithValidator implements JobStore {
           Preconditions.checkState(
               previous.jobAuthorization().state() == CREDS_ENCRYPTION_KEY_GENERATED);
           Preconditions.checkState(updated.jobAuthorization().state() == CREDS_STORED);
+          // The creds are encrypted for the worker that claimed the job when it was read. If its
+          // lease expired and another worker claimed the job since, they can't be decrypted.
+          Preconditions.checkState(
+              Objects.equals(
+                  previous.jobAuthorization().instanceId(),
+                  updated.jobAuthorization().instanceId()),
+              "Job %s was claimed by another transfer worker",
+              jobId);
+          Preconditions.checkState(
+              Objects.equals(
+                  previous.jobAuthorization().authPublicKey(),
+                  updated.jobAuthorization().authPublicKey()),
+              "Job %s was claimed by another transfer worker",
+              jobId);
         }));
   }
 
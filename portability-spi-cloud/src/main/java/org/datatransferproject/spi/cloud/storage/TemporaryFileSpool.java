@@ -0,0 +1,361 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.spi.cloud.storage;
+
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Spools content to temporary files for the jobs of a worker, for uploads that need a file rather
+ * than a stream.
+ *
+ * <p>Each job gets its own directory. A {@link SpooledFile} is deleted as soon as every holder has
+ * closed it, and whatever a job leaves behind is deleted when the job is released with {@link
+ * #releaseJob}. The spooled bytes of all jobs are bounded by a quota: spooling a file waits for
+ * other files to be released when the quota is reached before the file holds any of it, and fails
+ * if none are released in time. A file that already holds part of the quota fails right away
+ * instead, so that files being spooled never wait for each other while holding quota.
+ */
+public final class TemporaryFileSpool {
+  // The most bytes reserved against the quota, and copied, at a time.
+  private static final long TRANSFER_CHUNK_BYTES = 1 << 20;
+  private static final long QUOTA_WAIT_MILLIS = TimeUnit.MINUTES.toMillis(1);
+  private static final Pattern UNSAFE_NAME_CHARACTERS = Pattern.compile("[^A-Za-z0-9._-]");
+  private static final int MAX_NAME_PART_LENGTH = 64;
+  private static final String UNOWNED_DIRECTORY = "unowned";
+
+  private final Path root;
+  private volatile long maxBytes;
+  // Guarded by this.
+  private final Map<UUID, Set<SpooledFile>> filesByJob = new HashMap<>();
+  private long usedBytes;
+
+  /**
+   * @param root the directory to spool files to
+   * @param maxBytes the most bytes spooled at once, or zero for no limit
+   */
+  public TemporaryFileSpool(Path root, long maxBytes) {
+    this.root = root;
+    setMaxBytes(maxBytes);
+  }
+
+  /**
+   * Returns the spool of this worker, in a temporary directory that is deleted when the JVM exits.
+   */
+  public static TemporaryFileSpool getDefault() {
+    return DefaultSpoolHolder.DEFAULT_SPOOL;
+  }
+
+  /** Sets the most bytes spooled at once, or zero for no limit. */
+  public void setMaxBytes(long maxBytes) {
+    if (maxBytes < 0) {
+      throw new IllegalArgumentException("maxBytes must not be negative: " + maxBytes);
+    }
+    this.maxBytes = maxBytes;
+  }
+
+  /** Returns the bytes currently spooled for all jobs. */
+  public synchronized long getUsedBytes() {
+    return usedBytes;
+  }
+
+  /**
+   * Copies {@code inputStream} to a new file of the job. The caller must close the returned file
+   * once it is done with it.
+   */
+  public SpooledFile spool(UUID jobId, InputStream inputStream, String prefix, String suffix)
+      throws IOException {
+    Path jobDirectory = Files.createDirectories(root.resolve(jobId.toString()));
+    SpooledFile file =
+        new SpooledFile(
+            this,
+            jobId,
+            Files.createTempFile(jobDirectory, safeNamePart(prefix), safeNamePart(suffix)));
+    synchronized (this) {
+      filesByJob.computeIfAbsent(jobId, id -> new LinkedHashSet<>()).add(file);
+    }
+    boolean spooled = false;
+    try {
+      copy(inputStream, file);
+      spooled = true;
+      return file;
+    } finally {
+      if (!spooled) {
+        file.close();
+      }
+    }
+  }
+
+  /**
+   * Copies {@code inputStream} to a file that belongs to no job, isn't counted against the quota
+   * and is only deleted with the spool, for callers that don't release their files.
+   */
+  File spoolUnowned(InputStream inputStream, String prefix, String suffix) throws IOException {
+    Path directory = Files.createDirectories(root.resolve(UNOWNED_DIRECTORY));
+    Path path = Files.createTempFile(directory, safeNamePart(prefix), safeNamePart(suffix));
+    try (FileChannel channel = FileChannel.open(path, WRITE)) {
+      ReadableByteChannel source = Channels.newChannel(inputStream);
+      long position = 0;
+      long transferred;
+      do {
+        transferred = channel.transferFrom(source, position, TRANSFER_CHUNK_BYTES);
+        position += transferred;
+      } while (transferred == TRANSFER_CHUNK_BYTES);
+    }
+    return path.toFile();
+  }
+
+  /** Deletes every file of the job, whether or not it was closed, and the job's directory. */
+  public void releaseJob(UUID jobId) {
+    Set<SpooledFile> files;
+    synchronized (this) {
+      files = filesByJob.remove(jobId);
+      if (files != null) {
+        for (SpooledFile file : files) {
+          usedBytes -= file.bytes;
+          file.bytes = 0;
+        }
+        notifyAll();
+      }
+    }
+    if (files != null) {
+      files.forEach(SpooledFile::delete);
+    }
+    deleteRecursively(root.resolve(jobId.toString()));
+  }
+
+  private void copy(InputStream inputStream, SpooledFile file) throws IOException {
+    // transferFrom copies through a direct buffer the JDK caches per thread, so this allocates no
+    // buffer per file.
+    try (FileChannel channel = FileChannel.open(file.path, WRITE)) {
+      ReadableByteChannel source = Channels.newChannel(inputStream);
+      long position = 0;
+      while (true) {
+        long reserved = reserve(file);
+        if (reserved == 0) {
+          // The file takes the whole quota, which is only fine if the stream is at its end.
+          if (channel.transferFrom(source, position, 1) > 0) {
+            throw new IOException(
+                "Spooling " + file.path + " needs more than the spool quota of " + maxBytes
+                    + " bytes");
+          }
+          return;
+        }
+        long transferred = channel.transferFrom(source, position, reserved);
+        position += transferred;
+        unreserve(file, reserved - transferred);
+        if (transferred < reserved) {
+          // A blocking source only transfers less than asked for at its end.
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Reserves the bytes of the next chunk of the file against the quota and returns how many were
+   * reserved, or zero if the file already takes the whole quota. Only waits for other files to be
+   * released if the file holds none of the quota yet, and fails otherwise.
+   */
+  private synchronized long reserve(SpooledFile file) throws IOException {
+    long deadline = System.currentTimeMillis() + QUOTA_WAIT_MILLIS;
+    while (true) {
+      if (!isSpooled(file)) {
+        throw new IOException("The job of " + file.path + " was released while spooling it");
+      }
+      long limit = maxBytes;
+      long bytes =
+          limit == 0 ? TRANSFER_CHUNK_BYTES : Math.min(TRANSFER_CHUNK_BYTES, limit - file.bytes);
+      if (bytes <= 0) {
+        return 0;
+      }
+      if (limit == 0 || usedBytes + bytes <= limit) {
+        file.bytes += bytes;
+        usedBytes += bytes;
+        return bytes;
+      }
+      if (file.bytes > 0) {
+        // Waiting while holding quota could deadlock with the other files doing the same. The
+        // caller closes the file on failure, which gives its quota back.
+        throw new IOException(
+            "Spool quota of " + limit + " bytes is in use by other files, " + file.path
+                + " already holds " + file.bytes + " bytes of it");
+      }
+      long remainingMillis = deadline - System.currentTimeMillis();
+      if (remainingMillis <= 0) {
+        throw new IOException(
+            "Spool quota of " + limit + " bytes still in use after " + QUOTA_WAIT_MILLIS + "ms");
+      }
+      try {
+        wait(remainingMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for spool quota", e);
+      }
+    }
+  }
+
+  private synchronized void unreserve(SpooledFile file, long bytes) {
+    if (bytes > 0 && isSpooled(file)) {
+      file.bytes -= bytes;
+      usedBytes -= bytes;
+      notifyAll();
+    }
+  }
+
+  private void release(SpooledFile file) {
+    synchronized (this) {
+      Set<SpooledFile> files = filesByJob.get(file.jobId);
+      if (files != null && files.remove(file)) {
+        usedBytes -= file.bytes;
+        file.bytes = 0;
+        if (files.isEmpty()) {
+          filesByJob.remove(file.jobId);
+        }
+        notifyAll();
+      }
+    }
+    file.delete();
+  }
+
+  private boolean isSpooled(SpooledFile file) {
+    Set<SpooledFile> files = filesByJob.get(file.jobId);
+    return files != null && files.contains(file);
+  }
+
+  private static String safeNamePart(String namePart) {
+    if (namePart == null) {
+      return null;
+    }
+    String safe = UNSAFE_NAME_CHARACTERS.matcher(namePart).replaceAll("_");
+    return safe.length() > MAX_NAME_PART_LENGTH ? safe.substring(0, MAX_NAME_PART_LENGTH) : safe;
+  }
+
+  private static void deleteRecursively(Path directory) {
+    if (!Files.exists(directory)) {
+      return;
+    }
+    List<Path> paths = new ArrayList<>();
+    try (Stream<Path> walk = Files.walk(directory)) {
+      walk.sorted(Comparator.reverseOrder()).forEach(paths::add);
+    } catch (IOException | UncheckedIOException e) {
+      // Best effort, delete what was listed.
+    }
+    for (Path path : paths) {
+      try {
+        Files.deleteIfExists(path);
+      } catch (IOException e) {
+        // Best effort, the file may still be open on some platforms.
+      }
+    }
+  }
+
+  private static final class DefaultSpoolHolder {
+    private static final TemporaryFileSpool DEFAULT_SPOOL = createDefaultSpool();
+
+    private static TemporaryFileSpool createDefaultSpool() {
+      Path root;
+      try {
+        root = Files.createTempDirectory("dtp-spool-");
+      } catch (IOException e) {
+        throw new UncheckedIOException("Unable to create the temporary file spool", e);
+      }
+      // A single hook for the whole spool, rather than a deleteOnExit entry per file.
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> deleteRecursively(root)));
+      return new TemporaryFileSpool(root, 0);
+    }
+  }
+
+  /**
+   * A file spooled for a job. It is deleted once closed by the caller of {@link #spool} and by
+   * every holder that {@link #retain retained} it.
+   */
+  public static final class SpooledFile implements Closeable {
+    private final TemporaryFileSpool spool;
+    private final UUID jobId;
+    private final Path path;
+    private final AtomicInteger references = new AtomicInteger(1);
+    // Bytes counted against the quota, guarded by the spool.
+    private long bytes;
+
+    private SpooledFile(TemporaryFileSpool spool, UUID jobId, Path path) {
+      this.spool = spool;
+      this.jobId = jobId;
+      this.path = path;
+    }
+
+    public File getFile() {
+      return path.toFile();
+    }
+
+    /** Adds a holder of this file, which must close it once done with it. */
+    public SpooledFile retain() {
+      int count;
+      do {
+        count = references.get();
+        if (count == 0) {
+          throw new IllegalStateException(path + " was already released");
+        }
+      } while (!references.compareAndSet(count, count + 1));
+      return this;
+    }
+
+    /** Releases this holder's reference, deleting the file if it was the last one. */
+    @Override
+    public void close() {
+      int count;
+      do {
+        count = references.get();
+        if (count == 0) {
+          return;
+        }
+      } while (!references.compareAndSet(count, count - 1));
+      if (count == 1) {
+        spool.release(this);
+      }
+    }
+
+    private void delete() {
+      try {
+        Files.deleteIfExists(path);
+      } catch (IOException e) {
+        // Best effort, whatever is left is deleted with the job's directory.
+      }
+    }
+  }
+}
@@ -3,9 +3,8 @@ package org.datatransferproject.spi.cloud.storage;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
 import java.util.UUID;
+import org.datatransferproject.spi.cloud.storage.TemporaryFileSpool.SpooledFile;
 import org.datatransferproject.types.common.models.DataModel;
 
 /**
@@ -43,12 +42,29 @@ public interface TemporaryPerJobDataStore {
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Copies the stream to a temporary file of the job, which is deleted once closed by every holder
+   * or when the job is released with {@link #releaseTempFiles}.
+   */
+  default SpooledFile getTempFile(
+      UUID jobId, InputStream inputStream, String prefix, String suffix) throws IOException {
+    return TemporaryFileSpool.getDefault().spool(jobId, inputStream, prefix, suffix);
+  }
+
+  /** Deletes every temporary file of the job, called when the job is finished. */
+  default void releaseTempFiles(UUID jobId) {
+    TemporaryFileSpool.getDefault().releaseJob(jobId);
+  }
+
+  /**
+   * Copies the stream to a temporary file, which is only deleted when the JVM exits.
+   *
+   * @deprecated use {@link #getTempFile}, whose files are deleted as soon as they are released
+   */
+  @Deprecated
   default File getTempFileFromInputStream(InputStream inputStream, String prefix, String suffix)
       throws IOException {
-    File tmp = Files.createTempFile(prefix, suffix).toFile();
-    tmp.deleteOnExit();
-    Files.copy(inputStream, tmp.toPath(), StandardCopyOption.REPLACE_EXISTING);
-    return tmp;
+    return TemporaryFileSpool.getDefault().spoolUnowned(inputStream, prefix, suffix);
   }
 
   public class InputStreamWrapper {
@@ -41,6 +41,7 @@ public abstract class PortabilityJob {
   private static final String NUMBER_OF_FAILED_FILES_KEY = "NUM_FAILED_FILES";
   private static final String USER_TIMEZONE = "USER_TIMEZONE";
   private static final String USER_LOCALE = "USER_LOCALE";
+  private static final String LEASE_EXPIRATION = "LEASE_EXPIRATION";
 
   public static PortabilityJob.Builder builder() {
     Instant now = Instant.now();
@@ -94,6 +95,11 @@ public abstract class PortabilityJob {
     String userLocale =
         properties.containsKey(USER_LOCALE) ? (String) properties.get(USER_LOCALE) : null;
 
+    Instant leaseExpiration =
+        properties.containsKey(LEASE_EXPIRATION)
+            ? Instant.parse((String) properties.get(LEASE_EXPIRATION))
+            : null;
+
     return PortabilityJob.builder()
         .setState(state)
         .setExportService((String) properties.get(EXPORT_SERVICE_KEY))
@@ -117,6 +123,7 @@ public abstract class PortabilityJob {
                 .build())
         .setUserTimeZone(userTimeZone)
         .setUserLocale(userLocale)
+        .setLeaseExpiration(leaseExpiration)
         .build();
   }
 
@@ -171,8 +178,33 @@ public abstract class PortabilityJob {
   @JsonProperty("userLocale")
   public abstract String userLocale();
 
+  /**
+   * When the lease of the transfer worker that claimed the job expires, or null if the job isn't
+   * leased. A job whose lease expired before its credentials were stored may be claimed again.
+   */
+  @Nullable
+  @JsonProperty("leaseExpiration")
+  public abstract Instant leaseExpiration();
+
   public abstract PortabilityJob.Builder toBuilder();
 
+  /**
+   * Returns whether a transfer worker may claim the job at {@code now}: it's waiting for a worker,
+   * or the worker that claimed it let its lease expire before the credentials were stored.
+   */
+  public boolean isClaimable(Instant now) {
+    switch (jobAuthorization().state()) {
+      case CREDS_AVAILABLE:
+        return true;
+      case CREDS_ENCRYPTION_KEY_GENERATED:
+        return state() == State.NEW
+            && leaseExpiration() != null
+            && leaseExpiration().isBefore(now);
+      default:
+        return false;
+    }
+  }
+
   public Map<String, Object> toMap() {
     ImmutableMap.Builder<String, Object> builder =
         ImmutableMap.<String, Object>builder()
@@ -229,6 +261,10 @@ public abstract class PortabilityJob {
       builder.put(USER_LOCALE, userLocale());
     }
 
+    if (null != leaseExpiration()) {
+      builder.put(LEASE_EXPIRATION, leaseExpiration().toString());
+    }
+
     return builder.build();
   }
 
@@ -306,6 +342,10 @@ public abstract class PortabilityJob {
     @JsonProperty("userLocale")
     public abstract Builder setUserLocale(String locale);
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty("leaseExpiration")
+    public abstract Builder setLeaseExpiration(Instant leaseExpiration);
+
     // For internal use only; clients should use setAndValidateJobAuthorization
     protected abstract Builder setJobAuthorization(JobAuthorization jobAuthorization);
   }
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.spi.cloud.storage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Stack;
+import java.util.UUID;
+import org.datatransferproject.types.common.ExportInformation;
+import org.datatransferproject.types.common.models.IdOnlyContainerResource;
+import org.junit.Test;
+
+public class JobStackLogTest {
+  private static final UUID JOB_ID = UUID.randomUUID();
+
+  private final InMemoryStorage storage = new InMemoryStorage();
+  private final JobStackLog log = new JobStackLog(storage);
+
+  @Test
+  public void loadWithoutCheckpointIsEmpty() throws Exception {
+    assertThat(log.load(JOB_ID).isPresent()).isFalse();
+  }
+
+  @Test
+  public void checkpointsOnlyLogTheChanges() throws Exception {
+    Stack<ExportInformation> stack = new Stack<>();
+    for (int i = 0; i < 10; i++) {
+      stack.push(exportInfo("container-" + i));
+    }
+    log.store(JOB_ID, cloneOf(stack));
+
+    stack.pop();
+    stack.push(exportInfo("child-1"));
+    stack.push(exportInfo("child-2"));
+    log.store(JOB_ID, cloneOf(stack));
+
+    JobStackLog.Record last = storage.records.get(storage.records.size() - 1);
+    assertThat(last.isSnapshot()).isFalse();
+    assertThat(last.getPopped()).isEqualTo(1);
+    assertThat(last.getPushed()).containsExactly(exportInfo("child-1"), exportInfo("child-2"));
+    assertThat(new JobStackLog(storage).load(JOB_ID).get()).containsExactlyElementsIn(stack);
+  }
+
+  @Test
+  public void logIsCompactedAndReplaysToTheLastCheckpoint() throws Exception {
+    Stack<ExportInformation> stack = new Stack<>();
+    stack.push(exportInfo("root"));
+    for (int i = 0; i < 500; i++) {
+      stack.pop();
+      stack.push(exportInfo("page-" + i));
+      log.store(JOB_ID, cloneOf(stack));
+    }
+
+    assertThat(storage.records.size()).isLessThan(100);
+    assertThat(new JobStackLog(storage).load(JOB_ID).get()).containsExactly(exportInfo("page-499"));
+  }
+
+  @Test
+  public void resumedJobKeepsLogging() throws Exception {
+    Stack<ExportInformation> stack = new Stack<>();
+    stack.push(exportInfo("a"));
+    stack.push(exportInfo("b"));
+    log.store(JOB_ID, cloneOf(stack));
+
+    JobStackLog resumedLog = new JobStackLog(storage);
+    Stack<ExportInformation> resumed = resumedLog.load(JOB_ID).get();
+    resumed.pop();
+    resumedLog.store(JOB_ID, cloneOf(resumed));
+
+    assertThat(new JobStackLog(storage).load(JOB_ID).get()).containsExactly(exportInfo("a"));
+  }
+
+  @Test
+  public void forgottenJobIsResumedFromItsLog() throws Exception {
+    Stack<ExportInformation> stack = new Stack<>();
+    stack.push(exportInfo("a"));
+    stack.push(exportInfo("b"));
+    log.store(JOB_ID, cloneOf(stack));
+
+    log.forget(JOB_ID);
+    stack.pop();
+    log.store(JOB_ID, cloneOf(stack));
+
+    assertThat(new JobStackLog(storage).load(JOB_ID).get()).containsExactly(exportInfo("a"));
+  }
+
+  @Test
+  public void deletedJobHasNoLogLeft() throws Exception {
+    Stack<ExportInformation> stack = new Stack<>();
+    stack.push(exportInfo("a"));
+    log.store(JOB_ID, cloneOf(stack));
+
+    log.delete(JOB_ID);
+
+    assertThat(storage.records).isEmpty();
+    assertThat(log.load(JOB_ID).isPresent()).isFalse();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Stack<ExportInformation> cloneOf(Stack<ExportInformation> stack) {
+    return (Stack<ExportInformation>) stack.clone();
+  }
+
+  private static ExportInformation exportInfo(String id) {
+    return new ExportInformation(null, new IdOnlyContainerResource(id));
+  }
+
+  private static final class InMemoryStorage implements JobStackLog.Storage {
+    private final List<JobStackLog.Record> records = new ArrayList<>();
+
+    @Override
+    public void append(UUID jobId, JobStackLog.Record record) {
+      records.add(record);
+    }
+
+    @Override
+    public List<JobStackLog.Record> read(UUID jobId) {
+      return new ArrayList<>(records);
+    }
+
+    @Override
+    public void truncate(UUID jobId, long sequence) {
+      records.removeIf(record -> record.getSequence() < sequence);
+    }
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.spi.cloud.storage;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.UUID;
+import org.datatransferproject.spi.cloud.storage.TemporaryFileSpool.SpooledFile;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TemporaryFileSpoolTest {
+  private static final UUID JOB_ID = UUID.randomUUID();
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private TemporaryFileSpool spool;
+
+  @Before
+  public void setUp() {
+    spool = new TemporaryFileSpool(folder.getRoot().toPath(), 0);
+  }
+
+  @Test
+  public void fileIsDeletedOnceEveryHolderClosedIt() throws IOException {
+    SpooledFile spooledFile = spool.spool(JOB_ID, stream(3), "photo/with:slashes", ".jpg");
+    File file = spooledFile.getFile();
+    assertThat(Files.readAllBytes(file.toPath())).hasLength(3);
+    assertThat(spool.getUsedBytes()).isEqualTo(3);
+
+    spooledFile.retain();
+    spooledFile.close();
+    assertThat(file.exists()).isTrue();
+
+    spooledFile.close();
+    assertThat(file.exists()).isFalse();
+    assertThat(spool.getUsedBytes()).isEqualTo(0);
+  }
+
+  @Test
+  public void releaseJobDeletesItsFiles() throws IOException {
+    SpooledFile spooledFile = spool.spool(JOB_ID, stream(3), "video", ".mp4");
+    SpooledFile otherJobFile = spool.spool(UUID.randomUUID(), stream(5), "video", ".mp4");
+
+    spool.releaseJob(JOB_ID);
+
+    assertThat(spooledFile.getFile().exists()).isFalse();
+    assertThat(spooledFile.getFile().getParentFile().exists()).isFalse();
+    assertThat(otherJobFile.getFile().exists()).isTrue();
+    assertThat(spool.getUsedBytes()).isEqualTo(5);
+  }
+
+  @Test
+  public void fileLargerThanQuotaFails() throws IOException {
+    spool.setMaxBytes(4);
+    try (SpooledFile fits = spool.spool(JOB_ID, stream(4), "fits", ".bin")) {
+      assertThat(fits.getFile().length()).isEqualTo(4);
+    }
+
+    try {
+      spool.spool(JOB_ID, stream(5), "too-large", ".bin");
+      fail("Expected the file not to fit in the quota");
+    } catch (IOException expected) {
+      assertThat(spool.getUsedBytes()).isEqualTo(0);
+    }
+  }
+
+  @Test
+  public void spoolingWaitsForQuotaToBeReleased() throws Exception {
+    spool.setMaxBytes(4);
+    SpooledFile first = spool.spool(JOB_ID, stream(4), "first", ".bin");
+    Thread releaser =
+        new Thread(
+            () -> {
+              try {
+                Thread.sleep(100);
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              first.close();
+            });
+    releaser.start();
+
+    try (SpooledFile second = spool.spool(JOB_ID, stream(4), "second", ".bin")) {
+      assertThat(first.getFile().exists()).isFalse();
+      assertThat(second.getFile().length()).isEqualTo(4);
+    }
+    releaser.join();
+  }
+
+  @Test(timeout = 10_000)
+  public void fileHoldingQuotaFailsInsteadOfWaiting() throws Exception {
+    // Enough quota for the first chunk of the second file, but not for the rest of it.
+    spool.setMaxBytes((1 << 20) + 4);
+    try (SpooledFile first = spool.spool(JOB_ID, stream(4), "first", ".bin")) {
+      try {
+        spool.spool(JOB_ID, stream((1 << 20) + 1), "second", ".bin");
+        fail("Expected the second file not to wait for the quota held by the first one");
+      } catch (IOException expected) {
+        assertThat(spool.getUsedBytes()).isEqualTo(4);
+      }
+    }
+  }
+
+  private static ByteArrayInputStream stream(int length) {
+    return new ByteArrayInputStream(new byte[length]);
+  }
+}
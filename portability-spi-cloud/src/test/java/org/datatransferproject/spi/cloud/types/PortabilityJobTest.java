@@ -157,4 +157,31 @@ public class PortabilityJobTest {
     assertThat(deserializedJob.userLocale()).isEqualTo(userLocale);
     assertThat(deserializedJob).isEqualTo(job);
   }
+
+  @Test
+  public void verifyLeaseExpirationRoundTrips() throws Exception {
+    ObjectMapper objectMapper = ObjectMapperFactory.createObjectMapper();
+    Instant leaseExpiration = Instant.parse("2021-03-04T05:06:07.089Z");
+
+    PortabilityJob job =
+        PortabilityJob.builder()
+            .setState(State.NEW)
+            .setExportService("fooService")
+            .setImportService("barService")
+            .setTransferDataType("PHOTOS")
+            .setAndValidateJobAuthorization(
+                JobAuthorization.builder()
+                    .setState(JobAuthorization.State.CREDS_ENCRYPTION_KEY_GENERATED)
+                    .setAuthPublicKey("key")
+                    .build())
+            .setLeaseExpiration(leaseExpiration)
+            .build();
+
+    PortabilityJob deserializedJob =
+        objectMapper.readValue(objectMapper.writeValueAsString(job), PortabilityJob.class);
+    assertThat(deserializedJob.leaseExpiration()).isEqualTo(leaseExpiration);
+    assertThat(PortabilityJob.fromMap(job.toMap()).leaseExpiration()).isEqualTo(leaseExpiration);
+    assertThat(job.isClaimable(leaseExpiration.minusSeconds(1))).isFalse();
+    assertThat(job.isClaimable(leaseExpiration.plusSeconds(1))).isTrue();
+  }
 }
@@ -29,6 +29,10 @@ import java.util.concurrent.Callable;
  * A utility that will execute a {@link Callable} only once for a given {@code idempotentId}. This
  * allows client code to be called multiple times in the case of retries without worrying about
  * duplicating imported data.
+ *
+ * <p>Sibling containers of a job may be imported in parallel, so implementations have to be safe to
+ * share between threads, and only run one callable at a time for a given {@code idempotentId},
+ * e.g. with {@link InFlightImports}.
  */
 public interface IdempotentImportExecutor {
   /**
@@ -106,4 +110,14 @@ public interface IdempotentImportExecutor {
   /** Reset recent errors to empty set */
   default void resetRecentErrors() {}
 
+  /**
+   * Makes every result and error recorded so far durable. Executors that write results behind
+   * the import must have written them all by the time this returns. It is called before a page of
+   * imported data is acknowledged, and once more when the job is finished.
+   *
+   * @throws IOException if some results could not be written, they are kept to be written by the
+   *     next flush
+   */
+  default void flush() throws IOException {}
+
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.spi.transfer.idempotentexecutor;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
+
+/**
+ * The imports running in an {@link IdempotentImportExecutor}, so that only one thread at a time
+ * runs the import of a given idempotent id, and the others wait for its result.
+ */
+public final class InFlightImports {
+  // Completed once the result of the import is known, or the import failed.
+  private final Map<String, CompletableFuture<Void>> runningImports = new ConcurrentHashMap<>();
+
+  /**
+   * Reserves the import of {@code idempotentId} for the calling thread, waiting for the import of
+   * another thread to finish first. Returns null, without reserving anything, once {@code isKnown}
+   * reports that the result of the import is known.
+   *
+   * <p>The reservation has to be closed once the result is known or the import failed, which lets
+   * the waiting threads use the result or try the import again.
+   */
+  public Reservation reserve(String idempotentId, Predicate<String> isKnown)
+      throws InterruptedException {
+    Reservation reservation = new Reservation(idempotentId);
+    while (!isKnown.test(idempotentId)) {
+      CompletableFuture<Void> running =
+          runningImports.putIfAbsent(idempotentId, reservation.completion);
+      if (running == null) {
+        // The result is known before the import is removed, so checking again after reserving
+        // catches an import that finished between the check above and the reservation.
+        if (isKnown.test(idempotentId)) {
+          reservation.close();
+          return null;
+        }
+        return reservation;
+      }
+      try {
+        running.get();
+      } catch (ExecutionException e) {
+        // Never completed exceptionally; the result is checked again either way.
+      }
+    }
+    return null;
+  }
+
+  /** The reservation of the import of an idempotent id by a thread. */
+  public final class Reservation implements AutoCloseable {
+    private final String idempotentId;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    private Reservation(String idempotentId) {
+      this.idempotentId = idempotentId;
+    }
+
+    @Override
+    public void close() {
+      runningImports.remove(idempotentId, completion);
+      completion.complete(null);
+    }
+  }
+}
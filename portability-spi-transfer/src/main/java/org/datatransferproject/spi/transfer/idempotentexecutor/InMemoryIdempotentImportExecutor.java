@@ -29,15 +29,25 @@ import org.datatransferproject.types.transfer.errors.ErrorDetail;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
 
-/** A {@link IdempotentImportExecutor} that stores known values in memory. */
+/**
+ * A {@link IdempotentImportExecutor} that stores known values in memory.
+ *
+ * <p>Safe to share between threads importing sibling containers of the same job. Only one thread
+ * at a time runs the import of a given idempotent id, the others wait for its result. Recent errors
+ * are tracked per thread, so each import only sees the errors it caused.
+ */
 public class InMemoryIdempotentImportExecutor implements IdempotentImportExecutor {
-  private final Map<String, Serializable> knownValues = new HashMap<>();
-  private final Map<String, ErrorDetail> errors = new HashMap<>();
-  private final Map<String, ErrorDetail> recentErrors = new HashMap<>();
+  private final Map<String, Serializable> knownValues =
+      Collections.synchronizedMap(new HashMap<>());
+  private final InFlightImports inFlightImports = new InFlightImports();
+  private final Map<String, ErrorDetail> errors = Collections.synchronizedMap(new HashMap<>());
+  private final ThreadLocal<Map<String, ErrorDetail>> recentErrors =
+      ThreadLocal.withInitial(HashMap::new);
   private final Monitor monitor;
   private UUID jobId;
 
@@ -62,7 +72,9 @@ public class InMemoryIdempotentImportExecutor implements IdempotentImportExecuto
       String idempotentId, String itemName, Callable<T> callable) throws Exception {
     String jobIdPrefix = "Job " + jobId + ": ";
 
-    if (knownValues.containsKey(idempotentId)) {
+    InFlightImports.Reservation reservation =
+        inFlightImports.reserve(idempotentId, knownValues::containsKey);
+    if (reservation == null) {
       monitor.debug(
           () ->
               jobIdPrefix
@@ -84,22 +96,26 @@ public class InMemoryIdempotentImportExecutor implements IdempotentImportExecuto
               .setException(Throwables.getStackTraceAsString(e))
               .build();
       errors.put(idempotentId, errorDetail);
-      recentErrors.put(idempotentId, errorDetail);
+      recentErrors.get().put(idempotentId, errorDetail);
       monitor.severe(() -> jobIdPrefix + "Problem with importing item: " + errorDetail);
       throw e;
+    } finally {
+      reservation.close();
     }
   }
 
   @Override
   @SuppressWarnings("unchecked")
   public <T extends Serializable> T getCachedValue(String idempotentId) {
-    if (!knownValues.containsKey(idempotentId)) {
-      throw new IllegalArgumentException(
-          idempotentId
-              + " is not a known key, known keys: "
-              + Joiner.on(", ").join(knownValues.keySet()));
+    synchronized (knownValues) {
+      if (!knownValues.containsKey(idempotentId)) {
+        throw new IllegalArgumentException(
+            idempotentId
+                + " is not a known key, known keys: "
+                + Joiner.on(", ").join(knownValues.keySet()));
+      }
+      return (T) knownValues.get(idempotentId);
     }
-    return (T) knownValues.get(idempotentId);
   }
 
   @Override
@@ -109,7 +125,9 @@ public class InMemoryIdempotentImportExecutor implements IdempotentImportExecuto
 
   @Override
   public Collection<ErrorDetail> getErrors() {
-    return ImmutableList.copyOf(errors.values());
+    synchronized (errors) {
+      return ImmutableList.copyOf(errors.values());
+    }
   }
 
   @Override
@@ -119,11 +137,11 @@ public class InMemoryIdempotentImportExecutor implements IdempotentImportExecuto
 
   @Override
   public Collection<ErrorDetail> getRecentErrors() {
-    return ImmutableList.copyOf(recentErrors.values());
+    return ImmutableList.copyOf(recentErrors.get().values());
   }
 
   @Override
   public void resetRecentErrors() {
-    recentErrors.clear();
+    recentErrors.get().clear();
   }
 }
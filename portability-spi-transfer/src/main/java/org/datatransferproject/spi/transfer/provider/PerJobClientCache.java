@@ -0,0 +1,62 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.spi.transfer.provider;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import org.datatransferproject.types.transfer.auth.AuthData;
+
+/**
+ * Caches the API client, or credential, that an {@link Importer} or {@link Exporter} builds from
+ * the auth data of a job, so it is built once per job instead of once per call.
+ *
+ * <p>The worker creates the importer and exporter of each job for that job alone, but calls them
+ * from several threads at once when it copies containers in parallel, and hands the same {@link
+ * AuthData} instance to every call of the job. The cache builds the client once for that instance,
+ * however many threads ask for it at the same time, and is keyed by the instance rather than by
+ * its contents, so an adapter that is handed another job's auth data never uses the client of the
+ * first job. Since the client is shared, so is its credential: a token refreshed by one call is
+ * used by all later calls of the job instead of being refreshed again.
+ *
+ * @param <A> the type of the auth data of the job
+ * @param <C> the type of the client
+ */
+public final class PerJobClientCache<A extends AuthData, C> {
+  private final Function<? super A, ? extends C> clientFactory;
+  // Weak keys compare by identity and go away with the job's auth data.
+  private final Cache<A, C> clients = CacheBuilder.newBuilder().weakKeys().build();
+
+  /** @param clientFactory builds the client for the auth data of a job */
+  public PerJobClientCache(Function<? super A, ? extends C> clientFactory) {
+    this.clientFactory = clientFactory;
+  }
+
+  /** Returns the client for the given job auth data, building it on first use. */
+  public C get(A authData) {
+    try {
+      return clients.get(authData, () -> clientFactory.apply(authData));
+    } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+      // Rethrow what the factory threw rather than the cache's wrapper.
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+}
@@ -57,7 +57,9 @@ public class TempPhotosData extends DataModel {
     this.jobId = jobId;
     this.tempPhotoAlbums = tempPhotoAlbums;
     this.newAlbumIds = newAlbumIds;
-    this.containedPhotoIds = containedPhotoIds;
+    // Deserialized as a list otherwise, making isContainedPhotoId linear in the number of photos
+    this.containedPhotoIds =
+        containedPhotoIds == null ? null : new LinkedHashSet<>(containedPhotoIds);
   }
 
   public TempPhotosData(@JsonProperty("jobId") UUID jobId) {
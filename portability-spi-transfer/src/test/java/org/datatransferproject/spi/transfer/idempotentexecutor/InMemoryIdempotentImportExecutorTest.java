@@ -0,0 +1,104 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.spi.transfer.idempotentexecutor;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.datatransferproject.api.launcher.Monitor;
+import org.junit.After;
+import org.junit.Test;
+
+public class InMemoryIdempotentImportExecutorTest {
+  private final InMemoryIdempotentImportExecutor importExecutor =
+      new InMemoryIdempotentImportExecutor(new Monitor() {});
+  private final ExecutorService threads = Executors.newCachedThreadPool();
+
+  @After
+  public void tearDown() {
+    threads.shutdownNow();
+  }
+
+  @Test(timeout = 10_000)
+  public void concurrentImportsOfTheSameIdRunOnce() throws Exception {
+    CountDownLatch firstImportStarted = new CountDownLatch(1);
+    CountDownLatch finishFirstImport = new CountDownLatch(1);
+    AtomicInteger imports = new AtomicInteger();
+
+    Future<String> first =
+        threads.submit(
+            () ->
+                importExecutor.executeOrThrowException(
+                    "id",
+                    "item",
+                    () -> {
+                      imports.incrementAndGet();
+                      firstImportStarted.countDown();
+                      finishFirstImport.await();
+                      return "first";
+                    }));
+    firstImportStarted.await();
+
+    AtomicReference<Thread> secondThread = new AtomicReference<>();
+    Future<String> second =
+        threads.submit(
+            () -> {
+              secondThread.set(Thread.currentThread());
+              return importExecutor.executeOrThrowException(
+                  "id",
+                  "item",
+                  () -> {
+                    imports.incrementAndGet();
+                    return "second";
+                  });
+            });
+    // The second import can only either wait for the first one or, if it weren't excluded, run
+    // and finish, since the first one doesn't finish until it's told to.
+    while (secondThread.get() == null
+        || (secondThread.get().getState() != Thread.State.WAITING && !second.isDone())) {
+      Thread.yield();
+    }
+    finishFirstImport.countDown();
+
+    assertThat(first.get()).isEqualTo("first");
+    assertThat(second.get()).isEqualTo("first");
+    assertThat(imports.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void failedImportIsRunAgain() throws Exception {
+    try {
+      importExecutor.executeOrThrowException(
+          "id",
+          "item",
+          () -> {
+            throw new IOException("failed");
+          });
+    } catch (IOException expected) {
+      // The failure isn't cached.
+    }
+
+    assertThat(importExecutor.executeOrThrowException("id", "item", () -> "retried"))
+        .isEqualTo("retried");
+    assertThat(importExecutor.getErrors()).isEmpty();
+  }
+}
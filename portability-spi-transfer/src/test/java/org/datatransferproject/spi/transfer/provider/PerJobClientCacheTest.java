@@ -0,0 +1,49 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.spi.transfer.provider;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.datatransferproject.types.transfer.auth.TokensAndUrlAuthData;
+import org.junit.Test;
+
+public class PerJobClientCacheTest {
+
+  @Test
+  public void buildsOneClientPerJobAuthData() {
+    AtomicInteger built = new AtomicInteger();
+    PerJobClientCache<TokensAndUrlAuthData, String> cache =
+        new PerJobClientCache<>(authData -> authData.getAccessToken() + built.incrementAndGet());
+    TokensAndUrlAuthData firstJob = new TokensAndUrlAuthData("token", "refresh", "url");
+    // Same tokens, but handed to another job
+    TokensAndUrlAuthData secondJob = new TokensAndUrlAuthData("token", "refresh", "url");
+
+    assertThat(cache.get(firstJob)).isEqualTo("token1");
+    assertThat(cache.get(firstJob)).isEqualTo("token1");
+    assertThat(cache.get(secondJob)).isEqualTo("token2");
+    assertThat(built.get()).isEqualTo(2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rethrowsFactoryException() {
+    new PerJobClientCache<TokensAndUrlAuthData, String>(
+            authData -> {
+              throw new IllegalArgumentException("bad auth data");
+            })
+        .get(new TokensAndUrlAuthData("token", "refresh", "url"));
+  }
+}
@@ -66,6 +66,8 @@ public class CallableImporter implements Callable<ImportResult> {
       idempotentImportExecutor.resetRecentErrors();
       ImportResult result = importerProvider.get()
           .importItem(jobId, idempotentImportExecutor, authData, data);
+      // The page is only acknowledged once its results are durable, otherwise it is retried.
+      idempotentImportExecutor.flush();
 
       Collection<ErrorDetail> errors = idempotentImportExecutor.getRecentErrors();
       success = result.getType() == ImportResult.ResultType.OK && errors.isEmpty();
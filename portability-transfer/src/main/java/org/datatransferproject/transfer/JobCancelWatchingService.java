@@ -17,27 +17,97 @@ package org.datatransferproject.transfer;
 
 import com.google.common.util.concurrent.AbstractScheduledService;
 import com.google.inject.Inject;
+import java.util.Optional;
+import java.util.UUID;
 import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
+import org.datatransferproject.api.launcher.ExtensionContext;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.launcher.monitor.events.EventCode;
+import org.datatransferproject.spi.cloud.storage.JobEventChannel;
 import org.datatransferproject.spi.cloud.storage.JobStore;
 import org.datatransferproject.spi.cloud.types.PortabilityJob;
 
-/** A service that polls storage to see if a job is canceled, if it is it kills the binary. */
+/**
+ * A service that polls storage to see if a job is canceled, if it is it kills the binary, or
+ * runs the given {@code onJobStopped} action when the worker runs several jobs at once.
+ *
+ * <p>If the store has a {@link JobEventChannel}, the job is checked as soon as it's canceled, and
+ * polling only serves as a fallback.
+ */
 class JobCancelWatchingService extends AbstractScheduledService {
   private final JobStore store;
   private final Scheduler scheduler;
   private final Monitor monitor;
   private final DtpInternalMetricRecorder dtpInternalMetricRecorder;
+  private final Runnable onJobStopped;
+  private final Optional<JobEventChannel> jobEventChannel;
+  // Set if the store has a job event channel.
+  private final NotifiableScheduler notifiableScheduler;
+  private JobEventChannel.Subscription subscription;
 
   @Inject
   JobCancelWatchingService(
           JobStore store, @Annotations.CancelScheduler Scheduler scheduler,
-          Monitor monitor, DtpInternalMetricRecorder dtpInternalMetricRecorder) {
+          Monitor monitor, DtpInternalMetricRecorder dtpInternalMetricRecorder,
+          ExtensionContext context) {
+    this(
+        store,
+        scheduler,
+        monitor,
+        dtpInternalMetricRecorder,
+        getCancelCheckPollInterval(context),
+        () -> System.exit(0));
+  }
+
+  JobCancelWatchingService(
+      JobStore store,
+      Scheduler scheduler,
+      Monitor monitor,
+      DtpInternalMetricRecorder dtpInternalMetricRecorder,
+      long cancelCheckPollInterval,
+      Runnable onJobStopped) {
     this.store = store;
     this.scheduler = scheduler;
     this.monitor = monitor;
     this.dtpInternalMetricRecorder = dtpInternalMetricRecorder;
+    this.onJobStopped = onJobStopped;
+    this.jobEventChannel = store.getJobEventChannel();
+    this.notifiableScheduler =
+        jobEventChannel.isPresent()
+            ? new NotifiableScheduler(this, () -> cancelCheckPollInterval)
+            : null;
+  }
+
+  static long getCancelCheckPollInterval(ExtensionContext context) {
+    return context.getSetting("cancelCheckPollInterval", 60000); // Default: poll every 1m
+  }
+
+  @Override
+  protected void startUp() {
+    if (!jobEventChannel.isPresent() || !JobMetadata.isInitialized()) {
+      return;
+    }
+    // The listener is called on other threads, which don't see the job metadata of this one.
+    UUID watchedJobId = JobMetadata.getJobId();
+    subscription =
+        jobEventChannel
+            .get()
+            .subscribe(
+                new JobEventChannel.Listener() {
+                  @Override
+                  public void onJobCanceled(UUID jobId) {
+                    if (watchedJobId.equals(jobId)) {
+                      notifiableScheduler.notifyService();
+                    }
+                  }
+                });
+  }
+
+  @Override
+  protected void shutDown() {
+    if (subscription != null) {
+      subscription.close();
+    }
   }
 
   @Override
@@ -57,24 +127,21 @@ class JobCancelWatchingService extends AbstractScheduledService {
             JobMetadata.getExportService(),
             JobMetadata.getImportService(),
             JobMetadata.getStopWatch().elapsed());
-        monitor.flushLogs();
-        System.exit(0);
+        stopJob();
         break;
       case ERROR:
         monitor.severe(
             () -> String.format("Job %s is errored", JobMetadata.getJobId()),
             EventCode.WATCHING_SERVICE_JOB_ERRORED);
         recordGeneralMetric(PortabilityJob.State.ERROR.toString());
-        monitor.flushLogs();
-        System.exit(0);
+        stopJob();
         break;
       case PREEMPTED:
         monitor.info(
             () -> String.format("Job %s is preempted", JobMetadata.getJobId()),
             EventCode.WATCHING_SERVICE_JOB_PREEMPTED);
         recordGeneralMetric(PortabilityJob.State.PREEMPTED.toString());
-        monitor.flushLogs();
-        System.exit(0);
+        stopJob();
         break;
       default:
         monitor.debug(
@@ -84,9 +151,16 @@ class JobCancelWatchingService extends AbstractScheduledService {
     }
   }
 
+  /** Stops the job, once: the job keeps its final state, so it's not watched any further. */
+  private void stopJob() {
+    monitor.flushLogs();
+    onJobStopped.run();
+    stopAsync();
+  }
+
   @Override
   protected Scheduler scheduler() {
-    return scheduler;
+    return notifiableScheduler != null ? notifiableScheduler : scheduler;
   }
 
     private void recordGeneralMetric(String jobState) {
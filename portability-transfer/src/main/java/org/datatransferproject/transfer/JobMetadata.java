@@ -26,25 +26,24 @@ import java.util.UUID;
  * <p>
  *
  * <p>This class is completely static to ensure it is a singleton within each transfer worker
- * instance.
+ * instance. By default all threads share a single job; a worker that runs several jobs at once
+ * calls {@link #bindNewScope()} on each job's thread so that the job's threads, and any threads
+ * they start, see only that job's metadata.
  */
 @SuppressWarnings("WeakerAccess")
 // We make the class and various methods public so they can be accessed from Monitors
 public final class JobMetadata {
-  private static byte[] encodedPrivateKey = null;
-  private static UUID jobId = null;
-  private static String dataType = null;
-  private static String exportService = null;
-  private static String importService = null;
-  private static Stopwatch stopWatch = null;
+  private static final Scope DEFAULT_SCOPE = new Scope();
+  private static final InheritableThreadLocal<Scope> CURRENT_SCOPE =
+      new InheritableThreadLocal<Scope>() {
+        @Override
+        protected Scope initialValue() {
+          return DEFAULT_SCOPE;
+        }
+      };
 
   public static boolean isInitialized() {
-    return (jobId != null
-        && encodedPrivateKey != null
-        && dataType != null
-        && exportService != null
-        && importService != null
-        && stopWatch != null);
+    return CURRENT_SCOPE.get().isInitialized();
   }
 
   static void init(
@@ -54,52 +53,125 @@ public final class JobMetadata {
       String initExportService,
       String initImportService,
       Stopwatch initStopWatch) {
-    Preconditions.checkState(!isInitialized(), "JobMetadata cannot be initialized twice");
-    jobId = initJobId;
-    encodedPrivateKey = initEncodedPrivateKey;
-    dataType = initDataType;
-    exportService = initExportService;
-    importService = initImportService;
-    stopWatch = initStopWatch;
+    CURRENT_SCOPE
+        .get()
+        .init(
+            initJobId,
+            initEncodedPrivateKey,
+            initDataType,
+            initExportService,
+            initImportService,
+            initStopWatch);
   }
 
   // TODO: remove this
-  static synchronized void reset() {
-    jobId = null;
-    encodedPrivateKey = null;
-    dataType = null;
-    exportService = null;
-    importService = null;
-    stopWatch = null;
+  static void reset() {
+    CURRENT_SCOPE.get().reset();
+  }
+
+  /**
+   * Gives the calling thread its own, uninitialized job metadata. Threads started afterwards by the
+   * calling thread share that metadata, so this must be called before the job's polling and
+   * processing services are started.
+   */
+  static void bindNewScope() {
+    CURRENT_SCOPE.set(new Scope());
+  }
+
+  /** Returns the calling thread to the metadata shared by the whole worker. */
+  static void unbindScope() {
+    CURRENT_SCOPE.remove();
   }
 
   static byte[] getPrivateKey() {
-    Preconditions.checkState(isInitialized(), "JobMetadata must be initialized");
-    return encodedPrivateKey;
+    return CURRENT_SCOPE.get().checkInitialized().encodedPrivateKey;
   }
 
   public static UUID getJobId() {
-    Preconditions.checkState(isInitialized(), "JobMetadata must be initialized");
-    return jobId;
+    return CURRENT_SCOPE.get().checkInitialized().jobId;
   }
 
   public static String getDataType() {
-    Preconditions.checkState(isInitialized(), "JobMetadata must be initialized");
-    return dataType;
+    return CURRENT_SCOPE.get().checkInitialized().dataType;
   }
 
   public static String getExportService() {
-    Preconditions.checkState(isInitialized(), "JobMetadata must be initialized");
-    return exportService;
+    return CURRENT_SCOPE.get().checkInitialized().exportService;
   }
 
   public static String getImportService() {
-    Preconditions.checkState(isInitialized(), "JobMetadata must be initialized");
-    return importService;
+    return CURRENT_SCOPE.get().checkInitialized().importService;
   }
 
   public static Stopwatch getStopWatch() {
-    Preconditions.checkState(isInitialized(), "JobMetadata must be initialized");
-    return stopWatch;
+    return CURRENT_SCOPE.get().checkInitialized().stopWatch;
+  }
+
+  /**
+   * Returns whether the job was stopped, e.g. canceled, while the worker runs several jobs at once.
+   * Long-running work of the job should check this between steps and give up once it's set.
+   */
+  public static boolean isStopped() {
+    return CURRENT_SCOPE.get().stopped;
+  }
+
+  /**
+   * Returns an action that marks the job of the calling thread as stopped, which may be run on any
+   * thread.
+   */
+  static Runnable stopper() {
+    Scope scope = CURRENT_SCOPE.get();
+    return () -> scope.stopped = true;
+  }
+
+  /** The metadata of a single job, shared by all threads working on that job. */
+  private static final class Scope {
+    private byte[] encodedPrivateKey = null;
+    private UUID jobId = null;
+    private String dataType = null;
+    private String exportService = null;
+    private String importService = null;
+    private Stopwatch stopWatch = null;
+    private volatile boolean stopped = false;
+
+    synchronized boolean isInitialized() {
+      return (jobId != null
+          && encodedPrivateKey != null
+          && dataType != null
+          && exportService != null
+          && importService != null
+          && stopWatch != null);
+    }
+
+    synchronized void init(
+        UUID initJobId,
+        byte[] initEncodedPrivateKey,
+        String initDataType,
+        String initExportService,
+        String initImportService,
+        Stopwatch initStopWatch) {
+      Preconditions.checkState(!isInitialized(), "JobMetadata cannot be initialized twice");
+      jobId = initJobId;
+      encodedPrivateKey = initEncodedPrivateKey;
+      dataType = initDataType;
+      exportService = initExportService;
+      importService = initImportService;
+      stopWatch = initStopWatch;
+    }
+
+    synchronized void reset() {
+      jobId = null;
+      encodedPrivateKey = null;
+      dataType = null;
+      exportService = null;
+      importService = null;
+      stopWatch = null;
+      stopped = false;
+    }
+
+    Scope checkInitialized() {
+      Preconditions.checkState(isInitialized(), "JobMetadata must be initialized");
+      return this;
+    }
   }
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.transfer;
+
+import static java.lang.String.format;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import java.io.IOException;
+import java.io.InputStream;
+import org.datatransferproject.api.launcher.DelegatingExtensionContext;
+import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
+import org.datatransferproject.api.launcher.ExtensionContext;
+import org.datatransferproject.api.launcher.MetricRecorder;
+import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.launcher.metrics.ServiceAwareMetricRecorder;
+import org.datatransferproject.spi.transfer.extension.TransferExtension;
+import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
+import org.datatransferproject.spi.transfer.provider.Exporter;
+import org.datatransferproject.spi.transfer.provider.Importer;
+import org.datatransferproject.transfer.copier.InMemoryDataCopier;
+import org.datatransferproject.transfer.copier.InMemoryDataCopierClassLoader;
+import org.datatransferproject.types.transfer.serviceconfig.TransferServiceConfig;
+
+/**
+ * Bindings that belong to a single job: the {@link Exporter} and {@link Importer} for the job's
+ * services, the {@link IdempotentImportExecutor} and the {@link InMemoryDataCopier} using them.
+ *
+ * <p>A worker running one job installs this next to the {@link WorkerModule}; a worker running
+ * several jobs at once installs it into a child injector per job so that no two jobs share these
+ * instances.
+ */
+final class JobModule extends AbstractModule {
+
+  private final IdempotentImportExecutor idempotentImportExecutor;
+
+  JobModule(IdempotentImportExecutor idempotentImportExecutor) {
+    this.idempotentImportExecutor = idempotentImportExecutor;
+  }
+
+  @Override
+  protected void configure() {
+    bind(InMemoryDataCopier.class).to(InMemoryDataCopierClassLoader.load());
+  }
+
+  @Provides
+  @Singleton
+  Exporter getExporter(
+      ImmutableList<TransferExtension> transferExtensions,
+      ExtensionContext context,
+      Monitor monitor) {
+    TransferExtension extension =
+        newJobInstance(
+            WorkerModule.findTransferExtension(transferExtensions, JobMetadata.getExportService()));
+    extension.initialize(getServiceSpecificContext(extension, context, monitor));
+    return extension.getExporter(JobMetadata.getDataType());
+  }
+
+  @Provides
+  @Singleton
+  Importer getImporter(
+      ImmutableList<TransferExtension> transferExtensions,
+      ExtensionContext context,
+      Monitor monitor) {
+    TransferExtension extension =
+        newJobInstance(
+            WorkerModule.findTransferExtension(transferExtensions, JobMetadata.getImportService()));
+    extension.initialize(getServiceSpecificContext(extension, context, monitor));
+    return extension.getImporter(JobMetadata.getDataType());
+  }
+
+  /** The number of sibling containers both of the job's services allow to be copied at once. */
+  @Provides
+  @Singleton
+  @Named("maxConcurrentContainers")
+  Integer getMaxConcurrentContainers(
+      ImmutableList<TransferExtension> transferExtensions, Monitor monitor) {
+    TransferExtension exportExtension =
+        WorkerModule.findTransferExtension(transferExtensions, JobMetadata.getExportService());
+    TransferExtension importExtension =
+        WorkerModule.findTransferExtension(transferExtensions, JobMetadata.getImportService());
+    return Math.min(
+        getTransferServiceConfig(exportExtension, monitor).getMaxConcurrentContainers(),
+        getTransferServiceConfig(importExtension, monitor).getMaxConcurrentContainers());
+  }
+
+  @Provides
+  @Singleton
+  IdempotentImportExecutor getIdempotentImportExecutor() {
+    return idempotentImportExecutor;
+  }
+
+  /**
+   * Returns a new, uninitialized instance of {@code extension} for the current job.
+   *
+   * <p>Extensions only initialize themselves once and hand out the same exporters and importers
+   * afterwards, so initializing the shared instance for each job would leave every job with the
+   * first job's exporter, importer, metric recorder and service config. Extensions are loaded by
+   * the {@link java.util.ServiceLoader}, so they all have a public no-argument constructor.
+   */
+  static TransferExtension newJobInstance(TransferExtension extension) {
+    try {
+      return extension.getClass().getConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(
+          "Couldn't create a transfer extension for service " + extension.getServiceId(), e);
+    }
+  }
+
+  private ExtensionContext getServiceSpecificContext(
+      TransferExtension extension, ExtensionContext context, Monitor monitor) {
+    DelegatingExtensionContext serviceSpecificContext = new DelegatingExtensionContext(context);
+    serviceSpecificContext.registerOverrideService(
+        MetricRecorder.class,
+        new ServiceAwareMetricRecorder(
+            extension.getServiceId(),
+            context.getService(DtpInternalMetricRecorder.class)));
+    serviceSpecificContext.registerOverrideService(
+        TransferServiceConfig.class,
+        getTransferServiceConfig(extension, monitor));
+    return serviceSpecificContext;
+  }
+
+  private TransferServiceConfig getTransferServiceConfig(TransferExtension ext, Monitor monitor) {
+    String configFileName = "config/" + ext.getServiceId().toLowerCase() + ".yaml";
+    InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream(configFileName);
+    monitor.info(
+        () ->
+            format("Service %s has a config file: %s", ext.getServiceId(), (inputStream != null)));
+    if (inputStream == null) {
+      return TransferServiceConfig.getDefaultInstance();
+    } else {
+      try {
+        return TransferServiceConfig.create(inputStream);
+      } catch (IOException e) {
+        throw new RuntimeException("Couldn't create config for " + ext.getServiceId(), e);
+      }
+    }
+  }
+}
@@ -23,12 +23,18 @@ import com.google.common.base.Strings;
 import com.google.common.util.concurrent.AbstractScheduledService;
 import com.google.inject.Inject;
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import org.datatransferproject.api.launcher.ExtensionContext;
 import org.datatransferproject.api.launcher.JobAwareMonitor;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.launcher.monitor.events.EventCode;
+import org.datatransferproject.spi.cloud.storage.JobEventChannel;
 import org.datatransferproject.spi.cloud.storage.JobStore;
 import org.datatransferproject.spi.cloud.types.JobAuthorization;
 import org.datatransferproject.spi.cloud.types.PortabilityJob;
@@ -42,6 +48,14 @@ import org.datatransferproject.spi.transfer.types.FailureReasons;
  * A service that polls storage for a job to process in two steps: <br> (1) find an unassigned job
  * for this transfer worker <br> (2) wait until the job is ready to process (i.e. creds are
  * available)
+ *
+ * <p>A claimed job is leased to this worker, and the lease is renewed while waiting for the creds.
+ * If the worker dies before the creds are stored, the lease expires and another worker claims the
+ * job instead.
+ *
+ * <p>If the store has a {@link JobEventChannel}, the service looks for a job as soon as one is
+ * available, and otherwise only every {@code notifiedPollInterval}, rather than every {@code
+ * pollInterval}.
  */
 class JobPollingService extends AbstractScheduledService {
 
@@ -49,9 +63,19 @@ class JobPollingService extends AbstractScheduledService {
   private final TransferKeyGenerator transferKeyGenerator;
   private final PublicKeySerializer publicKeySerializer;
   private final Scheduler scheduler;
+  private final Optional<JobEventChannel> jobEventChannel;
+  // Set if the store has a job event channel.
+  private final NotifiableScheduler notifiableScheduler;
+  private JobEventChannel.Subscription subscription;
   private final Monitor monitor;
   private final Stopwatch stopwatch = Stopwatch.createUnstarted();
+  private final Stopwatch expiredLeaseStopwatch = Stopwatch.createUnstarted();
   private final int credsTimeoutSeconds;
+  private final int claimCandidates;
+  private final Duration leaseDuration;
+  // The instance id and lease expiration of the job claimed by this service, if any.
+  private String instanceId;
+  private Instant leaseExpiration;
 
   @Inject
   JobPollingService(
@@ -68,6 +92,22 @@ class JobPollingService extends AbstractScheduledService {
     this.scheduler = scheduler;
     this.monitor = monitor;
     this.credsTimeoutSeconds = context.getSetting("credTimeoutSeconds", 300);
+    this.claimCandidates = context.getSetting("claimCandidates", 16);
+    int leaseSeconds = context.getSetting("jobLeaseSeconds", 60);
+    Preconditions.checkArgument(claimCandidates > 0, "claimCandidates should be > 0");
+    Preconditions.checkArgument(leaseSeconds > 0, "jobLeaseSeconds should be > 0");
+    this.leaseDuration = Duration.ofSeconds(leaseSeconds);
+    this.jobEventChannel = store.getJobEventChannel();
+    if (jobEventChannel.isPresent()) {
+      long pollInterval = context.getSetting("pollInterval", 2000);
+      long notifiedPollInterval = context.getSetting("notifiedPollInterval", 60000);
+      // Keep polling at the usual interval while waiting for the creds of the claimed job.
+      this.notifiableScheduler =
+          new NotifiableScheduler(
+              this, () -> JobMetadata.isInitialized() ? pollInterval : notifiedPollInterval);
+    } else {
+      this.notifiableScheduler = null;
+    }
     monitor.debug(() -> "initialized JobPollingService");
   }
 
@@ -108,9 +148,32 @@ class JobPollingService extends AbstractScheduledService {
     }
   }
 
+  @Override
+  protected void startUp() {
+    if (jobEventChannel.isPresent()) {
+      subscription =
+          jobEventChannel
+              .get()
+              .subscribe(
+                  new JobEventChannel.Listener() {
+                    @Override
+                    public void onJobAvailable(UUID jobId) {
+                      notifiableScheduler.notifyService();
+                    }
+                  });
+    }
+  }
+
+  @Override
+  protected void shutDown() {
+    if (subscription != null) {
+      subscription.close();
+    }
+  }
+
   @Override
   protected Scheduler scheduler() {
-    return scheduler;
+    return notifiableScheduler != null ? notifiableScheduler : scheduler;
   }
 
   /**
@@ -118,23 +181,62 @@ class JobPollingService extends AbstractScheduledService {
    * object for this running instance of the transfer worker.
    */
   private void pollForUnassignedJob() {
-    UUID jobId = store.findFirst(JobAuthorization.State.CREDS_AVAILABLE);
+    List<UUID> candidates = new ArrayList<>();
+    // Jobs whose lease expired have waited the longest, so they're tried first. They're looked for
+    // on their own cadence, so that a steady flow of new jobs doesn't leave them stranded.
+    if (isTimeToLookForExpiredLeases()) {
+      monitor.debug(() -> "Polling for a job whose lease expired");
+      candidates.addAll(store.findExpiredLeaseCandidates(Instant.now(), claimCandidates));
+    }
     monitor.debug(() -> "Polling for a job in state CREDS_AVAILABLE");
-    if (jobId == null) {
+    // Every worker gets the candidates in a different order, so that workers polling at the same
+    // time don't all race to claim the same job.
+    candidates.addAll(
+        store.findClaimCandidates(JobAuthorization.State.CREDS_AVAILABLE, claimCandidates));
+    if (candidates.isEmpty()) {
       monitor.debug(() -> "Did not find job after polling");
       return;
     }
-    monitor.debug(() -> format("Found job %s", jobId));
     Preconditions.checkState(!JobMetadata.isInitialized());
-    WorkerKeyPair keyPair = transferKeyGenerator.generate();
+    WorkerKeyPair keyPair = null;
+    for (UUID jobId : candidates) {
+      PortabilityJob existingJob = store.findJob(jobId);
+      if (existingJob == null || !existingJob.isClaimable(Instant.now())) {
+        continue;
+      }
+      monitor.debug(() -> format("Found job %s", jobId));
+      if (keyPair == null) {
+        // A key pair is only published by a successful claim, so it's reused across attempts.
+        keyPair = transferKeyGenerator.generate();
+      }
+      if (claimCandidate(jobId, existingJob, keyPair)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns whether to look for jobs whose lease expired, which is done at most once per lease
+   * duration since such jobs are rare.
+   */
+  private boolean isTimeToLookForExpiredLeases() {
+    if (expiredLeaseStopwatch.isRunning()
+        && expiredLeaseStopwatch.elapsed(TimeUnit.MILLISECONDS) < leaseDuration.toMillis()) {
+      return false;
+    }
+    expiredLeaseStopwatch.reset().start();
+    return true;
+  }
+
+  /** Tries to claim candidate job {@code jobId}, returning whether it was claimed. */
+  private boolean claimCandidate(UUID jobId, PortabilityJob existingJob, WorkerKeyPair keyPair) {
     // TODO: Back up private key (keyPair.getPrivate()) in case this transfer worker dies mid-copy,
     // so we don't have to make the user start from scratch. Some options are to manage this key
     // pair within our hosting platform's key management system rather than generating here, or to
     // encrypt and store the private key on the client.
     // Note: tryToClaimJob may fail if another transfer worker beat us to it. That's ok -- this
-    // transfer
-    // worker will keep polling until it can claim a job.
-    boolean claimed = tryToClaimJob(jobId, keyPair);
+    // transfer worker will try the next candidate, and keep polling until it can claim a job.
+    boolean claimed = tryToClaimJob(jobId, existingJob, keyPair);
     if (claimed) {
       monitor.debug(
           () ->
@@ -143,18 +245,18 @@ class JobPollingService extends AbstractScheduledService {
                   jobId, keyPair.getEncodedPublicKey().length));
       stopwatch.start();
     }
+    return claimed;
   }
 
   /**
    * Claims {@link PortabilityJob} {@code jobId} and updates it with our public key in storage.
    * Returns true if the claim was successful; otherwise it returns false.
    */
-  private boolean tryToClaimJob(UUID jobId, WorkerKeyPair keyPair) {
-    // Lookup the job so we can append to its existing properties.
-    PortabilityJob existingJob = store.findJob(jobId);
+  private boolean tryToClaimJob(UUID jobId, PortabilityJob existingJob, WorkerKeyPair keyPair) {
     monitor.debug(() -> format("JobPollingService: tryToClaimJob: jobId: %s", existingJob));
-    // Verify no transfer worker key
-    if (existingJob.jobAuthorization().authPublicKey() != null) {
+    // Verify no transfer worker key, unless the lease of the worker that published it expired
+    if (existingJob.jobAuthorization().state() == JobAuthorization.State.CREDS_AVAILABLE
+        && existingJob.jobAuthorization().authPublicKey() != null) {
       monitor.debug(() -> "A public key cannot be persisted again");
       return false;
     }
@@ -170,6 +272,8 @@ class JobPollingService extends AbstractScheduledService {
       return false;
     }
     String serializedKey = publicKeySerializer.serialize(keyPair.getEncodedPublicKey());
+    String claimingInstanceId = keyPair.getInstanceId();
+    Instant claimLeaseExpiration = Instant.now().plus(leaseDuration);
 
     PortabilityJob updatedJob =
         existingJob
@@ -178,15 +282,16 @@ class JobPollingService extends AbstractScheduledService {
                 existingJob
                     .jobAuthorization()
                     .toBuilder()
-                    .setInstanceId(keyPair.getInstanceId())
+                    .setInstanceId(claimingInstanceId)
                     .setAuthPublicKey(serializedKey)
                     .setState(JobAuthorization.State.CREDS_ENCRYPTION_KEY_GENERATED)
                     .build())
+            .setLeaseExpiration(claimLeaseExpiration)
             .build();
-    // Attempt to 'claim' this job by validating it is still in state CREDS_AVAILABLE as we
-    // update it to state CREDS_ENCRYPTION_KEY_GENERATED, along with our key. If another transfer
-    // instance polled the same job, and already claimed it, it will have updated the job's state
-    // to CREDS_ENCRYPTION_KEY_GENERATED.
+    // Attempt to 'claim' this job by validating it is still in state CREDS_AVAILABLE (or its
+    // lease expired) as we update it to state CREDS_ENCRYPTION_KEY_GENERATED, along with our key.
+    // If another transfer instance polled the same job, and already claimed it, it will have
+    // updated the job's state to CREDS_ENCRYPTION_KEY_GENERATED with a new lease.
     try {
       store.claimJob(
           jobId,
@@ -205,6 +310,8 @@ class JobPollingService extends AbstractScheduledService {
       return false;
     }
 
+    instanceId = claimingInstanceId;
+    leaseExpiration = claimLeaseExpiration;
     if (monitor instanceof JobAwareMonitor) {
       ((JobAwareMonitor) monitor).setJobId(jobId.toString());
     }
@@ -234,6 +341,11 @@ class JobPollingService extends AbstractScheduledService {
           () -> format("Could not poll job %s, it was not present in the key-value store", jobId),
           EventCode.WORKER_JOB_ERRORED);
       this.stopAsync();
+    } else if (instanceId != null && !instanceId.equals(job.jobAuthorization().instanceId())) {
+      // Our lease expired and another transfer worker claimed the job.
+      String message = format("Job %s was claimed by another transfer worker", jobId);
+      monitor.severe(() -> message, EventCode.WORKER_JOB_ERRORED);
+      throw new IllegalStateException(message);
     } else if (job.state() == PortabilityJob.State.CANCELED) {
       monitor.info(
           () -> format("Could not poll job %s, it was cancelled", jobId),
@@ -263,6 +375,26 @@ class JobPollingService extends AbstractScheduledService {
                   "Polling job %s until it's in state CREDS_STORED. "
                       + "It's currently in state: %s",
                   jobId, job.jobAuthorization().state()));
+      renewLeaseIfDue(jobId);
+    }
+  }
+
+  /** Renews the lease on the claimed job once half of it has elapsed. */
+  private void renewLeaseIfDue(UUID jobId) {
+    if (instanceId == null) {
+      return;
+    }
+    Instant now = Instant.now();
+    if (now.isBefore(leaseExpiration.minus(leaseDuration.dividedBy(2)))) {
+      return;
+    }
+    Instant renewedLeaseExpiration = now.plus(leaseDuration);
+    try {
+      store.renewJobLease(jobId, instanceId, renewedLeaseExpiration);
+      leaseExpiration = renewedLeaseExpiration;
+    } catch (IllegalStateException | IOException e) {
+      // The job changed since it was read, it's polled and the lease renewed again next time.
+      monitor.debug(() -> format("Could not renew the lease on job %s", jobId), e);
     }
   }
 }
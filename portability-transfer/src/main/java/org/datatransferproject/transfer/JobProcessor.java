@@ -33,6 +33,7 @@ import org.datatransferproject.spi.cloud.types.JobAuthorization;
 import org.datatransferproject.spi.cloud.types.PortabilityJob;
 import org.datatransferproject.spi.cloud.types.PortabilityJob.State;
 import org.datatransferproject.spi.transfer.hooks.JobHooks;
+import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
 import org.datatransferproject.spi.transfer.security.AuthDataDecryptService;
 import org.datatransferproject.spi.transfer.types.CopyException;
 import org.datatransferproject.spi.transfer.types.CopyExceptionWithFailureReason;
@@ -54,6 +55,7 @@ final class JobProcessor {
   private final JobHooks hooks;
   private final ObjectMapper objectMapper;
   private final InMemoryDataCopier copier;
+  private final IdempotentImportExecutor idempotentImportExecutor;
   private final AuthDataDecryptService decryptService;
   private final Monitor monitor;
   private final DtpInternalMetricRecorder dtpInternalMetricRecorder;
@@ -64,6 +66,7 @@ final class JobProcessor {
       JobHooks hooks,
       ObjectMapper objectMapper,
       InMemoryDataCopier copier,
+      IdempotentImportExecutor idempotentImportExecutor,
       AuthDataDecryptService decryptService,
       Monitor monitor,
       DtpInternalMetricRecorder dtpInternalMetricRecorder) {
@@ -71,6 +74,7 @@ final class JobProcessor {
     this.hooks = hooks;
     this.objectMapper = objectMapper;
     this.copier = copier;
+    this.idempotentImportExecutor = idempotentImportExecutor;
     this.decryptService = decryptService;
     this.monitor = monitor;
     this.dtpInternalMetricRecorder = dtpInternalMetricRecorder;
@@ -154,6 +158,10 @@ final class JobProcessor {
       monitor.severe(() -> "Error processing jobId: " + jobId, e, EventCode.WORKER_JOB_ERRORED);
     } finally {
       monitor.debug(() -> "Finished processing jobId: " + jobId, EventCode.WORKER_JOB_FINISHED);
+      // Without its import results, a retry of the job would import everything again.
+      success = flushIdempotentImportExecutor(jobId) && success;
+      releaseTempFiles(jobId);
+      releaseJobStack(jobId, success);
       addErrorsAndMarkJobFinished(jobId, success, errors);
       hooks.jobFinished(jobId, success);
       dtpInternalMetricRecorder.finishedJob(
@@ -175,6 +183,36 @@ final class JobProcessor {
     return null;
   }
 
+  /** Writes the import results still held by the executor, returning whether it succeeded. */
+  private boolean flushIdempotentImportExecutor(UUID jobId) {
+    try {
+      idempotentImportExecutor.flush();
+      return true;
+    } catch (IOException | RuntimeException e) {
+      monitor.severe(
+          () -> format("Could not write the last import results of job %s", jobId),
+          e,
+          EventCode.WORKER_JOB_ERRORED);
+      return false;
+    }
+  }
+
+  private void releaseTempFiles(UUID jobId) {
+    try {
+      store.releaseTempFiles(jobId);
+    } catch (RuntimeException e) {
+      monitor.severe(() -> format("Could not delete the temporary files of job %s", jobId), e);
+    }
+  }
+
+  private void releaseJobStack(UUID jobId, boolean completed) {
+    try {
+      store.releaseJobStack(jobId, completed);
+    } catch (RuntimeException e) {
+      monitor.severe(() -> format("Could not release the job stack of job %s", jobId), e);
+    }
+  }
+
   private void addErrorsAndMarkJobFinished(
       UUID jobId, boolean success, Collection<ErrorDetail> errors) {
     try {
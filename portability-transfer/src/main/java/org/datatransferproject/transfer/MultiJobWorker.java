@@ -0,0 +1,130 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.transfer;
+
+import static java.lang.String.format;
+
+import com.google.common.util.concurrent.AbstractScheduledService.Scheduler;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
+import org.datatransferproject.api.launcher.ExtensionContext;
+import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.spi.cloud.storage.JobStore;
+import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutorLoader;
+
+/**
+ * Polls and processes up to {@code maxConcurrentJobs} {@code PortabilityJob}s at once in this
+ * transfer worker.
+ *
+ * <p>Each job slot runs the same poll, cancel-watch and process steps as {@link Worker}, one job
+ * after another, on its own thread. Every job gets its own {@link JobMetadata} scope and its own
+ * child injector built from a {@link JobModule}, so exporters, importers and idempotent import
+ * executors are never shared between jobs.
+ */
+final class MultiJobWorker {
+  private final Injector injector;
+  private final JobStore store;
+  private final Monitor monitor;
+  private final DtpInternalMetricRecorder dtpInternalMetricRecorder;
+  private final int maxConcurrentJobs;
+  private final long cancelCheckPollInterval;
+
+  @Inject
+  MultiJobWorker(
+      Injector injector,
+      JobStore store,
+      Monitor monitor,
+      DtpInternalMetricRecorder dtpInternalMetricRecorder,
+      ExtensionContext context) {
+    this.injector = injector;
+    this.store = store;
+    this.monitor = monitor;
+    this.dtpInternalMetricRecorder = dtpInternalMetricRecorder;
+    this.maxConcurrentJobs = context.getSetting("maxConcurrentJobs", 1);
+    this.cancelCheckPollInterval = JobCancelWatchingService.getCancelCheckPollInterval(context);
+  }
+
+  void doWork() {
+    monitor.info(() -> format("Running up to %d jobs concurrently", maxConcurrentJobs));
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            maxConcurrentJobs,
+            new ThreadFactoryBuilder().setNameFormat("job-slot-%d").build());
+    for (int i = 0; i < maxConcurrentJobs; i++) {
+      executor.execute(this::runJobSlot);
+    }
+    executor.shutdown();
+    try {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void runJobSlot() {
+    //noinspection InfiniteLoopStatement
+    while (true) {
+      try {
+        processNextJob();
+      } catch (RuntimeException e) {
+        // A failure in one job must not take the other jobs in this worker down with it.
+        monitor.severe(() -> "Error while running job slot, polling for a new job", e);
+      } finally {
+        JobMetadata.unbindScope();
+        // Clear a cancellation interrupt aimed at the previous job.
+        Thread.interrupted();
+      }
+    }
+  }
+
+  private void processNextJob() {
+    // Bind the scope before any service is started so their threads inherit it.
+    JobMetadata.bindNewScope();
+    Injector jobInjector =
+        injector.createChildInjector(new JobModule(IdempotentImportExecutorLoader.load(monitor)));
+
+    jobInjector.getInstance(JobPoller.class).pollJob();
+
+    Thread jobThread = Thread.currentThread();
+    Runnable jobStopper = JobMetadata.stopper();
+    JobCancelWatchingService jobCancelWatchingService =
+        new JobCancelWatchingService(
+            store,
+            injector.getInstance(Key.get(Scheduler.class, Annotations.CancelScheduler.class)),
+            monitor,
+            dtpInternalMetricRecorder,
+            cancelCheckPollInterval,
+            () -> {
+              // Blocking I/O in the transfer extensions mostly ignores interrupts, so the copier
+              // also checks the job's stopped flag between pages.
+              jobStopper.run();
+              jobThread.interrupt();
+            });
+    jobCancelWatchingService.startAsync();
+    try {
+      jobInjector.getInstance(JobProcessor.class).processJob();
+    } finally {
+      jobCancelWatchingService.stopAsync();
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.transfer;
+
+import com.google.common.util.concurrent.AbstractScheduledService.CustomScheduler;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Service;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Schedules the iterations of a scheduled service for when it's notified, e.g. by a {@link
+ * org.datatransferproject.spi.cloud.storage.JobEventChannel}, falling back to running it after a
+ * delay when no notification comes.
+ *
+ * <p>The first iteration runs right away. The wait for the next one happens on the service's own
+ * thread and ends as soon as the service is stopped.
+ */
+final class NotifiableScheduler extends CustomScheduler {
+  private final Service service;
+  private final LongSupplier fallbackDelayMillis;
+  private final Semaphore notifications = new Semaphore(0);
+  private volatile boolean scheduled;
+
+  /**
+   * @param service the service this schedules, which must not have been started yet
+   * @param fallbackDelayMillis the longest to wait for a notification before the next iteration
+   */
+  NotifiableScheduler(Service service, LongSupplier fallbackDelayMillis) {
+    this.service = service;
+    this.fallbackDelayMillis = fallbackDelayMillis;
+    service.addListener(
+        new Service.Listener() {
+          @Override
+          public void stopping(Service.State from) {
+            notifyService();
+          }
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  /** Runs the next iteration of the service as soon as the current one, if any, is done. */
+  void notifyService() {
+    notifications.release();
+  }
+
+  @Override
+  protected Schedule getNextSchedule() throws InterruptedException {
+    if (scheduled && service.isRunning()) {
+      notifications.tryAcquire(fallbackDelayMillis.getAsLong(), TimeUnit.MILLISECONDS);
+    }
+    scheduled = true;
+    // Notifications that came during the wait or the last iteration are all handled by the next.
+    notifications.drainPermits();
+    return new Schedule(0, TimeUnit.MILLISECONDS);
+  }
+}
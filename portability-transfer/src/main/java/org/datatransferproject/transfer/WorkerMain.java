@@ -39,6 +39,7 @@ import org.datatransferproject.security.SymmetricKeyGenerator;
 import org.datatransferproject.spi.cloud.extension.CloudExtension;
 import org.datatransferproject.spi.cloud.storage.AppCredentialStore;
 import org.datatransferproject.spi.cloud.storage.JobStore;
+import org.datatransferproject.spi.cloud.storage.TemporaryFileSpool;
 import org.datatransferproject.spi.cloud.storage.TemporaryPerJobDataStore;
 import org.datatransferproject.spi.service.extension.ServiceExtension;
 import org.datatransferproject.spi.transfer.extension.TransferExtension;
@@ -50,11 +51,13 @@ import org.datatransferproject.spi.transfer.security.SecurityExtensionLoader;
 
 /**
  * Main class to bootstrap a portability transfer worker that will operate on a single job whose
- * state is held in {@link JobMetadata}.
+ * state is held in {@link JobMetadata}, or on up to {@code maxConcurrentJobs} jobs at once when
+ * that setting is greater than one.
  */
 public class WorkerMain {
 
   private Worker worker;
+  private MultiJobWorker multiJobWorker;
 
   public static void main(String[] args) {
     Thread.setDefaultUncaughtExceptionHandler(UncaughtExceptionHandlers.systemExit());
@@ -88,6 +91,10 @@ public class WorkerMain {
     cloudExtension.initialize(extensionContext);
     monitor.info(() -> "Using CloudExtension: " + cloudExtension.getClass().getName());
 
+    // Default: no limit on the temporary files spooled by importers at once
+    TemporaryFileSpool.getDefault()
+        .setMaxBytes(extensionContext.getSetting("tempFileSpoolMaxMegabytes", 0) * 1024L * 1024L);
+
     JobStore jobStore = cloudExtension.getJobStore();
     extensionContext.registerService(JobStore.class, jobStore);
     extensionContext.registerService(TemporaryPerJobDataStore.class, jobStore);
@@ -102,40 +109,55 @@ public class WorkerMain {
         SecurityExtensionLoader.getSecurityExtension(extensionContext);
     monitor.info(() -> "Using SecurityExtension: " + securityExtension.getClass().getName());
 
-    IdempotentImportExecutor idempotentImportExecutor =
-        IdempotentImportExecutorLoader.load(monitor);
-    monitor.info(
-        () -> "Using IdempotentImportExecutor: " + idempotentImportExecutor.getClass().getName());
-
     // TODO: make configurable
     SymmetricKeyGenerator symmetricKeyGenerator = new AesSymmetricKeyGenerator(monitor);
 
     JobHooks jobHooks = loadJobHooks();
 
+    WorkerModule workerModule =
+        new WorkerModule(
+            extensionContext,
+            cloudExtension,
+            transferExtensions,
+            securityExtension,
+            symmetricKeyGenerator,
+            jobHooks);
+    int maxConcurrentJobs = extensionContext.getSetting("maxConcurrentJobs", 1);
+
     Injector injector = null;
     try {
-      injector =
-          Guice.createInjector(
-              new WorkerModule(
-                  extensionContext,
-                  cloudExtension,
-                  transferExtensions,
-                  securityExtension,
-                  idempotentImportExecutor,
-                  symmetricKeyGenerator,
-                  jobHooks));
+      if (maxConcurrentJobs > 1) {
+        // Each job gets its own JobModule in a child injector, see MultiJobWorker.
+        injector = Guice.createInjector(workerModule);
+      } else {
+        IdempotentImportExecutor idempotentImportExecutor =
+            IdempotentImportExecutorLoader.load(monitor);
+        monitor.info(
+            () ->
+                "Using IdempotentImportExecutor: "
+                    + idempotentImportExecutor.getClass().getName());
+        injector = Guice.createInjector(workerModule, new JobModule(idempotentImportExecutor));
+      }
     } catch (Exception e) {
       monitor.severe(() -> "Unable to initialize Guice in Worker", e);
       throw e;
     }
-    worker = injector.getInstance(Worker.class);
+    if (maxConcurrentJobs > 1) {
+      multiJobWorker = injector.getInstance(MultiJobWorker.class);
+    } else {
+      worker = injector.getInstance(Worker.class);
+    }
 
     // Reset the JobMetadata in case set previously when running SingleVMMain
     JobMetadata.reset();
   }
 
   public void poll() {
-    worker.doWork();
+    if (multiJobWorker != null) {
+      multiJobWorker.doWork();
+    } else {
+      worker.doWork();
+    }
   }
 
   private static List<TransferExtension> getTransferExtensions(Monitor monitor) {
@@ -16,7 +16,6 @@
 package org.datatransferproject.transfer;
 
 import static com.google.common.collect.MoreCollectors.onlyElement;
-import static java.lang.String.format;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
@@ -25,36 +24,26 @@ import com.google.common.util.concurrent.AbstractScheduledService;
 import com.google.common.util.concurrent.AbstractScheduledService.Scheduler;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
-import java.io.IOException;
-import java.io.InputStream;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.concurrent.TimeUnit;
-import org.datatransferproject.api.launcher.DelegatingExtensionContext;
 import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
 import org.datatransferproject.api.launcher.ExtensionContext;
-import org.datatransferproject.api.launcher.MetricRecorder;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.config.FlagBindingModule;
 import org.datatransferproject.launcher.metrics.LoggingDtpInternalMetricRecorder;
-import org.datatransferproject.launcher.metrics.ServiceAwareMetricRecorder;
 import org.datatransferproject.security.SymmetricKeyGenerator;
 import org.datatransferproject.spi.cloud.extension.CloudExtension;
 import org.datatransferproject.spi.cloud.storage.AppCredentialStore;
 import org.datatransferproject.spi.cloud.storage.JobStore;
 import org.datatransferproject.spi.transfer.extension.TransferExtension;
 import org.datatransferproject.spi.transfer.hooks.JobHooks;
-import org.datatransferproject.spi.transfer.idempotentexecutor.IdempotentImportExecutor;
-import org.datatransferproject.spi.transfer.provider.Exporter;
-import org.datatransferproject.spi.transfer.provider.Importer;
 import org.datatransferproject.spi.transfer.security.AuthDataDecryptService;
 import org.datatransferproject.spi.transfer.security.PublicKeySerializer;
 import org.datatransferproject.spi.transfer.security.SecurityExtension;
 import org.datatransferproject.spi.transfer.security.TransferKeyGenerator;
-import org.datatransferproject.transfer.copier.InMemoryDataCopier;
 import org.datatransferproject.transfer.copier.InMemoryDataCopierClassLoader;
 import org.datatransferproject.types.transfer.retry.RetryStrategyLibrary;
-import org.datatransferproject.types.transfer.serviceconfig.TransferServiceConfig;
 
 final class WorkerModule extends FlagBindingModule {
 
@@ -62,7 +51,6 @@ final class WorkerModule extends FlagBindingModule {
   private final ExtensionContext context;
   private final List<TransferExtension> transferExtensions;
   private final SecurityExtension securityExtension;
-  private final IdempotentImportExecutor idempotentImportExecutor;
   private final SymmetricKeyGenerator symmetricKeyGenerator;
   private final JobHooks jobHooks;
 
@@ -71,14 +59,12 @@ final class WorkerModule extends FlagBindingModule {
       CloudExtension cloudExtension,
       List<TransferExtension> transferExtensions,
       SecurityExtension securityExtension,
-      IdempotentImportExecutor idempotentImportExecutor,
       SymmetricKeyGenerator symmetricKeyGenerator,
       JobHooks jobHooks) {
     this.cloudExtension = cloudExtension;
     this.context = context;
     this.transferExtensions = transferExtensions;
     this.securityExtension = securityExtension;
-    this.idempotentImportExecutor = idempotentImportExecutor;
     this.symmetricKeyGenerator = symmetricKeyGenerator;
     this.jobHooks = jobHooks;
   }
@@ -106,7 +92,6 @@ final class WorkerModule extends FlagBindingModule {
     bindFlags(context);
 
     bind(JobHooks.class).toInstance(jobHooks);
-    bind(InMemoryDataCopier.class).to(InMemoryDataCopierClassLoader.load());
     getMonitor()
         .info(() -> "Using InMemoryDataCopier: " + InMemoryDataCopierClassLoader.load().getName());
 
@@ -154,42 +139,6 @@ final class WorkerModule extends FlagBindingModule {
     return cloudExtension.getAppCredentialStore();
   }
 
-  @Provides
-  @Singleton
-  Exporter getExporter(ImmutableList<TransferExtension> transferExtensions) {
-    TransferExtension extension =
-        findTransferExtension(transferExtensions, JobMetadata.getExportService());
-    DelegatingExtensionContext serviceSpecificContext = new DelegatingExtensionContext(context);
-    serviceSpecificContext.registerOverrideService(
-        MetricRecorder.class,
-        new ServiceAwareMetricRecorder(
-            extension.getServiceId(),
-            context.getService(DtpInternalMetricRecorder.class)));
-    serviceSpecificContext.registerOverrideService(
-        TransferServiceConfig.class,
-        getTransferServiceConfig(extension));
-    extension.initialize(serviceSpecificContext);
-    return extension.getExporter(JobMetadata.getDataType());
-  }
-
-  @Provides
-  @Singleton
-  Importer getImporter(ImmutableList<TransferExtension> transferExtensions) {
-    TransferExtension extension =
-        findTransferExtension(transferExtensions, JobMetadata.getImportService());
-    DelegatingExtensionContext serviceSpecificContext = new DelegatingExtensionContext(context);
-    serviceSpecificContext.registerOverrideService(
-        MetricRecorder.class,
-        new ServiceAwareMetricRecorder(
-            extension.getServiceId(),
-            context.getService(DtpInternalMetricRecorder.class)));
-    serviceSpecificContext.registerOverrideService(
-        TransferServiceConfig.class,
-        getTransferServiceConfig(extension));
-    extension.initialize(serviceSpecificContext);
-    return extension.getImporter(JobMetadata.getDataType());
-  }
-
   @Provides
   @Singleton
   ImmutableList<TransferExtension> getTransferExtensions() {
@@ -217,7 +166,7 @@ final class WorkerModule extends FlagBindingModule {
   @Annotations.CancelScheduler
   Scheduler getCancelCheckingScheduler() {
     // TODO: parse a Duration from the settings
-    long interval = context.getSetting("cancelCheckPollInterval", 60000); // Default: poll every 1m
+    long interval = JobCancelWatchingService.getCancelCheckPollInterval(context);
     return AbstractScheduledService.Scheduler.newFixedDelaySchedule(
         0, interval, TimeUnit.MILLISECONDS);
   }
@@ -233,29 +182,4 @@ final class WorkerModule extends FlagBindingModule {
   ExtensionContext getContext() {
     return context;
   }
-
-  private TransferServiceConfig getTransferServiceConfig(TransferExtension ext) {
-    String configFileName = "config/" + ext.getServiceId().toLowerCase() + ".yaml";
-    InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream(configFileName);
-    getMonitor()
-        .info(
-            () ->
-                format(
-                    "Service %s has a config file: %s", ext.getServiceId(), (inputStream != null)));
-    if (inputStream == null) {
-      return TransferServiceConfig.getDefaultInstance();
-    } else {
-      try {
-        return TransferServiceConfig.create(inputStream);
-      } catch (IOException e) {
-        throw new RuntimeException("Couldn't create config for " + ext.getServiceId(), e);
-      }
-    }
-  }
-
-  @Provides
-  @Singleton
-  public IdempotentImportExecutor getIdempotentImportExecutor() {
-    return idempotentImportExecutor;
-  }
 }
@@ -22,6 +22,7 @@ import java.time.Clock;
 import java.util.Collection;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
 import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
 import org.datatransferproject.api.launcher.Monitor;
 import org.datatransferproject.launcher.monitor.events.EventCode;
@@ -37,6 +38,7 @@ import org.datatransferproject.transfer.CallableExporter;
 import org.datatransferproject.transfer.CallableImporter;
 import org.datatransferproject.transfer.JobMetadata;
 import org.datatransferproject.types.common.ExportInformation;
+import org.datatransferproject.types.common.models.DataModel;
 import org.datatransferproject.types.transfer.auth.AuthData;
 import org.datatransferproject.types.transfer.errors.ErrorDetail;
 import org.datatransferproject.types.transfer.retry.RetryException;
@@ -97,6 +99,25 @@ public abstract class PortabilityAbstractInMemoryDataCopier implements InMemoryD
       throws CopyException {
     monitor.debug(() -> jobIdPrefix + "Copy iteration: " + copyIteration);
 
+    ExportResult<?> exportResult =
+        exportIteration(jobId, exportAuthData, exportInformation, jobIdPrefix, copyIteration);
+
+    if (exportResult.getExportedData() != null) {
+      importIteration(
+          jobId, importAuthData, exportResult.getExportedData(), jobIdPrefix, copyIteration);
+    }
+    return exportResult;
+  }
+
+  /** Exports a single page of data, the first half of a copy iteration. */
+  protected ExportResult<?> exportIteration(
+      UUID jobId,
+      AuthData exportAuthData,
+      Optional<ExportInformation> exportInformation,
+      String jobIdPrefix,
+      int copyIteration)
+      throws CopyException {
+    checkNotStopped(jobIdPrefix);
     RetryStrategyLibrary retryStrategyLibrary = retryStrategyLibraryProvider.get();
 
     monitor.debug(
@@ -129,51 +150,72 @@ public abstract class PortabilityAbstractInMemoryDataCopier implements InMemoryD
     monitor.debug(
             () -> jobIdPrefix + "Finished export, copy iteration: " + copyIteration,
             EventCode.COPIER_FINISHED_EXPORT);
+    return exportResult;
+  }
 
-    if (exportResult.getExportedData() != null) {
-      monitor.debug(
-              () -> jobIdPrefix + "Starting import, copy iteration: " + copyIteration,
-              EventCode.COPIER_STARTED_IMPORT);
-      CallableImporter callableImporter =
-              new CallableImporter(
-                      importerProvider,
-                      jobId,
-                      idempotentImportExecutor,
-                      importAuthData,
-                      exportResult.getExportedData(),
-                      metricRecorder);
-      RetryingCallable<ImportResult> retryingImporter =
-              new RetryingCallable<>(
-                      callableImporter, retryStrategyLibrary, Clock.systemUTC(), monitor, JobMetadata.getDataType(), JobMetadata.getImportService());
-      boolean importSuccess = false;
-      Stopwatch importStopwatch = Stopwatch.createStarted();
-      try {
-        ImportResult importResult = retryingImporter.call();
-        importSuccess = importResult.getType() == ImportResult.ResultType.OK;
-        if (importSuccess) {
-          try {
-            jobStore.addCounts(jobId, importResult.getCounts().orElse(null));
-            jobStore.addBytes(jobId, importResult.getBytes().orElse(null));
-          } catch (IOException e) {
-            monitor.debug(() -> jobIdPrefix + "Unable to add counts to job: ", e);
-          }
-        }
-      } catch (RetryException | RuntimeException e) {
-        if (e.getClass() == RetryException.class
-                && CopyExceptionWithFailureReason.class.isAssignableFrom(e.getCause().getClass())) {
-          throw (CopyExceptionWithFailureReason) e.getCause();
+  /** Imports a single page of exported data, the second half of a copy iteration. */
+  protected void importIteration(
+      UUID jobId,
+      AuthData importAuthData,
+      DataModel exportedData,
+      String jobIdPrefix,
+      int copyIteration)
+      throws CopyException {
+    checkNotStopped(jobIdPrefix);
+    RetryStrategyLibrary retryStrategyLibrary = retryStrategyLibraryProvider.get();
+
+    monitor.debug(
+            () -> jobIdPrefix + "Starting import, copy iteration: " + copyIteration,
+            EventCode.COPIER_STARTED_IMPORT);
+    CallableImporter callableImporter =
+            new CallableImporter(
+                    importerProvider,
+                    jobId,
+                    idempotentImportExecutor,
+                    importAuthData,
+                    exportedData,
+                    metricRecorder);
+    RetryingCallable<ImportResult> retryingImporter =
+            new RetryingCallable<>(
+                    callableImporter, retryStrategyLibrary, Clock.systemUTC(), monitor, JobMetadata.getDataType(), JobMetadata.getImportService());
+    boolean importSuccess = false;
+    Stopwatch importStopwatch = Stopwatch.createStarted();
+    try {
+      ImportResult importResult = retryingImporter.call();
+      importSuccess = importResult.getType() == ImportResult.ResultType.OK;
+      if (importSuccess) {
+        try {
+          jobStore.addCounts(jobId, importResult.getCounts().orElse(null));
+          jobStore.addBytes(jobId, importResult.getBytes().orElse(null));
+        } catch (IOException e) {
+          monitor.debug(() -> jobIdPrefix + "Unable to add counts to job: ", e);
         }
-      } finally {
-        metricRecorder.importPageFinished(
-                JobMetadata.getDataType(),
-                JobMetadata.getImportService(),
-                importSuccess,
-                importStopwatch.elapsed());
       }
-      monitor.debug(
-              () -> jobIdPrefix + "Finished import, copy iteration: " + copyIteration,
-              EventCode.COPIER_FINISHED_IMPORT);
+    } catch (RetryException | RuntimeException e) {
+      if (e.getClass() == RetryException.class
+              && CopyExceptionWithFailureReason.class.isAssignableFrom(e.getCause().getClass())) {
+        throw (CopyExceptionWithFailureReason) e.getCause();
+      }
+    } finally {
+      metricRecorder.importPageFinished(
+              JobMetadata.getDataType(),
+              JobMetadata.getImportService(),
+              importSuccess,
+              importStopwatch.elapsed());
+    }
+    monitor.debug(
+            () -> jobIdPrefix + "Finished import, copy iteration: " + copyIteration,
+            EventCode.COPIER_FINISHED_IMPORT);
+  }
+
+  /**
+   * Gives up on the copy once the job was stopped, e.g. canceled. Checked before every page of
+   * every container, since the exporters and importers may not notice the interrupt.
+   */
+  protected static void checkNotStopped(String jobIdPrefix) throws CopyException {
+    if (JobMetadata.isStopped() || Thread.currentThread().isInterrupted()) {
+      throw new CopyException(
+          jobIdPrefix + "Stopped copying", new CancellationException("The job was stopped"));
     }
-    return exportResult;
   }
 }
@@ -17,11 +17,20 @@ package org.datatransferproject.transfer.copier;
 
 import static java.lang.String.format;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Provider;
+import com.google.inject.name.Named;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.inject.Inject;
 import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
@@ -39,13 +48,20 @@ import org.datatransferproject.types.transfer.auth.AuthData;
 import org.datatransferproject.types.transfer.errors.ErrorDetail;
 import org.datatransferproject.types.transfer.retry.RetryStrategyLibrary;
 
-/** Implementation of {@link InMemoryDataCopier}. */
+/**
+ * Implementation of {@link InMemoryDataCopier}.
+ *
+ * <p>When both services allow it through {@code maxConcurrentContainers} in their
+ * config/[service].yaml, sibling container resources are copied in parallel, with at most that
+ * many containers in flight at once.
+ */
 public class PortabilityInMemoryDataCopier extends PortabilityAbstractInMemoryDataCopier
     implements InMemoryDataCopier {
 
   private static final AtomicInteger COPY_ITERATION_COUNTER = new AtomicInteger();
 
-  @Inject
+  private final Provider<Integer> maxConcurrentContainersProvider;
+
   public PortabilityInMemoryDataCopier(
       Provider<Exporter> exporterProvider,
       Provider<Importer> importerProvider,
@@ -54,6 +70,27 @@ public class PortabilityInMemoryDataCopier extends PortabilityAbstractInMemoryDa
       IdempotentImportExecutor idempotentImportExecutor,
       DtpInternalMetricRecorder dtpInternalMetricRecorder,
       JobStore jobStore) {
+    this(
+        exporterProvider,
+        importerProvider,
+        retryStrategyLibraryProvider,
+        monitor,
+        idempotentImportExecutor,
+        dtpInternalMetricRecorder,
+        jobStore,
+        () -> 1);
+  }
+
+  @Inject
+  public PortabilityInMemoryDataCopier(
+      Provider<Exporter> exporterProvider,
+      Provider<Importer> importerProvider,
+      Provider<RetryStrategyLibrary> retryStrategyLibraryProvider,
+      Monitor monitor,
+      IdempotentImportExecutor idempotentImportExecutor,
+      DtpInternalMetricRecorder dtpInternalMetricRecorder,
+      JobStore jobStore,
+      @Named("maxConcurrentContainers") Provider<Integer> maxConcurrentContainersProvider) {
     super(
         exporterProvider,
         importerProvider,
@@ -62,6 +99,7 @@ public class PortabilityInMemoryDataCopier extends PortabilityAbstractInMemoryDa
         idempotentImportExecutor,
         dtpInternalMetricRecorder,
         jobStore);
+    this.maxConcurrentContainersProvider = maxConcurrentContainersProvider;
   }
 
   @Override
@@ -78,7 +116,24 @@ public class PortabilityInMemoryDataCopier extends PortabilityAbstractInMemoryDa
       Optional<ExportInformation> exportInfo)
       throws IOException, CopyException {
     idempotentImportExecutor.setJobId(jobId);
-    return copyHelper(exportAuthData, importAuthData, jobId, exportInfo);
+    int maxConcurrentContainers = maxConcurrentContainersProvider.get();
+    if (maxConcurrentContainers <= 1) {
+      return copyHelper(exportAuthData, importAuthData, jobId, exportInfo, null);
+    }
+    ExecutorService executor =
+        Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("container-copier-%d").build());
+    try {
+      // The calling thread copies containers too, so it takes one of the slots.
+      return copyHelper(
+          exportAuthData,
+          importAuthData,
+          jobId,
+          exportInfo,
+          new ContainerFanOut(executor, maxConcurrentContainers - 1));
+    } finally {
+      executor.shutdownNow();
+    }
   }
 
   /**
@@ -90,12 +145,14 @@ public class PortabilityInMemoryDataCopier extends PortabilityAbstractInMemoryDa
    * @param exportAuthData The auth data for the export
    * @param importAuthData The auth data for the import
    * @param exportInfo Any pagination or resource information to use for subsequent calls.
+   * @param containerFanOut Where to copy sub-resources in parallel, or null to copy them in turn.
    */
   private Collection<ErrorDetail> copyHelper(
       AuthData exportAuthData,
       AuthData importAuthData,
       UUID jobId,
-      Optional<ExportInformation> exportInfo)
+      Optional<ExportInformation> exportInfo,
+      ContainerFanOut containerFanOut)
       throws CopyException {
 
     String jobIdPrefix = "Job " + jobId + ": ";
@@ -127,26 +184,106 @@ public class PortabilityInMemoryDataCopier extends PortabilityAbstractInMemoryDa
             Optional.of(
                 new ExportInformation(
                     continuationData.getPaginationData(),
-                    exportInfo.isPresent() ? exportInfo.get().getContainerResource() : null)));
+                    exportInfo.isPresent() ? exportInfo.get().getContainerResource() : null)),
+            containerFanOut);
       }
 
       // Start processing sub-resources
       if (continuationData.getContainerResources() != null
           && !continuationData.getContainerResources().isEmpty()) {
+        List<Future<?>> inFlightContainers = new ArrayList<>();
         for (ContainerResource resource : continuationData.getContainerResources()) {
           monitor.debug(
               () ->
                   jobIdPrefix
                       + "Starting off a new copy iteration with a new container resource, copy iteration: "
                       + copyIteration);
-          copyHelper(
-              exportAuthData,
-              importAuthData,
-              jobId,
-              Optional.of(new ExportInformation(null, resource)));
+          Optional<ExportInformation> resourceExportInfo =
+              Optional.of(new ExportInformation(null, resource));
+          Future<?> inFlightContainer =
+              containerFanOut == null
+                  ? null
+                  : containerFanOut.trySubmit(
+                      () ->
+                          copyHelper(
+                              exportAuthData,
+                              importAuthData,
+                              jobId,
+                              resourceExportInfo,
+                              containerFanOut));
+          if (inFlightContainer != null) {
+            inFlightContainers.add(inFlightContainer);
+          } else {
+            copyHelper(exportAuthData, importAuthData, jobId, resourceExportInfo, containerFanOut);
+          }
         }
+        awaitContainers(jobIdPrefix, inFlightContainers);
       }
     }
     return idempotentImportExecutor.getErrors();
   }
+
+  private static void awaitContainers(String jobIdPrefix, List<Future<?>> inFlightContainers)
+      throws CopyException {
+    CopyException firstException = null;
+    // Wait for every container, even after a failure, so no copy outlives this iteration.
+    for (Future<?> inFlightContainer : inFlightContainers) {
+      try {
+        inFlightContainer.get();
+      } catch (ExecutionException e) {
+        if (firstException == null) {
+          firstException =
+              e.getCause() instanceof CopyException
+                  ? (CopyException) e.getCause()
+                  : new CopyException(jobIdPrefix + "Error copying container", e.getCause());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CopyException(jobIdPrefix + "Interrupted while copying containers", e);
+      }
+    }
+    if (firstException != null) {
+      throw firstException;
+    }
+  }
+
+  /**
+   * Runs container copies on other threads while fewer than a fixed number of them are in flight.
+   * Callers copy a container themselves when no slot is free, so nested containers never wait on a
+   * slot held by their parent.
+   */
+  private static class ContainerFanOut {
+    private final ExecutorService executor;
+    private final Semaphore slots;
+
+    ContainerFanOut(ExecutorService executor, int maxInFlight) {
+      this.executor = executor;
+      this.slots = new Semaphore(maxInFlight);
+    }
+
+    /** Returns the future of the submitted copy, or null if no slot is free. */
+    Future<?> trySubmit(ContainerCopy copy) {
+      if (!slots.tryAcquire()) {
+        return null;
+      }
+      try {
+        return executor.submit(
+            () -> {
+              try {
+                copy.run();
+                return null;
+              } finally {
+                slots.release();
+              }
+            });
+      } catch (RuntimeException e) {
+        slots.release();
+        throw e;
+      }
+    }
+  }
+
+  private interface ContainerCopy {
+    void run() throws CopyException;
+  }
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.transfer;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.AbstractScheduledService.Scheduler;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.datatransferproject.api.launcher.DtpInternalMetricRecorder;
+import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.cloud.local.LocalJobStore;
+import org.datatransferproject.spi.cloud.storage.JobStore;
+import org.datatransferproject.spi.cloud.types.JobAuthorization;
+import org.datatransferproject.spi.cloud.types.PortabilityJob;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JobCancelWatchingServiceTest {
+  private static final UUID TEST_ID = UUID.randomUUID();
+
+  private final JobStore store = new LocalJobStore();
+
+  @Before
+  public void setUp() {
+    JobMetadata.bindNewScope();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    store.remove(TEST_ID);
+    JobMetadata.unbindScope();
+  }
+
+  @Test(timeout = 10_000)
+  public void stoppedJobIsOnlyStoppedOnce() throws Exception {
+    store.createJob(
+        TEST_ID,
+        PortabilityJob.builder()
+            .setState(PortabilityJob.State.CANCELED)
+            .setTransferDataType("photo")
+            .setExportService("DummyExportService")
+            .setImportService("DummyImportService")
+            .setAndValidateJobAuthorization(
+                JobAuthorization.builder()
+                    .setEncryptionScheme("cleartext")
+                    .setState(JobAuthorization.State.INITIAL)
+                    .setSessionSecretKey("fooBar")
+                    .build())
+            .build());
+    JobMetadata.init(
+        TEST_ID,
+        "TestPrivateKey".getBytes(),
+        "photo",
+        "DummyExportService",
+        "DummyImportService",
+        Stopwatch.createUnstarted());
+    AtomicInteger stops = new AtomicInteger();
+    JobCancelWatchingService service =
+        new JobCancelWatchingService(
+            store,
+            Scheduler.newFixedDelaySchedule(0, 1, TimeUnit.MILLISECONDS),
+            new Monitor() {},
+            mock(DtpInternalMetricRecorder.class),
+            1,
+            stops::incrementAndGet);
+
+    service.startAsync();
+    service.awaitTerminated();
+    // Give any further, erroneous iteration the time to run.
+    Thread.sleep(100);
+
+    assertThat(stops.get()).isEqualTo(1);
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.transfer;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Stopwatch;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Test;
+
+public class JobMetadataTest {
+
+  @After
+  public void tearDown() {
+    JobMetadata.reset();
+    JobMetadata.unbindScope();
+  }
+
+  @Test
+  public void boundScopeIsIsolatedFromDefault() throws Exception {
+    UUID jobId = UUID.randomUUID();
+    AtomicBoolean initializedInScope = new AtomicBoolean();
+    Thread jobThread =
+        new Thread(
+            () -> {
+              JobMetadata.bindNewScope();
+              init(jobId);
+              initializedInScope.set(JobMetadata.isInitialized());
+            });
+    jobThread.start();
+    jobThread.join();
+
+    assertThat(initializedInScope.get()).isTrue();
+    assertThat(JobMetadata.isInitialized()).isFalse();
+  }
+
+  @Test
+  public void childThreadsShareBoundScope() throws Exception {
+    UUID jobId = UUID.randomUUID();
+    AtomicReference<UUID> seenJobId = new AtomicReference<>();
+    JobMetadata.bindNewScope();
+
+    // The child is started before the scope is initialized, as the polling service thread is.
+    Thread child = new Thread(() -> init(jobId));
+    child.start();
+    child.join();
+
+    Thread reader = new Thread(() -> seenJobId.set(JobMetadata.getJobId()));
+    reader.start();
+    reader.join();
+
+    assertThat(JobMetadata.getJobId()).isEqualTo(jobId);
+    assertThat(seenJobId.get()).isEqualTo(jobId);
+  }
+
+  @Test
+  public void stopperOnlyStopsTheJobOfItsScope() throws Exception {
+    AtomicBoolean stoppedInScope = new AtomicBoolean();
+    AtomicBoolean stoppedInChild = new AtomicBoolean();
+    Thread jobThread =
+        new Thread(
+            () -> {
+              JobMetadata.bindNewScope();
+              Runnable stopper = JobMetadata.stopper();
+              // The stopper is run by the cancel watching service, on another thread.
+              Thread canceler = new Thread(stopper);
+              canceler.start();
+              try {
+                canceler.join();
+                Thread child = new Thread(() -> stoppedInChild.set(JobMetadata.isStopped()));
+                child.start();
+                child.join();
+              } catch (InterruptedException e) {
+                throw new AssertionError(e);
+              }
+              stoppedInScope.set(JobMetadata.isStopped());
+            });
+    jobThread.start();
+    jobThread.join();
+
+    assertThat(stoppedInScope.get()).isTrue();
+    assertThat(stoppedInChild.get()).isTrue();
+    assertThat(JobMetadata.isStopped()).isFalse();
+  }
+
+  private static void init(UUID jobId) {
+    JobMetadata.init(
+        jobId,
+        "TestPrivateKey".getBytes(),
+        "PHOTOS",
+        "DummyExportService",
+        "DummyImportService",
+        Stopwatch.createUnstarted());
+  }
+}
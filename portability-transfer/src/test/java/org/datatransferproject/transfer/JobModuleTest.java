@@ -0,0 +1,65 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.transfer;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.datatransferproject.api.launcher.ExtensionContext;
+import org.datatransferproject.spi.transfer.extension.TransferExtension;
+import org.datatransferproject.spi.transfer.provider.Exporter;
+import org.datatransferproject.spi.transfer.provider.Importer;
+import org.junit.Test;
+
+public class JobModuleTest {
+
+  @Test
+  public void eachJobGetsItsOwnUninitializedExtension() {
+    FakeTransferExtension shared = new FakeTransferExtension();
+    shared.initialize(null);
+
+    TransferExtension first = JobModule.newJobInstance(shared);
+    TransferExtension second = JobModule.newJobInstance(shared);
+
+    assertThat(first).isInstanceOf(FakeTransferExtension.class);
+    assertThat(first).isNotSameAs(shared);
+    assertThat(first).isNotSameAs(second);
+    assertThat(((FakeTransferExtension) first).initialized).isFalse();
+  }
+
+  public static final class FakeTransferExtension implements TransferExtension {
+    private boolean initialized;
+
+    @Override
+    public String getServiceId() {
+      return "FAKE";
+    }
+
+    @Override
+    public Exporter<?, ?> getExporter(String transferDataType) {
+      return null;
+    }
+
+    @Override
+    public Importer<?, ?> getImporter(String transferDataType) {
+      return null;
+    }
+
+    @Override
+    public void initialize(ExtensionContext context) {
+      initialized = true;
+    }
+  }
+}
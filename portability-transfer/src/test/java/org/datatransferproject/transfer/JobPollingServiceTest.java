@@ -27,6 +27,7 @@ import org.datatransferproject.spi.cloud.types.PortabilityJob;
 import org.datatransferproject.spi.transfer.security.PublicKeySerializer;
 import org.datatransferproject.spi.transfer.security.SecurityException;
 import org.datatransferproject.spi.transfer.security.TransferKeyGenerator.WorkerKeyPair;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -37,6 +38,7 @@ import java.security.KeyPair;
 import java.security.PublicKey;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
 import java.util.Collections;
 import java.util.Set;
 import java.util.UUID;
@@ -76,6 +78,7 @@ public class JobPollingServiceTest {
 
   @Before
   public void setUp() {
+    JobMetadata.bindNewScope();
     store = new LocalJobStore();
     PublicKeySerializer serializer =
         new PublicKeySerializer() {
@@ -93,10 +96,19 @@ public class JobPollingServiceTest {
     Monitor monitor = new Monitor() {};
     ExtensionContext extensionContext = mock(ExtensionContext.class);
     when(extensionContext.getSetting("credTimeoutSeconds", 300)).thenReturn(300);
+    when(extensionContext.getSetting("claimCandidates", 16)).thenReturn(16);
+    when(extensionContext.getSetting("jobLeaseSeconds", 60)).thenReturn(60);
+    when(extensionContext.getSetting("pollInterval", 2000)).thenReturn(2000);
+    when(extensionContext.getSetting("notifiedPollInterval", 60000)).thenReturn(60000);
     jobPollingService =
         new JobPollingService(store, asymmetricKeyGenerator, serializer, scheduler, monitor, extensionContext);
   }
 
+  @After
+  public void tearDown() {
+    JobMetadata.unbindScope();
+  }
+
   // TODO(data-transfer-project/issues/43): Make this an integration test which uses both the API
   // and transfer worker, rather than simulating API calls, in case this test ever diverges from
   // what the API actually does.
@@ -181,4 +193,126 @@ public class JobPollingServiceTest {
 
     store.remove(TEST_ID);
   }
+
+  @Test
+  public void jobWithExpiredLeaseIsClaimedAgain() throws Exception {
+    when(asymmetricKeyGenerator.generate()).thenReturn(TEST_KEY_PAIR);
+    createJobClaimedByAnotherWorker(Instant.now().minusSeconds(1));
+
+    jobPollingService.runOneIteration();
+
+    assertThat(JobMetadata.isInitialized()).isTrue();
+    assertThat(JobMetadata.getJobId()).isEqualTo(TEST_ID);
+    PortabilityJob job = store.findJob(TEST_ID);
+    assertThat(job.jobAuthorization().instanceId()).isNotEqualTo("crashedWorker");
+    assertThat(job.leaseExpiration()).isGreaterThan(Instant.now());
+
+    store.remove(TEST_ID);
+  }
+
+  @Test
+  public void jobWithLiveLeaseIsNotClaimed() throws Exception {
+    createJobClaimedByAnotherWorker(Instant.now().plusSeconds(60));
+
+    jobPollingService.runOneIteration();
+
+    assertThat(JobMetadata.isInitialized()).isFalse();
+    assertThat(store.findJob(TEST_ID).jobAuthorization().instanceId()).isEqualTo("crashedWorker");
+
+    store.remove(TEST_ID);
+  }
+
+  @Test
+  public void jobWithExpiredLeaseIsClaimedWhileOtherJobsAreAvailable() throws Exception {
+    when(asymmetricKeyGenerator.generate()).thenReturn(TEST_KEY_PAIR);
+    UUID availableJobId = UUID.randomUUID();
+    store.createJob(
+        availableJobId,
+        PortabilityJob.builder()
+            .setTransferDataType("photo")
+            .setExportService("DummyExportService")
+            .setImportService("DummyImportService")
+            .setAndValidateJobAuthorization(
+                JobAuthorization.builder()
+                    .setEncryptionScheme("cleartext")
+                    .setState(State.INITIAL)
+                    .setSessionSecretKey("fooBar")
+                    .build())
+            .build());
+    store.updateJobAuthStateToCredsAvailable(availableJobId);
+    createJobClaimedByAnotherWorker(Instant.now().minusSeconds(1));
+
+    jobPollingService.runOneIteration();
+
+    assertThat(JobMetadata.getJobId()).isEqualTo(TEST_ID);
+    assertThat(store.findJob(availableJobId).jobAuthorization().state())
+        .isEqualTo(State.CREDS_AVAILABLE);
+
+    store.remove(availableJobId);
+    store.remove(TEST_ID);
+  }
+
+  private void createJobClaimedByAnotherWorker(Instant leaseExpiration) throws Exception {
+    PortabilityJob job =
+        PortabilityJob.builder()
+            .setTransferDataType("photo")
+            .setExportService("DummyExportService")
+            .setImportService("DummyImportService")
+            .setAndValidateJobAuthorization(
+                JobAuthorization.builder()
+                    .setEncryptionScheme("cleartext")
+                    .setState(State.INITIAL)
+                    .setSessionSecretKey("fooBar")
+                    .build())
+            .build();
+    store.createJob(TEST_ID, job);
+    store.updateJobAuthStateToCredsAvailable(TEST_ID);
+    job = store.findJob(TEST_ID);
+    store.claimJob(
+        TEST_ID,
+        job.toBuilder()
+            .setAndValidateJobAuthorization(
+                job.jobAuthorization()
+                    .toBuilder()
+                    .setInstanceId("crashedWorker")
+                    .setAuthPublicKey("crashedWorkerKey")
+                    .setState(State.CREDS_ENCRYPTION_KEY_GENERATED)
+                    .build())
+            .setLeaseExpiration(leaseExpiration)
+            .build());
+  }
+
+  @Test
+  public void availableJobIsClaimedWithoutWaitingForThePollInterval() throws Exception {
+    when(asymmetricKeyGenerator.generate()).thenReturn(TEST_KEY_PAIR);
+    jobPollingService.startAsync().awaitRunning();
+    try {
+      PortabilityJob job =
+          PortabilityJob.builder()
+              .setTransferDataType("photo")
+              .setExportService("DummyExportService")
+              .setImportService("DummyImportService")
+              .setAndValidateJobAuthorization(
+                  JobAuthorization.builder()
+                      .setEncryptionScheme("cleartext")
+                      .setState(State.INITIAL)
+                      .setSessionSecretKey("fooBar")
+                      .build())
+              .build();
+      store.createJob(TEST_ID, job);
+      store.updateJobAuthStateToCredsAvailable(TEST_ID);
+
+      // The service waits up to a minute between polls, unless it's notified of the job.
+      long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+      while (store.findJob(TEST_ID).jobAuthorization().state() == State.CREDS_AVAILABLE
+          && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertThat(store.findJob(TEST_ID).jobAuthorization().state())
+          .isEqualTo(State.CREDS_ENCRYPTION_KEY_GENERATED);
+    } finally {
+      jobPollingService.stopAsync().awaitTerminated(10, TimeUnit.SECONDS);
+      store.remove(TEST_ID);
+    }
+  }
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.transfer.copier;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.spi.transfer.provider.ExportResult;
+import org.datatransferproject.spi.transfer.provider.ExportResult.ResultType;
+import org.datatransferproject.spi.transfer.types.ContinuationData;
+import org.datatransferproject.spi.transfer.types.CopyException;
+import org.datatransferproject.test.types.FakeIdempotentImportExecutor;
+import org.datatransferproject.types.common.ExportInformation;
+import org.datatransferproject.types.common.models.ContainerResource;
+import org.datatransferproject.types.transfer.auth.AuthData;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class PortabilityInMemoryDataCopierConcurrencyTest {
+  private static final int CONTAINERS = 3;
+
+  private UUID jobId;
+  private AuthData authData;
+
+  /**
+   * Exports a root page with {@link #CONTAINERS} albums. Each album waits, without a timeout, until
+   * {@code meetingContainers} of them have started, so the tests only pass if that many are really
+   * copied at the same time, and hang until their timeout otherwise.
+   */
+  private static class TestPortabilityInMemoryDataCopier extends PortabilityInMemoryDataCopier {
+    private final CountDownLatch containersStarted;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final List<Integer> copied = Collections.synchronizedList(new ArrayList<>());
+    private Integer failingContainer;
+
+    TestPortabilityInMemoryDataCopier(int maxConcurrentContainers, int meetingContainers) {
+      super(
+          null,
+          null,
+          null,
+          Mockito.mock(Monitor.class),
+          new FakeIdempotentImportExecutor(),
+          null,
+          null,
+          () -> maxConcurrentContainers);
+      containersStarted = new CountDownLatch(meetingContainers);
+    }
+
+    @Override
+    protected ExportResult<?> copyIteration(
+        UUID jobId,
+        AuthData exportAuthData,
+        AuthData importAuthData,
+        Optional<ExportInformation> exportInformation,
+        String jobIdPrefix,
+        int copyIteration)
+        throws CopyException {
+      if (!exportInformation.isPresent()) {
+        ContinuationData continuationData = new ContinuationData(null);
+        for (int i = 0; i < CONTAINERS; i++) {
+          continuationData.addContainerResource(new IndexedContainer(i));
+        }
+        return new ExportResult<>(ResultType.CONTINUE, null, continuationData);
+      }
+      int container = ((IndexedContainer) exportInformation.get().getContainerResource()).index;
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      try {
+        containersStarted.countDown();
+        if (failingContainer != null && container == failingContainer) {
+          throw new CopyException("copy failed", null);
+        }
+        containersStarted.await();
+      } catch (InterruptedException e) {
+        throw new CopyException("interrupted", e);
+      } finally {
+        inFlight.decrementAndGet();
+      }
+      copied.add(container);
+      return new ExportResult<>(ResultType.END, null);
+    }
+  }
+
+  private static class IndexedContainer extends ContainerResource {
+    private final int index;
+
+    IndexedContainer(int index) {
+      this.index = index;
+    }
+  }
+
+  @Before
+  public void setUp() {
+    jobId = UUID.randomUUID();
+    authData = Mockito.mock(AuthData.class);
+  }
+
+  @Test(timeout = 10_000)
+  public void copiesContainersOneAtATimeByDefault() throws Exception {
+    TestPortabilityInMemoryDataCopier copier = new TestPortabilityInMemoryDataCopier(1, 0);
+
+    copier.copy(authData, authData, jobId, Optional.empty());
+
+    assertThat(copier.copied).hasSize(CONTAINERS);
+    assertThat(copier.maxInFlight.get()).isEqualTo(1);
+  }
+
+  @Test(timeout = 10_000)
+  public void copiesSiblingContainersConcurrently() throws Exception {
+    TestPortabilityInMemoryDataCopier copier =
+        new TestPortabilityInMemoryDataCopier(CONTAINERS, CONTAINERS);
+
+    copier.copy(authData, authData, jobId, Optional.empty());
+
+    assertThat(copier.copied).hasSize(CONTAINERS);
+    assertThat(copier.maxInFlight.get()).isEqualTo(CONTAINERS);
+  }
+
+  @Test(timeout = 10_000)
+  public void neverExceedsMaxConcurrentContainers() throws Exception {
+    TestPortabilityInMemoryDataCopier copier = new TestPortabilityInMemoryDataCopier(2, 2);
+
+    copier.copy(authData, authData, jobId, Optional.empty());
+
+    assertThat(copier.copied).hasSize(CONTAINERS);
+    assertThat(copier.maxInFlight.get()).isAtMost(2);
+  }
+
+  @Test(timeout = 10_000)
+  public void failedContainerFailsCopyAfterSiblingsFinish() throws Exception {
+    TestPortabilityInMemoryDataCopier copier =
+        new TestPortabilityInMemoryDataCopier(CONTAINERS, CONTAINERS);
+    copier.failingContainer = 1;
+
+    try {
+      copier.copy(authData, authData, jobId, Optional.empty());
+      fail("Expected the failed container to fail the copy");
+    } catch (CopyException expected) {
+    }
+    assertThat(copier.copied).containsExactly(0, 2);
+  }
+}
@@ -27,6 +27,7 @@ import org.datatransferproject.types.common.ExportInformation;
 import org.datatransferproject.types.common.PaginationData;
 import org.datatransferproject.types.common.models.ContainerResource;
 import org.datatransferproject.types.transfer.auth.AuthData;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -38,6 +39,7 @@ import org.mockito.Mockito;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.Stack;
 import java.util.UUID;
@@ -456,19 +458,28 @@ public class PortabilityInMemoryDataCopierTest {
         .when(stackInMemoryDataCopier)
         .copyIteration(
             jobId, exportAuthData, importAuthData, Optional.of(exportInfo), jobIdPrefix, 1);
+    // The copier keeps modifying the stack it stores, so copy it as it was when stored.
+    List<List<ExportInformation>> storedStacks = new ArrayList<>();
+    Mockito.doAnswer(
+            invocation ->
+                storedStacks.add(
+                    new ArrayList<>(invocation.<Stack<ExportInformation>>getArgument(1))))
+        .when(stackInMemoryDataCopier.jobStore)
+        .storeJobStack(Mockito.eq(jobId), Mockito.any());
 
     // Act
     stackInMemoryDataCopier.copy(exportAuthData, importAuthData, jobId, Optional.of(exportInfo));
 
     // Assert
-    InOrder orderVerifier = Mockito.inOrder(stackInMemoryDataCopier.jobStore);
-    orderVerifier.verify(stackInMemoryDataCopier.jobStore).storeJobStack(jobId, jobStack);
+    List<List<ExportInformation>> expectedStacks = new ArrayList<>();
+    expectedStacks.add(new ArrayList<>(jobStack));
     jobStack.pop();
-    orderVerifier.verify(stackInMemoryDataCopier.jobStore).storeJobStack(jobId, jobStack);
+    expectedStacks.add(new ArrayList<>(jobStack));
     jobStack.pop();
-    orderVerifier.verify(stackInMemoryDataCopier.jobStore).storeJobStack(jobId, jobStack);
+    expectedStacks.add(new ArrayList<>(jobStack));
     jobStack.pop();
-    orderVerifier.verify(stackInMemoryDataCopier.jobStore).storeJobStack(jobId, jobStack);
+    expectedStacks.add(new ArrayList<>(jobStack));
+    Assert.assertEquals(expectedStacks, storedStacks);
   }
 
   @Test
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.datatransferproject.transfer.copier;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import org.datatransferproject.api.launcher.ExtensionContext;
+import org.datatransferproject.api.launcher.Monitor;
+import org.datatransferproject.copier.pipelined.PortabilityPipelinedInMemoryDataCopier;
+import org.datatransferproject.spi.cloud.storage.JobStore;
+import org.datatransferproject.spi.transfer.provider.ExportResult;
+import org.datatransferproject.spi.transfer.provider.ExportResult.ResultType;
+import org.datatransferproject.spi.transfer.types.ContinuationData;
+import org.datatransferproject.spi.transfer.types.CopyException;
+import org.datatransferproject.test.types.FakeIdempotentImportExecutor;
+import org.datatransferproject.types.common.ExportInformation;
+import org.datatransferproject.types.common.StringPaginationToken;
+import org.datatransferproject.types.common.models.ContainerResource;
+import org.datatransferproject.types.common.models.DataModel;
+import org.datatransferproject.types.transfer.auth.AuthData;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class PortabilityPipelinedInMemoryDataCopierTest {
+  private static final String ROOT = "root";
+
+  private UUID jobId;
+  private AuthData authData;
+  private TestPipelinedInMemoryDataCopier copier;
+
+  /** Exports scripted pages keyed by a name for their export information. */
+  private static class TestPipelinedInMemoryDataCopier
+      extends PortabilityPipelinedInMemoryDataCopier {
+    private final Map<String, ExportResult<?>> exportResults = new HashMap<>();
+    private final List<String> exported = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> imported = Collections.synchronizedList(new ArrayList<>());
+    private String failingExport;
+    private String failingImport;
+
+    TestPipelinedInMemoryDataCopier(ExtensionContext context) {
+      super(
+          null,
+          null,
+          null,
+          Mockito.mock(Monitor.class),
+          new FakeIdempotentImportExecutor(),
+          null,
+          Mockito.mock(JobStore.class),
+          Mockito.mock(ObjectMapper.class),
+          context);
+    }
+
+    @Override
+    protected ExportResult<?> exportIteration(
+        UUID jobId,
+        AuthData exportAuthData,
+        Optional<ExportInformation> exportInformation,
+        String jobIdPrefix,
+        int copyIteration)
+        throws CopyException {
+      String name =
+          exportInformation.map(PortabilityPipelinedInMemoryDataCopierTest::nameOf).orElse(ROOT);
+      if (name.equals(failingExport)) {
+        throw new CopyException("export failed", null);
+      }
+      exported.add(name);
+      return exportResults.get(name);
+    }
+
+    @Override
+    protected void importIteration(
+        UUID jobId,
+        AuthData importAuthData,
+        DataModel exportedData,
+        String jobIdPrefix,
+        int copyIteration)
+        throws CopyException {
+      String name = ((NamedData) exportedData).name;
+      if (name.equals(failingImport)) {
+        throw new CopyException("import failed", null);
+      }
+      imported.add(name);
+    }
+  }
+
+  private static class NamedData extends DataModel {
+    private final String name;
+
+    NamedData(String name) {
+      this.name = name;
+    }
+  }
+
+  private static class NamedContainer extends ContainerResource {
+    private final String name;
+
+    NamedContainer(String name) {
+      this.name = name;
+    }
+  }
+
+  private static String nameOf(ExportInformation exportInformation) {
+    if (exportInformation.getPaginationData() != null) {
+      return ((StringPaginationToken) exportInformation.getPaginationData()).getToken();
+    }
+    return ((NamedContainer) exportInformation.getContainerResource()).name;
+  }
+
+  @Before
+  public void setUp() {
+    jobId = UUID.randomUUID();
+    authData = Mockito.mock(AuthData.class);
+    ExtensionContext context = Mockito.mock(ExtensionContext.class);
+    // A single queued page forces the exporter to wait on the importer.
+    Mockito.when(context.getSetting("pipelineMaxQueuedPages", 4)).thenReturn(1);
+    Mockito.when(context.getSetting("pipelineMaxQueuedBytes", 64 * 1024 * 1024))
+        .thenReturn(64 * 1024 * 1024);
+    copier = new TestPipelinedInMemoryDataCopier(context);
+    copier.resetCopyIterationCounter();
+
+    // root -> next page "page2", then albums "album1" and "album2"
+    ContinuationData continuationData = new ContinuationData(new StringPaginationToken("page2"));
+    continuationData.addContainerResource(new NamedContainer("album1"));
+    continuationData.addContainerResource(new NamedContainer("album2"));
+    copier.exportResults.put(
+        ROOT, new ExportResult<>(ResultType.CONTINUE, new NamedData(ROOT), continuationData));
+    copier.exportResults.put(
+        "page2", new ExportResult<>(ResultType.END, new NamedData("page2")));
+    copier.exportResults.put(
+        "album1", new ExportResult<>(ResultType.END, new NamedData("album1")));
+    copier.exportResults.put(
+        "album2", new ExportResult<>(ResultType.END, new NamedData("album2")));
+  }
+
+  @Test
+  public void importsPagesInExportOrder() throws Exception {
+    copier.copy(authData, authData, jobId, Optional.empty());
+
+    assertThat(copier.exported).containsExactly(ROOT, "page2", "album1", "album2").inOrder();
+    assertThat(copier.imported).containsExactly(ROOT, "page2", "album1", "album2").inOrder();
+  }
+
+  @Test
+  public void failedExportStillImportsEarlierPages() throws Exception {
+    copier.failingExport = "album1";
+
+    try {
+      copier.copy(authData, authData, jobId, Optional.empty());
+      fail("Expected the failed export to fail the copy");
+    } catch (CopyException expected) {
+    }
+    assertThat(copier.imported).containsExactly(ROOT, "page2").inOrder();
+  }
+
+  @Test
+  public void failedImportStopsExport() throws Exception {
+    copier.failingImport = ROOT;
+
+    try {
+      copier.copy(authData, authData, jobId, Optional.empty());
+      fail("Expected the failed import to fail the copy");
+    } catch (CopyException expected) {
+    }
+    assertThat(copier.imported).isEmpty();
+    assertThat(copier.exported).doesNotContain("album2");
+  }
+}
@@ -2,18 +2,86 @@ package org.datatransferproject.types.common.models.contacts;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Optional;
 import org.datatransferproject.types.common.models.DataModel;
 
-/** A collection of contacts as serialized vCards. */
+/**
+ * A collection of contacts as serialized vCards.
+ *
+ * <p>An exporter may instead hand over its contacts as structured records, such as parsed vCard
+ * objects, with {@link #fromContacts}. Importers that understand those records read them with
+ * {@link #getContacts} and skip parsing altogether. Other importers still see serialized vCards:
+ * the records are only serialized the first time {@link #getVCards} is called.
+ */
 public class ContactsModelWrapper extends DataModel {
-  private final String vCards;
+  private final List<?> contacts;
+  private final ContactsSerializer<?> serializer;
+  private volatile String vCards;
 
   @JsonCreator
   public ContactsModelWrapper(@JsonProperty("vCards") String vCards) {
+    this.contacts = null;
+    this.serializer = null;
     this.vCards = vCards;
   }
 
+  private <C> ContactsModelWrapper(List<C> contacts, ContactsSerializer<C> serializer) {
+    this.contacts = ImmutableList.copyOf(contacts);
+    this.serializer = serializer;
+  }
+
+  /**
+   * Wraps structured contact records, serialized with {@code serializer} only if an importer asks
+   * for {@link #getVCards}.
+   */
+  public static <C> ContactsModelWrapper fromContacts(
+      List<C> contacts, ContactsSerializer<C> serializer) {
+    return new ContactsModelWrapper(contacts, serializer);
+  }
+
+  @JsonProperty("vCards")
   public String getVCards() {
-    return vCards;
+    String serialized = vCards;
+    if (serialized == null && contacts != null) {
+      synchronized (this) {
+        serialized = vCards;
+        if (serialized == null) {
+          serialized = serializeContacts();
+          vCards = serialized;
+        }
+      }
+    }
+    return serialized;
+  }
+
+  /**
+   * Returns the structured contact records, if this wrapper was created from records of the given
+   * type, or empty if the contacts are only available as serialized vCards.
+   */
+  @SuppressWarnings("unchecked")
+  public <C> Optional<List<C>> getContacts(Class<C> contactType) {
+    if (contacts == null || !contacts.stream().allMatch(contactType::isInstance)) {
+      return Optional.empty();
+    }
+    return Optional.of((List<C>) contacts);
+  }
+
+  @SuppressWarnings("unchecked")
+  private String serializeContacts() {
+    try {
+      return ((ContactsSerializer<Object>) serializer).serialize((List<Object>) contacts);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to serialize contacts", e);
+    }
+  }
+
+  /** Serializes structured contact records into vCards. */
+  @FunctionalInterface
+  public interface ContactsSerializer<C> {
+    String serialize(List<C> contacts) throws IOException;
   }
 }
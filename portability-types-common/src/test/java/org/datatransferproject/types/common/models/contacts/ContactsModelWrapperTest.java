@@ -0,0 +1,60 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.types.common.models.contacts;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class ContactsModelWrapperTest {
+  @Test
+  public void contactsAreSerializedOnlyWhenAskedForVCards() {
+    AtomicInteger serializations = new AtomicInteger();
+    ContactsModelWrapper wrapper =
+        ContactsModelWrapper.fromContacts(
+            ImmutableList.of("alice", "bob"),
+            contacts -> {
+              serializations.incrementAndGet();
+              return String.join(",", contacts);
+            });
+
+    assertThat(wrapper.getContacts(String.class).get()).containsExactly("alice", "bob").inOrder();
+    assertThat(wrapper.getContacts(Integer.class).isPresent()).isFalse();
+    assertThat(serializations.get()).isEqualTo(0);
+
+    assertThat(wrapper.getVCards()).isEqualTo("alice,bob");
+    assertThat(wrapper.getVCards()).isEqualTo("alice,bob");
+    assertThat(serializations.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void verifySerializeDeserialize() throws Exception {
+    ObjectMapper objectMapper = new ObjectMapper();
+    ContactsModelWrapper wrapper =
+        ContactsModelWrapper.fromContacts(
+            ImmutableList.of("alice", "bob"), contacts -> String.join(",", contacts));
+
+    String serialized = objectMapper.writeValueAsString(wrapper);
+    ContactsModelWrapper deserialized =
+        objectMapper.readValue(serialized, ContactsModelWrapper.class);
+
+    assertThat(deserialized.getVCards()).isEqualTo("alice,bob");
+    assertThat(deserialized.getContacts(String.class).isPresent()).isFalse();
+  }
+}
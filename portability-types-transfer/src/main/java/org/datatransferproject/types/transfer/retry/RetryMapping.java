@@ -18,6 +18,7 @@ package org.datatransferproject.types.transfer.retry;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.Arrays;
+import java.util.regex.Pattern;
 
 /**
  * Class that determines whether a given {@link Throwable} is a match for its {@link RetryStrategy}.
@@ -32,11 +33,14 @@ public class RetryMapping {
   private String[] regexes;
   @JsonProperty("strategy")
   private RetryStrategy strategy;
+  // The regexes compiled once, rather than on every match.
+  private final Pattern[] patterns;
 
   public RetryMapping(@JsonProperty("regexes") String[] regexes,
       @JsonProperty("strategy") RetryStrategy strategy) {
     this.regexes = regexes;
     this.strategy = strategy;
+    this.patterns = Arrays.stream(regexes).map(Pattern::compile).toArray(Pattern[]::new);
   }
 
   public String[] getRegexes() {
@@ -47,11 +51,18 @@ public class RetryMapping {
     return strategy;
   }
 
-  public boolean matchesThrowable(Throwable throwable) {
+  /**
+   * Returns whether the string of {@code throwable} matches any of the regexes. Final, since the
+   * {@link RetryStrategyLibrary} caches the mapping it chose by that string.
+   */
+  public final boolean matchesThrowable(Throwable throwable) {
     // TODO: examine entire throwable, not just toString
-    String input = throwable.toString();
-    for (String regex : regexes) {
-      if (input.matches(regex)) {
+    return matches(throwable.toString());
+  }
+
+  private boolean matches(String input) {
+    for (Pattern pattern : patterns) {
+      if (pattern.matcher(input).matches()) {
         return true;
       }
     }
@@ -18,6 +18,8 @@ package org.datatransferproject.types.transfer.retry;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.util.List;
 
 /**
@@ -30,16 +32,25 @@ import java.util.List;
  *
  * If the Throwable does not match any RetryStrategy, then a default RetryStrategy is returned.
  *
+ * The mapping chosen for each distinct Throwable string is cached, so that the regexes aren't run
+ * again when the same error keeps coming back, e.g. while a service is throttling requests.
+ *
  * NOTE: Our core library only supports reading RetryStrategyLibraries from JSON or YAML format.
  * You are welcome to write your own parser for any other config languages you like, as long as it
  * can be ultimately parsed by Jackson.
  */
 public class RetryStrategyLibrary {
 
+  private static final int MAX_CACHED_THROWABLES = 1000;
+  private static final int NO_MATCH = -1;
+
   @JsonProperty("strategyMappings")
   private final List<RetryMapping> retryMappings;
   @JsonProperty("defaultRetryStrategy")
   private final RetryStrategy defaultRetryStrategy;
+  // The index of the mapping chosen for each Throwable string, or NO_MATCH.
+  private final Cache<String, Integer> mappingIndexCache =
+      CacheBuilder.newBuilder().maximumSize(MAX_CACHED_THROWABLES).build();
 
   public RetryStrategyLibrary(@JsonProperty("strategyMappings") List<RetryMapping> retryMappings,
       @JsonProperty("defaultRetryStrategy") RetryStrategy defaultRetryStrategy) {
@@ -57,12 +68,22 @@ public class RetryStrategyLibrary {
    */
   public RetryStrategy checkoutRetryStrategy(Throwable throwable) {
     // TODO: determine retry strategy based on full information in Throwable
-    for (RetryMapping mapping : retryMappings) {
-      if (mapping.matchesThrowable(throwable)) {
-        return mapping.getStrategy();
+    String input = throwable.toString();
+    Integer index = mappingIndexCache.getIfPresent(input);
+    if (index == null) {
+      index = findMappingIndex(throwable);
+      mappingIndexCache.put(input, index);
+    }
+    return index == NO_MATCH ? defaultRetryStrategy : retryMappings.get(index).getStrategy();
+  }
+
+  private int findMappingIndex(Throwable throwable) {
+    for (int i = 0; i < retryMappings.size(); i++) {
+      if (retryMappings.get(i).matchesThrowable(throwable)) {
+        return i;
       }
     }
-    return defaultRetryStrategy;
+    return NO_MATCH;
   }
 
   public RetryStrategy getDefaultRetryStrategy() {
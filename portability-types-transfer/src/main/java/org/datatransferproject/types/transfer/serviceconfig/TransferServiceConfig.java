@@ -33,6 +33,8 @@ public final class TransferServiceConfig {
   private static final ObjectMapper YAML_OBJECT_MAPPER = new ObjectMapper(new YAMLFactory());
 
   private final RateLimiter rateLimiter;
+  private final int maxConcurrentContainers;
+  private final int maxConcurrentUploads;
 
   public static TransferServiceConfig create(InputStream s) throws IOException {
     return new TransferServiceConfig(
@@ -49,6 +51,8 @@ public final class TransferServiceConfig {
   private TransferServiceConfig(TransferServiceConfigSpecification specification) {
     checkNotNull(specification, "specification can't be null");
     rateLimiter = RateLimiter.create(specification.getPerUserRateLimit());
+    maxConcurrentContainers = specification.getMaxConcurrentContainers();
+    maxConcurrentUploads = specification.getMaxConcurrentUploads();
   }
 
   /**
@@ -58,4 +62,22 @@ public final class TransferServiceConfig {
   public RateLimiter getPerUserRateLimiter() {
     return rateLimiter;
   }
+
+  /**
+   * The number of sibling container resources, e.g. albums, that the copier may export and import
+   * at the same time for this service, as specified in the config/[service].yaml config file.
+   * Defaults to 1; only services whose exporter and importer are thread safe should raise it.
+   **/
+  public int getMaxConcurrentContainers() {
+    return maxConcurrentContainers;
+  }
+
+  /**
+   * The number of items of a container, e.g. photos, that an importer that supports it may upload
+   * at the same time for this service, as specified in the config/[service].yaml config file.
+   * Uploads still honor the per-user rate limit. Defaults to 1.
+   **/
+  public int getMaxConcurrentUploads() {
+    return maxConcurrentUploads;
+  }
 }
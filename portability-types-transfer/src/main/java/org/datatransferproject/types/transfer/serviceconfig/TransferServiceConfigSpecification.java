@@ -16,6 +16,7 @@
 
 package org.datatransferproject.types.transfer.serviceconfig;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.Preconditions;
 
@@ -27,16 +28,47 @@ public class TransferServiceConfigSpecification {
   @JsonProperty("perUserRateLimit")
   private final double perUserRateLimit;
 
+  @JsonProperty("maxConcurrentContainers")
+  private final int maxConcurrentContainers;
+
+  @JsonProperty("maxConcurrentUploads")
+  private final int maxConcurrentUploads;
+
+  public TransferServiceConfigSpecification(double perUserRateLimit) {
+    this(perUserRateLimit, null, null);
+  }
+
+  @JsonCreator
   public TransferServiceConfigSpecification(
-      @JsonProperty("perUserRateLimit") double perUserRateLimit) {
+      @JsonProperty("perUserRateLimit") double perUserRateLimit,
+      @JsonProperty("maxConcurrentContainers") Integer maxConcurrentContainers,
+      @JsonProperty("maxConcurrentUploads") Integer maxConcurrentUploads) {
     Preconditions.checkArgument(
         perUserRateLimit > 0,
         "perUserRateLimit must be greater than zero");
+    Preconditions.checkArgument(
+        maxConcurrentContainers == null || maxConcurrentContainers > 0,
+        "maxConcurrentContainers must be greater than zero");
+    Preconditions.checkArgument(
+        maxConcurrentUploads == null || maxConcurrentUploads > 0,
+        "maxConcurrentUploads must be greater than zero");
     this.perUserRateLimit = perUserRateLimit;
+    this.maxConcurrentContainers = maxConcurrentContainers == null ? 1 : maxConcurrentContainers;
+    this.maxConcurrentUploads = maxConcurrentUploads == null ? 1 : maxConcurrentUploads;
   }
 
   /** The number of operations per second allowed for a user. **/
   public double getPerUserRateLimit() {
     return perUserRateLimit;
   }
+
+  /** The number of sibling container resources that may be copied at the same time. **/
+  public int getMaxConcurrentContainers() {
+    return maxConcurrentContainers;
+  }
+
+  /** The number of items of a container that an importer may upload at the same time. **/
+  public int getMaxConcurrentUploads() {
+    return maxConcurrentUploads;
+  }
 }
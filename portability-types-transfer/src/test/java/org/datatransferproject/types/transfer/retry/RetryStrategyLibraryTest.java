@@ -0,0 +1,60 @@
+/*
+ * Copyright 2021 The Data Transfer Project Authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.datatransferproject.types.transfer.retry;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import org.junit.Test;
+
+public class RetryStrategyLibraryTest {
+  private final RetryStrategy throttled = new UniformRetryStrategy(5, 1000);
+  private final RetryStrategy anyIoError = new UniformRetryStrategy(2, 100);
+  private final RetryStrategy defaultStrategy = new NoRetryStrategy();
+
+  private final RetryStrategyLibrary library =
+      new RetryStrategyLibrary(
+          ImmutableList.of(
+              new RetryMapping(new String[] {".*429.*", ".*Rate Limit.*"}, throttled),
+              new RetryMapping(new String[] {"java\\.io\\.IOException.*"}, anyIoError)),
+          defaultStrategy);
+
+  @Test
+  public void firstMatchingMappingWins() {
+    assertThat(library.checkoutRetryStrategy(new IOException("HTTP 429"))).isSameAs(throttled);
+    assertThat(library.checkoutRetryStrategy(new IOException("Connection reset")))
+        .isSameAs(anyIoError);
+  }
+
+  @Test
+  public void regexesMustMatchTheWholeThrowableString() {
+    // The second mapping's regex is found within "java.lang.IllegalStateException: ...", but it
+    // doesn't match the whole string.
+    assertThat(library.checkoutRetryStrategy(new IllegalStateException("java.io.IOException")))
+        .isSameAs(defaultStrategy);
+  }
+
+  @Test
+  public void cachedChoicesAreTheSameAsUncachedOnes() {
+    for (int i = 0; i < 3; i++) {
+      assertThat(library.checkoutRetryStrategy(new IOException("Rate Limit exceeded")))
+          .isSameAs(throttled);
+      assertThat(library.checkoutRetryStrategy(new RuntimeException("Rate limit exceeded")))
+          .isSameAs(defaultStrategy);
+    }
+  }
+}